@@ -61,6 +61,50 @@ public interface GatewayManagementBean extends ManagementBean {
 
     long getTotalExceptions();
 
+    long getHttpCompressedMessageCount();
+
+    long getHttpCompressionInputBytes();
+
+    long getHttpCompressionOutputBytes();
+
+    double getHttpCompressionRatio();
+
+    long getHttpCompressionTimeNanos();
+
+    long getSslFullHandshakeCount();
+
+    long getSslResumedHandshakeCount();
+
+    double getSslResumptionRatio();
+
+    long getSslFullHandshakeTimeNanos();
+
+    long getSslResumedHandshakeTimeNanos();
+
+    int getSslHandshakeQueueDepth();
+
+    long getSslHandshakeOffloadedTaskCount();
+
+    long getSslHandshakeInlineTaskCount();
+
+    long getSslHandshakeTaskTimeNanos();
+
+    int getHttpConnectPoolIdleConnections();
+
+    int getHttpConnectPoolActiveConnections();
+
+    int getHttpConnectPoolWaiters();
+
+    long getHttpConnectPoolAcquireCount();
+
+    long getHttpConnectPoolAcquireTimeNanos();
+
+    long getHttpConnectPoolAcquireTimeoutCount();
+
+    long getGatheringWriteCount();
+
+    long getGatheringWritesSavedCount();
+
     long getUptime();
 
     long getStartTime();
@@ -42,6 +42,11 @@ import org.kaazing.gateway.service.cluster.MemberId;
 import org.kaazing.gateway.service.cluster.MembershipEventListener;
 import org.kaazing.gateway.service.collections.CollectionsFactory;
 import org.kaazing.gateway.service.http.balancer.HttpBalancerService;
+import org.kaazing.gateway.transport.http.HttpConnector;
+import org.kaazing.gateway.transport.http.bridge.filter.HttpGzipEncoder;
+import org.kaazing.gateway.transport.ssl.bridge.filter.SslFilter;
+import org.kaazing.gateway.transport.ssl.bridge.filter.SslHandshakeExecutor;
+import org.kaazing.mina.netty.GatheringWriteCounters;
 import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -195,6 +200,122 @@ public class GatewayManagementBeanImpl extends AbstractManagementBean
         return total;
     }
 
+    @Override
+    public long getHttpCompressedMessageCount() {
+        return HttpGzipEncoder.getCompressedMessageCount();
+    }
+
+    @Override
+    public long getHttpCompressionInputBytes() {
+        return HttpGzipEncoder.getCompressionInputBytes();
+    }
+
+    @Override
+    public long getHttpCompressionOutputBytes() {
+        return HttpGzipEncoder.getCompressionOutputBytes();
+    }
+
+    // ratio of compressed to uncompressed bytes, 1.0 until anything has been compressed
+    @Override
+    public double getHttpCompressionRatio() {
+        long inputBytes = HttpGzipEncoder.getCompressionInputBytes();
+        long outputBytes = HttpGzipEncoder.getCompressionOutputBytes();
+        return inputBytes == 0 ? 1.0 : (double) outputBytes / inputBytes;
+    }
+
+    @Override
+    public long getHttpCompressionTimeNanos() {
+        return HttpGzipEncoder.getCompressionTimeNanos();
+    }
+
+    @Override
+    public long getSslFullHandshakeCount() {
+        return SslFilter.getFullHandshakeCount();
+    }
+
+    @Override
+    public long getSslResumedHandshakeCount() {
+        return SslFilter.getResumedHandshakeCount();
+    }
+
+    // fraction of accepted ssl handshakes that resumed a cached session, 0.0 until any handshake completes
+    @Override
+    public double getSslResumptionRatio() {
+        long resumed = SslFilter.getResumedHandshakeCount();
+        long total = resumed + SslFilter.getFullHandshakeCount();
+        return total == 0 ? 0.0 : (double) resumed / total;
+    }
+
+    @Override
+    public long getSslFullHandshakeTimeNanos() {
+        return SslFilter.getFullHandshakeTimeNanos();
+    }
+
+    @Override
+    public long getSslResumedHandshakeTimeNanos() {
+        return SslFilter.getResumedHandshakeTimeNanos();
+    }
+
+    @Override
+    public int getSslHandshakeQueueDepth() {
+        return SslHandshakeExecutor.getQueueDepth();
+    }
+
+    @Override
+    public long getSslHandshakeOffloadedTaskCount() {
+        return SslHandshakeExecutor.getOffloadedTaskCount();
+    }
+
+    @Override
+    public long getSslHandshakeInlineTaskCount() {
+        return SslHandshakeExecutor.getInlineTaskCount();
+    }
+
+    @Override
+    public long getSslHandshakeTaskTimeNanos() {
+        return SslHandshakeExecutor.getTaskTimeNanos();
+    }
+
+    @Override
+    public int getHttpConnectPoolIdleConnections() {
+        return HttpConnector.getPoolIdleConnections();
+    }
+
+    @Override
+    public int getHttpConnectPoolActiveConnections() {
+        return HttpConnector.getPoolActiveConnections();
+    }
+
+    @Override
+    public int getHttpConnectPoolWaiters() {
+        return HttpConnector.getPoolWaiters();
+    }
+
+    @Override
+    public long getHttpConnectPoolAcquireCount() {
+        return HttpConnector.getPoolAcquireCount();
+    }
+
+    @Override
+    public long getHttpConnectPoolAcquireTimeNanos() {
+        return HttpConnector.getPoolAcquireTimeNanos();
+    }
+
+    @Override
+    public long getHttpConnectPoolAcquireTimeoutCount() {
+        return HttpConnector.getPoolAcquireTimeoutCount();
+    }
+
+    @Override
+    public long getGatheringWriteCount() {
+        return GatheringWriteCounters.getGatheringWrites();
+    }
+
+    @Override
+    public long getGatheringWritesSavedCount() {
+        return GatheringWriteCounters.getWritesSaved();
+    }
+
     @Override
     public long getUptime() {
         return System.currentTimeMillis() - startTime;
@@ -81,6 +81,116 @@ public class GatewayMXBeanImpl implements GatewayMXBean {
         return gatewayManagementBean.getTotalBytesSent();
     }
 
+    @Override
+    public long getHttpCompressedMessageCount() {
+        return gatewayManagementBean.getHttpCompressedMessageCount();
+    }
+
+    @Override
+    public long getHttpCompressionInputBytes() {
+        return gatewayManagementBean.getHttpCompressionInputBytes();
+    }
+
+    @Override
+    public long getHttpCompressionOutputBytes() {
+        return gatewayManagementBean.getHttpCompressionOutputBytes();
+    }
+
+    @Override
+    public double getHttpCompressionRatio() {
+        return gatewayManagementBean.getHttpCompressionRatio();
+    }
+
+    @Override
+    public long getHttpCompressionTimeNanos() {
+        return gatewayManagementBean.getHttpCompressionTimeNanos();
+    }
+
+    @Override
+    public long getSslFullHandshakeCount() {
+        return gatewayManagementBean.getSslFullHandshakeCount();
+    }
+
+    @Override
+    public long getSslResumedHandshakeCount() {
+        return gatewayManagementBean.getSslResumedHandshakeCount();
+    }
+
+    @Override
+    public double getSslResumptionRatio() {
+        return gatewayManagementBean.getSslResumptionRatio();
+    }
+
+    @Override
+    public long getSslFullHandshakeTimeNanos() {
+        return gatewayManagementBean.getSslFullHandshakeTimeNanos();
+    }
+
+    @Override
+    public long getSslResumedHandshakeTimeNanos() {
+        return gatewayManagementBean.getSslResumedHandshakeTimeNanos();
+    }
+
+    @Override
+    public int getSslHandshakeQueueDepth() {
+        return gatewayManagementBean.getSslHandshakeQueueDepth();
+    }
+
+    @Override
+    public long getSslHandshakeOffloadedTaskCount() {
+        return gatewayManagementBean.getSslHandshakeOffloadedTaskCount();
+    }
+
+    @Override
+    public long getSslHandshakeInlineTaskCount() {
+        return gatewayManagementBean.getSslHandshakeInlineTaskCount();
+    }
+
+    @Override
+    public long getSslHandshakeTaskTimeNanos() {
+        return gatewayManagementBean.getSslHandshakeTaskTimeNanos();
+    }
+
+    @Override
+    public int getHttpConnectPoolIdleConnections() {
+        return gatewayManagementBean.getHttpConnectPoolIdleConnections();
+    }
+
+    @Override
+    public int getHttpConnectPoolActiveConnections() {
+        return gatewayManagementBean.getHttpConnectPoolActiveConnections();
+    }
+
+    @Override
+    public int getHttpConnectPoolWaiters() {
+        return gatewayManagementBean.getHttpConnectPoolWaiters();
+    }
+
+    @Override
+    public long getHttpConnectPoolAcquireCount() {
+        return gatewayManagementBean.getHttpConnectPoolAcquireCount();
+    }
+
+    @Override
+    public long getHttpConnectPoolAcquireTimeNanos() {
+        return gatewayManagementBean.getHttpConnectPoolAcquireTimeNanos();
+    }
+
+    @Override
+    public long getHttpConnectPoolAcquireTimeoutCount() {
+        return gatewayManagementBean.getHttpConnectPoolAcquireTimeoutCount();
+    }
+
+    @Override
+    public long getGatheringWriteCount() {
+        return gatewayManagementBean.getGatheringWriteCount();
+    }
+
+    @Override
+    public long getGatheringWritesSavedCount() {
+        return gatewayManagementBean.getGatheringWritesSavedCount();
+    }
+
     @Override
     public long getUptime() {
         return gatewayManagementBean.getUptime();
@@ -37,4 +37,24 @@ public interface RealmMXBean {
     String getSessionTimeout();
 
     String getLoginModules();
+
+    long getLoginCacheHitCount();
+
+    long getLoginCacheMissCount();
+
+    double getLoginCacheHitRatio();
+
+    void invalidateLoginCache();
+
+    long getLoginCount();
+
+    long getLoginRejectedCount();
+
+    long getLoginTimedOutCount();
+
+    int getLoginQueueDepth();
+
+    long[] getLoginLatencyHistogram();
+
+    long[] getLoginLatencyHistogramBoundsMillis();
 }
@@ -18,6 +18,8 @@ package org.kaazing.gateway.management.jmx;
 
 import javax.management.ObjectName;
 import org.kaazing.gateway.management.config.RealmConfigurationBean;
+import org.kaazing.gateway.transport.http.bridge.filter.HttpLoginCache;
+import org.kaazing.gateway.transport.http.bridge.filter.HttpLoginExecutor;
 
 public class RealmMXBeanImpl implements RealmMXBean {
 
@@ -87,4 +89,56 @@ public class RealmMXBeanImpl implements RealmMXBean {
     public String getUserPrincipalClasses() {
         return realmBean.getUserPrincipalClasses();
     }
+
+    @Override
+    public long getLoginCacheHitCount() {
+        return HttpLoginCache.getHitCount(realmBean.getName());
+    }
+
+    @Override
+    public long getLoginCacheMissCount() {
+        return HttpLoginCache.getMissCount(realmBean.getName());
+    }
+
+    @Override
+    public double getLoginCacheHitRatio() {
+        long hits = getLoginCacheHitCount();
+        long lookups = hits + getLoginCacheMissCount();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public void invalidateLoginCache() {
+        HttpLoginCache.invalidate(realmBean.getName());
+    }
+
+    @Override
+    public long getLoginCount() {
+        return HttpLoginExecutor.getLoginCount(realmBean.getName());
+    }
+
+    @Override
+    public long getLoginRejectedCount() {
+        return HttpLoginExecutor.getRejectedCount(realmBean.getName());
+    }
+
+    @Override
+    public long getLoginTimedOutCount() {
+        return HttpLoginExecutor.getTimedOutCount(realmBean.getName());
+    }
+
+    @Override
+    public int getLoginQueueDepth() {
+        return HttpLoginExecutor.getQueueDepth(realmBean.getName());
+    }
+
+    @Override
+    public long[] getLoginLatencyHistogram() {
+        return HttpLoginExecutor.getLatencyHistogram(realmBean.getName());
+    }
+
+    @Override
+    public long[] getLoginLatencyHistogramBoundsMillis() {
+        return HttpLoginExecutor.LATENCY_BUCKET_BOUNDS_MILLIS.clone();
+    }
 }
@@ -68,10 +68,52 @@ public interface ServiceMXBean {
 
     boolean isHeartbeatRunning();
 
+    long[] getPreparedConnectionHits();
+
+    long[] getPreparedConnectionMisses();
+
+    int[] getPreparedConnectionTargetCounts();
+
     // -----------------------------------------------------------------
     // end of proxy-style service data
     // -----------------------------------------------------------------
 
+    // -----------------------------------------------------------------
+    // For broadcast services the following methods should return data
+    // -----------------------------------------------------------------
+
+    long getBroadcastSubscriberCount();
+
+    long getBroadcastQueuedBytes();
+
+    long getSlowConsumerCloseCount();
+
+    long getSlowConsumerConflatedMessageCount();
+
+    long getSlowConsumerDroppedMessageCount();
+
+    long getSlowConsumerPauseCount();
+
+    // -----------------------------------------------------------------
+    // end of broadcast service data
+    // -----------------------------------------------------------------
+
+    // -----------------------------------------------------------------
+    // For directory services the following methods should return data
+    // -----------------------------------------------------------------
+
+    long getDirectoryCacheHitCount();
+
+    long getDirectoryCacheMissCount();
+
+    long getDirectoryCacheEvictionCount();
+
+    long getDirectoryCacheSize();
+
+    // -----------------------------------------------------------------
+    // end of directory service data
+    // -----------------------------------------------------------------
+
     // lifecycle methods
     void start() throws Exception;
     void stop() throws Exception;
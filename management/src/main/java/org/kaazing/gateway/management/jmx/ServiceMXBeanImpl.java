@@ -215,6 +215,71 @@ public class ServiceMXBeanImpl implements ServiceMXBean {
         return serviceManagementBean.isHeartbeatRunning();
     }
 
+    @Override
+    public long[] getPreparedConnectionHits() {
+        return serviceManagementBean.getPreparedConnectionHits();
+    }
+
+    @Override
+    public long[] getPreparedConnectionMisses() {
+        return serviceManagementBean.getPreparedConnectionMisses();
+    }
+
+    @Override
+    public int[] getPreparedConnectionTargetCounts() {
+        return serviceManagementBean.getPreparedConnectionTargetCounts();
+    }
+
+    @Override
+    public long getBroadcastSubscriberCount() {
+        return serviceManagementBean.getBroadcastSubscriberCount();
+    }
+
+    @Override
+    public long getBroadcastQueuedBytes() {
+        return serviceManagementBean.getBroadcastQueuedBytes();
+    }
+
+    @Override
+    public long getSlowConsumerCloseCount() {
+        return serviceManagementBean.getSlowConsumerCloseCount();
+    }
+
+    @Override
+    public long getSlowConsumerConflatedMessageCount() {
+        return serviceManagementBean.getSlowConsumerConflatedMessageCount();
+    }
+
+    @Override
+    public long getSlowConsumerDroppedMessageCount() {
+        return serviceManagementBean.getSlowConsumerDroppedMessageCount();
+    }
+
+    @Override
+    public long getSlowConsumerPauseCount() {
+        return serviceManagementBean.getSlowConsumerPauseCount();
+    }
+
+    @Override
+    public long getDirectoryCacheHitCount() {
+        return serviceManagementBean.getDirectoryCacheHitCount();
+    }
+
+    @Override
+    public long getDirectoryCacheMissCount() {
+        return serviceManagementBean.getDirectoryCacheMissCount();
+    }
+
+    @Override
+    public long getDirectoryCacheEvictionCount() {
+        return serviceManagementBean.getDirectoryCacheEvictionCount();
+    }
+
+    @Override
+    public long getDirectoryCacheSize() {
+        return serviceManagementBean.getDirectoryCacheSize();
+    }
+
     // Some lifecycle methods for the service, called from
     // the management platform (e.g. JConsole.)
     @Override
@@ -21,6 +21,8 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.security.Principal;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -43,6 +45,9 @@ import org.kaazing.gateway.security.RealmContext;
 import org.kaazing.gateway.server.Gateway;
 import org.kaazing.gateway.service.Service;
 import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.service.broadcast.BroadcastPartition;
+import org.kaazing.gateway.service.broadcast.BroadcastService;
+import org.kaazing.gateway.service.http.directory.HttpDirectoryService;
 import org.kaazing.gateway.service.proxy.ProxyService;
 import org.kaazing.gateway.service.proxy.ServiceConnectManager;
 import org.kaazing.gateway.transport.AbstractBridgeSession;
@@ -163,10 +168,52 @@ public interface ServiceManagementBean extends ManagementBean {
 
     boolean isHeartbeatRunning();
 
+    long[] getPreparedConnectionHits();
+
+    long[] getPreparedConnectionMisses();
+
+    int[] getPreparedConnectionTargetCounts();
+
     // -----------------------------------------------------------------
     // end of proxy-style service data
     // -----------------------------------------------------------------
 
+    // -----------------------------------------------------------------
+    // For broadcast services the following methods should return data
+    // -----------------------------------------------------------------
+
+    long getBroadcastSubscriberCount();
+
+    long getBroadcastQueuedBytes();
+
+    long getSlowConsumerCloseCount();
+
+    long getSlowConsumerConflatedMessageCount();
+
+    long getSlowConsumerDroppedMessageCount();
+
+    long getSlowConsumerPauseCount();
+
+    // -----------------------------------------------------------------
+    // end of broadcast service data
+    // -----------------------------------------------------------------
+
+    // -----------------------------------------------------------------
+    // For directory services the following methods should return data
+    // -----------------------------------------------------------------
+
+    long getDirectoryCacheHitCount();
+
+    long getDirectoryCacheMissCount();
+
+    long getDirectoryCacheEvictionCount();
+
+    long getDirectoryCacheSize();
+
+    // -----------------------------------------------------------------
+    // end of directory service data
+    // -----------------------------------------------------------------
+
     // Now some lifecycle methods, generally called from a particular
     // management interface through the beans for that protocol, for
     // example the ServiceMXBean for a given service.
@@ -252,6 +299,8 @@ public interface ServiceManagementBean extends ManagementBean {
         private final GatewayManagementBean gatewayManagementBean;
         private final ServiceContext serviceContext;
         private final ServiceConnectManager serviceConnectManager;
+        private final BroadcastService broadcastService;
+        private final HttpDirectoryService directoryService;
 
         private final Set<Class<Principal>> userPrincipalClasses;
 
@@ -293,6 +342,8 @@ public interface ServiceManagementBean extends ManagementBean {
             } else {
                 this.serviceConnectManager = null;
             }
+            this.broadcastService = (service instanceof BroadcastService) ? (BroadcastService) service : null;
+            this.directoryService = (service instanceof HttpDirectoryService) ? (HttpDirectoryService) service : null;
 
             userPrincipalClasses = new HashSet<>();
             RealmContext realmContext = serviceContext.getServiceRealm();
@@ -630,6 +681,103 @@ public interface ServiceManagementBean extends ManagementBean {
             return serviceConnectManager != null && serviceConnectManager.isHeartbeatRunning();
         }
 
+        // XXX This runs OFF the IO thread
+        @Override
+        public long[] getPreparedConnectionHits() {
+            return serviceConnectManager != null ? serviceConnectManager.getPreparedConnectionHits() : new long[0];
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long[] getPreparedConnectionMisses() {
+            return serviceConnectManager != null ? serviceConnectManager.getPreparedConnectionMisses() : new long[0];
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public int[] getPreparedConnectionTargetCounts() {
+            return serviceConnectManager != null ? serviceConnectManager.getPreparedConnectionTargetCounts() : new int[0];
+        }
+
+        @Override
+        public long getBroadcastSubscriberCount() {
+            long count = 0;
+            for (BroadcastPartition partition : getBroadcastPartitions()) {
+                count += partition.getSubscriberCount();
+            }
+            return count;
+        }
+
+        @Override
+        public long getBroadcastQueuedBytes() {
+            long count = 0;
+            for (BroadcastPartition partition : getBroadcastPartitions()) {
+                count += partition.getQueuedBytes();
+            }
+            return count;
+        }
+
+        @Override
+        public long getSlowConsumerCloseCount() {
+            long count = 0;
+            for (BroadcastPartition partition : getBroadcastPartitions()) {
+                count += partition.getSlowConsumerCloseCount();
+            }
+            return count;
+        }
+
+        @Override
+        public long getSlowConsumerConflatedMessageCount() {
+            long count = 0;
+            for (BroadcastPartition partition : getBroadcastPartitions()) {
+                count += partition.getConflatedMessageCount();
+            }
+            return count;
+        }
+
+        @Override
+        public long getSlowConsumerDroppedMessageCount() {
+            long count = 0;
+            for (BroadcastPartition partition : getBroadcastPartitions()) {
+                count += partition.getDroppedMessageCount();
+            }
+            return count;
+        }
+
+        @Override
+        public long getSlowConsumerPauseCount() {
+            long count = 0;
+            for (BroadcastPartition partition : getBroadcastPartitions()) {
+                count += partition.getPauseCount();
+            }
+            return count;
+        }
+
+        private Collection<BroadcastPartition> getBroadcastPartitions() {
+            return broadcastService != null ? broadcastService.getPartitions()
+                    : Collections.<BroadcastPartition>emptyList();
+        }
+
+        @Override
+        public long getDirectoryCacheHitCount() {
+            return directoryService != null ? directoryService.getCacheHitCount() : 0;
+        }
+
+        @Override
+        public long getDirectoryCacheMissCount() {
+            return directoryService != null ? directoryService.getCacheMissCount() : 0;
+        }
+
+        @Override
+        public long getDirectoryCacheEvictionCount() {
+            return directoryService != null ? directoryService.getCacheEvictionCount() : 0;
+        }
+
+        @Override
+        public long getDirectoryCacheSize() {
+            return directoryService != null ? directoryService.getCacheSize() : 0;
+        }
+
         @Override
         public IoSessionEx getSession(long sessionId) {
             return serviceContext.getActiveSession(sessionId);
@@ -235,8 +235,6 @@ abstract class AbstractNioSelector implements NioSelector {
         if (selector == null) {
             return;
         }
-        // use 80% of the timeout for measure
-        final long minSelectTimeout = SelectorUtil.SELECT_TIMEOUT_NANOS * 80 / 100;
         boolean wakenupFromLoop = false;
         boolean quickSelect = false;
         long maximumProcessTaskQueueNanos = getMaximumProcessTaskQueueTimeNanos();
@@ -244,6 +242,8 @@ abstract class AbstractNioSelector implements NioSelector {
             wakenUp.set(false);
 
             try {
+                // use 80% of the timeout for measure
+                long minSelectTimeout = MILLISECONDS.toNanos(getSelectTimeoutMillis()) * 80 / 100;
                 long beforeSelect = System.nanoTime();
                 int selected = select(selector, quickSelect);
                 // The SelectorUtil.EPOLL_BUG_WORKAROUND condition was removed in Netty 3.10.5 and instead
@@ -384,6 +384,7 @@ abstract class AbstractNioSelector implements NioSelector {
                 } else {
                     process(selector);
                     processRead();
+                    processTimers();
                 }
             } catch (Throwable t) {
                 logger.warn(
@@ -522,12 +523,25 @@ abstract class AbstractNioSelector implements NioSelector {
     protected void processRead() throws IOException {
     }
 
+    /**
+     * Called once per pass of the selector loop, after I/O has been processed.
+     */
+    protected void processTimers() {
+    }
+
     protected int select(Selector selector, boolean quickSelect) throws IOException {
         return select(selector);
     }
 
     protected int select(Selector selector) throws IOException {
-        return SelectorUtil.select(selector);
+        return SelectorUtil.select(selector, getSelectTimeoutMillis());
+    }
+
+    /**
+     * Returns how long a select may block, by default {@link SelectorUtil#SELECT_TIMEOUT}.
+     */
+    protected long getSelectTimeoutMillis() {
+        return SelectorUtil.SELECT_TIMEOUT;
     }
 
     protected abstract void close(SelectionKey k);
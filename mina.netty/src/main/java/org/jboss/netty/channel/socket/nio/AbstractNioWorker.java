@@ -44,7 +44,7 @@ import org.jboss.netty.logging.InternalLoggerFactory;
 import org.jboss.netty.util.ThreadNameDeterminer;
 import org.jboss.netty.util.ThreadRenamingRunnable;
 import org.kaazing.mina.netty.channel.DefaultWriteCompletionEventEx;
-import org.agrona.concurrent.OneToOneConcurrentArrayQueue;
+import org.agrona.concurrent.ManyToOneConcurrentArrayQueue;
 
 import java.io.IOException;
 import java.nio.channels.AsynchronousCloseException;
@@ -85,7 +85,8 @@ public abstract class AbstractNioWorker extends AbstractNioSelector implements W
     protected final SocketReceiveBufferAllocator recvBufferPool = new SocketReceiveBufferAllocator();
     protected final SocketSendBufferPool sendBufferPool = new SocketSendBufferPool();
     private final DefaultWriteCompletionEventEx writeCompletionEvent = new DefaultWriteCompletionEventEx();
-    private final Queue<ChannelEvent> readQueue = new OneToOneConcurrentArrayQueue<>(UDP_CHANNEL_READ_QUEUE_SIZE_PER_WORKER);
+    // many producers as a bound UDP port may be serviced by several boss threads (SO_REUSEPORT)
+    private final Queue<ChannelEvent> readQueue = new ManyToOneConcurrentArrayQueue<>(UDP_CHANNEL_READ_QUEUE_SIZE_PER_WORKER);
 
     private int noDroppedMessages;
 
@@ -53,6 +53,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.jboss.netty.channel.Channels.*;
 
@@ -68,6 +69,9 @@ public class NioDatagramChannel extends AbstractNioChannel<DatagramChannel>
     private final NioDatagramChannelConfig config;
     private Map<InetAddress, List<MembershipKey>> memberships;
 
+    // mina.netty change - additional sockets bound to the same port (SO_REUSEPORT), one per extra boss
+    private final List<DatagramChannel> reusePortChannels = new CopyOnWriteArrayList<>();
+
     NioDatagramChannel(final ChannelFactory factory,
             final ChannelPipeline pipeline, final ChannelSink sink,
             final AbstractNioWorker worker, InternetProtocolFamily family) {
@@ -119,8 +123,20 @@ public class NioDatagramChannel extends AbstractNioChannel<DatagramChannel>
         return channel.isConnected();
     }
 
+    void addReusePortChannel(DatagramChannel reusePortChannel) {
+        reusePortChannels.add(reusePortChannel);
+    }
+
     @Override
     protected boolean setClosed() {
+        for (DatagramChannel reusePortChannel : reusePortChannels) {
+            try {
+                reusePortChannel.close();
+            } catch (IOException e) {
+                // ignore, the primary channel is closed already
+            }
+        }
+        reusePortChannels.clear();
         return super.setClosed();
     }
 
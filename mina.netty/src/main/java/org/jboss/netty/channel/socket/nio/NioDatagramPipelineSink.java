@@ -33,6 +33,9 @@ package org.jboss.netty.channel.socket.nio;
 import static org.jboss.netty.channel.Channels.*;
 
 import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
 
 import org.jboss.netty.channel.ChannelEvent;
 import org.jboss.netty.channel.ChannelFuture;
@@ -41,6 +44,8 @@ import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelState;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.logging.InternalLogger;
+import org.jboss.netty.logging.InternalLoggerFactory;
 
 /**
  * Receives downstream events from a {@link ChannelPipeline}.  It contains
@@ -48,6 +53,11 @@ import org.jboss.netty.channel.MessageEvent;
  */
 class NioDatagramPipelineSink extends AbstractNioChannelSink {
 
+    private static final InternalLogger LOGGER = InternalLoggerFactory.getInstance(NioDatagramPipelineSink.class);
+
+    // StandardSocketOptions.SO_REUSEPORT is only available from JDK 9 onwards
+    private static final SocketOption<Boolean> SO_REUSEPORT = reusePortOption();
+
     /**
      * Handle downstream event.
      *
@@ -122,6 +132,12 @@ class NioDatagramPipelineSink extends AbstractNioChannelSink {
         boolean bound = false;
         boolean started = false;
         try {
+            // mina.netty change - spread a bound port across several bosses when configured
+            int reusePortCount = reusePortCount(channel);
+            if (reusePortCount > 0) {
+                channel.getDatagramChannel().setOption(SO_REUSEPORT, true);
+            }
+
             // First bind the DatagramSocket the specified port.
             channel.getDatagramChannel().socket().bind(address);
             bound = true;
@@ -131,6 +147,18 @@ class NioDatagramPipelineSink extends AbstractNioChannelSink {
 
             channel.worker.register(channel, null);
             started = true;
+
+            if (reusePortCount > 0) {
+                NioServerDatagramChannelFactory factory = (NioServerDatagramChannelFactory) channel.getFactory();
+                for (int i = 0; i < reusePortCount; i++) {
+                    DatagramChannel reusePortChannel = DatagramChannel.open();
+                    channel.addReusePortChannel(reusePortChannel);
+                    reusePortChannel.configureBlocking(false);
+                    reusePortChannel.setOption(SO_REUSEPORT, true);
+                    reusePortChannel.bind(channel.getDatagramChannel().getLocalAddress());
+                    factory.nextBoss().registerReusePortChannel(channel, reusePortChannel);
+                }
+            }
         } catch (final Throwable t) {
             future.setFailure(t);
             fireExceptionCaught(channel, t);
@@ -141,6 +169,33 @@ class NioDatagramPipelineSink extends AbstractNioChannelSink {
         }
     }
 
+    private static int reusePortCount(NioDatagramChannel channel) {
+        if (!(channel.getFactory() instanceof NioServerDatagramChannelFactory)) {
+            return 0;
+        }
+        int bossCount = ((NioServerDatagramChannelFactory) channel.getFactory()).getBossCount();
+        if (bossCount <= 1) {
+            return 0;
+        }
+        if (SO_REUSEPORT == null || !channel.getDatagramChannel().supportedOptions().contains(SO_REUSEPORT)) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("SO_REUSEPORT is not supported, binding a single socket serviced by one of "
+                        + bossCount + " UDP boss threads");
+            }
+            return 0;
+        }
+        return bossCount - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> reusePortOption() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
     private static void connect(
             NioDatagramChannel channel, ChannelFuture future,
             InetSocketAddress remoteAddress) {
@@ -52,6 +52,7 @@ import java.util.Queue;
 import java.util.concurrent.Executor;
 
 import static org.jboss.netty.channel.Channels.*;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.UDP_RECEIVE_BATCH_SIZE;
 
 /**
  * A class responsible for registering channels with {@link Selector}.
@@ -59,6 +60,9 @@ import static org.jboss.netty.channel.Channels.*;
  */
 public class NioServerDatagramBoss extends AbstractNioWorker /* AbstractNioSelector */ implements Boss {
 
+    // Avoid static variables to facilitate unit tests
+    private final int receiveBatchSize = UDP_RECEIVE_BATCH_SIZE.getIntProperty(System.getProperties());
+
     /**
      * Sole constructor.
      *
@@ -76,43 +80,45 @@ public class NioServerDatagramBoss extends AbstractNioWorker /* AbstractNioSelec
                 channel.getConfig().getReceiveBufferSizePredictor();
         final ChannelBufferFactory bufferFactory = channel.getConfig().getBufferFactory();
         final DatagramChannel nioChannel = (DatagramChannel) key.channel();
-        final int predictedRecvBufSize = predictor.nextReceiveBufferSize();
-
-        final ByteBuffer byteBuffer = recvBufferPool.get(predictedRecvBufSize).order(bufferFactory.getDefaultOrder());
 
         boolean failure = true;
-        SocketAddress remoteAddress = null;
         try {
-            // Receive from the channel in a non blocking mode. We have already been notified that
-            // the channel is ready to receive.
-            remoteAddress = nioChannel.receive(byteBuffer);
-            failure = false;
-        } catch (ClosedChannelException e) {
-            // Can happen, and does not need a user attention.
-        } catch (Throwable t) {
-            fireExceptionCaught(channel, t);
-        }
-
-        if (remoteAddress != null) {
-            // Flip the buffer so that we can wrap it.
-            byteBuffer.flip();
+            // mina.netty change - drain several datagrams per selector wakeup instead of one
+            for (int received = 0; received < receiveBatchSize; received++) {
+                final int predictedRecvBufSize = predictor.nextReceiveBufferSize();
+                final ByteBuffer byteBuffer =
+                        recvBufferPool.get(predictedRecvBufSize).order(bufferFactory.getDefaultOrder());
+
+                // Receive from the channel in a non blocking mode. We have already been notified that
+                // the channel is ready to receive.
+                SocketAddress remoteAddress = nioChannel.receive(byteBuffer);
+                if (remoteAddress == null) {
+                    // no more datagrams pending
+                    break;
+                }
 
-            int readBytes = byteBuffer.remaining();
-            if (readBytes > 0) {
-                // Update the predictor.
-                predictor.previousReceiveBufferSize(readBytes);
+                // Flip the buffer so that we can wrap it.
+                byteBuffer.flip();
 
-                final ChannelBuffer buffer = bufferFactory.getBuffer(readBytes);
-                buffer.setBytes(0, byteBuffer);
-                buffer.writerIndex(readBytes);
+                int readBytes = byteBuffer.remaining();
+                if (readBytes > 0) {
+                    final ChannelBuffer buffer = bufferFactory.getBuffer(readBytes);
+                    buffer.setBytes(0, byteBuffer);
+                    buffer.writerIndex(readBytes);
 
-                // Update the predictor.
-                predictor.previousReceiveBufferSize(readBytes);
+                    // Update the predictor.
+                    predictor.previousReceiveBufferSize(readBytes);
 
-                // Notify the interested parties about the newly arrived message.
-                fireMessageReceived(
-                        channel, buffer, remoteAddress);
+                    // Notify the interested parties about the newly arrived message.
+                    fireMessageReceived(
+                            channel, buffer, remoteAddress);
+                }
             }
+            failure = false;
+        } catch (ClosedChannelException e) {
+            // Can happen, and does not need a user attention.
+        } catch (Throwable t) {
+            fireExceptionCaught(channel, t);
         }
 
         if (failure) {
@@ -124,6 +130,23 @@ public class NioServerDatagramBoss extends AbstractNioWorker /* AbstractNioSelec
         return true;
     }
 
+    /**
+     * Registers an additional socket bound to the same port as the channel (via SO_REUSEPORT) with
+     * this boss, so that datagrams received on it are delivered to the channel from this boss thread.
+     */
+    void registerReusePortChannel(final NioDatagramChannel channel, final DatagramChannel reusePortChannel) {
+        registerTask(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reusePortChannel.register(selector, SelectionKey.OP_READ, channel);
+                } catch (ClosedChannelException e) {
+                    // channel already closed, nothing to receive
+                }
+            }
+        });
+    }
+
     @Override
     protected boolean scheduleWriteIfNecessary(final AbstractNioChannel<?> channel) {
         final Thread workerThread = thread;
@@ -54,7 +54,9 @@ import org.jboss.netty.util.ExternalResourceReleasable;
  * <p>
  * Each bound {@link NioDatagramChannel} has its own boss thread.
  * For example, if you opened two server ports such as 80 and 443, you will
- * have two boss threads.  A boss thread creates child sessions based on
+ * have two boss threads.  When the factory is created with more than one boss
+ * and the platform supports {@code SO_REUSEPORT}, a bound port is serviced by
+ * one socket per boss so that the kernel spreads datagrams across the bosses.  A boss thread creates child sessions based on
  * the remote address of client.  Once a child connection is created
  * successfully, the boss thread passes the child {@link Channel} to one of
  * the worker threads that the {@link NioServerDatagramChannelFactory} manages.
@@ -72,10 +74,12 @@ public class NioServerDatagramChannelFactory implements DatagramChannelFactory {
     private final BossPool<NioServerDatagramBoss> bossPool;
     private final WorkerPool<NioWorker> workerPool;
     private final InternetProtocolFamily family;
+    private final int bossCount;
     private boolean releasePool;
 
     public NioServerDatagramChannelFactory(Executor bossExecutor, int bossCount, WorkerPool<NioWorker> workerPool) {
         bossPool = new NioDatagramBossPool(bossExecutor, bossCount, null);
+        this.bossCount = bossCount;
         this.workerPool = workerPool;
         this.family = null;
         sink = new NioDatagramPipelineSink();
@@ -92,6 +96,15 @@ public class NioServerDatagramChannelFactory implements DatagramChannelFactory {
         return new NioChildDatagramChannel(parent, this, pipeline, childSink, workerPool.nextWorker(), family);
     }
 
+    // mina.netty change - number of boss threads sharing a bound port via SO_REUSEPORT
+    int getBossCount() {
+        return bossCount;
+    }
+
+    NioServerDatagramBoss nextBoss() {
+        return bossPool.nextBoss();
+    }
+
     public void shutdown() {
         workerPool.shutdown();
         bossPool.shutdown();
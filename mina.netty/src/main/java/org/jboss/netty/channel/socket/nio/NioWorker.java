@@ -30,9 +30,16 @@
  */
 package org.jboss.netty.channel.socket.nio;
 
+import static org.jboss.netty.buffer.ChannelBuffers.wrappedBuffer;
 import static org.jboss.netty.channel.Channels.fireWriteComplete;
 import static org.kaazing.mina.netty.config.InternalSystemProperty.MAXIMUM_PROCESS_TASKS_TIME;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.POOLED_BUFFER_CACHE_SIZE;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.POOLED_BUFFER_DIRECT;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.POOLED_BUFFER_LEAK_SAMPLING_INTERVAL;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.POOLED_BUFFER_MAX_CAPACITY;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.ZERO_COPY_TCP_READ;
 import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
 import static org.jboss.netty.channel.Channels.fireChannelBound;
 import static org.jboss.netty.channel.Channels.fireChannelConnected;
 import static org.jboss.netty.channel.Channels.fireExceptionCaught;
@@ -48,6 +55,7 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.Properties;
 import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -61,7 +69,12 @@ import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.ReceiveBufferSizePredictor;
 import org.jboss.netty.util.ThreadNameDeterminer;
 
+import org.kaazing.mina.core.buffer.ByteBufferPool;
+import org.kaazing.mina.core.buffer.ByteBufferPool.Lease;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.netty.buffer.LeasedChannelBuffer;
 import org.kaazing.mina.netty.config.InternalSystemProperty;
+import org.kaazing.mina.netty.util.TimerWheel;
 
 public class NioWorker extends AbstractNioWorker {
 
@@ -75,6 +88,13 @@ public class NioWorker extends AbstractNioWorker {
     private final long QUICK_SELECT_TIMEOUT =
             InternalSystemProperty.QUICK_SELECT_TIMEOUT.getLongProperty(System.getProperties());
 
+    // null unless zero copy TCP reads are enabled, only used by this worker's thread
+    private final ByteBufferPool readBufferPool = newReadBufferPool(System.getProperties());
+
+    // advanced from the select loop, so timeouts expire on this worker's thread
+    // note: created by run() as the worker thread is started by the super constructor, before field initializers
+    private volatile TimerWheel timerWheel;
+
     {
         // Always report when any of the tuning features are active, irrespective of log4j configuration
         if (MAXIMUM_PROCESS_TASKS_TIME_MILLIS > 0) {
@@ -98,6 +118,44 @@ public class NioWorker extends AbstractNioWorker {
         super(executor, determiner);
     }
 
+    @Override
+    public void run() {
+        TimerWheel timerWheel = new TimerWheel(TimerWheel.DEFAULT_TICK_MILLIS, currentTimeMillis(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                registerTask(command);
+            }
+        });
+        timerWheel.bindToCurrentThread();
+        this.timerWheel = timerWheel;
+        try {
+            super.run();
+        }
+        finally {
+            timerWheel.unbindFromCurrentThread();
+        }
+    }
+
+    /**
+     * Returns the timer wheel driven by this worker's select loop, or {@code null} until the worker thread has started.
+     */
+    public TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
+    @Override
+    protected void processTimers() {
+        timerWheel.expireTimeouts(currentTimeMillis());
+    }
+
+    @Override
+    protected long getSelectTimeoutMillis() {
+        // wake up in time for the next tick while any timeout is scheduled
+        long untilNextTick = timerWheel.getMillisUntilNextTick(currentTimeMillis());
+        long selectTimeout = super.getSelectTimeoutMillis();
+        return untilNextTick == -1L ? selectTimeout : Math.min(untilNextTick, selectTimeout);
+    }
+
     @Override
     protected final long getMaximumProcessTaskQueueTimeNanos() {
         return MAXIMUM_PROCESS_TASKS_TIME_NANOS;
@@ -110,6 +168,10 @@ public class NioWorker extends AbstractNioWorker {
     }
 
     private boolean readTcp(SelectionKey k, NioSocketChannel channel) {
+        if (readBufferPool != null) {
+            return readTcpZeroCopy(k, channel);
+        }
+
         final SocketChannel ch = (SocketChannel) k.channel();
         final ReceiveBufferSizePredictor predictor =
             channel.getConfig().getReceiveBufferSizePredictor();
@@ -157,6 +219,78 @@ public class NioWorker extends AbstractNioWorker {
         return true;
     }
 
+    private boolean readTcpZeroCopy(SelectionKey k, NioSocketChannel channel) {
+        final SocketChannel ch = (SocketChannel) k.channel();
+        final ReceiveBufferSizePredictor predictor =
+            channel.getConfig().getReceiveBufferSizePredictor();
+        final int predictedRecvBufSize = predictor.nextReceiveBufferSize();
+
+        int ret = 0;
+        int readBytes = 0;
+        boolean failure = true;
+
+        // read straight into a pooled buffer which is handed upstream without copying,
+        // the upstream handler releases the lease once the bytes have been consumed
+        ByteBuffer bb = readBufferPool.allocate(predictedRecvBufSize, IoBufferEx.FLAG_NONE);
+        Lease lease = readBufferPool.claim(bb);
+        try {
+            while ((ret = ch.read(bb)) > 0) {
+                readBytes += ret;
+                if (!bb.hasRemaining()) {
+                    break;
+                }
+            }
+            failure = false;
+            if (readBytes > 0) {
+                bb.flip();
+
+                final ChannelBuffer buffer = (lease != null) ? new LeasedChannelBuffer(bb, lease) : wrappedBuffer(bb);
+                lease = null;
+
+                // Update the predictor.
+                predictor.previousReceiveBufferSize(readBytes);
+
+                // Fire the event.
+                fireMessageReceived(channel, buffer);
+            }
+        } catch (ClosedChannelException e) {
+            // Can happen, and does not need a user attention.
+        } catch (Throwable t) {
+            fireExceptionCaught(channel, t);
+        } finally {
+            if (lease != null) {
+                // nothing read, return the buffer to the pool
+                lease.release();
+            }
+        }
+
+        if (ret < 0 || failure) {
+            k.cancel(); // Some JDK implementations run into an infinite loop without this.
+            close(channel, succeededFuture(channel));
+            return false;
+        }
+
+        return true;
+    }
+
+    private static ByteBufferPool newReadBufferPool(Properties configuration) {
+        if (!ZERO_COPY_TCP_READ.getBooleanProperty(configuration)) {
+            return null;
+        }
+        return new ByteBufferPool(
+                POOLED_BUFFER_MAX_CAPACITY.getIntProperty(configuration),
+                POOLED_BUFFER_CACHE_SIZE.getIntProperty(configuration),
+                POOLED_BUFFER_DIRECT.getBooleanProperty(configuration),
+                POOLED_BUFFER_LEAK_SAMPLING_INTERVAL.getIntProperty(configuration));
+    }
+
+    /**
+     * Returns the pool backing zero copy TCP reads, or {@code null} if they are not enabled.
+     */
+    public ByteBufferPool getReadBufferPool() {
+        return readBufferPool;
+    }
+
     @Override
     protected boolean scheduleWriteIfNecessary(final AbstractNioChannel<?> channel) {
         final Thread currentThread = Thread.currentThread();
@@ -177,7 +311,7 @@ public class NioWorker extends AbstractNioWorker {
         if (quickSelect) {
             return SelectorUtil.select(selector, QUICK_SELECT_TIMEOUT);
         } else {
-            return SelectorUtil.select(selector);
+            return select(selector);
         }
     }
 
@@ -166,6 +166,23 @@ public abstract class AbstractIoBufferEx extends IoBuffer implements IoBufferEx
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AbstractIoBufferEx retain() {
+        // nothing to count unless the buffer is pooled
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isTransient() {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
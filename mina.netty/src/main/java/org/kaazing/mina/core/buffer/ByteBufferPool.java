@@ -0,0 +1,391 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.buffer;
+
+import static java.lang.Integer.numberOfLeadingZeros;
+import static java.lang.String.format;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
+
+/**
+ * A size-classed pool of NIO {@link ByteBuffer}s backing pooled {@link IoBufferAllocatorEx} implementations.
+ * <p>
+ * Capacities are rounded up to the next power of two between the minimum and maximum pooled capacity, and
+ * each thread (typically an IO worker) caches released chunks in its own arena, so the common case of
+ * allocating and freeing on the same IO thread needs no synchronization. Requests larger than the maximum
+ * pooled capacity are allocated directly and never pooled.
+ * <p>
+ * {@link #allocate(int, int)} hands out a slice of a pooled chunk with exactly the requested capacity and
+ * records it as pending on the calling thread. The allocator then {@link #claim(ByteBuffer) claims} it when
+ * wrapping, receiving a reference counted {@link Lease}. A chunk goes back to the pool when its lease is
+ * released for the last time. A buffer that is never claimed (for example the target of an expanding
+ * {@code capacity(...)}) is simply left to the garbage collector.
+ * <p>
+ * When leak detection is enabled, one in every {@code leakSamplingInterval} claimed leases records its
+ * allocation site and is reported if it becomes unreachable without having been released. Unclaimed buffers
+ * never hold a lease that could be released, so they are not tracked.
+ */
+public final class ByteBufferPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ByteBufferPool.class);
+
+    private static final int MIN_POOLED_CAPACITY = 64;
+
+    private final int minShift;
+    private final int maxCapacity;
+    private final int sizeClassCount;
+    private final int maxCachedPerSizeClass;
+    private final boolean direct;
+    private final int leakSamplingInterval;
+
+    private final ThreadLocal<Arena> arena;
+    private final List<Arena> arenas;
+
+    private final ReferenceQueue<Lease> leakQueue;
+    private final Set<LeakRecord> leakRecords;
+    private final AtomicLong leakCount;
+
+    /**
+     * @param maxCapacity           largest capacity served from the pool, rounded up to a power of two
+     * @param maxCachedPerSizeClass maximum number of released chunks cached per size class in each arena
+     * @param direct                whether pooled chunks use direct memory irrespective of allocation flags
+     * @param leakSamplingInterval  track the allocation site of one in this many leases, or zero to disable
+     */
+    public ByteBufferPool(int maxCapacity, int maxCachedPerSizeClass, boolean direct, int leakSamplingInterval) {
+        if (maxCapacity < MIN_POOLED_CAPACITY) {
+            throw new IllegalArgumentException(format("maxCapacity must be at least %d: %d", MIN_POOLED_CAPACITY,
+                    maxCapacity));
+        }
+        if (maxCachedPerSizeClass < 0) {
+            throw new IllegalArgumentException("maxCachedPerSizeClass: " + maxCachedPerSizeClass);
+        }
+        if (leakSamplingInterval < 0) {
+            throw new IllegalArgumentException("leakSamplingInterval: " + leakSamplingInterval);
+        }
+
+        this.minShift = shift(MIN_POOLED_CAPACITY);
+        this.maxCapacity = 1 << shift(maxCapacity);
+        this.sizeClassCount = shift(this.maxCapacity) - minShift + 1;
+        this.maxCachedPerSizeClass = maxCachedPerSizeClass;
+        this.direct = direct;
+        this.leakSamplingInterval = leakSamplingInterval;
+        this.arenas = new CopyOnWriteArrayList<>();
+        this.arena = new VicariousThreadLocal<Arena>() {
+            @Override
+            protected Arena initialValue() {
+                Arena newArena = new Arena(Thread.currentThread().getName(), sizeClassCount);
+                arenas.add(newArena);
+                return newArena;
+            }
+        };
+        this.leakQueue = new ReferenceQueue<>();
+        this.leakRecords = ConcurrentHashMap.newKeySet();
+        this.leakCount = new AtomicLong();
+    }
+
+    /**
+     * Allocates a buffer with exactly the requested capacity, backed by a pooled chunk when the capacity
+     * is small enough. The result must be {@link #claim(ByteBuffer) claimed} on the same thread before the
+     * next allocation for the chunk to be returned to the pool.
+     */
+    public ByteBuffer allocate(int capacity, int flags) {
+        boolean directChunk = direct || (flags & IoBufferEx.FLAG_DIRECT) != IoBufferEx.FLAG_NONE;
+        Arena current = arena.get();
+        current.allocations++;
+
+        if (capacity > maxCapacity) {
+            current.unpooledAllocations++;
+            current.pending = null;
+            return directChunk ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+
+        int sizeClass = sizeClass(capacity);
+        ArrayDeque<ByteBuffer> cache = directChunk ? current.directChunks[sizeClass] : current.heapChunks[sizeClass];
+        ByteBuffer chunk = cache.pollFirst();
+        if (chunk != null) {
+            current.hits++;
+            current.cachedBytes -= chunk.capacity();
+        }
+        else {
+            current.misses++;
+            int chunkCapacity = 1 << (sizeClass + minShift);
+            chunk = directChunk ? ByteBuffer.allocateDirect(chunkCapacity) : ByteBuffer.allocate(chunkCapacity);
+        }
+
+        chunk.clear().limit(capacity);
+        ByteBuffer slice = chunk.slice();
+
+        current.pending = new Lease(this, chunk, slice, directChunk);
+        return slice;
+    }
+
+    /**
+     * Claims the lease for a buffer returned by the most recent {@link #allocate(int, int)} on this thread.
+     *
+     * @return the lease, or {@code null} if the buffer was not allocated from this pool
+     */
+    public Lease claim(ByteBuffer nioBuffer) {
+        Arena current = arena.get();
+        Lease pending = current.pending;
+        if (pending != null && pending.buffer == nioBuffer) {
+            current.pending = null;
+            current.claims++;
+            if (leakSamplingInterval != 0 && current.claims % leakSamplingInterval == 0) {
+                pending.leakRecord = new LeakRecord(pending, leakQueue);
+                leakRecords.add(pending.leakRecord);
+                reportLeaks();
+            }
+            return pending;
+        }
+        return null;
+    }
+
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public int getArenaCount() {
+        return arenas.size();
+    }
+
+    public long getAllocationCount() {
+        long total = 0L;
+        for (Arena each : arenas) {
+            total += each.allocations;
+        }
+        return total;
+    }
+
+    public long getHitCount() {
+        long total = 0L;
+        for (Arena each : arenas) {
+            total += each.hits;
+        }
+        return total;
+    }
+
+    public long getMissCount() {
+        long total = 0L;
+        for (Arena each : arenas) {
+            total += each.misses;
+        }
+        return total;
+    }
+
+    public long getUnpooledAllocationCount() {
+        long total = 0L;
+        for (Arena each : arenas) {
+            total += each.unpooledAllocations;
+        }
+        return total;
+    }
+
+    public long getRecycleCount() {
+        long total = 0L;
+        for (Arena each : arenas) {
+            total += each.recycles;
+        }
+        return total;
+    }
+
+    public long getDiscardCount() {
+        long total = 0L;
+        for (Arena each : arenas) {
+            total += each.discards;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of bytes currently held in arena caches, ready for reuse.
+     */
+    public long getCachedBytes() {
+        long total = 0L;
+        for (Arena each : arenas) {
+            total += each.cachedBytes;
+        }
+        return total;
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return format("ByteBufferPool [maxCapacity=%d, direct=%s, arenas=%d, allocations=%d, hits=%d, misses=%d, " +
+                "unpooled=%d, recycled=%d, discarded=%d, cachedBytes=%d, leaks=%d]", maxCapacity, direct,
+                getArenaCount(), getAllocationCount(), getHitCount(), getMissCount(), getUnpooledAllocationCount(),
+                getRecycleCount(), getDiscardCount(), getCachedBytes(), getLeakCount());
+    }
+
+    void recycle(Lease lease) {
+        if (lease.leakRecord != null) {
+            leakRecords.remove(lease.leakRecord);
+            lease.leakRecord.clear();
+        }
+
+        // released chunks are cached by the releasing thread, typically the IO thread that allocated them
+        Arena current = arena.get();
+        ByteBuffer chunk = lease.chunk;
+        int sizeClass = sizeClass(chunk.capacity());
+        ArrayDeque<ByteBuffer> cache = lease.direct ? current.directChunks[sizeClass] : current.heapChunks[sizeClass];
+        if (cache.size() < maxCachedPerSizeClass) {
+            cache.offerFirst(chunk);
+            current.recycles++;
+            current.cachedBytes += chunk.capacity();
+        }
+        else {
+            current.discards++;
+        }
+    }
+
+    private void reportLeaks() {
+        LeakRecord record;
+        while ((record = (LeakRecord) leakQueue.poll()) != null) {
+            if (leakRecords.remove(record)) {
+                leakCount.incrementAndGet();
+                LOGGER.error("Pooled buffer was garbage collected without being freed, allocated at:", record.site);
+            }
+        }
+    }
+
+    private int sizeClass(int capacity) {
+        int shift = (capacity <= 1) ? 0 : shift(capacity);
+        return Math.max(shift - minShift, 0);
+    }
+
+    private static int shift(int capacity) {
+        // smallest power of two greater than or equal to capacity
+        return 32 - numberOfLeadingZeros(capacity - 1);
+    }
+
+    /**
+     * The reference counted ownership of a pooled chunk, shared by a buffer and all buffers derived from it.
+     */
+    public static final class Lease {
+        private static final AtomicIntegerFieldUpdater<Lease> REFERENCE_COUNT =
+                AtomicIntegerFieldUpdater.newUpdater(Lease.class, "referenceCount");
+
+        private final ByteBufferPool pool;
+        private final ByteBuffer chunk;
+        private final ByteBuffer buffer;
+        private final boolean direct;
+        private volatile int referenceCount = 1;
+        private LeakRecord leakRecord;
+
+        Lease(ByteBufferPool pool, ByteBuffer chunk, ByteBuffer buffer, boolean direct) {
+            this.pool = pool;
+            this.chunk = chunk;
+            this.buffer = buffer;
+            this.direct = direct;
+        }
+
+        public void retain() {
+            for (;;) {
+                int count = referenceCount;
+                if (count <= 0) {
+                    throw new IllegalStateException("Buffer already freed");
+                }
+                if (REFERENCE_COUNT.compareAndSet(this, count, count + 1)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Releases one reference, returning the chunk to the pool when none remain.
+         *
+         * @return {@code true} if the chunk was returned to the pool
+         */
+        public boolean release() {
+            int count = REFERENCE_COUNT.decrementAndGet(this);
+            if (count == 0) {
+                pool.recycle(this);
+                return true;
+            }
+            if (count < 0) {
+                throw new IllegalStateException("Buffer already freed");
+            }
+            return false;
+        }
+
+        public int referenceCount() {
+            return referenceCount;
+        }
+    }
+
+    private static final class LeakRecord extends PhantomReference<Lease> {
+        private final Throwable site;
+
+        LeakRecord(Lease lease, ReferenceQueue<Lease> queue) {
+            super(lease, queue);
+            this.site = new Throwable(format("Thread \"%s\"", Thread.currentThread().getName()));
+        }
+    }
+
+    // fields other than pending are read by other threads for statistics only
+    private static final class Arena {
+        private final String name;
+        private final ArrayDeque<ByteBuffer>[] heapChunks;
+        private final ArrayDeque<ByteBuffer>[] directChunks;
+
+        private Lease pending;
+        private long claims;
+
+        private volatile long allocations;
+        private volatile long hits;
+        private volatile long misses;
+        private volatile long unpooledAllocations;
+        private volatile long recycles;
+        private volatile long discards;
+        private volatile long cachedBytes;
+
+        @SuppressWarnings("unchecked")
+        Arena(String name, int sizeClassCount) {
+            this.name = name;
+            this.heapChunks = new ArrayDeque[sizeClassCount];
+            this.directChunks = new ArrayDeque[sizeClassCount];
+            for (int i = 0; i < sizeClassCount; i++) {
+                heapChunks[i] = new ArrayDeque<>();
+                directChunks[i] = new ArrayDeque<>();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return format("Arena [%s]", name);
+        }
+    }
+}
@@ -90,6 +90,21 @@ public interface IoBufferEx {
      */
     void free();
 
+    /**
+     * Adds a reference to this buffer and all its derived buffers, so that one more call to {@link #free()}
+     * is needed before a pooling {@link IoBufferAllocatorEx} implementation can reuse it.  Non-pooled
+     * buffers ignore this.
+     */
+    IoBufferEx retain();
+
+    /**
+     * Returns <tt>true</tt> if the content of this buffer, and of all buffers derived from it, is only valid
+     * until the <tt>messageReceived</tt> call that delivered it returns, as for a zero copy read.  A filter
+     * that keeps such a buffer beyond that call, including by writing it to another session, must either
+     * copy it or {@link #retain()} it and later {@link #free()} it.
+     */
+    boolean isTransient();
+
     /**
      * Returns the underlying NIO buffer instance.
      */
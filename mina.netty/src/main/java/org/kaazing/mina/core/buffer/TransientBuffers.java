@@ -0,0 +1,42 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.buffer;
+
+/**
+ * Copies {@link IoBufferEx#isTransient() transient} buffers that must outlive the message that delivered them.
+ */
+public final class TransientBuffers {
+
+    private TransientBuffers() {
+    }
+
+    /**
+     * Returns the given buffer, or a copy of its remaining bytes allocated by the given allocator if it is
+     * transient.  The position of the given buffer is left unchanged.
+     */
+    public static IoBufferEx copyIfTransient(IoBufferEx buf, IoBufferAllocatorEx<?> allocator) {
+        if (buf == null || !buf.isTransient()) {
+            return buf;
+        }
+
+        int flags = buf.flags();
+        IoBufferEx copy = allocator.wrap(allocator.allocate(buf.remaining(), flags), flags);
+        int position = copy.position();
+        copy.put(buf.buf().duplicate());
+        copy.position(position);
+        return copy;
+    }
+}
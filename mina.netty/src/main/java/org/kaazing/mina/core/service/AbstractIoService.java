@@ -38,7 +38,6 @@ import org.apache.mina.core.service.IoService;
 import org.apache.mina.core.service.IoServiceListener;
 import org.apache.mina.core.service.IoServiceListenerSupport;
 import org.apache.mina.core.service.IoServiceStatistics;
-import org.apache.mina.core.session.DefaultIoSessionDataStructureFactory;
 import org.apache.mina.core.session.IdleStatus;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.core.session.IoSessionConfig;
@@ -49,6 +48,7 @@ import org.apache.mina.util.NamePreservingRunnable;
 
 import org.kaazing.mina.core.filterchain.DefaultIoFilterChain;
 import org.kaazing.mina.core.session.AbstractIoSession;
+import org.kaazing.mina.core.session.IoAlignedSessionDataStructureFactory;
 import org.kaazing.mina.util.ExceptionMonitor;
 
 /**
@@ -140,7 +140,7 @@ public abstract class AbstractIoService implements IoService {
      */
     private IoFilterChainBuilder filterChainBuilder = new DefaultIoFilterChainBuilder();
 
-    private IoSessionDataStructureFactory sessionDataStructureFactory = new DefaultIoSessionDataStructureFactory();
+    private IoSessionDataStructureFactory sessionDataStructureFactory = new IoAlignedSessionDataStructureFactory();
 
     /**
      * Maintains the {@link IoServiceListener}s of this service.
@@ -24,6 +24,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.filterchain.IoFilterChain;
@@ -75,6 +76,8 @@ import org.kaazing.mina.core.write.WriteRequestEx;
  * 10. Modify write(Object, SocketAddress) method in order to:
  *       - remove logic for writing messages of File and FileChannel types
  *       - allow writing of empty payload messages 
+ * 11. Add runWhenWritesDrained, so a writer can wait for scheduled write bytes to drain without listening to each
+ *     write future
  */
 public abstract class AbstractIoSession implements IoSession, IoAlignment {
 
@@ -90,6 +93,7 @@ public abstract class AbstractIoSession implements IoSession, IoAlignment {
             public void operationComplete(CloseFuture future) {
                 AbstractIoSession session = (AbstractIoSession) future.getSession();
                 session.scheduledWriteBytes.set(0);
+                session.writesDrainedTask.set(null);
                 session.readBytesThroughput = 0;
                 session.readMessagesThroughput = 0;
                 session.writtenBytesThroughput = 0;
@@ -131,6 +135,8 @@ public abstract class AbstractIoSession implements IoSession, IoAlignment {
     // Status variables
     private final AtomicBoolean scheduledForFlush = new AtomicBoolean();
     private final AtomicInteger scheduledWriteBytes = new AtomicInteger();
+    private final AtomicReference<Runnable> writesDrainedTask = new AtomicReference<>();
+    private volatile int writesDrainedThreshold;
 
     private long readBytes;
     private long writtenBytes;
@@ -835,13 +841,37 @@ public abstract class AbstractIoSession implements IoSession, IoAlignment {
      * TODO Add method documentation
      */
     public final void increaseScheduledWriteBytes(int increment) {
-        scheduledWriteBytes.addAndGet(increment);
+        int newScheduledWriteBytes = scheduledWriteBytes.addAndGet(increment);
+        if (increment < 0 && writesDrainedTask.get() != null && newScheduledWriteBytes <= writesDrainedThreshold) {
+            runWritesDrainedTask();
+        }
 //        if (getService() instanceof AbstractIoService) {
 //            ((AbstractIoService) getService()).getStatistics().increaseScheduledWriteBytes(increment);
 //        }
     }
 
 
+    /**
+     * Runs the task once the bytes scheduled for write on this session have drained to the threshold or below,
+     * on the thread recording the written bytes, or on the calling thread if they already have.  The task
+     * replaces any earlier task that has not run yet, and does not run if the session is closed first.
+     */
+    public final void runWhenWritesDrained(int threshold, Runnable task) {
+        writesDrainedThreshold = threshold;
+        writesDrainedTask.set(task);
+        // a write may have completed before the task was set
+        if (scheduledWriteBytes.get() <= threshold) {
+            runWritesDrainedTask();
+        }
+    }
+
+    private void runWritesDrainedTask() {
+        Runnable task = writesDrainedTask.getAndSet(null);
+        if (task != null) {
+            task.run();
+        }
+    }
+
     /**
      * TODO Add method documentation
      */
@@ -0,0 +1,430 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.session;
+
+import static java.lang.Thread.currentThread;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.apache.mina.core.session.DefaultIoSessionDataStructureFactory;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.session.IoSessionAttributeMap;
+import org.apache.mina.core.session.IoSessionDataStructureFactory;
+import org.apache.mina.core.write.WriteRequestQueue;
+
+/**
+ * {@link IoSessionDataStructureFactory} for IO aligned sessions, whose attributes are nearly always accessed from
+ * the session's IO thread.
+ * <p>
+ * Attributes are held in a small open-addressed array map, probed by key identity before falling back to
+ * {@link Object#equals(Object)}.  While only the IO thread uses it, the map takes no lock.  The first access from
+ * any other thread switches the map to shared mode for the rest of the session, in which every access is
+ * synchronized, as with {@link DefaultIoSessionDataStructureFactory}.
+ * <p>
+ * Write request queues, and the attribute maps of sessions that are not IO aligned, are those of
+ * {@link DefaultIoSessionDataStructureFactory}.
+ */
+public class IoAlignedSessionDataStructureFactory implements IoSessionDataStructureFactory {
+
+    private final IoSessionDataStructureFactory unaligned = new DefaultIoSessionDataStructureFactory();
+
+    @Override
+    public IoSessionAttributeMap getAttributeMap(IoSession session) throws Exception {
+        if (session instanceof IoSessionEx && ((IoSessionEx) session).isIoAligned()) {
+            return new IoAlignedAttributeMap((IoSessionEx) session);
+        }
+        return unaligned.getAttributeMap(session);
+    }
+
+    @Override
+    public WriteRequestQueue getWriteRequestQueue(IoSession session) throws Exception {
+        // a confined write queue still needs a store-load fence on every access, which costs as much as the
+        // uncontended lock of the default queue, so only the attribute map is specialized
+        return unaligned.getWriteRequestQueue(session);
+    }
+
+    /**
+     * Grants lock-free access to the session's IO thread until another thread shows up.
+     * <p>
+     * The IO thread announces itself in {@code ownerActive} before checking {@code shared}, and other threads set
+     * {@code shared} before waiting for {@code ownerActive} to clear, so once a thread has left
+     * {@link #enterConfined()} with <tt>false</tt> no unsynchronized access is in progress or can start.
+     */
+    abstract static class IoThreadConfined {
+
+        private static final AtomicIntegerFieldUpdater<IoThreadConfined> OWNER_ACTIVE =
+                AtomicIntegerFieldUpdater.newUpdater(IoThreadConfined.class, "ownerActive");
+
+        private final IoSessionEx session;
+
+        private volatile int ownerActive;
+        private volatile boolean shared;
+
+        IoThreadConfined(IoSessionEx session) {
+            this.session = session;
+        }
+
+        /**
+         * @return <tt>true</tt> if the caller may access the state without locking, in which case it must call
+         *         {@link #exitConfined()} afterwards, otherwise the caller must synchronize on this object
+         */
+        final boolean enterConfined() {
+            if (!shared && currentThread() == session.getIoThread()) {
+                ownerActive = 1;
+                if (!shared) {
+                    return true;
+                }
+                OWNER_ACTIVE.lazySet(this, 0);
+            }
+
+            if (!shared) {
+                shared = true;
+            }
+            while (ownerActive != 0) {
+                Thread.yield();
+            }
+            return false;
+        }
+
+        final void exitConfined() {
+            OWNER_ACTIVE.lazySet(this, 0);
+        }
+
+        final boolean isShared() {
+            return shared;
+        }
+    }
+
+    static final class IoAlignedAttributeMap extends IoThreadConfined implements IoSessionAttributeMap {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private Object[] keys = new Object[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        IoAlignedAttributeMap(IoSessionEx session) {
+            super(session);
+        }
+
+        @Override
+        public Object getAttribute(IoSession session, Object key, Object defaultValue) {
+            if (key == null) {
+                throw new NullPointerException("key");
+            }
+
+            Object answer;
+            if (enterConfined()) {
+                try {
+                    answer = get(key);
+                }
+                finally {
+                    exitConfined();
+                }
+            }
+            else {
+                synchronized (this) {
+                    answer = get(key);
+                }
+            }
+
+            return answer != null ? answer : defaultValue;
+        }
+
+        @Override
+        public Object setAttribute(IoSession session, Object key, Object value) {
+            if (key == null) {
+                throw new NullPointerException("key");
+            }
+
+            if (enterConfined()) {
+                try {
+                    return value != null ? put(key, value) : remove(key);
+                }
+                finally {
+                    exitConfined();
+                }
+            }
+
+            synchronized (this) {
+                return value != null ? put(key, value) : remove(key);
+            }
+        }
+
+        @Override
+        public Object setAttributeIfAbsent(IoSession session, Object key, Object value) {
+            if (key == null) {
+                throw new NullPointerException("key");
+            }
+
+            if (value == null) {
+                return null;
+            }
+
+            if (enterConfined()) {
+                try {
+                    return putIfAbsent(key, value);
+                }
+                finally {
+                    exitConfined();
+                }
+            }
+
+            synchronized (this) {
+                return putIfAbsent(key, value);
+            }
+        }
+
+        @Override
+        public Object removeAttribute(IoSession session, Object key) {
+            if (key == null) {
+                throw new NullPointerException("key");
+            }
+
+            if (enterConfined()) {
+                try {
+                    return remove(key);
+                }
+                finally {
+                    exitConfined();
+                }
+            }
+
+            synchronized (this) {
+                return remove(key);
+            }
+        }
+
+        @Override
+        public boolean removeAttribute(IoSession session, Object key, Object value) {
+            if (key == null) {
+                throw new NullPointerException("key");
+            }
+
+            if (value == null) {
+                return false;
+            }
+
+            if (enterConfined()) {
+                try {
+                    return remove(key, value);
+                }
+                finally {
+                    exitConfined();
+                }
+            }
+
+            synchronized (this) {
+                return remove(key, value);
+            }
+        }
+
+        @Override
+        public boolean replaceAttribute(IoSession session, Object key, Object oldValue, Object newValue) {
+            if (enterConfined()) {
+                try {
+                    return replace(key, oldValue, newValue);
+                }
+                finally {
+                    exitConfined();
+                }
+            }
+
+            synchronized (this) {
+                return replace(key, oldValue, newValue);
+            }
+        }
+
+        @Override
+        public boolean containsAttribute(IoSession session, Object key) {
+            if (enterConfined()) {
+                try {
+                    return get(key) != null;
+                }
+                finally {
+                    exitConfined();
+                }
+            }
+
+            synchronized (this) {
+                return get(key) != null;
+            }
+        }
+
+        @Override
+        public Set<Object> getAttributeKeys(IoSession session) {
+            if (enterConfined()) {
+                try {
+                    return keySet();
+                }
+                finally {
+                    exitConfined();
+                }
+            }
+
+            synchronized (this) {
+                return keySet();
+            }
+        }
+
+        @Override
+        public void dispose(IoSession session) throws Exception {
+            // Do nothing
+        }
+
+        private Object get(Object key) {
+            int index = indexOf(key);
+            return index != -1 ? values[index] : null;
+        }
+
+        private Object put(Object key, Object value) {
+            int index = indexOf(key);
+            if (index != -1) {
+                Object oldValue = values[index];
+                values[index] = value;
+                return oldValue;
+            }
+
+            insert(key, value);
+            return null;
+        }
+
+        private Object putIfAbsent(Object key, Object value) {
+            int index = indexOf(key);
+            if (index != -1) {
+                return values[index];
+            }
+
+            insert(key, value);
+            return null;
+        }
+
+        private Object remove(Object key) {
+            int index = indexOf(key);
+            if (index == -1) {
+                return null;
+            }
+
+            Object oldValue = values[index];
+            delete(index);
+            return oldValue;
+        }
+
+        private boolean remove(Object key, Object value) {
+            int index = indexOf(key);
+            if (index != -1 && value.equals(values[index])) {
+                delete(index);
+                return true;
+            }
+            return false;
+        }
+
+        private boolean replace(Object key, Object oldValue, Object newValue) {
+            int index = indexOf(key);
+            if (index != -1 && values[index].equals(oldValue)) {
+                if (newValue != null) {
+                    values[index] = newValue;
+                }
+                else {
+                    delete(index);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private Set<Object> keySet() {
+            Set<Object> keySet = new HashSet<>(size * 2);
+            for (Object key : keys) {
+                if (key != null) {
+                    keySet.add(key);
+                }
+            }
+            return keySet;
+        }
+
+        private int indexOf(Object key) {
+            Object[] keys = this.keys;
+            int mask = keys.length - 1;
+            int index = hash(key) & mask;
+            // identity checks first, attribute keys rarely override equals
+            for (Object candidate = keys[index]; candidate != null; candidate = keys[index]) {
+                if (candidate == key || candidate.equals(key)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void insert(Object key, Object value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+
+            int mask = keys.length - 1;
+            int index = hash(key) & mask;
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+            size++;
+        }
+
+        // backward shift deletion keeps probe sequences intact without tombstones
+        private void delete(int index) {
+            Object[] keys = this.keys;
+            Object[] values = this.values;
+            int mask = keys.length - 1;
+
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (keys[next] != null) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = null;
+            values[hole] = null;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            Object[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new Object[capacity];
+            values = new Object[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(Object key) {
+            int h = key.hashCode();
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -15,43 +15,196 @@
  */
 package org.kaazing.mina.netty;
 
+import static org.kaazing.mina.netty.config.InternalSystemProperty.POOLED_BUFFER_CACHE_SIZE;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.POOLED_BUFFER_DIRECT;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.POOLED_BUFFER_LEAK_SAMPLING_INTERVAL;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.POOLED_BUFFER_MAX_CAPACITY;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.POOLED_BUFFER_TRANSPORTS;
+
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.kaazing.mina.core.buffer.AbstractIoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.AbstractIoBufferEx;
+import org.kaazing.mina.core.buffer.ByteBufferPool;
+import org.kaazing.mina.core.buffer.ByteBufferPool.Lease;
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.netty.ChannelIoBufferAllocator.ChannelIoBuffer;
 import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 
 public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<ChannelIoBuffer> {
 
+    private static final Set<String> POOLED_TRANSPORTS = pooledTransports(System.getProperties());
+
+    private static final ChannelIoBufferAllocator UNPOOLED = new ChannelIoBufferAllocator();
+
+    private final ByteBufferPool pool;
+
+    public ChannelIoBufferAllocator() {
+        this(null);
+    }
+
+    /**
+     * @param pool  the pool backing allocated buffers, or {@code null} to allocate a new buffer every time
+     */
+    public ChannelIoBufferAllocator(ByteBufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the allocator to use for sessions of the named transport, pooled if the transport is listed in
+     * the {@code org.kaazing.netty.POOLED_BUFFER_TRANSPORTS} system property.
+     */
+    public static ChannelIoBufferAllocator forTransport(String transportName) {
+        return POOLED_TRANSPORTS.contains(transportName) ? PooledAllocatorHolder.POOLED : UNPOOLED;
+    }
+
+    /**
+     * Returns the pool backing this allocator, or {@code null} if it is not pooled.
+     */
+    public ByteBufferPool getPool() {
+        return pool;
+    }
+
     @Override
     public ByteBuffer allocate(int capacity, int flags) {
-        return allocateNioBuffer0(capacity, flags);
+        return (pool != null) ? pool.allocate(capacity, flags) : allocateNioBuffer0(capacity, flags);
     }
 
     @Override
     public ChannelIoBuffer wrap(ByteBuffer nioBuffer, int flags) {
+        Lease lease = (pool != null) ? pool.claim(nioBuffer) : null;
         boolean shared = (flags & IoBufferEx.FLAG_SHARED) != IoBufferEx.FLAG_NONE;
-        return shared ? new ChannelIoSharedBuffer(nioBuffer) : new ChannelIoUnsharedBuffer(nioBuffer);
+        return shared ? new ChannelIoSharedBuffer(nioBuffer, lease, false) : new ChannelIoUnsharedBuffer(nioBuffer, lease);
+    }
+
+    /**
+     * Wraps a received buffer already owned through a pool lease, such as a buffer borrowed for a zero copy
+     * read, as an unshared {@link IoBufferEx#isTransient() transient} buffer.  The lease is released when the
+     * returned buffer is {@link IoBufferEx#free() freed}, but not when it is written, so the receiver keeps
+     * its reference until it is done with the buffer.
+     */
+    public ChannelIoBuffer wrapTransient(ByteBuffer nioBuffer, Lease lease) {
+        return new ChannelIoUnsharedBuffer(nioBuffer, lease, true, true);
+    }
+
+    private static Set<String> pooledTransports(Properties configuration) {
+        Set<String> transports = new HashSet<>();
+        String value = POOLED_BUFFER_TRANSPORTS.getProperty(configuration);
+        if (value != null) {
+            for (String transport : value.split(",")) {
+                transport = transport.trim();
+                if (!transport.isEmpty()) {
+                    transports.add(transport);
+                }
+            }
+        }
+        return transports;
+    }
+
+    // lazily initialized so that no pool exists unless some transport uses it
+    private static final class PooledAllocatorHolder {
+        private static final ChannelIoBufferAllocator POOLED;
+
+        static {
+            Properties configuration = System.getProperties();
+            ByteBufferPool pool = new ByteBufferPool(
+                    POOLED_BUFFER_MAX_CAPACITY.getIntProperty(configuration),
+                    POOLED_BUFFER_CACHE_SIZE.getIntProperty(configuration),
+                    POOLED_BUFFER_DIRECT.getBooleanProperty(configuration),
+                    POOLED_BUFFER_LEAK_SAMPLING_INTERVAL.getIntProperty(configuration));
+            POOLED = new ChannelIoBufferAllocator(pool);
+        }
     }
 
     abstract static class ChannelIoBuffer extends AbstractIoBufferEx {
-        protected ChannelIoBuffer(int capacity) {
+        private static final AtomicIntegerFieldUpdater<ChannelIoBuffer> RETAINED =
+                AtomicIntegerFieldUpdater.newUpdater(ChannelIoBuffer.class, "retained");
+
+        // shared by this buffer and all buffers derived from it, null when not pooled
+        protected final Lease lease;
+
+        // whether this is the buffer the lease was wrapped in, rather than a buffer derived from it
+        private final boolean owner;
+
+        // references a derived buffer took through retain(), the only ones its free() gives back
+        private volatile int retained;
+
+        // whether the content is only valid until the received message has been processed
+        private final boolean transientContent;
+
+        protected ChannelIoBuffer(int capacity, Lease lease, boolean owner, boolean transientContent) {
             super(capacity);
+            this.lease = lease;
+            this.owner = owner && lease != null;
+            this.transientContent = transientContent;
         }
 
         protected ChannelIoBuffer(ChannelIoBuffer parent) {
             super(parent);
+            this.lease = parent.lease;
+            this.owner = false;
+            this.transientContent = parent.transientContent;
         }
 
         @Override
         public abstract void buf(ByteBuffer newBuf);
 
+        @Override
+        public ChannelIoBuffer retain() {
+            if (lease != null) {
+                lease.retain();
+                if (!owner) {
+                    RETAINED.incrementAndGet(this);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Releases a reference to the pooled buffer.  The buffer the lease was wrapped in owns a reference, but
+         * a derived buffer only holds the references it retained itself, so freeing a derived buffer that was
+         * not retained leaves the lease alone.
+         */
         @Override
         public void free() {
-            // Do nothing
+            if (lease != null && (owner || releaseRetained())) {
+                lease.release();
+            }
+        }
+
+        @Override
+        public boolean isTransient() {
+            return transientContent;
+        }
+
+        /**
+         * Called by the processor once a write of this buffer has completed, failed or been discarded.
+         * Writing a pooled, unshared buffer hands its reference to the session, so a caller that still needs
+         * the buffer after writing it must {@link #retain()} it first. Shared buffers, which may be written to
+         * many sessions, transient buffers and buffers derived from another buffer keep the reference of their
+         * writer.
+         */
+        void releaseWritten() {
+            if (owner && !isShared() && !transientContent) {
+                lease.release();
+            }
+        }
+
+        private boolean releaseRetained() {
+            for (;;) {
+                int count = retained;
+                if (count == 0) {
+                    return false;
+                }
+                if (RETAINED.compareAndSet(this, count, count - 1)) {
+                    return true;
+                }
+            }
         }
     }
 
@@ -59,8 +212,8 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
     static final class ChannelIoSharedBuffer extends ChannelIoBuffer {
         private final ThreadLocal<ByteBuffer> bufRef;
 
-        private ChannelIoSharedBuffer(final ByteBuffer buf) {
-            super(buf.capacity());
+        private ChannelIoSharedBuffer(final ByteBuffer buf, Lease lease, boolean transientContent) {
+            super(buf.capacity(), lease, true, transientContent);
 
             this.bufRef = new VicariousThreadLocal<ByteBuffer>() {
                 @Override
@@ -119,7 +272,7 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
 
         @Override
         protected ChannelIoBuffer asUnsharedBuffer0() {
-            return new ChannelIoUnsharedBuffer(buf());
+            return new ChannelIoUnsharedBuffer(buf(), lease, false, isTransient());
         }
 
         @Override
@@ -142,8 +295,12 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
     static final class ChannelIoUnsharedBuffer extends ChannelIoBuffer {
         private ByteBuffer buf;
 
-        private ChannelIoUnsharedBuffer(ByteBuffer buf) {
-            super(buf.capacity());
+        private ChannelIoUnsharedBuffer(ByteBuffer buf, Lease lease) {
+            this(buf, lease, true, false);
+        }
+
+        private ChannelIoUnsharedBuffer(ByteBuffer buf, Lease lease, boolean owner, boolean transientContent) {
+            super(buf.capacity(), lease, owner, transientContent);
             this.buf = buf;
             buf.order(ByteOrder.BIG_ENDIAN);
         }
@@ -187,7 +344,7 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
 
         @Override
         protected ChannelIoSharedBuffer asSharedBuffer0() {
-            return new ChannelIoSharedBuffer(buf());
+            return new ChannelIoSharedBuffer(buf(), lease, isTransient());
         }
 
         @Override
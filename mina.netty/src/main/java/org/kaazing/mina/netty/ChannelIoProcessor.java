@@ -18,11 +18,16 @@
 package org.kaazing.mina.netty;
 
 import static java.lang.String.format;
+import static java.util.Arrays.copyOf;
 import static org.jboss.netty.buffer.ChannelBuffers.wrappedBuffer;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.WRITE_COALESCE_MAX_BUFFERS;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.WRITE_COALESCE_MAX_BYTES;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.file.FileRegion;
@@ -36,6 +41,7 @@ import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelConfig;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.socket.SocketChannel;
 
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.core.service.AbstractIoProcessor;
@@ -62,7 +68,18 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
     // note: ChannelIoProcessor instance is shared across worker threads (!)
     private final ResetableThreadLocal<DownstreamMessageEventEx> writeRequestEx;
 
+    // write requests and buffers of the gathering write being assembled, reused by each worker thread
+    private final ResetableThreadLocal<WriteRequest[]> gatheredRequests;
+    private final ResetableThreadLocal<ByteBuffer[]> gatheredBuffers;
+
+    private final int coalesceMaxBytes;
+    private final int coalesceMaxBuffers;
+
     ChannelIoProcessor() {
+        this(System.getProperties());
+    }
+
+    ChannelIoProcessor(Properties configuration) {
         this.writeRequestEx = new ResetableThreadLocal<DownstreamMessageEventEx>() {
 
             @Override
@@ -70,6 +87,24 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
                 return new DownstreamMessageEventEx();
             }
         };
+
+        this.coalesceMaxBytes = WRITE_COALESCE_MAX_BYTES.getIntProperty(configuration);
+        this.coalesceMaxBuffers = Math.max(WRITE_COALESCE_MAX_BUFFERS.getIntProperty(configuration), 1);
+        final int maxBuffers = coalesceMaxBuffers;
+        this.gatheredRequests = new ResetableThreadLocal<WriteRequest[]>() {
+
+            @Override
+            protected WriteRequest[] initialValue() {
+                return new WriteRequest[maxBuffers];
+            }
+        };
+        this.gatheredBuffers = new ResetableThreadLocal<ByteBuffer[]>() {
+
+            @Override
+            protected ByteBuffer[] initialValue() {
+                return new ByteBuffer[maxBuffers];
+            }
+        };
     }
 
     @Override
@@ -79,11 +114,35 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
 
     @Override
     protected void remove0(ChannelIoSession<? extends ChannelConfig> session) {
+        // writes made in the same IO event as close(true) are still waiting for their deferred flush, so send them
+        // before the write request queue is cleared, as they would have been sent without coalescing
+        if (session.isScheduledForFlush()) {
+            session.setScheduledForFlush(false);
+            if (session.getChannel().isConnected()) {
+                writeQueued(session);
+            }
+        }
         removeNow(session);
     }
 
     @Override
-    protected void flush0(ChannelIoSession<? extends ChannelConfig> session) {
+    protected void flush0(final ChannelIoSession<? extends ChannelConfig> session) {
+        if (coalesceMaxBytes > 0 && session.isIoAligned() && session.getChannel() instanceof SocketChannel) {
+            // flush once the current IO event has been handled, so that the writes it makes share a gathering write
+            if (session.setScheduledForFlush(true)) {
+                session.getIoExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // already flushed if the session was removed in the meantime
+                        if (session.isScheduledForFlush()) {
+                            session.setScheduledForFlush(false);
+                            flushNow(session);
+                        }
+                    }
+                });
+            }
+            return;
+        }
         flushNow(session);
     }
 
@@ -178,6 +237,7 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
                 } else {
                     IoFilterChain filterChain = session.getFilterChain();
                     filterChain.fireMessageSent(req);
+                    ChannelWriteFutureListener.releaseWritten(req);
                 }
             } else {
                 failedRequests.add(req);
@@ -196,6 +256,7 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
 
             for (WriteRequest r : failedRequests) {
                 session.decreaseScheduledBytesAndMessages(r);
+                ChannelWriteFutureListener.releaseWritten(r);
                 r.getFuture().setException(cause);
             }
 
@@ -210,16 +271,23 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
             return false;
         }
 
+        return writeQueued(session);
+    }
+
+    private boolean writeQueued(ChannelIoSession<? extends ChannelConfig> session) {
         final WriteRequestQueue writeRequestQueue = session.getWriteRequestQueue();
 
         final Channel channel = session.getChannel();
         final IoFilterChain filterChain = session.getFilterChain();
+        final boolean gathering = coalesceMaxBytes > 0 && channel instanceof SocketChannel;
         WriteRequest req = null;
+        WriteRequest next = null;
 
         try {
             for (;;) {
-                // Check for pending writes.
-                req = writeRequestQueue.poll(session);
+                // Check for pending writes, starting with any left over from the last gathering write
+                req = (next != null) ? next : writeRequestQueue.poll(session);
+                next = null;
 
                 if (req == null) {
                     break;
@@ -231,6 +299,12 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
                     ChannelIoBuffer channelIoBuf = (ChannelIoBuffer) message;
                     if (channelIoBuf.remaining() == 0) {
                         filterChain.fireMessageSent(req);
+                        channelIoBuf.releaseWritten();
+                    }
+                    else if (gathering && channelIoBuf.remaining() < coalesceMaxBytes &&
+                            (next = writeRequestQueue.poll(session)) != null && isGatherable(next)) {
+                        next = writeGathering(session, channel, filterChain, req, next);
+                        req = null;
                     }
                     else {
                         // 1. detect shared buffer
@@ -329,6 +403,10 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
             if (req != null) {
                 req.getFuture().setException(e);
             }
+            // polled while looking for requests to gather, but not written
+            if (next != null) {
+                next.getFuture().setException(e);
+            }
 
             filterChain.fireExceptionCaught(e);
             return false;
@@ -337,4 +415,72 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
         return true;
     }
 
+    private static boolean isGatherable(WriteRequest req) {
+        Object message = req.getMessage();
+        return message instanceof ChannelIoBuffer && ((ChannelIoBuffer) message).hasRemaining();
+    }
+
+    /*
+     * Sends the first request and the queued requests following it with a single gathering write, up to the
+     * configured number of bytes and buffers, and returns the first request polled that was not included (if any).
+     */
+    private WriteRequest writeGathering(ChannelIoSession<? extends ChannelConfig> session, Channel channel,
+                                       IoFilterChain filterChain, WriteRequest first, WriteRequest second) {
+        WriteRequestQueue writeRequestQueue = session.getWriteRequestQueue();
+        WriteRequest[] requests = gatheredRequests.get();
+        ByteBuffer[] buffers = gatheredBuffers.get();
+
+        int count = 0;
+        int bytes = 0;
+        WriteRequest next = first;
+        do {
+            ChannelIoBuffer channelIoBuf = (ChannelIoBuffer) next.getMessage();
+            ByteBuffer buf = channelIoBuf.buf();
+            int remaining = buf.remaining();
+            if (count > 0 && (bytes + remaining > coalesceMaxBytes || buf.order() != buffers[0].order())) {
+                break;
+            }
+
+            // shared buffers may be written to other sessions concurrently, so leave their position alone
+            requests[count] = next;
+            buffers[count] = channelIoBuf.isShared() ? buf.duplicate() : buf;
+            count++;
+            bytes += remaining;
+
+            next = (count == 1) ? second : (count < coalesceMaxBuffers) ? writeRequestQueue.poll(session) : null;
+        } while (next != null && isGatherable(next));
+
+        ChannelFuture future;
+        try {
+            if (count == 1) {
+                future = channel.write(wrappedBuffer(buffers[0]));
+            }
+            else {
+                future = channel.write(wrappedBuffer(true, copyOf(buffers, count)));
+                GatheringWriteCounters.recordWrite(count);
+            }
+        }
+        catch (RuntimeException e) {
+            // the caller only knows of the request polled after the gathered ones, so fail them all here
+            ChannelWriteFutureListener.operationFailed(e, requests, count);
+            if (next != null) {
+                next.getFuture().setException(e);
+            }
+            Arrays.fill(requests, 0, count, null);
+            Arrays.fill(buffers, 0, count, null);
+            throw e;
+        }
+
+        if (future.isDone()) {
+            ChannelWriteFutureListener.operationComplete(future, filterChain, requests, count);
+        }
+        else {
+            future.addListener(new ChannelWriteFutureListener(filterChain, copyOf(requests, count)));
+        }
+
+        Arrays.fill(requests, 0, count, null);
+        Arrays.fill(buffers, 0, count, null);
+        return next;
+    }
+
 }
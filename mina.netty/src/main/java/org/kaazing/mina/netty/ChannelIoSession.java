@@ -24,21 +24,18 @@ import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelConfig;
 
 import org.jboss.netty.channel.socket.nio.AbstractNioWorker;
-import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.service.IoProcessorEx;
 import org.kaazing.mina.core.session.AbstractIoSessionEx;
-import org.kaazing.mina.netty.ChannelIoBufferAllocator.ChannelIoBuffer;
 
 public class ChannelIoSession<C extends ChannelConfig> extends AbstractIoSessionEx {
 
-    private static final IoBufferAllocatorEx<ChannelIoBuffer> BUFFER_ALLOCATOR = new ChannelIoBufferAllocator();
-
     private final ChannelIoService service;
     private final Channel channel;
     private final ChannelIoSessionConfig<C> config;
     private final IoHandler handler;
     private final IoProcessorEx<ChannelIoSession<? extends ChannelConfig>> processor;
     private final TransportMetadata transportMetadata;
+    private final ChannelIoBufferAllocator bufferAllocator;
     private volatile boolean closedReceived;
 
     public ChannelIoSession(ChannelIoService service, IoProcessorEx<ChannelIoSession<? extends ChannelConfig>> processor,
@@ -51,11 +48,12 @@ public class ChannelIoSession<C extends ChannelConfig> extends AbstractIoSession
         this.handler = service.getHandler();
         this.processor = processor;
         this.transportMetadata = service.getTransportMetadata();
+        this.bufferAllocator = ChannelIoBufferAllocator.forTransport(transportMetadata.getName());
     }
 
     @Override
-    public IoBufferAllocatorEx<ChannelIoBuffer> getBufferAllocator() {
-        return BUFFER_ALLOCATOR;
+    public ChannelIoBufferAllocator getBufferAllocator() {
+        return bufferAllocator;
     }
 
     @Override
@@ -20,22 +20,58 @@ import org.apache.mina.core.future.WriteFuture;
 import org.apache.mina.core.write.WriteRequest;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
+import org.kaazing.mina.netty.ChannelIoBufferAllocator.ChannelIoBuffer;
 
 final class ChannelWriteFutureListener implements ChannelFutureListener {
     private final IoFilterChain filterChain;
     private final WriteRequest request;
+    private final WriteRequest[] requests;
 
     public ChannelWriteFutureListener(IoFilterChain filterChain, WriteRequest request) {
         this.filterChain = filterChain;
         this.request = request;
+        this.requests = null;
+    }
+
+    /**
+     * Completes each of the requests sent with a single gathering write, in order.
+     */
+    public ChannelWriteFutureListener(IoFilterChain filterChain, WriteRequest[] requests) {
+        this.filterChain = filterChain;
+        this.request = null;
+        this.requests = requests;
     }
 
     @Override
     public void operationComplete(ChannelFuture future) throws Exception {
-        operationComplete(future, filterChain, request);
+        if (requests != null) {
+            operationComplete(future, filterChain, requests, requests.length);
+        }
+        else {
+            operationComplete(future, filterChain, request);
+        }
+    }
+
+    public static void operationComplete(ChannelFuture future, IoFilterChain filterChain, WriteRequest[] requests,
+                                         int count) {
+        for (int i = 0; i < count; i++) {
+            operationComplete(future, filterChain, requests[i]);
+        }
+    }
+
+    /**
+     * Fails each of the requests of a gathering write that could not be sent.
+     */
+    public static void operationFailed(Throwable cause, WriteRequest[] requests, int count) {
+        for (int i = 0; i < count; i++) {
+            WriteRequest request = requests[i];
+            releaseWritten(request);
+            request.getFuture().setException(cause);
+        }
     }
 
     public static void operationComplete(ChannelFuture future, IoFilterChain filterChain, WriteRequest request) {
+        releaseWritten(request);
         if (future.isSuccess()) {
 //            filterChain.fireMessageSent(request);
             setFutureWritten(filterChain, request.getFuture());
@@ -46,6 +82,17 @@ final class ChannelWriteFutureListener implements ChannelFutureListener {
         }
     }
 
+    /**
+     * Returns the reference to a pooled buffer handed to the session by writing it, see
+     * {@link ChannelIoBuffer#releaseWritten()}.
+     */
+    static void releaseWritten(WriteRequest request) {
+        Object message = request.getMessage();
+        if (message instanceof ChannelIoBuffer) {
+            ((ChannelIoBuffer) message).releaseWritten();
+        }
+    }
+
     private static void setFutureWritten(IoFilterChain filterChain, WriteFuture future) {
         try {
             future.setWritten();
@@ -16,28 +16,77 @@
 package org.kaazing.mina.netty;
 
 import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.apache.mina.core.session.IdleStatus;
-import org.jboss.netty.util.HashedWheelTimer;
-import org.jboss.netty.util.Timeout;
-import org.jboss.netty.util.Timer;
-import org.jboss.netty.util.TimerTask;
 
 import org.kaazing.mina.core.session.IoSessionConfigEx;
 import org.kaazing.mina.core.session.IoSessionConfigEx.ChangeListener;
 import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.netty.util.TimerWheel;
+import org.kaazing.mina.netty.util.TimerWheel.Timeout;
 
+/**
+ * Fires session idle events from the {@link TimerWheel} of the thread that creates the tracker, which for
+ * {@link ChannelIoAcceptor} and {@link ChannelIoConnector} is the I/O worker that owns the sessions, so idle events
+ * fire on that worker without a hand-off.  The wseb transport also creates its trackers per I/O thread, so they use
+ * the wheel of that worker too.  A tracker created on a thread without a wheel, such as a test thread, drives its
+ * own wheel from a dedicated timer thread instead.
+ * <p>
+ * Deadlines are checked lazily: I/O on a session does not touch the wheel, and a new idle time only moves the
+ * scheduled timeout if it makes the deadline earlier.  When a timeout expires before the session is actually idle
+ * it is simply scheduled again for the remaining time.
+ */
 public final class DefaultIoSessionIdleTracker implements IoSessionIdleTracker {
 
-    static final long PRECISION = 100L;
+    static final long PRECISION = TimerWheel.DEFAULT_TICK_MILLIS;
+
+    private static final int RESCHEDULE_IDLE = 0;
+    private static final int RESCHEDULE_PENDING = 1;
 
-    private final Timer timer;
+    private static final AtomicIntegerFieldUpdater<NotifyIdleTask> RESCHEDULE_STATE =
+            AtomicIntegerFieldUpdater.newUpdater(NotifyIdleTask.class, "rescheduleState");
+
+    private final TimerWheel wheel;
+    private final ScheduledExecutorService ticker;
+    private volatile boolean disposed;
 
     public DefaultIoSessionIdleTracker() {
-        timer = new HashedWheelTimer(PRECISION, MILLISECONDS);
+        TimerWheel current = TimerWheel.current();
+        if (current != null) {
+            wheel = current;
+            ticker = null;
+        }
+        else {
+            ticker = newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "DefaultIoSessionIdleTracker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            final TimerWheel wheel = new TimerWheel(PRECISION, currentTimeMillis(), ticker);
+            ticker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    wheel.bindToCurrentThread();
+                }
+            });
+            ticker.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    wheel.expireTimeouts(currentTimeMillis());
+                }
+            }, PRECISION, PRECISION, MILLISECONDS);
+            this.wheel = wheel;
+        }
     }
 
     @Override
@@ -54,7 +103,10 @@ public final class DefaultIoSessionIdleTracker implements IoSessionIdleTracker {
 
     @Override
     public void dispose() {
-        timer.stop();
+        disposed = true;
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
     }
 
     private final class NotifyIdleChangeListener implements ChangeListener {
@@ -73,13 +125,13 @@ public final class DefaultIoSessionIdleTracker implements IoSessionIdleTracker {
         public void idleTimeInMillisChanged(IdleStatus status, long idleTimeMillis) {
 
             if (status == IdleStatus.BOTH_IDLE) {
-                notifyBothIdle.reschedule(idleTimeMillis, MILLISECONDS);
+                notifyBothIdle.reschedule(idleTimeMillis);
             }
             else if (status == IdleStatus.READER_IDLE) {
-                notifyReaderIdle.reschedule(idleTimeMillis, MILLISECONDS);
+                notifyReaderIdle.reschedule(idleTimeMillis);
             }
             else if (status == IdleStatus.WRITER_IDLE) {
-                notifyWriterIdle.reschedule(idleTimeMillis, MILLISECONDS);
+                notifyWriterIdle.reschedule(idleTimeMillis);
             }
             else {
                 throw new IllegalArgumentException("Unrecognized idle status: " + status);
@@ -87,90 +139,82 @@ public final class DefaultIoSessionIdleTracker implements IoSessionIdleTracker {
         }
     }
 
-    // KG-9954: This class will be used to assign a noop timer in place of using null
-    private static final Timeout NULL_TIMEOUT = new Timeout() {
-        @Override
-        public Timer getTimer() {
-            return null;
-        }
-
-        @Override
-        public TimerTask getTask() {
-            return null;
-        }
-
-        @Override
-        public boolean isExpired() {
-            return true;
-        }
-
-        @Override
-        public boolean isCancelled() {
-            return true;
-        }
-
-        @Override
-        public void cancel() {
-            // noop
-        }
-    };
-
-    private abstract class NotifyIdleTask implements TimerTask {
+    private abstract class NotifyIdleTask extends Timeout implements Runnable {
 
         protected final IoSessionEx session;
 
         private volatile long idleTimeMillis;
-        private volatile Timeout timeout = NULL_TIMEOUT;
+        // not private, so that RESCHEDULE_STATE can update it
+        volatile int rescheduleState;
 
         public NotifyIdleTask(IoSessionEx session) {
             this.session = session;
         }
 
-        public final void reschedule(long idleTime, TimeUnit unit)  {
-            idleTimeMillis = unit.toMillis(idleTime);
-            long startPoint = Math.max(getLastIoTimeMillis(), getLastIdleTimeMillis());
-            long delayMillis = startPoint + idleTimeMillis - currentTimeMillis();
-            reschedule(delayMillis);
+        public final void reschedule(long idleTimeMillis)  {
+            this.idleTimeMillis = idleTimeMillis;
+            if (wheel.isOwnerThread()) {
+                reschedule();
+            }
+            else if (RESCHEDULE_STATE.compareAndSet(this, RESCHEDULE_IDLE, RESCHEDULE_PENDING)) {
+                // changes from other threads are coalesced into one hand-off to the owner of the wheel
+                try {
+                    wheel.execute(this);
+                }
+                catch (RejectedExecutionException e) {
+                    // the worker has shut down, so the session is closed
+                    rescheduleState = RESCHEDULE_IDLE;
+                }
+            }
         }
 
-        private void reschedule(long delayMillis) {
-            // KG-9954 - We do not want to synchronize the reschedule method, instead use the NULL Timeout in case
-            // timeout gets set to null by another thread before we call cancel.
-            if (timeout != NULL_TIMEOUT) {
-                timeout.cancel();
-            }
+        @Override
+        public final void run() {
+            rescheduleState = RESCHEDULE_IDLE;
+            reschedule();
+        }
 
-            if (idleTimeMillis != 0) {
-                timeout = timer.newTimeout(this, delayMillis, MILLISECONDS);
+        private void reschedule() {
+            long idleTimeMillis = this.idleTimeMillis;
+            if (idleTimeMillis == 0) {
+                wheel.cancel(this);
+                return;
             }
-            else {
-                timeout = NULL_TIMEOUT;
+
+            long startPoint = Math.max(getLastIoTimeMillis(), getLastIdleTimeMillis());
+            long deadline = startPoint + idleTimeMillis;
+
+            // a later deadline is picked up when the scheduled one expires, so only move the timeout forward
+            if (!isScheduled() || deadline < getDeadlineMillis()) {
+                wheel.schedule(this, deadline);
             }
         }
 
         @Override
-        public final void run(Timeout timeout) throws Exception {
-            if (timeout.isCancelled()) {
-                // reschedule has already been done, don't incur the overhead of redoing it
+        protected final void expired(TimerWheel wheel, long nowMillis) {
+            long idleTimeMillis = this.idleTimeMillis;
+            if (idleTimeMillis == 0 || disposed) {
                 return;
             }
 
             long startPoint = Math.max(getLastIoTimeMillis(), getLastIdleTimeMillis());
-            // Doing the calculation here avoids having to call currentTimeMillis twice (here and in reschedule).
-            // Given that the precision of timeout is limited, and that lastIdleTime is only updated if idle is fired, we must
-            // always call currentTimeMillis(). For example, imagine session idle last fired at t0. Timeout will occur at or
-            // after t0 + configured idleTime. Even if an I/O event occurred after t0, we may still need to fire sessionIdle.
-            long timeUntilSessionIdle = startPoint + idleTimeMillis - currentTimeMillis();
-            if (timeUntilSessionIdle <= 0 && idleTimeMillis != 0) {
+            // Given that the precision of the wheel is limited, and that lastIdleTime is only updated if idle is fired,
+            // we must always check the time. For example, imagine session idle last fired at t0. The timeout will
+            // expire at or after t0 + configured idleTime. Even if an I/O event occurred after t0, we may still need to
+            // fire sessionIdle.
+            long timeUntilSessionIdle = startPoint + idleTimeMillis - nowMillis;
+            if (timeUntilSessionIdle <= 0) {
                 if (session.getIoThread() != IoSessionEx.NO_THREAD && !session.isClosing()) {
                     fireSessionIdle(session);
                 }
-                reschedule(idleTimeMillis);
+                if (!session.isClosing()) {
+                    wheel.schedule(this, nowMillis + idleTimeMillis);
+                }
             }
             else {
                 // An intervening I/O means we should not fire session idle, but we must reschedule to ensure accuracy
                 // of when we do fire sessionIdle.
-                reschedule(timeUntilSessionIdle);
+                wheel.schedule(this, nowMillis + timeUntilSessionIdle);
             }
         }
 
@@ -183,7 +227,6 @@ public final class DefaultIoSessionIdleTracker implements IoSessionIdleTracker {
         protected abstract long getLastIdleTimeMillis();
 
     }
-
     private final class NotifyBothIdleTask extends NotifyIdleTask {
 
         public NotifyBothIdleTask(IoSessionEx session) {
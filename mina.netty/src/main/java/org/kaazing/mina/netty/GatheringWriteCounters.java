@@ -0,0 +1,50 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the buffers written to TCP channels with a single gathering write, when write coalescing is enabled
+ * (see org.kaazing.netty.WRITE_COALESCE_MAX_BYTES).  Each such buffer would otherwise have been handed to the
+ * socket on its own, so the difference between buffers and writes is the number of write system calls saved
+ * (a partial write costs more calls either way).
+ */
+public final class GatheringWriteCounters {
+
+    private static final LongAdder WRITES = new LongAdder();
+    private static final LongAdder BUFFERS = new LongAdder();
+
+    private GatheringWriteCounters() {
+    }
+
+    static void recordWrite(int buffers) {
+        WRITES.increment();
+        BUFFERS.add(buffers);
+    }
+
+    public static long getGatheringWrites() {
+        return WRITES.sum();
+    }
+
+    public static long getGatheredBuffers() {
+        return BUFFERS.sum();
+    }
+
+    public static long getWritesSaved() {
+        return BUFFERS.sum() - WRITES.sum();
+    }
+}
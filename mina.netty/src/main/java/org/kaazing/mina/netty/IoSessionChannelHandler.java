@@ -30,14 +30,15 @@ import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
 import org.jboss.netty.channel.WriteCompletionEvent;
-import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.netty.buffer.LeasedChannelBuffer;
 
 import java.io.IOException;
 
 public class IoSessionChannelHandler extends SimpleChannelHandler {
 
     private final ChannelIoSession<? extends ChannelConfig> session;
-    private final IoBufferAllocatorEx<?> allocator;
+    private final ChannelIoBufferAllocator allocator;
     private final IoFuture future;
     private final IoSessionInitializer<?> initializer;
     private final IoSessionIdleTracker idleTracker;
@@ -111,7 +112,16 @@ public class IoSessionChannelHandler extends SimpleChannelHandler {
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
             throws Exception {
         Object message = e.getMessage();
-        if (message instanceof ChannelBuffer) {
+        IoBufferEx leasedBuf = null;
+        if (message instanceof LeasedChannelBuffer) {
+            LeasedChannelBuffer buf = (LeasedChannelBuffer) message;
+            // note: borrowed from the worker's read buffer pool and reused by the next read once the filter chain
+            //       is done with it, so filters keeping it must copy it or retain it (see IoBufferEx.isTransient)
+            leasedBuf = allocator.wrapTransient(buf.toByteBuffer(), buf.getLease());
+            message = leasedBuf;
+            buf.skipBytes(buf.readableBytes());
+        }
+        else if (message instanceof ChannelBuffer) {
             ChannelBuffer buf = (ChannelBuffer) message;
             // note: read as unshared buffer
             //       can convert via IoBufferEx.asSharedBuffer() if necessary later
@@ -121,7 +131,14 @@ public class IoSessionChannelHandler extends SimpleChannelHandler {
 
         // filter chain can change if session is re-aligned
         IoFilterChain filterChain = session.getFilterChain();
-        filterChain.fireMessageReceived(message);
+        try {
+            filterChain.fireMessageReceived(message);
+        }
+        finally {
+            if (leasedBuf != null) {
+                leasedBuf.free();
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty.buffer;
+
+import java.nio.ByteBuffer;
+
+import org.jboss.netty.buffer.ByteBufferBackedChannelBuffer;
+
+import org.kaazing.mina.core.buffer.ByteBufferPool.Lease;
+
+/**
+ * A received buffer borrowed from an IO worker's pool, to be released via its {@link Lease} once consumed.
+ */
+public final class LeasedChannelBuffer extends ByteBufferBackedChannelBuffer {
+
+    private final Lease lease;
+
+    public LeasedChannelBuffer(ByteBuffer buffer, Lease lease) {
+        super(buffer);
+        this.lease = lease;
+    }
+
+    public Lease getLease() {
+        return lease;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.kaazing.mina.netty.config;
 
+import static java.lang.Boolean.parseBoolean;
 import static java.lang.Integer.parseInt;
 import static java.lang.Long.parseLong;
 
@@ -35,7 +36,40 @@ public enum InternalSystemProperty {
 
     // A worker is serving multiple UDP child channels and they share an Agrona read queue.
     // Agrona uses the next power of 2 greater than or equal to the supplied value
-    UDP_CHANNEL_READ_QUEUE_SIZE("org.kaazing.netty.UDP_CHANNEL_READ_QUEUE_SIZE", "16384");
+    UDP_CHANNEL_READ_QUEUE_SIZE("org.kaazing.netty.UDP_CHANNEL_READ_QUEUE_SIZE", "16384"),
+
+    // Maximum number of datagrams a UDP boss receives from a bound socket per selector wakeup
+    UDP_RECEIVE_BATCH_SIZE("org.kaazing.netty.UDP_RECEIVE_BATCH_SIZE", "32"),
+
+    // Comma separated transport metadata names (e.g. "tcp,NioDatagramChannel") whose sessions allocate buffers from the
+    // shared ByteBufferPool instead of allocating a new buffer every time
+    POOLED_BUFFER_TRANSPORTS("org.kaazing.netty.POOLED_BUFFER_TRANSPORTS", ""), // no pooling by default
+
+    // Largest buffer capacity served from the pool, larger buffers are allocated on demand
+    POOLED_BUFFER_MAX_CAPACITY("org.kaazing.netty.POOLED_BUFFER_MAX_CAPACITY", "65536"),
+
+    // Maximum number of released buffers cached per size class by each IO thread
+    POOLED_BUFFER_CACHE_SIZE("org.kaazing.netty.POOLED_BUFFER_CACHE_SIZE", "256"),
+
+    // Use direct memory for all pooled buffers
+    POOLED_BUFFER_DIRECT("org.kaazing.netty.POOLED_BUFFER_DIRECT", "false"),
+
+    // Track the allocation site of one in this many pooled buffers, and report those garbage collected
+    // without having been freed. Value zero means do not track allocations (the default).
+    POOLED_BUFFER_LEAK_SAMPLING_INTERVAL("org.kaazing.netty.POOLED_BUFFER_LEAK_SAMPLING_INTERVAL", "0"),
+
+    // Hand bytes read from TCP sockets upstream in a buffer borrowed from the worker's pool, instead of copying
+    // them into a new buffer, and return it to the pool once the filter chain has processed it. Such buffers, and
+    // slices of them, report IoBufferEx.isTransient(): filters keeping one beyond messageReceived must call
+    // IoBufferEx.retain() and later free() it, or copy it (see TransientBuffers).
+    ZERO_COPY_TCP_READ("org.kaazing.netty.ZERO_COPY_TCP_READ", "false"),
+
+    // Defer flushing a TCP session's writes to the end of the current IO event and send the queued buffers with a
+    // single gathering write of up to this many bytes. Value zero means flush every write as it is made.
+    WRITE_COALESCE_MAX_BYTES("org.kaazing.netty.WRITE_COALESCE_MAX_BYTES", "0"), // disabled by default
+
+    // Maximum number of buffers (iovecs) in a gathering write
+    WRITE_COALESCE_MAX_BUFFERS("org.kaazing.netty.WRITE_COALESCE_MAX_BUFFERS", "64");
 
     private final String name;
     private final String defaultValue;
@@ -61,6 +95,14 @@ public enum InternalSystemProperty {
         return parseInt(value);
     }
 
+    public Boolean getBooleanProperty(Properties configuration) {
+        String value = getProperty(configuration);
+        if (value == null) {
+            return null;
+        }
+        return parseBoolean(value);
+    }
+
     public Long getLongProperty(Properties configuration) {
         String value = getProperty(configuration);
         if (value == null) {
@@ -0,0 +1,273 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty.util;
+
+import static java.lang.Thread.currentThread;
+
+import java.util.concurrent.Executor;
+
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
+
+/**
+ * A hierarchical timer wheel owned by a single thread, typically an I/O worker which advances it from its select
+ * loop by calling {@link #expireTimeouts(long)}.  Scheduling, moving and cancelling a {@link Timeout} are O(1) and
+ * allocation free because timeouts are linked into the wheel directly, but they may only be done on the owner
+ * thread.  Other threads use {@link #execute(Runnable)} to get there.
+ * <p>
+ * Each of the {@link #LEVELS} levels has {@link #SLOTS} slots, a slot on one level spanning all of the slots of the
+ * level below, so deadlines up to about 19 days away (with 100ms ticks) are placed directly.  Further deadlines are
+ * parked in the last slot of the top level and placed again when they get there.
+ */
+public final class TimerWheel {
+
+    public static final long DEFAULT_TICK_MILLIS = 100L;
+
+    public static final int SLOTS = 64;
+    public static final int LEVELS = 4;
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private static final ThreadLocal<TimerWheel> CURRENT = new VicariousThreadLocal<>();
+
+    private final long tickMillis;
+    private final Executor ownerExecutor;
+    private final Timeout[][] slots;
+
+    private volatile Thread owner;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis     the resolution of the wheel
+     * @param nowMillis      the current time, from {@link System#currentTimeMillis()}
+     * @param ownerExecutor  executes tasks on the owner thread
+     */
+    public TimerWheel(long tickMillis, long nowMillis, Executor ownerExecutor) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.ownerExecutor = ownerExecutor;
+        this.slots = new Timeout[LEVELS][SLOTS];
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Returns the wheel owned by the calling thread, or {@code null} if the calling thread does not own one.
+     */
+    public static TimerWheel current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes the calling thread the owner of this wheel, so it is returned by {@link #current()} on that thread.
+     * Must be called by the thread that is going to advance the wheel, before it does so.
+     */
+    public void bindToCurrentThread() {
+        owner = currentThread();
+        CURRENT.set(this);
+    }
+
+    public void unbindFromCurrentThread() {
+        CURRENT.remove();
+    }
+
+    public boolean isOwnerThread() {
+        return currentThread() == owner;
+    }
+
+    /**
+     * Runs the task on the owner thread, immediately if that is the calling thread.
+     */
+    public void execute(Runnable task) {
+        if (isOwnerThread()) {
+            task.run();
+        }
+        else {
+            ownerExecutor.execute(task);
+        }
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Returns the number of scheduled timeouts. Owner thread only.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the timeout to expire on the first tick at or after the deadline, moving it if it was already
+     * scheduled.  Owner thread only.
+     */
+    public void schedule(Timeout timeout, long deadlineMillis) {
+        if (timeout.level != -1) {
+            unlink(timeout);
+        }
+        else {
+            size++;
+        }
+        // round up, a timeout must never expire before its deadline, nor on a tick that has already been processed
+        timeout.deadlineTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        timeout.deadlineMillis = deadlineMillis;
+        link(timeout);
+    }
+
+    /**
+     * Cancels the timeout if it is scheduled. Owner thread only.
+     */
+    public void cancel(Timeout timeout) {
+        if (timeout.level != -1) {
+            unlink(timeout);
+            timeout.level = -1;
+            size--;
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time, calling {@link Timeout#expired(TimerWheel, long)} for each due timeout.
+     * Owner thread only.
+     *
+     * @return the number of timeouts that expired
+     */
+    public int expireTimeouts(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        int expired = 0;
+        while (currentTick < targetTick) {
+            long tick = ++currentTick;
+            cascade(tick);
+
+            // take timeouts off the slot one at a time, as expired callbacks may cancel or move any timeout
+            Timeout[] level0 = slots[0];
+            int index = (int) (tick & SLOT_MASK);
+            Timeout timeout;
+            while ((timeout = level0[index]) != null) {
+                unlink(timeout);
+                if (timeout.deadlineTick <= tick) {
+                    timeout.level = -1;
+                    size--;
+                    expired++;
+                    timeout.expired(this, nowMillis);
+                }
+                else {
+                    // parked beyond the range of the wheel
+                    link(timeout);
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Returns how long the owner may wait before it should call {@link #expireTimeouts(long)} again, or -1 if no
+     * timeouts are scheduled. Owner thread only.
+     */
+    public long getMillisUntilNextTick(long nowMillis) {
+        if (size == 0) {
+            return -1L;
+        }
+        return Math.max(1L, (currentTick + 1) * tickMillis - nowMillis);
+    }
+
+    private void cascade(long tick) {
+        // when a level wraps around, the current slot of the level above is redistributed below, top level first
+        int level = 1;
+        while (level < LEVELS && ((tick >>> (SLOT_BITS * level - SLOT_BITS)) & SLOT_MASK) == 0) {
+            level++;
+        }
+        for (int i = level - 1; i > 0; i--) {
+            int index = (int) ((tick >>> (SLOT_BITS * i)) & SLOT_MASK);
+            Timeout timeout;
+            while ((timeout = slots[i][index]) != null) {
+                unlink(timeout);
+                link(timeout);
+            }
+        }
+    }
+
+    private void link(Timeout timeout) {
+        // never negative, a timeout cascading down for the tick being processed goes in that tick's slot
+        long ticks = timeout.deadlineTick - currentTick;
+        long tick = timeout.deadlineTick;
+        int level = 0;
+        while (level < LEVELS - 1 && ticks >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        if (ticks >= 1L << (SLOT_BITS * LEVELS)) {
+            tick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        }
+
+        int index = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Timeout head = slots[level][index];
+        timeout.level = level;
+        timeout.index = index;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        slots[level][index] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        Timeout prev = timeout.prev;
+        Timeout next = timeout.next;
+        if (prev != null) {
+            prev.next = next;
+        }
+        else {
+            slots[timeout.level][timeout.index] = next;
+        }
+        if (next != null) {
+            next.prev = prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * An entry in a {@link TimerWheel}, reused across schedules. A timeout belongs to at most one wheel.
+     */
+    public abstract static class Timeout {
+
+        private Timeout prev;
+        private Timeout next;
+        private int level = -1;
+        private int index;
+        private long deadlineTick;
+        private long deadlineMillis;
+
+        public final boolean isScheduled() {
+            return level != -1;
+        }
+
+        /**
+         * Returns the deadline this timeout was last scheduled with.
+         */
+        public final long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        /**
+         * Called on the owner thread of the wheel once the deadline has passed. The timeout may be scheduled again.
+         */
+        protected abstract void expired(TimerWheel wheel, long nowMillis);
+    }
+}
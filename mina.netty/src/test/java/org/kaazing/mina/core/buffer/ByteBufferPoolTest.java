@@ -0,0 +1,150 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import org.kaazing.mina.core.buffer.ByteBufferPool.Lease;
+
+public class ByteBufferPoolTest {
+
+    @Test
+    public void shouldAllocateRequestedCapacity() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ByteBuffer buf = pool.allocate(100, IoBufferEx.FLAG_NONE);
+        assertEquals(100, buf.capacity());
+        assertEquals(0, buf.position());
+        assertEquals(100, buf.limit());
+        assertFalse(buf.isDirect());
+    }
+
+    @Test
+    public void shouldAllocateDirectWhenFlagged() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ByteBuffer buf = pool.allocate(100, IoBufferEx.FLAG_DIRECT);
+        assertTrue(buf.isDirect());
+    }
+
+    @Test
+    public void shouldReuseReleasedChunk() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ByteBuffer first = pool.allocate(100, IoBufferEx.FLAG_NONE);
+        Lease lease = pool.claim(first);
+        assertNotNull(lease);
+        assertTrue(lease.release());
+
+        ByteBuffer second = pool.allocate(128, IoBufferEx.FLAG_NONE);
+        assertSame(first.array(), second.array());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.getRecycleCount());
+    }
+
+    @Test
+    public void shouldNotClaimForeignBuffer() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        pool.allocate(100, IoBufferEx.FLAG_NONE);
+        assertNull(pool.claim(ByteBuffer.allocate(100)));
+    }
+
+    @Test
+    public void shouldNotClaimTwice() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ByteBuffer buf = pool.allocate(100, IoBufferEx.FLAG_NONE);
+        assertNotNull(pool.claim(buf));
+        assertNull(pool.claim(buf));
+    }
+
+    @Test
+    public void shouldNotPoolLargeCapacity() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ByteBuffer buf = pool.allocate(2048, IoBufferEx.FLAG_NONE);
+        assertEquals(2048, buf.capacity());
+        assertNull(pool.claim(buf));
+        assertEquals(1, pool.getUnpooledAllocationCount());
+    }
+
+    @Test
+    public void shouldRecycleOnlyAfterLastRelease() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        Lease lease = pool.claim(pool.allocate(100, IoBufferEx.FLAG_NONE));
+        lease.retain();
+        assertFalse(lease.release());
+        assertEquals(0, pool.getRecycleCount());
+        assertTrue(lease.release());
+        assertEquals(1, pool.getRecycleCount());
+        assertEquals(128, pool.getCachedBytes());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectReleaseAfterFree() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        Lease lease = pool.claim(pool.allocate(100, IoBufferEx.FLAG_NONE));
+        lease.release();
+        lease.release();
+    }
+
+    @Test
+    public void shouldDiscardWhenCacheFull() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 1, false, 0);
+        Lease first = pool.claim(pool.allocate(100, IoBufferEx.FLAG_NONE));
+        Lease second = pool.claim(pool.allocate(100, IoBufferEx.FLAG_NONE));
+        first.release();
+        second.release();
+        assertEquals(1, pool.getRecycleCount());
+        assertEquals(1, pool.getDiscardCount());
+    }
+
+    @Test
+    public void shouldReportLeakedBuffers() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 1);
+        pool.claim(pool.allocate(100, IoBufferEx.FLAG_NONE));
+        pool.claim(pool.allocate(100, IoBufferEx.FLAG_NONE));
+
+        for (int i = 0; i < 50 && pool.getLeakCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+            // leaks are reported on subsequent sampled claims
+            pool.claim(pool.allocate(100, IoBufferEx.FLAG_NONE)).release();
+        }
+
+        assertTrue(pool.getLeakCount() > 0);
+    }
+
+    @Test
+    public void shouldNotReportUnclaimedBuffers() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 1);
+        pool.allocate(100, IoBufferEx.FLAG_NONE);
+        pool.allocate(100, IoBufferEx.FLAG_NONE);
+
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(20);
+            pool.claim(pool.allocate(100, IoBufferEx.FLAG_NONE)).release();
+        }
+
+        assertEquals(0, pool.getLeakCount());
+    }
+}
@@ -16,6 +16,7 @@
 package org.kaazing.mina.core.session;
 
 import static java.lang.Thread.currentThread;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -23,6 +24,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.mina.core.filterchain.IoFilterChain;
 import org.apache.mina.core.service.IoHandlerAdapter;
@@ -91,6 +93,42 @@ public class DummySessionExTest {
         assertTrue(session.isReadSuspended());
     }
 
+    @Test
+    public void shouldRunTaskOnceWhenWritesDrained() {
+
+        DummySessionEx session = new DummySessionEx();
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        session.increaseScheduledWriteBytes(100);
+        session.runWhenWritesDrained(50, task);
+        session.increaseWrittenBytes(40, 0L);
+        assertEquals(0, runs.get());
+        session.increaseWrittenBytes(20, 0L);
+        assertEquals(1, runs.get());
+        session.increaseWrittenBytes(40, 0L);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void shouldRunTaskImmediatelyWhenWritesAlreadyDrained() {
+
+        DummySessionEx session = new DummySessionEx();
+        final AtomicInteger runs = new AtomicInteger();
+        session.increaseScheduledWriteBytes(50);
+        session.runWhenWritesDrained(50, new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        });
+        assertEquals(1, runs.get());
+    }
+
     private final class DummySessionExFactory implements Callable<DummySessionEx> {
         @Override
         public DummySessionEx call() {
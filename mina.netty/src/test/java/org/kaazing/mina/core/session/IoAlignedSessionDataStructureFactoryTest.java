@@ -0,0 +1,145 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.session;
+
+import static java.lang.Thread.currentThread;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.mina.core.session.AttributeKey;
+import org.apache.mina.core.session.DefaultIoSessionDataStructureFactory;
+import org.apache.mina.core.session.IoSessionAttributeMap;
+import org.junit.After;
+import org.junit.Test;
+import org.kaazing.mina.core.session.IoAlignedSessionDataStructureFactory.IoAlignedAttributeMap;
+
+public class IoAlignedSessionDataStructureFactoryTest {
+
+    private static final Executor IO_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final IoAlignedSessionDataStructureFactory factory = new IoAlignedSessionDataStructureFactory();
+    private final ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdown() {
+        otherThread.shutdownNow();
+    }
+
+    @Test
+    public void shouldUseDefaultStructuresWhenNotAligned() throws Exception {
+        DummySessionEx session = new DummySessionEx();
+        assertFalse(factory.getAttributeMap(session) instanceof IoAlignedAttributeMap);
+    }
+
+    @Test
+    public void shouldUseDefaultWriteRequestQueueWhenAligned() throws Exception {
+        DummySessionEx session = new DummySessionEx(currentThread(), IO_EXECUTOR);
+        assertTrue(factory.getAttributeMap(session) instanceof IoAlignedAttributeMap);
+        assertEquals(new DefaultIoSessionDataStructureFactory().getWriteRequestQueue(session).getClass(),
+                factory.getWriteRequestQueue(session).getClass());
+    }
+
+    @Test
+    public void shouldMatchHashMapBehavior() throws Exception {
+        DummySessionEx session = new DummySessionEx(currentThread(), IO_EXECUTOR);
+        IoSessionAttributeMap attributes = factory.getAttributeMap(session);
+        assertTrue(attributes instanceof IoAlignedAttributeMap);
+
+        AttributeKey[] keys = new AttributeKey[64];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new AttributeKey(getClass(), "key" + i);
+        }
+
+        Map<Object, Object> expected = new HashMap<>();
+        Random random = new Random(0L);
+        for (int i = 0; i < 100000; i++) {
+            AttributeKey key = keys[random.nextInt(keys.length)];
+            Integer value = random.nextInt(4);
+            switch (random.nextInt(4)) {
+            case 0:
+                assertEquals(expected.put(key, value), attributes.setAttribute(session, key, value));
+                break;
+            case 1:
+                assertEquals(expected.remove(key), attributes.removeAttribute(session, key));
+                break;
+            case 2:
+                Object current = expected.get(key);
+                if (current == null) {
+                    expected.put(key, value);
+                }
+                assertEquals(current, attributes.setAttributeIfAbsent(session, key, value));
+                break;
+            default:
+                boolean removed = value.equals(expected.get(key));
+                if (removed) {
+                    expected.remove(key);
+                }
+                assertEquals(removed, attributes.removeAttribute(session, key, value));
+                break;
+            }
+        }
+
+        assertEquals(expected.keySet(), attributes.getAttributeKeys(session));
+        for (AttributeKey key : keys) {
+            assertEquals(expected.get(key), attributes.getAttribute(session, key, null));
+        }
+        assertFalse(((IoAlignedAttributeMap) attributes).isShared());
+    }
+
+    @Test
+    public void shouldMatchKeysByEquality() throws Exception {
+        DummySessionEx session = new DummySessionEx(currentThread(), IO_EXECUTOR);
+        IoSessionAttributeMap attributes = factory.getAttributeMap(session);
+
+        attributes.setAttribute(session, new String("encoding"), "text");
+        assertEquals("text", attributes.getAttribute(session, "encoding", null));
+        assertTrue(attributes.replaceAttribute(session, "encoding", "text", "binary"));
+        assertEquals("binary", attributes.getAttribute(session, new String("encoding"), null));
+    }
+
+    @Test
+    public void shouldShareAttributesWithOtherThreads() throws Exception {
+        final DummySessionEx session = new DummySessionEx(currentThread(), IO_EXECUTOR);
+        final IoSessionAttributeMap attributes = factory.getAttributeMap(session);
+        final AttributeKey key = new AttributeKey(getClass(), "key");
+        attributes.setAttribute(session, key, "value");
+
+        Object value = otherThread.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return attributes.setAttribute(session, key, "other");
+            }
+        }).get();
+
+        assertEquals("value", value);
+        assertTrue(((IoAlignedAttributeMap) attributes).isShared());
+        assertEquals("other", attributes.getAttribute(session, key, null));
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.session;
+
+import static java.lang.Thread.currentThread;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.session.AttributeKey;
+import org.apache.mina.core.session.DefaultIoSessionDataStructureFactory;
+import org.apache.mina.core.session.IoSessionAttributeMap;
+import org.apache.mina.core.session.IoSessionDataStructureFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures attribute get/set on the IO thread of an aligned session, with the default synchronized attribute map
+ * and with the IO aligned one.  DefaultHttpSession, WsnSession and WsebSession all get their attribute maps from
+ * AbstractBridgeService, so attributeCount stands for how many attributes such a session carries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 8, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class IoSessionDataStructureBM {
+
+    private static final Executor IO_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Param({"default", "aligned"})
+    public String factory;
+
+    @Param({"4", "16"})
+    public int attributeCount;
+
+    private DummySessionEx session;
+    private IoSessionAttributeMap attributes;
+    private AttributeKey[] keys;
+    private int next;
+
+    @Setup
+    public void init() throws Exception {
+        // the benchmark thread plays the IO thread of the session
+        session = new DummySessionEx(currentThread(), IO_EXECUTOR);
+
+        IoSessionDataStructureFactory structures = "aligned".equals(factory)
+                ? new IoAlignedSessionDataStructureFactory() : new DefaultIoSessionDataStructureFactory();
+        attributes = structures.getAttributeMap(session);
+
+        keys = new AttributeKey[attributeCount];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new AttributeKey(IoSessionDataStructureBM.class, "key" + i);
+            attributes.setAttribute(session, keys[i], Integer.valueOf(i));
+        }
+    }
+
+    @Benchmark
+    public Object getAttribute() {
+        return attributes.getAttribute(session, nextKey(), null);
+    }
+
+    @Benchmark
+    public Object setAttribute() {
+        AttributeKey key = nextKey();
+        return attributes.setAttribute(session, key, key);
+    }
+
+    private AttributeKey nextKey() {
+        AttributeKey[] keys = this.keys;
+        int next = this.next + 1;
+        if (next == keys.length) {
+            next = 0;
+        }
+        this.next = next;
+        return keys[next];
+    }
+
+    // Or from command line:
+    //
+    // mvn clean install
+    // java -jar target/benchmarks.jar IoSessionDataStructureBM
+    //
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(IoSessionDataStructureBM.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import org.kaazing.mina.core.buffer.ByteBufferPool;
+import org.kaazing.mina.core.buffer.ByteBufferPool.Lease;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+
+public class ChannelIoBufferAllocatorTest {
+
+    @Test
+    public void freeShouldReturnPooledBufferToPool() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(pool);
+
+        IoBufferEx buf = allocator.wrap(allocator.allocate(100));
+        buf.free();
+
+        assertEquals(1, pool.getRecycleCount());
+    }
+
+    @Test
+    public void completedWriteShouldReturnPooledBufferToPool() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(pool);
+
+        ChannelIoBufferAllocator.ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100), IoBufferEx.FLAG_NONE);
+        buf.releaseWritten();
+
+        assertEquals(1, pool.getRecycleCount());
+    }
+
+    @Test
+    public void completedWriteShouldNotReleaseSharedOrDerivedBuffers() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(pool);
+
+        ChannelIoBufferAllocator.ChannelIoBuffer shared = allocator.wrap(allocator.allocate(100), IoBufferEx.FLAG_SHARED);
+        shared.releaseWritten();
+        ((ChannelIoBufferAllocator.ChannelIoBuffer) shared.duplicate()).releaseWritten();
+        ((ChannelIoBufferAllocator.ChannelIoBuffer) shared.asUnsharedBuffer()).releaseWritten();
+        assertEquals(0, pool.getRecycleCount());
+
+        shared.free();
+        assertEquals(1, pool.getRecycleCount());
+    }
+
+    @Test
+    public void derivedBuffersShouldShareReferenceCount() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(pool);
+
+        IoBufferEx buf = allocator.wrap(allocator.allocate(100), IoBufferEx.FLAG_SHARED);
+        IoBufferEx slice = buf.slice().retain();
+        buf.free();
+        assertEquals(0, pool.getRecycleCount());
+
+        slice.free();
+        assertEquals(1, pool.getRecycleCount());
+    }
+
+    @Test
+    public void freeShouldNotReleaseLeaseOfDerivedBufferNotRetained() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(pool);
+
+        IoBufferEx buf = allocator.wrap(allocator.allocate(100), IoBufferEx.FLAG_SHARED);
+        buf.duplicate().free();
+        buf.slice().free();
+        buf.asReadOnlyBuffer().free();
+        buf.asUnsharedBuffer().free();
+        assertEquals(0, pool.getRecycleCount());
+
+        IoBufferEx slice = buf.slice().retain();
+        slice.free();
+        slice.free();
+        assertEquals(0, pool.getRecycleCount());
+
+        buf.free();
+        assertEquals(1, pool.getRecycleCount());
+    }
+
+    @Test
+    public void wrapWithLeaseShouldReleaseLeaseOnFree() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator();
+
+        ByteBuffer nioBuf = pool.allocate(100, IoBufferEx.FLAG_NONE);
+        Lease lease = pool.claim(nioBuf);
+        allocator.wrapTransient(nioBuf, lease).free();
+
+        assertEquals(0, lease.referenceCount());
+        assertEquals(1, pool.getRecycleCount());
+    }
+
+    @Test
+    public void transientBufferShouldStayTransientWhenDerivedAndNotReleaseOnWrite() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024, 4, false, 0);
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator();
+
+        ByteBuffer nioBuf = pool.allocate(100, IoBufferEx.FLAG_NONE);
+        ChannelIoBufferAllocator.ChannelIoBuffer buf = allocator.wrapTransient(nioBuf, pool.claim(nioBuf));
+        assertTrue(buf.isTransient());
+        assertTrue(buf.slice().isTransient());
+        assertTrue(buf.duplicate().isTransient());
+        assertTrue(buf.asSharedBuffer().isTransient());
+        assertFalse(allocator.wrap(allocator.allocate(100)).isTransient());
+
+        buf.releaseWritten();
+        assertEquals(0, pool.getRecycleCount());
+
+        IoBufferEx retained = buf.slice().retain();
+        buf.free();
+        assertEquals(0, pool.getRecycleCount());
+        retained.free();
+        assertEquals(1, pool.getRecycleCount());
+    }
+
+    @Test
+    public void freeShouldIgnoreUnpooledBuffer() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator();
+        IoBufferEx buf = allocator.wrap(allocator.allocate(100));
+        buf.free();
+        buf.free();
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.WRITE_COALESCE_MAX_BYTES;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioWorkerPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.netty.socket.nio.DefaultNioSocketChannelIoSessionConfig;
+import org.kaazing.mina.netty.socket.nio.NioSocketChannelIoAcceptor;
+
+/**
+ * Measures the round trip of a one byte request over loopback answered by a burst of 64 byte messages, each
+ * written separately by the handler on the I/O thread.  With "coalesceMaxBytes" set to zero every message is
+ * written to the socket as it is made; otherwise the burst is flushed at the end of the read with gathering
+ * writes.  GatheringWriteCounters reports the write system calls saved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 8, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class ChannelIoProcessorBM {
+
+    private static final int MESSAGE_SIZE = 64;
+
+    @Param({"0", "65536"})
+    public String coalesceMaxBytes;
+
+    @Param({"16", "256"})
+    public int burst;
+
+    private NioSocketChannelIoAcceptor acceptor;
+    private Socket socket;
+    private OutputStream output;
+    private InputStream input;
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void init() throws Exception {
+        // read when the acceptor creates its processor
+        System.setProperty(WRITE_COALESCE_MAX_BYTES.getPropertyName(), coalesceMaxBytes);
+
+        NioServerSocketChannelFactory serverChannelFactory =
+                new NioServerSocketChannelFactory(newCachedThreadPool(), new NioWorkerPool(newCachedThreadPool(), 1));
+        acceptor = new NioSocketChannelIoAcceptor(new DefaultNioSocketChannelIoSessionConfig(), serverChannelFactory);
+        acceptor.getSessionConfig().setTcpNoDelay(true);
+        acceptor.setFilterChainBuilder(new DefaultIoFilterChainBuilder());
+        acceptor.setHandler(new BurstHandler(burst));
+
+        InetSocketAddress address = new InetSocketAddress("localhost", PortUtil.nextPort(8100, 100));
+        acceptor.bind(address);
+
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(address);
+        output = socket.getOutputStream();
+        input = socket.getInputStream();
+        response = new byte[burst * MESSAGE_SIZE];
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() throws Exception {
+        socket.close();
+        acceptor.dispose();
+        System.clearProperty(WRITE_COALESCE_MAX_BYTES.getPropertyName());
+        System.out.format("%n%d gathering writes, %d write calls saved%n",
+                GatheringWriteCounters.getGatheringWrites(), GatheringWriteCounters.getWritesSaved());
+    }
+
+    @Benchmark
+    public int requestBurst() throws Exception {
+        output.write(1);
+        int read = 0;
+        while (read < response.length) {
+            int count = input.read(response, read, response.length - read);
+            if (count == -1) {
+                throw new IllegalStateException("connection closed");
+            }
+            read += count;
+        }
+        return read;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ChannelIoProcessorBM.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    // Or from command line:
+    //
+    // mvn clean install
+    // java -jar target/benchmarks.jar ChannelIoProcessorBM
+    //
+
+    private static final class BurstHandler extends IoHandlerAdapter {
+        private final int burst;
+        private final byte[] message;
+
+        BurstHandler(int burst) {
+            this.burst = burst;
+            this.message = new byte[MESSAGE_SIZE];
+        }
+
+        @Override
+        public void messageReceived(IoSession session, Object message) throws Exception {
+            IoBufferAllocatorEx<?> allocator = ((IoSessionEx) session).getBufferAllocator();
+            for (int i = 0; i < burst; i++) {
+                session.write(allocator.wrap(ByteBuffer.wrap(this.message)));
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.WRITE_COALESCE_MAX_BYTES;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelDownstreamHandler;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioWorkerPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.netty.socket.nio.DefaultNioSocketChannelIoSessionConfig;
+import org.kaazing.mina.netty.socket.nio.NioSocketChannelIoAcceptor;
+
+/**
+ * Exercises write coalescing over loopback: a burst of writes made in one IO event is flushed with a gathering write
+ * at the end of the event.
+ */
+public class ChannelIoProcessorTest {
+
+    private static final int MESSAGE_SIZE = 64;
+    private static final int BURST = 16;
+
+    private NioSocketChannelIoAcceptor acceptor;
+    private Socket socket;
+
+    @Before
+    public void init() throws Exception {
+        // read when the acceptor creates its processor
+        System.setProperty(WRITE_COALESCE_MAX_BYTES.getPropertyName(), "65536");
+
+        NioServerSocketChannelFactory serverChannelFactory =
+                new NioServerSocketChannelFactory(newCachedThreadPool(), new NioWorkerPool(newCachedThreadPool(), 1));
+        acceptor = new NioSocketChannelIoAcceptor(new DefaultNioSocketChannelIoSessionConfig(), serverChannelFactory);
+        acceptor.getSessionConfig().setTcpNoDelay(true);
+        acceptor.setFilterChainBuilder(new DefaultIoFilterChainBuilder());
+        socket = new Socket();
+        socket.setSoTimeout((int) SECONDS.toMillis(10));
+    }
+
+    @After
+    public void dispose() throws Exception {
+        socket.close();
+        acceptor.dispose();
+        System.clearProperty(WRITE_COALESCE_MAX_BYTES.getPropertyName());
+    }
+
+    @Test
+    public void shouldCompleteEveryWriteOfGatheringWrite() throws Exception {
+        BurstHandler handler = new BurstHandler(false);
+        connect(handler);
+        long gatheringWrites = GatheringWriteCounters.getGatheringWrites();
+
+        socket.getOutputStream().write(1);
+        byte[] response = read(socket.getInputStream(), BURST * MESSAGE_SIZE);
+
+        assertArrayEquals(expectedBurst(), response);
+        assertTrue(handler.written.await(10, SECONDS));
+        assertEquals(BURST, handler.futures.size());
+        for (WriteFuture future : handler.futures) {
+            assertTrue(future.awaitUninterruptibly(10, SECONDS));
+            assertTrue(future.isWritten());
+        }
+        assertTrue(GatheringWriteCounters.getGatheringWrites() > gatheringWrites);
+    }
+
+    @Test
+    public void shouldFailEveryWriteOfFailedGatheringWrite() throws Exception {
+        BurstHandler handler = new BurstHandler(false) {
+            @Override
+            public void sessionCreated(IoSession session) throws Exception {
+                ChannelIoSession<?> channelSession = (ChannelIoSession<?>) session;
+                channelSession.getChannel().getPipeline().addLast("failWrites", new SimpleChannelDownstreamHandler() {
+                    @Override
+                    public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+                        e.getFuture().setFailure(new IOException("write failed"));
+                    }
+                });
+            }
+        };
+        connect(handler);
+
+        socket.getOutputStream().write(1);
+
+        assertTrue(handler.written.await(10, SECONDS));
+        assertEquals(BURST, handler.futures.size());
+        for (WriteFuture future : handler.futures) {
+            assertTrue(future.awaitUninterruptibly(10, SECONDS));
+            assertNotNull(future.getException());
+        }
+    }
+
+    @Test
+    public void shouldSendWritesMadeBeforeClose() throws Exception {
+        BurstHandler handler = new BurstHandler(true);
+        connect(handler);
+
+        socket.getOutputStream().write(1);
+        byte[] response = read(socket.getInputStream(), BURST * MESSAGE_SIZE);
+
+        assertArrayEquals(expectedBurst(), response);
+        assertEquals(-1, socket.getInputStream().read());
+    }
+
+    private void connect(BurstHandler handler) throws Exception {
+        acceptor.setHandler(handler);
+        InetSocketAddress address = new InetSocketAddress("localhost", PortUtil.nextPort(8100, 100));
+        acceptor.bind(address);
+        socket.setTcpNoDelay(true);
+        socket.connect(address);
+    }
+
+    private static byte[] read(InputStream input, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int count = input.read(bytes, read, length - read);
+            if (count == -1) {
+                throw new IOException(String.format("Connection closed after %d of %d bytes", read, length));
+            }
+            read += count;
+        }
+        return bytes;
+    }
+
+    private static byte[] expectedBurst() {
+        byte[] bytes = new byte[BURST * MESSAGE_SIZE];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i / MESSAGE_SIZE);
+        }
+        return bytes;
+    }
+
+    // answers each read with a burst of messages written separately on the I/O thread, and optionally closes
+    private static class BurstHandler extends IoHandlerAdapter {
+        final List<WriteFuture> futures = new CopyOnWriteArrayList<>();
+        final CountDownLatch written = new CountDownLatch(1);
+        private final boolean close;
+
+        BurstHandler(boolean close) {
+            this.close = close;
+        }
+
+        @Override
+        public void messageReceived(IoSession session, Object message) throws Exception {
+            IoBufferAllocatorEx<?> allocator = ((IoSessionEx) session).getBufferAllocator();
+            for (int i = 0; i < BURST; i++) {
+                byte[] bytes = new byte[MESSAGE_SIZE];
+                Arrays.fill(bytes, (byte) i);
+                futures.add(session.write(allocator.wrap(ByteBuffer.wrap(bytes))));
+            }
+            written.countDown();
+            if (close) {
+                session.close(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.kaazing.mina.netty.util.TimerWheel;
+
+/**
+ * Measures idle tracking of a million sessions with periodic activity, where each operation is I/O on the next
+ * session followed by a change of its reader idle time, the way WsCheckAliveFilter alternates between the ping
+ * delay and the expected round trip time.  "hashedWheel" cancels and creates a timeout on a shared
+ * HashedWheelTimer for every change, as DefaultIoSessionIdleTracker used to.  "timerWheel" moves the session's
+ * own timeout on a TimerWheel only when the deadline gets earlier, and advances the wheel from the benchmark
+ * thread every 1024 operations, like a worker's select loop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 8, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class IoSessionIdleTrackerBM {
+
+    private static final long PING_DELAY_MILLIS = 20000L;
+    private static final long MAX_EXPECTED_RTT_MILLIS = 5000L;
+
+    @Param({"hashedWheel", "timerWheel"})
+    public String timer;
+
+    @Param({"1000000"})
+    public int sessionCount;
+
+    private HashedWheelTimer hashedWheelTimer;
+    private TimerWheel timerWheel;
+    private SessionIdleTimeout[] sessions;
+    private long now;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void init() throws Exception {
+        now = currentTimeMillis();
+        if ("hashedWheel".equals(timer)) {
+            hashedWheelTimer = new HashedWheelTimer(DefaultIoSessionIdleTracker.PRECISION, MILLISECONDS);
+        }
+        else {
+            timerWheel = new TimerWheel(TimerWheel.DEFAULT_TICK_MILLIS, now, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+        }
+
+        sessions = new SessionIdleTimeout[sessionCount];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = new SessionIdleTimeout();
+            sessions[i].lastIoTimeMillis = now;
+            setIdleTime(sessions[i], PING_DELAY_MILLIS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() {
+        if (hashedWheelTimer != null) {
+            hashedWheelTimer.stop();
+        }
+    }
+
+    @Benchmark
+    public void activity() {
+        int next = this.next;
+        if ((next & 1023) == 0) {
+            now = currentTimeMillis();
+            if (timerWheel != null) {
+                timerWheel.expireTimeouts(now);
+            }
+        }
+        this.next = next + 1 == sessions.length ? 0 : next + 1;
+
+        SessionIdleTimeout session = sessions[next];
+        session.lastIoTimeMillis = now;
+        setIdleTime(session, session.idleTimeMillis == PING_DELAY_MILLIS ? MAX_EXPECTED_RTT_MILLIS : PING_DELAY_MILLIS);
+    }
+
+    private void setIdleTime(SessionIdleTimeout session, long idleTimeMillis) {
+        session.idleTimeMillis = idleTimeMillis;
+        long deadline = session.lastIoTimeMillis + idleTimeMillis;
+        if (hashedWheelTimer != null) {
+            if (session.timeout != null) {
+                session.timeout.cancel();
+            }
+            session.timeout = hashedWheelTimer.newTimeout(session, deadline - now, MILLISECONDS);
+        }
+        else if (!session.isScheduled() || deadline < session.getDeadlineMillis()) {
+            timerWheel.schedule(session, deadline);
+        }
+    }
+
+    private static final class SessionIdleTimeout extends TimerWheel.Timeout implements TimerTask {
+
+        long lastIoTimeMillis;
+        long idleTimeMillis;
+        Timeout timeout;
+
+        @Override
+        public void run(Timeout timeout) {
+            // no idle session in this benchmark
+        }
+
+        @Override
+        protected void expired(TimerWheel wheel, long nowMillis) {
+            // session idle would fire here when the deadline has passed
+            long deadline = lastIoTimeMillis + idleTimeMillis;
+            wheel.schedule(this, deadline > nowMillis ? deadline : nowMillis + idleTimeMillis);
+        }
+    }
+
+    // Or from command line:
+    //
+    // mvn clean install
+    // java -jar target/benchmarks.jar IoSessionIdleTrackerBM
+    //
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(IoSessionIdleTrackerBM.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import org.kaazing.mina.netty.util.TimerWheel.Timeout;
+
+public class TimerWheelTest {
+
+    private static final Executor INLINE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void shouldExpireOnFirstTickAtOrAfterDeadline() throws Exception {
+        TimerWheel wheel = new TimerWheel(100, 0, INLINE);
+        RecordingTimeout timeout = new RecordingTimeout();
+
+        wheel.schedule(timeout, 250);
+        assertEquals(0, wheel.expireTimeouts(299));
+        assertEquals(1, wheel.expireTimeouts(300));
+        assertEquals(300, timeout.expiredAt);
+        assertFalse(timeout.isScheduled());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void shouldExpireFarDeadlinesAfterCascading() throws Exception {
+        TimerWheel wheel = new TimerWheel(1, 0, INLINE);
+        long[] deadlines = { 63, 64, 65, 4095, 4096, 4097, 262143, 262144, 300000, 16777215, 16777216, 20000000 };
+        List<RecordingTimeout> timeouts = new ArrayList<>();
+        for (long deadline : deadlines) {
+            RecordingTimeout timeout = new RecordingTimeout();
+            wheel.schedule(timeout, deadline);
+            timeouts.add(timeout);
+        }
+
+        for (int i = 0; i < deadlines.length; i++) {
+            wheel.expireTimeouts(deadlines[i] - 1);
+            assertTrue(timeouts.get(i).isScheduled());
+            wheel.expireTimeouts(deadlines[i]);
+            assertEquals(deadlines[i], timeouts.get(i).expiredAt);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void shouldMoveScheduledTimeout() throws Exception {
+        TimerWheel wheel = new TimerWheel(10, 0, INLINE);
+        RecordingTimeout timeout = new RecordingTimeout();
+
+        wheel.schedule(timeout, 5000);
+        wheel.schedule(timeout, 50);
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.expireTimeouts(50));
+        assertEquals(0, wheel.expireTimeouts(6000));
+    }
+
+    @Test
+    public void shouldNotExpireCancelledTimeout() throws Exception {
+        TimerWheel wheel = new TimerWheel(10, 0, INLINE);
+        RecordingTimeout first = new RecordingTimeout();
+        RecordingTimeout second = new RecordingTimeout();
+
+        wheel.schedule(first, 50);
+        wheel.schedule(second, 50);
+        wheel.cancel(first);
+        assertEquals(1, wheel.expireTimeouts(100));
+        assertEquals(-1, first.expiredAt);
+        assertEquals(100, second.expiredAt);
+    }
+
+    @Test
+    public void shouldAllowExpiredTimeoutToCancelAnotherInSameSlot() throws Exception {
+        TimerWheel wheel = new TimerWheel(10, 0, INLINE);
+        final RecordingTimeout other = new RecordingTimeout();
+        Timeout cancelling = new Timeout() {
+            @Override
+            protected void expired(TimerWheel wheel, long nowMillis) {
+                wheel.cancel(other);
+            }
+        };
+
+        wheel.schedule(other, 50);
+        wheel.schedule(cancelling, 50);
+        assertEquals(1, wheel.expireTimeouts(50));
+        assertEquals(-1, other.expiredAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void shouldReportTimeUntilNextTickOnlyWhenScheduled() throws Exception {
+        TimerWheel wheel = new TimerWheel(100, 0, INLINE);
+        assertEquals(-1, wheel.getMillisUntilNextTick(30));
+
+        wheel.schedule(new RecordingTimeout(), 1000);
+        assertEquals(70, wheel.getMillisUntilNextTick(30));
+    }
+
+    @Test
+    public void shouldBindToCurrentThread() throws Exception {
+        TimerWheel wheel = new TimerWheel(100, 0, INLINE);
+        assertFalse(wheel.isOwnerThread());
+
+        wheel.bindToCurrentThread();
+        try {
+            assertTrue(wheel.isOwnerThread());
+            assertSame(wheel, TimerWheel.current());
+        }
+        finally {
+            wheel.unbindFromCurrentThread();
+        }
+    }
+
+    private static final class RecordingTimeout extends Timeout {
+
+        long expiredAt = -1;
+
+        @Override
+        protected void expired(TimerWheel wheel, long nowMillis) {
+            expiredAt = nowMillis;
+        }
+    }
+}
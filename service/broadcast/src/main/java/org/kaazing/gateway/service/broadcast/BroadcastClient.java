@@ -0,0 +1,200 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.kaazing.gateway.transport.BridgeSession;
+
+/**
+ * A broadcast subscriber, with the messages held back while it is a slow consumer.
+ * Accessed from the IO thread of its {@link BroadcastPartition}, synchronized on the client.
+ * <p>
+ * When the session moves to another IO thread (e.g. WsebSession downstream reconnect), the client joins the
+ * partition of that thread but stays in its former partitions until the new partition delivers the next message
+ * in sequence, so that no message is skipped or reordered while it moves.
+ */
+final class BroadcastClient {
+
+    static final long NO_SEQUENCE = -1L;
+
+    private final IoSession session;
+    private final ArrayDeque<Object> heldMessages;
+    private final List<BroadcastPartition> formerPartitions;
+
+    private volatile BroadcastPartition partition;
+    private long lastSequence = NO_SEQUENCE;
+    private boolean closed;
+
+    // transport session carrying the backlog, cached while the parent of the client session is unchanged
+    private IoSession parent;
+    private IoSession transport;
+
+    private WriteFuture lastWriteFuture;
+    private boolean drainScheduled;
+
+    BroadcastClient(IoSession session) {
+        this.session = session;
+        this.heldMessages = new ArrayDeque<>();
+        this.formerPartitions = new ArrayList<>(1);
+    }
+
+    IoSession getSession() {
+        return session;
+    }
+
+    BroadcastPartition getPartition() {
+        return partition;
+    }
+
+    void join(BroadcastPartition partition) {
+        this.partition = partition;
+        partition.add(this);
+    }
+
+    void leave() {
+        closed = true;
+        partition.remove(this);
+        for (BroadcastPartition former : formerPartitions) {
+            former.remove(this);
+        }
+        formerPartitions.clear();
+    }
+
+    /**
+     * Joins the partition of the IO thread the session has moved to, keeping the current one as a former
+     * partition until the new one takes over.
+     */
+    void moveTo(BroadcastPartition newPartition) {
+        if (closed || newPartition == partition) {
+            return;
+        }
+        if (!formerPartitions.remove(newPartition)) {
+            newPartition.add(this);
+        }
+        formerPartitions.add(partition);
+        partition = newPartition;
+    }
+
+    /**
+     * Decides whether the given partition delivers the message with the given sequence number, each message
+     * being delivered once and in sequence by whichever partition of the client gets to it first.
+     */
+    boolean deliver(BroadcastPartition from, long sequence) {
+        boolean former = formerPartitions.contains(from);
+        if (closed || (from != partition && !former)) {
+            return false;
+        }
+
+        if (lastSequence != NO_SEQUENCE) {
+            if (sequence <= lastSequence) {
+                return false;
+            }
+            if (sequence != lastSequence + 1 && !formerPartitions.isEmpty()) {
+                // a former partition still has to deliver the messages in between
+                return false;
+            }
+        }
+        lastSequence = sequence;
+
+        if (!former && !formerPartitions.isEmpty()) {
+            // caught up, the new partition takes over
+            for (BroadcastPartition each : formerPartitions) {
+                each.remove(this);
+            }
+            formerPartitions.clear();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the bytes scheduled for write on the transport session beneath the client session.
+     */
+    long getScheduledWriteBytes() {
+        IoSession parent = (session instanceof BridgeSession) ? ((BridgeSession) session).getParent() : null;
+        if (transport == null || parent != this.parent) {
+            // parent can change (e.g. WsebSession downstream reconnect), or occasionally be null
+            this.parent = parent;
+            this.transport = getTransport(session);
+        }
+        return transport.getScheduledWriteBytes();
+    }
+
+    void write(Object message) {
+        lastWriteFuture = session.write(message);
+    }
+
+    /**
+     * Writes held messages while the backlog does not exceed the maximum.
+     *
+     * @return true if no messages are held anymore
+     */
+    boolean drain(long maximumScheduledWriteBytes) {
+        while (!heldMessages.isEmpty() && getScheduledWriteBytes() <= maximumScheduledWriteBytes) {
+            write(heldMessages.poll());
+        }
+        return heldMessages.isEmpty();
+    }
+
+    int getHeldMessageCount() {
+        return heldMessages.size();
+    }
+
+    void holdMessage(Object message) {
+        heldMessages.offer(message);
+    }
+
+    void dropOldestHeldMessage() {
+        heldMessages.poll();
+    }
+
+    void clearHeldMessages() {
+        heldMessages.clear();
+    }
+
+    WriteFuture getLastWriteFuture() {
+        return lastWriteFuture;
+    }
+
+    boolean isDrainScheduled() {
+        return drainScheduled;
+    }
+
+    void setDrainScheduled(boolean drainScheduled) {
+        this.drainScheduled = drainScheduled;
+    }
+
+    @Override
+    public String toString() {
+        return session.toString();
+    }
+
+    private static IoSession getTransport(IoSession client) {
+        IoSession session = client;
+        while (session instanceof BridgeSession) {
+            IoSession parent = ((BridgeSession)session).getParent();
+            if (parent == null) { // parent can occasionally be null (e.g. on a WsebSession from Flash client)
+                break;
+            }
+            session = parent;
+        }
+        return session;
+    }
+}
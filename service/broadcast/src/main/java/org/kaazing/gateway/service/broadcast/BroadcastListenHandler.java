@@ -15,33 +15,45 @@
  */
 package org.kaazing.gateway.service.broadcast;
 
-import java.util.Collection;
-import java.util.Iterator;
+import static org.kaazing.gateway.service.broadcast.BroadcastPartitions.ioThreadOf;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+import static org.kaazing.mina.core.buffer.TransientBuffers.copyIfTransient;
+
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.service.IoHandlerAdapter;
 import org.apache.mina.core.session.IoSession;
 import org.slf4j.Logger;
 
-import org.kaazing.gateway.transport.BridgeSession;
 import org.kaazing.gateway.transport.LoggingUtils;
 import org.kaazing.gateway.transport.bridge.Message;
 import org.kaazing.gateway.transport.io.filter.IoMessageCodecFilter;
+import org.kaazing.mina.core.buffer.IoBufferEx;
 
 public class BroadcastListenHandler extends IoHandlerAdapter {
 
-    private final Collection<IoSession> clients;
+    private final BroadcastPartitions partitions;
     private final IoMessageCodecFilter codec;
     private final boolean disconnectClientsOnReconnect;
     private final long maximumScheduledWriteBytes;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final int maximumQueuedMessages;
     private final Logger logger;
 
-	public BroadcastListenHandler(Collection<IoSession> clients, boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes, Logger logger) {
-		this.clients = clients;
+    // sequence number of the latest message fanned out, guarded by this handler
+    private long messageSequence;
+
+	BroadcastListenHandler(BroadcastPartitions partitions, boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes,
+	        SlowConsumerPolicy slowConsumerPolicy, int maximumQueuedMessages, Logger logger) {
+		this.partitions = partitions;
 		this.codec = new IoMessageCodecFilter();
 		this.disconnectClientsOnReconnect = disconnectClientsOnReconnect;
 		this.logger = logger;
 		this.maximumScheduledWriteBytes = maximumScheduledWriteBytes;
+		this.slowConsumerPolicy = slowConsumerPolicy;
+		this.maximumQueuedMessages = maximumQueuedMessages;
 	}
 
 	@Override
@@ -52,10 +64,11 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
     @Override
     public void sessionClosed(IoSession session) throws Exception {
         if (disconnectClientsOnReconnect) {
-            Iterator<IoSession> clientsIterator = clients.iterator();
-            while (clientsIterator.hasNext()) {
-                clientsIterator.next().close(false);
-                // BroadcastServiceHandler.sessionClosed(IoSession) will take care of removing client from clients
+            for (BroadcastPartition partition : partitions.values()) {
+                for (BroadcastClient client : partition.getClients()) {
+                    client.getSession().close(false);
+                    // BroadcastServiceHandler.sessionClosed(IoSession) will take care of removing client from partition
+                }
             }
         }
     }
@@ -64,19 +77,18 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
 	public void messageReceived(IoSession session, Object message) throws Exception {
         if (message instanceof IoBuffer) {
 			IoBuffer buf = (IoBuffer) message;
-			for (IoSession client : clients) {
-			    writeOrClose(client, buf);
-			}
+			// written after this returns by the IO threads of all clients, each with its own position
+			IoBufferEx shared = copyIfTransient((IoBufferEx) buf, BUFFER_ALLOCATOR).duplicate().asSharedBuffer();
+			fanOut(shared);
 			buf.skip(buf.remaining());
 		}
 		else {
 	        if (message instanceof Message) {
-	            ((Message)message).initCache();
+	            // encode once per wire format, shared by the IO threads of all clients
+	            ((Message)message).initCache(true);
 	        }
 
-			for (IoSession client : clients) {
-			    writeOrClose(client, message);
-			}
+	        fanOut(message);
 		}
 	}
 
@@ -85,41 +97,96 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
         LoggingUtils.log(session, logger, cause);
     }
 
-    private void writeOrClose(IoSession client, Object message) {
-        long scheduledWriteBytes = getScheduledWriteBytes(client);
-        if (logger.isDebugEnabled()) {
-            logger.debug(String.format("BroadcastListenHandler: session %d: scheduledWriteBytes = %d", client.getId(), scheduledWriteBytes));
+    private synchronized void fanOut(final Object message) {
+        // one task per IO thread, writing to all the clients owned by that thread, queued in sequence order
+        final long sequence = ++messageSequence;
+        for (final BroadcastPartition partition : partitions.values()) {
+            if (partition.getSubscriberCount() != 0) {
+                partition.getIoExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        writeOrClose(partition, sequence, message);
+                    }
+                });
+            }
+        }
+    }
+
+    private void writeOrClose(BroadcastPartition partition, long sequence, Object message) {
+        long queuedBytes = 0L;
+        for (BroadcastClient client : partition.getClients()) {
+            queuedBytes += writeOrHold(partition, client, sequence, message);
         }
+        partition.setQueuedBytes(queuedBytes);
+    }
+
+    private long writeOrHold(BroadcastPartition partition, BroadcastClient client, long sequence, Object message) {
+        IoSession session = client.getSession();
+        if (session.isClosing()) {
+            return 0L;
+        }
+
+        synchronized (client) {
+            if (ioThreadOf(session) != client.getPartition().getIoThread()) {
+                // session moved to another IO thread
+                client.moveTo(partitions.forSession(session));
+            }
+            if (!client.deliver(partition, sequence)) {
+                return 0L;
+            }
 
-        if (!client.isClosing()) {
-            if (scheduledWriteBytes > maximumScheduledWriteBytes) {
+            long scheduledWriteBytes = client.getScheduledWriteBytes();
+            if (logger.isDebugEnabled()) {
+                logger.debug(String.format("BroadcastListenHandler: session %d: scheduledWriteBytes = %d", session.getId(), scheduledWriteBytes));
+            }
+
+            if (scheduledWriteBytes <= maximumScheduledWriteBytes && client.drain(maximumScheduledWriteBytes)) {
+                client.write(message);
+            }
+            else if (slowConsumerPolicy.hold(client, message, maximumQueuedMessages, partition)) {
+                scheduleDrain(client);
+            }
+            else {
                 if (logger.isInfoEnabled()) {
                     String logMessage = String.format("Closing client session %s because scheduled write bytes %d exceeds the configured limit of %d",
-                            client, scheduledWriteBytes, maximumScheduledWriteBytes);
+                            session, scheduledWriteBytes, maximumScheduledWriteBytes);
                     logger.info(logMessage);
                 }
-                client.close(true);
-                // BroadcastServiceHandler.sessionClosed(IoSession) will take care of removing client from clients
-            }
-            else {
-                client.write(message);
+                client.clearHeldMessages();
+                session.close(true);
+                partition.slowConsumerClosed();
+                // BroadcastServiceHandler.sessionClosed(IoSession) will take care of removing client from partition
+                return 0L;
             }
+            return scheduledWriteBytes;
         }
     }
 
-    private long getScheduledWriteBytes(IoSession client) {
-        IoSession session = client;
-        while (session instanceof BridgeSession) {
-            IoSession parent = ((BridgeSession)session).getParent();
-            if (parent == null) { // parent can occasionally be null (e.g. on a WsebSession from Flash client)
-                if (logger.isDebugEnabled()) {
-                    logger.debug(String.format("Null parent on session %s, ancestor of client session %s", session, client));
-                }
-                break;
-            }
-            session = parent;
+    // catch up once the latest write to the client completes, even if no further message arrives meanwhile
+    private void scheduleDrain(final BroadcastClient client) {
+        WriteFuture lastWriteFuture = client.getLastWriteFuture();
+        if (client.isDrainScheduled() || lastWriteFuture == null || lastWriteFuture.isDone()) {
+            return;
         }
-        return session.getScheduledWriteBytes();
+
+        client.setDrainScheduled(true);
+        lastWriteFuture.addListener(new IoFutureListener<WriteFuture>() {
+            @Override
+            public void operationComplete(WriteFuture future) {
+                // the partition owning the client by then
+                client.getPartition().getIoExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (client) {
+                            client.setDrainScheduled(false);
+                            if (!client.getSession().isClosing() && !client.drain(maximumScheduledWriteBytes)) {
+                                scheduleDrain(client);
+                            }
+                        }
+                    }
+                });
+            }
+        });
     }
 
 }
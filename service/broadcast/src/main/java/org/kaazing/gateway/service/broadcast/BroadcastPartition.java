@@ -0,0 +1,151 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kaazing.mina.core.session.IoSessionEx;
+
+/**
+ * The broadcast clients owned by a single IO thread. Each inbound message is written to all the clients of
+ * a partition by one task running in that IO thread, so the writes never hop threads.
+ */
+public final class BroadcastPartition {
+
+    private static final BroadcastClient[] NO_CLIENTS = new BroadcastClient[0];
+
+    private final Thread ioThread;
+    private final Executor ioExecutor;
+    private final AtomicLong slowConsumerCloseCount;
+    private final AtomicLong conflatedMessageCount;
+    private final AtomicLong droppedMessageCount;
+    private final AtomicLong pauseCount;
+    private volatile BroadcastClient[] clients;
+    private volatile long queuedBytes;
+
+    BroadcastPartition(Thread ioThread, Executor ioExecutor) {
+        this.ioThread = ioThread;
+        this.ioExecutor = ioExecutor;
+        this.slowConsumerCloseCount = new AtomicLong();
+        this.conflatedMessageCount = new AtomicLong();
+        this.droppedMessageCount = new AtomicLong();
+        this.pauseCount = new AtomicLong();
+        this.clients = NO_CLIENTS;
+    }
+
+    /**
+     * Returns the IO thread owning the clients of this partition, or {@link IoSessionEx#NO_THREAD} for
+     * clients that are not aligned with an IO thread.
+     */
+    public Thread getIoThread() {
+        return ioThread;
+    }
+
+    public int getSubscriberCount() {
+        return clients.length;
+    }
+
+    /**
+     * Returns the bytes scheduled for write to the clients of this partition, as of the latest message.
+     */
+    public long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    public long getSlowConsumerCloseCount() {
+        return slowConsumerCloseCount.get();
+    }
+
+    /**
+     * Returns the number of messages replaced by a newer message for a slow consumer, see
+     * {@link SlowConsumerPolicy#CONFLATE}.
+     */
+    public long getConflatedMessageCount() {
+        return conflatedMessageCount.get();
+    }
+
+    /**
+     * Returns the number of messages discarded from the full queue of a slow consumer, see
+     * {@link SlowConsumerPolicy#DROP_OLDEST}.
+     */
+    public long getDroppedMessageCount() {
+        return droppedMessageCount.get();
+    }
+
+    /**
+     * Returns the number of times a slow consumer was paused, see {@link SlowConsumerPolicy#PAUSE}.
+     */
+    public long getPauseCount() {
+        return pauseCount.get();
+    }
+
+    Executor getIoExecutor() {
+        return ioExecutor;
+    }
+
+    BroadcastClient[] getClients() {
+        return clients;
+    }
+
+    synchronized void add(BroadcastClient client) {
+        BroadcastClient[] oldClients = clients;
+        BroadcastClient[] newClients = Arrays.copyOf(oldClients, oldClients.length + 1);
+        newClients[oldClients.length] = client;
+        clients = newClients;
+    }
+
+    synchronized boolean remove(BroadcastClient client) {
+        BroadcastClient[] oldClients = clients;
+        for (int i = 0; i < oldClients.length; i++) {
+            if (oldClients[i] == client) {
+                BroadcastClient[] newClients = new BroadcastClient[oldClients.length - 1];
+                System.arraycopy(oldClients, 0, newClients, 0, i);
+                System.arraycopy(oldClients, i + 1, newClients, i, newClients.length - i);
+                clients = newClients;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void setQueuedBytes(long queuedBytes) {
+        this.queuedBytes = queuedBytes;
+    }
+
+    void slowConsumerClosed() {
+        slowConsumerCloseCount.incrementAndGet();
+    }
+
+    void messageConflated() {
+        conflatedMessageCount.incrementAndGet();
+    }
+
+    void messageDropped() {
+        droppedMessageCount.incrementAndGet();
+    }
+
+    void slowConsumerPaused() {
+        pauseCount.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[BroadcastPartition ioThread=%s subscribers=%d queuedBytes=%d slowConsumerCloses=%d]",
+                ioThread, getSubscriberCount(), getQueuedBytes(), getSlowConsumerCloseCount());
+    }
+}
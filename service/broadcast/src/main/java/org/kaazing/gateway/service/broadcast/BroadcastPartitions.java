@@ -0,0 +1,77 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+import static java.util.Collections.unmodifiableCollection;
+import static org.kaazing.mina.core.session.IoSessionEx.IMMEDIATE_EXECUTOR;
+import static org.kaazing.mina.core.session.IoSessionEx.NO_EXECUTOR;
+import static org.kaazing.mina.core.session.IoSessionEx.NO_THREAD;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import org.apache.mina.core.session.IoSession;
+import org.kaazing.mina.core.session.IoSessionEx;
+
+/**
+ * The broadcast partitions of a service, created on demand for each IO thread owning broadcast clients.
+ */
+final class BroadcastPartitions {
+
+    private final ConcurrentMap<Thread, BroadcastPartition> partitions;
+    private final Collection<BroadcastPartition> values;
+
+    BroadcastPartitions() {
+        this.partitions = new ConcurrentHashMap<>();
+        this.values = unmodifiableCollection(partitions.values());
+    }
+
+    Collection<BroadcastPartition> values() {
+        return values;
+    }
+
+    /**
+     * Returns the partition of the IO thread the session is currently aligned with.
+     */
+    BroadcastPartition forSession(IoSession session) {
+        Thread ioThread = ioThreadOf(session);
+        BroadcastPartition partition = partitions.get(ioThread);
+        if (partition == null) {
+            Executor ioExecutor = (ioThread != NO_THREAD) ? ((IoSessionEx) session).getIoExecutor() : IMMEDIATE_EXECUTOR;
+            BroadcastPartition newPartition = new BroadcastPartition(ioThread, ioExecutor);
+            partition = partitions.putIfAbsent(ioThread, newPartition);
+            if (partition == null) {
+                partition = newPartition;
+            }
+        }
+        return partition;
+    }
+
+    /**
+     * Returns the IO thread the session is currently aligned with, as used to choose its partition.
+     */
+    static Thread ioThreadOf(IoSession session) {
+        if (session instanceof IoSessionEx) {
+            IoSessionEx sessionEx = (IoSessionEx) session;
+            if (sessionEx.isIoAligned() && sessionEx.getIoExecutor() != NO_EXECUTOR) {
+                return sessionEx.getIoThread();
+            }
+        }
+        return NO_THREAD;
+    }
+}
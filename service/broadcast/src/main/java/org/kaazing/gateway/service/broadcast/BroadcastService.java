@@ -22,6 +22,7 @@ import static org.kaazing.gateway.util.Utils.parseBoolean;
 import static org.kaazing.gateway.util.Utils.parsePositiveInteger;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Properties;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -55,6 +56,10 @@ public class BroadcastService implements Service {
     private static final String ON_CLIENT_MESSAGE = "on.client.message";
     // FIXME: end of remove me
 
+    private static final String SLOW_CONSUMER_POLICY = "slow.consumer.policy";
+    private static final String SLOW_CONSUMER_QUEUE_SIZE = "slow.consumer.queue.size";
+    private static final int DEFAULT_SLOW_CONSUMER_QUEUE_SIZE = 64;
+
     private ScheduledExecutorService scheduler;
     private final AtomicBoolean reconnect;
     private BroadcastServiceHandler handler;
@@ -101,13 +106,21 @@ public class BroadcastService implements Service {
 //                BROADCAST_SERVICE_MAXIMUM_PENDING_BYTES.getProperty(configuration),
                 Long.MAX_VALUE);
         OnClientMessage onClientMessage = OnClientMessage.fromString(serviceContext.getProperties().get(ON_CLIENT_MESSAGE));
+        SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.fromString(serviceContext.getProperties().get(SLOW_CONSUMER_POLICY));
+        String slowConsumerQueueSize = serviceContext.getProperties().get(SLOW_CONSUMER_QUEUE_SIZE);
+        int maximumQueuedMessages = (slowConsumerQueueSize != null) ? Integer.parseInt(slowConsumerQueueSize)
+                : DEFAULT_SLOW_CONSUMER_QUEUE_SIZE;
+        if (maximumQueuedMessages <= 0) {
+            throw new IllegalArgumentException(String.format("%s must be a positive integer: %s", SLOW_CONSUMER_QUEUE_SIZE,
+                    slowConsumerQueueSize));
+        }
         if ( maximumScheduledWriteBytes != Long.MAX_VALUE ) {
             // The system property was specified
             gatewayLogger.info(String.format("Broadcast service: limiting maximum scheduled write bytes to %d",
                     maximumScheduledWriteBytes));
         }
         this.handler = new BroadcastServiceHandler(disconnectClientsOnReconnect, maximumScheduledWriteBytes,
-                onClientMessage, serviceContext.getLogger());
+                slowConsumerPolicy, maximumQueuedMessages, onClientMessage, serviceContext.getLogger());
 
         Collection<String> connectURIs = serviceContext.getConnects();
         ServiceProperties properties = serviceContext.getProperties();
@@ -120,6 +133,14 @@ public class BroadcastService implements Service {
         this.reconnectDelay = (reconnectDelay != null) ? Integer.parseInt(reconnectDelay) : 3000;
     }
 
+    /**
+     * Returns the subscriber partitions of this service, one per IO thread owning broadcast clients.
+     */
+    public Collection<BroadcastPartition> getPartitions() {
+        BroadcastServiceHandler handler = this.handler;
+        return (handler != null) ? handler.getPartitions() : Collections.<BroadcastPartition>emptyList();
+    }
+
     @Override
     public void start() throws Exception {
         reconnect.set(true);
@@ -19,13 +19,12 @@ import static org.kaazing.gateway.service.broadcast.BroadcastService.OnClientMes
 
 import java.nio.channels.ClosedChannelException;
 import java.util.Collection;
-import java.util.Collections;
 
 import org.apache.mina.core.filterchain.IoFilter;
 import org.apache.mina.core.service.IoHandler;
 import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.AttributeKey;
 import org.apache.mina.core.session.IoSession;
-import org.apache.mina.util.ConcurrentHashSet;
 import org.slf4j.Logger;
 import org.kaazing.gateway.service.broadcast.BroadcastService.OnClientMessage;
 import org.kaazing.gateway.transport.LoggingUtils;
@@ -33,19 +32,21 @@ import org.kaazing.gateway.transport.io.filter.IoMessageCodecFilter;
 
 class BroadcastServiceHandler extends IoHandlerAdapter {
 
+    private static final AttributeKey CLIENT_KEY = new AttributeKey(BroadcastServiceHandler.class, "client");
+
     private final IoFilter codec;
-    private final Collection<IoSession> clients;
+    private final BroadcastPartitions partitions;
     private final IoHandler handler;
     private final Logger logger;
     private IoSession connectSession;
     private final OnClientMessage onClientMessage;
 
-    BroadcastServiceHandler(boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes, OnClientMessage onClientMessage, Logger logger)
-            throws Exception {
+    BroadcastServiceHandler(boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes, SlowConsumerPolicy slowConsumerPolicy,
+            int maximumQueuedMessages, OnClientMessage onClientMessage, Logger logger) throws Exception {
         this.onClientMessage = onClientMessage;
-        this.clients = new ConcurrentHashSet<>();
-        this.handler = new BroadcastListenHandler(Collections.unmodifiableCollection(clients),
-                disconnectClientsOnReconnect, maximumScheduledWriteBytes, logger);
+        this.partitions = new BroadcastPartitions();
+        this.handler = new BroadcastListenHandler(partitions,
+                disconnectClientsOnReconnect, maximumScheduledWriteBytes, slowConsumerPolicy, maximumQueuedMessages, logger);
         this.codec = new IoMessageCodecFilter();
         this.logger = logger;
     }
@@ -62,6 +63,10 @@ class BroadcastServiceHandler extends IoHandlerAdapter {
         return handler;
     }
 
+    Collection<BroadcastPartition> getPartitions() {
+        return partitions.values();
+    }
+
     @Override
     public void messageReceived(IoSession session, Object message) throws Exception {
         if (onClientMessage == BROADCAST) {
@@ -87,7 +92,12 @@ class BroadcastServiceHandler extends IoHandlerAdapter {
     @Override
     public void sessionOpened(IoSession session) throws Exception {
         session.getFilterChain().addLast("io", codec);
-        clients.add(session);
+
+        BroadcastClient client = new BroadcastClient(session);
+        session.setAttribute(CLIENT_KEY, client);
+        synchronized (client) {
+            client.join(partitions.forSession(session));
+        }
     }
 
     @Override
@@ -96,6 +106,11 @@ class BroadcastServiceHandler extends IoHandlerAdapter {
             logger.debug(String.format("BroadcastServiceHandler: session closed on %s", session.toString()));
         }
 
-        clients.remove(session);
+        BroadcastClient client = (BroadcastClient) session.removeAttribute(CLIENT_KEY);
+        if (client != null) {
+            synchronized (client) {
+                client.leave();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+/**
+ * What the broadcast service does with a message for a client whose scheduled write bytes exceed the
+ * configured maximum. Messages held for a client are written, in order, once its backlog has drained.
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * Close the client (default).
+     */
+    CLOSE("close") {
+        @Override
+        boolean hold(BroadcastClient client, Object message, int maximumQueuedMessages, BroadcastPartition partition) {
+            return false;
+        }
+    },
+
+    /**
+     * Keep only the latest message for the client, replacing any message already held.
+     */
+    CONFLATE("conflate") {
+        @Override
+        boolean hold(BroadcastClient client, Object message, int maximumQueuedMessages, BroadcastPartition partition) {
+            if (client.getHeldMessageCount() != 0) {
+                client.clearHeldMessages();
+                partition.messageConflated();
+            }
+            client.holdMessage(message);
+            return true;
+        }
+    },
+
+    /**
+     * Hold messages in a bounded per-client queue, discarding the oldest message when the queue is full.
+     */
+    DROP_OLDEST("drop-oldest") {
+        @Override
+        boolean hold(BroadcastClient client, Object message, int maximumQueuedMessages, BroadcastPartition partition) {
+            if (client.getHeldMessageCount() >= maximumQueuedMessages) {
+                client.dropOldestHeldMessage();
+                partition.messageDropped();
+            }
+            client.holdMessage(message);
+            return true;
+        }
+    },
+
+    /**
+     * Pause the client, holding every message until it catches up, and close it if the bounded
+     * per-client queue overflows.
+     */
+    PAUSE("pause") {
+        @Override
+        boolean hold(BroadcastClient client, Object message, int maximumQueuedMessages, BroadcastPartition partition) {
+            int heldMessageCount = client.getHeldMessageCount();
+            if (heldMessageCount >= maximumQueuedMessages) {
+                return false;
+            }
+            if (heldMessageCount == 0) {
+                partition.slowConsumerPaused();
+            }
+            client.holdMessage(message);
+            return true;
+        }
+    };
+
+    private final String type;
+
+    SlowConsumerPolicy(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Holds a message for a slow client.
+     *
+     * @return false if the client should be closed instead
+     */
+    abstract boolean hold(BroadcastClient client, Object message, int maximumQueuedMessages, BroadcastPartition partition);
+
+    static SlowConsumerPolicy fromString(String str) throws Exception {
+        if (str == null) {
+            return SlowConsumerPolicy.CLOSE;
+        }
+        for (SlowConsumerPolicy e : SlowConsumerPolicy.values()) {
+            if (e.type.equalsIgnoreCase(str)) {
+                return e;
+            }
+        }
+        throw new Exception(String.format("%s type not valid Enum type for %s", str, SlowConsumerPolicy.class));
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.mina.core.session.IoSessionEx.IMMEDIATE_EXECUTOR;
+
+import org.apache.mina.core.session.IoSession;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BroadcastPartitionTest {
+
+    @Rule
+    public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+    @Test
+    public void shouldAddAndRemoveClients() throws Exception {
+        BroadcastClient client1 = new BroadcastClient(context.mock(IoSession.class, "client1"));
+        BroadcastClient client2 = new BroadcastClient(context.mock(IoSession.class, "client2"));
+        BroadcastClient client3 = new BroadcastClient(context.mock(IoSession.class, "client3"));
+        BroadcastPartition partition = new BroadcastPartition(Thread.currentThread(), IMMEDIATE_EXECUTOR);
+
+        partition.add(client1);
+        partition.add(client2);
+        partition.add(client3);
+        assertEquals(3, partition.getSubscriberCount());
+
+        BroadcastClient[] snapshot = partition.getClients();
+        assertTrue(partition.remove(client2));
+        assertFalse(partition.remove(client2));
+
+        assertArrayEquals(new BroadcastClient[] { client1, client3 }, partition.getClients());
+        assertArrayEquals(new BroadcastClient[] { client1, client2, client3 }, snapshot);
+        assertEquals(2, partition.getSubscriberCount());
+    }
+
+    @Test
+    public void shouldMoveClientWithoutSkippingOrReorderingMessages() throws Exception {
+        BroadcastPartition former = new BroadcastPartition(Thread.currentThread(), IMMEDIATE_EXECUTOR);
+        BroadcastPartition current = new BroadcastPartition(new Thread(), IMMEDIATE_EXECUTOR);
+        BroadcastClient client = new BroadcastClient(context.mock(IoSession.class));
+        client.join(former);
+        assertTrue(client.deliver(former, 1L));
+
+        client.moveTo(current);
+        assertSame(current, client.getPartition());
+        assertArrayEquals(new BroadcastClient[] { client }, former.getClients());
+        assertArrayEquals(new BroadcastClient[] { client }, current.getClients());
+
+        // the new partition is ahead, the former one delivers the messages in between
+        assertFalse(client.deliver(current, 3L));
+        assertTrue(client.deliver(former, 2L));
+        assertTrue(client.deliver(former, 3L));
+
+        // the new partition takes over once it delivers the next message in sequence
+        assertTrue(client.deliver(current, 4L));
+        assertEquals(0, former.getSubscriberCount());
+        assertFalse(client.deliver(former, 4L));
+        assertFalse(client.deliver(former, 5L));
+        assertTrue(client.deliver(current, 5L));
+    }
+
+    @Test
+    public void shouldRemoveClientFromAllPartitionsWhenLeaving() throws Exception {
+        BroadcastPartition former = new BroadcastPartition(Thread.currentThread(), IMMEDIATE_EXECUTOR);
+        BroadcastPartition current = new BroadcastPartition(new Thread(), IMMEDIATE_EXECUTOR);
+        BroadcastClient client = new BroadcastClient(context.mock(IoSession.class));
+        client.join(former);
+        client.moveTo(current);
+
+        client.leave();
+        assertEquals(0, former.getSubscriberCount());
+        assertEquals(0, current.getSubscriberCount());
+        assertFalse(client.deliver(current, 1L));
+
+        client.moveTo(former);
+        assertEquals(0, former.getSubscriberCount());
+    }
+
+    @Test
+    public void shouldCountSlowConsumerCloses() throws Exception {
+        BroadcastPartition partition = new BroadcastPartition(Thread.currentThread(), IMMEDIATE_EXECUTOR);
+
+        partition.slowConsumerClosed();
+        partition.slowConsumerClosed();
+        partition.setQueuedBytes(1024L);
+
+        assertEquals(2L, partition.getSlowConsumerCloseCount());
+        assertEquals(1024L, partition.getQueuedBytes());
+    }
+
+    @Test
+    public void shouldCloseSlowConsumer() throws Exception {
+        BroadcastPartition partition = new BroadcastPartition(Thread.currentThread(), IMMEDIATE_EXECUTOR);
+        BroadcastClient client = new BroadcastClient(context.mock(IoSession.class));
+
+        assertFalse(SlowConsumerPolicy.CLOSE.hold(client, "message1", 4, partition));
+        assertEquals(0, client.getHeldMessageCount());
+    }
+
+    @Test
+    public void shouldConflateSlowConsumer() throws Exception {
+        BroadcastPartition partition = new BroadcastPartition(Thread.currentThread(), IMMEDIATE_EXECUTOR);
+        BroadcastClient client = new BroadcastClient(context.mock(IoSession.class));
+
+        assertTrue(SlowConsumerPolicy.CONFLATE.hold(client, "message1", 4, partition));
+        assertTrue(SlowConsumerPolicy.CONFLATE.hold(client, "message2", 4, partition));
+        assertTrue(SlowConsumerPolicy.CONFLATE.hold(client, "message3", 4, partition));
+
+        assertEquals(1, client.getHeldMessageCount());
+        assertEquals(2L, partition.getConflatedMessageCount());
+    }
+
+    @Test
+    public void shouldDropOldestForSlowConsumer() throws Exception {
+        BroadcastPartition partition = new BroadcastPartition(Thread.currentThread(), IMMEDIATE_EXECUTOR);
+        BroadcastClient client = new BroadcastClient(context.mock(IoSession.class));
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(SlowConsumerPolicy.DROP_OLDEST.hold(client, "message" + i, 4, partition));
+        }
+
+        assertEquals(4, client.getHeldMessageCount());
+        assertEquals(2L, partition.getDroppedMessageCount());
+    }
+
+    @Test
+    public void shouldPauseSlowConsumerUntilQueueOverflows() throws Exception {
+        BroadcastPartition partition = new BroadcastPartition(Thread.currentThread(), IMMEDIATE_EXECUTOR);
+        BroadcastClient client = new BroadcastClient(context.mock(IoSession.class));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(SlowConsumerPolicy.PAUSE.hold(client, "message" + i, 4, partition));
+        }
+        assertFalse(SlowConsumerPolicy.PAUSE.hold(client, "message4", 4, partition));
+
+        assertEquals(4, client.getHeldMessageCount());
+        assertEquals(1L, partition.getPauseCount());
+    }
+
+    @Test
+    public void shouldParseSlowConsumerPolicy() throws Exception {
+        assertEquals(SlowConsumerPolicy.CLOSE, SlowConsumerPolicy.fromString(null));
+        assertEquals(SlowConsumerPolicy.DROP_OLDEST, SlowConsumerPolicy.fromString("drop-oldest"));
+        assertEquals(SlowConsumerPolicy.CONFLATE, SlowConsumerPolicy.fromString("Conflate"));
+    }
+}
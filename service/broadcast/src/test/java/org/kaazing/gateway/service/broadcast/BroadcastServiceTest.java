@@ -140,6 +140,12 @@ public class BroadcastServiceTest {
             Assert.fail("Client 3 failed to receive message in 5 seconds");
         }
 
+        int subscriberCount = 0;
+        for (BroadcastPartition partition : service.getPartitions()) {
+            subscriberCount += partition.getSubscriberCount();
+        }
+        Assert.assertEquals(3, subscriberCount);
+
         c1.stop();
         c2.stop();
         c3.stop();
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+/**
+ * A single byte range requested with the Range header (RFC 7233).
+ */
+final class ByteRange {
+
+    static final ByteRange UNSATISFIABLE = new ByteRange(-1L, -1L);
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long first;
+    private final long last;
+
+    private ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    long first() {
+        return first;
+    }
+
+    long last() {
+        return last;
+    }
+
+    long length() {
+        return last - first + 1;
+    }
+
+    String toContentRange(long completeLength) {
+        return "bytes " + first + "-" + last + "/" + completeLength;
+    }
+
+    static String toUnsatisfiedContentRange(long completeLength) {
+        return "bytes */" + completeLength;
+    }
+
+    /**
+     * Parses a Range header value against content of the given length.
+     *
+     * @return the range to send, {@link #UNSATISFIABLE} if the range does not overlap the content, or null if the header
+     *         is malformed or requests multiple ranges, in which case the complete content should be sent
+     */
+    static ByteRange parse(String range, long completeLength) {
+        String value = range.trim();
+        if (!value.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+        String rangeSpec = value.substring(BYTES_UNIT.length()).trim();
+        int dash = rangeSpec.indexOf('-');
+        if (dash == -1 || rangeSpec.indexOf(',') != -1) {
+            return null;
+        }
+
+        String firstPosition = rangeSpec.substring(0, dash).trim();
+        String lastPosition = rangeSpec.substring(dash + 1).trim();
+        long last = lastPosition.isEmpty() ? -1L : parsePosition(lastPosition);
+
+        if (firstPosition.isEmpty()) {
+            // suffix range, last N bytes
+            if (last == -1L) {
+                return null;
+            }
+            if (last == 0L || completeLength == 0L) {
+                return UNSATISFIABLE;
+            }
+            return new ByteRange(Math.max(0L, completeLength - last), completeLength - 1);
+        }
+
+        long first = parsePosition(firstPosition);
+        if (first == -1L || (!lastPosition.isEmpty() && (last == -1L || last < first))) {
+            return null;
+        }
+        if (first >= completeLength) {
+            return UNSATISFIABLE;
+        }
+        if (last == -1L || last >= completeLength) {
+            last = completeLength - 1;
+        }
+        return new ByteRange(first, last);
+    }
+
+    // returns -1 for an empty or non-numeric position
+    private static long parsePosition(String position) {
+        if (position.isEmpty() || position.length() > 18) {
+            return -1L;
+        }
+        long value = 0L;
+        for (int i = 0; i < position.length(); i++) {
+            char ch = position.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return -1L;
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return (this == UNSATISFIABLE) ? "ByteRange [unsatisfiable]" : "ByteRange [" + first + "-" + last + "]";
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least recently used cache of small file contents. Entries are keyed by path and only reused while the
+ * file's last modified time and length are unchanged, so updated files are read again on the next request.
+ */
+final class FileContentCache {
+
+    private final int maximumFileSize;
+    private final int maximumSize;
+
+    // access ordered, so iteration starts at the least recently used entry
+    private final Map<String, CachedContent> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int size;
+
+    FileContentCache(int maximumFileSize, int maximumSize) {
+        this.maximumFileSize = maximumFileSize;
+        this.maximumSize = maximumSize;
+    }
+
+    boolean isCacheable(long length) {
+        return length <= maximumFileSize && length <= maximumSize;
+    }
+
+    /**
+     * Returns the content of the file, reading it on a cache miss. Each caller gets its own view of the content, which
+     * may be wrapped and written without affecting other callers.
+     */
+    ByteBuffer get(File file) throws IOException {
+        return get(file, file.lastModified(), file.length());
+    }
+
+    /**
+     * Returns the content of the file, which was last seen with the given last modified time and length. The content
+     * read on a cache miss is that of the file now, which may differ from what the caller saw.
+     */
+    ByteBuffer get(File file, long lastModified, long length) throws IOException {
+        String path = file.getPath();
+        synchronized (this) {
+            CachedContent cached = entries.get(path);
+            if (cached != null && cached.lastModified == lastModified && cached.content.remaining() == length) {
+                return cached.content.duplicate();
+            }
+        }
+
+        // the file may have changed since the caller looked at it, or while it is being read, so content is only
+        // cached under the last modified time sampled around the read itself
+        long lastModifiedBeforeRead = file.lastModified();
+        ByteBuffer content = read(file);
+        boolean unchanged = file.lastModified() == lastModifiedBeforeRead && file.length() == content.remaining();
+        if (unchanged && isCacheable(content.remaining())) {
+            put(path, new CachedContent(lastModifiedBeforeRead, content));
+        }
+        return content.duplicate();
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    private synchronized void put(String path, CachedContent content) {
+        CachedContent oldContent = entries.put(path, content);
+        if (oldContent != null) {
+            size -= oldContent.content.remaining();
+        }
+        size += content.content.remaining();
+
+        Iterator<CachedContent> iterator = entries.values().iterator();
+        while (size > maximumSize && iterator.hasNext()) {
+            size -= iterator.next().content.remaining();
+            iterator.remove();
+        }
+    }
+
+    private static ByteBuffer read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("File too large to read into memory: " + file);
+            }
+            ByteBuffer content = ByteBuffer.allocate((int) length);
+            while (content.hasRemaining() && channel.read(content) != -1) {
+                // keep reading until the buffer is full or the file was truncated
+            }
+            content.flip();
+            return content;
+        }
+    }
+
+    private static final class CachedContent {
+        final long lastModified;
+        final ByteBuffer content;
+
+        CachedContent(long lastModified, ByteBuffer content) {
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+    }
+}
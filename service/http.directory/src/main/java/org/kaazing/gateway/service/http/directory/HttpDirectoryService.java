@@ -15,6 +15,8 @@
  */
 package org.kaazing.gateway.service.http.directory;
 
+import static org.kaazing.gateway.util.InternalSystemProperty.DIRECTORY_SERVICE_RESOLVED_CACHE_SIZE;
+
 import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
@@ -25,6 +27,9 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+
+import javax.annotation.Resource;
 
 import org.apache.mina.core.session.IoSession;
 import org.kaazing.gateway.resource.address.uri.URIUtils;
@@ -55,10 +60,16 @@ public class HttpDirectoryService implements Service {
 
     private HttpDirectoryServiceHandler handler;
     private ServiceContext serviceContext;
+    private Properties configuration;
 
     public HttpDirectoryService() {
     }
 
+    @Resource(name = "configuration")
+    public void setConfiguration(Properties configuration) {
+        this.configuration = configuration;
+    }
+
     @Override
     public String getType() {
         return "directory";
@@ -67,7 +78,8 @@ public class HttpDirectoryService implements Service {
     @Override
     public void init(ServiceContext serviceContext) throws Exception {
         this.serviceContext = serviceContext;
-        handler = new HttpDirectoryServiceHandler();
+        Properties configuration = (this.configuration != null) ? this.configuration : System.getProperties();
+        handler = new HttpDirectoryServiceHandler(configuration);
         File webDir = serviceContext.getWebDirectory();
         ServiceProperties properties = serviceContext.getProperties();
 
@@ -114,6 +126,8 @@ public class HttpDirectoryService implements Service {
 
         handler.setServiceContext(serviceContext);
         handler.setBaseDir(directoryFile);
+        handler.setResolvedFileCache(new ResolvedFileCache(directoryFile.getCanonicalFile().toPath(),
+                DIRECTORY_SERVICE_RESOLVED_CACHE_SIZE.getIntProperty(configuration)));
         handler.setWelcomeFile(welcomeFile);
         handler.setErrorPagesDir(errorPagesDir);
         handler.setPatterns(buildPatternsList(properties));
@@ -220,6 +234,7 @@ public class HttpDirectoryService implements Service {
 
     @Override
     public void start() throws Exception {
+        handler.getResolvedFileCache().start();
         serviceContext.bind(serviceContext.getAccepts(), handler);
     }
 
@@ -234,6 +249,7 @@ public class HttpDirectoryService implements Service {
         }
         if (handler != null) {
             handler.emptyUrlCacheControlMap();
+            handler.getResolvedFileCache().close();
         }
     }
 
@@ -246,5 +262,24 @@ public class HttpDirectoryService implements Service {
 
     @Override
     public void destroy() throws Exception {
+        if (handler != null) {
+            handler.getResolvedFileCache().close();
+        }
+    }
+
+    public long getCacheHitCount() {
+        return (handler != null) ? handler.getResolvedFileCache().getHitCount() : 0L;
+    }
+
+    public long getCacheMissCount() {
+        return (handler != null) ? handler.getResolvedFileCache().getMissCount() : 0L;
+    }
+
+    public long getCacheEvictionCount() {
+        return (handler != null) ? handler.getResolvedFileCache().getEvictionCount() : 0L;
+    }
+
+    public int getCacheSize() {
+        return (handler != null) ? handler.getResolvedFileCache().size() : 0;
     }
 }
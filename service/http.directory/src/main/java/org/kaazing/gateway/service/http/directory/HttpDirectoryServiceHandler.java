@@ -15,11 +15,26 @@
  */
 package org.kaazing.gateway.service.http.directory;
 
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_ACCEPT_RANGES;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CONTENT_LENGTH;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CONTENT_RANGE;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_IF_RANGE;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_RANGE;
+import static org.kaazing.gateway.util.InternalSystemProperty.DIRECTORY_SERVICE_CACHE_MAXIMUM_FILE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.DIRECTORY_SERVICE_CACHE_MAXIMUM_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.DIRECTORY_SERVICE_CHUNK_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.DIRECTORY_SERVICE_GZIP_ENABLED;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_GZIP_COMPRESSION_LEVEL;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_GZIP_MINIMUM_SIZE;
+
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
@@ -27,9 +42,11 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Properties;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
 
 import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.service.ServiceProperties;
@@ -38,7 +55,6 @@ import org.kaazing.gateway.service.http.directory.cachecontrol.PatternCacheContr
 import org.kaazing.gateway.service.http.directory.cachecontrol.PatternMatcherUtils;
 import org.kaazing.gateway.transport.IoHandlerAdapter;
 import org.kaazing.gateway.transport.http.HttpAcceptSession;
-import org.kaazing.gateway.transport.http.HttpHeaders;
 import org.kaazing.gateway.transport.http.HttpMethod;
 import org.kaazing.gateway.transport.http.HttpSession;
 import org.kaazing.gateway.transport.http.HttpStatus;
@@ -58,6 +74,13 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
     private List<PatternCacheControl> patterns;
     private Map<String, CacheControlHandler> urlCacheControlMap = new ConcurrentHashMap<>();
 
+    private final FileContentCache contentCache;
+    private final int chunkSize;
+    private final boolean gzipEnabled;
+    private final int gzipMinimumSize;
+    private final int gzipCompressionLevel;
+    private volatile ResolvedFileCache resolvedFileCache;
+
     private static final DateFormat RFC822_FORMAT_PATTERN =
             new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
     private static final String SYMLINK_RESTRICTED = "restricted";
@@ -67,6 +90,20 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
     }
 
     HttpDirectoryServiceHandler() {
+        this(System.getProperties());
+    }
+
+    HttpDirectoryServiceHandler(Properties configuration) {
+        this.contentCache = new FileContentCache(DIRECTORY_SERVICE_CACHE_MAXIMUM_FILE_SIZE.getIntProperty(configuration),
+                DIRECTORY_SERVICE_CACHE_MAXIMUM_SIZE.getIntProperty(configuration));
+        this.chunkSize = DIRECTORY_SERVICE_CHUNK_SIZE.getIntProperty(configuration);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException(String.format("%s must be a positive integer: %d",
+                    DIRECTORY_SERVICE_CHUNK_SIZE.getPropertyName(), chunkSize));
+        }
+        this.gzipEnabled = DIRECTORY_SERVICE_GZIP_ENABLED.getBooleanProperty(configuration);
+        this.gzipMinimumSize = HTTP_GZIP_MINIMUM_SIZE.getIntProperty(configuration);
+        this.gzipCompressionLevel = HTTP_GZIP_COMPRESSION_LEVEL.getIntProperty(configuration);
     }
 
     ServiceContext getServiceContext() {
@@ -113,6 +150,14 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         urlCacheControlMap.clear();
     }
 
+    void setResolvedFileCache(ResolvedFileCache resolvedFileCache) {
+        this.resolvedFileCache = resolvedFileCache;
+    }
+
+    ResolvedFileCache getResolvedFileCache() {
+        return resolvedFileCache;
+    }
+
     @Override
     public void doSessionCreated(HttpAcceptSession session) throws Exception {
         // NOOP no license check needed
@@ -144,6 +189,29 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         // get relative path from service path
         String pathInfo = session.getPathInfo().getPath();
 
+        // repeated requests for the same path skip the file system checks until the file changes
+        ResolvedFileCache cache = resolvedFileCache;
+        ResolvedFile resolvedFile = (cache != null) ? cache.get(pathInfo) : null;
+        if (resolvedFile == null) {
+            long generation = (cache != null) ? cache.generation() : 0L;
+            resolvedFile = resolveFile(session, pathInfo);
+            if (resolvedFile == null) {
+                // response already written
+                return;
+            }
+            if (cache != null) {
+                cache.put(pathInfo, resolvedFile, generation);
+            }
+        }
+
+        serveFile(session, method, resolvedFile);
+    }
+
+    /**
+     * Resolves the request path to a file under the base directory, or writes a redirect, error or directory listing
+     * response and returns null.
+     */
+    private ResolvedFile resolveFile(HttpAcceptSession session, String pathInfo) throws Exception {
         // construct file reference from configured base directory
         File requestFile = new File(baseDir, "/" + pathInfo);
         // check if this is a directory reference
@@ -157,15 +225,16 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
                 // TODO: add queryString back for redirect
                 session.setWriteHeader("Location", requestPath + "/");
                 session.close(false);
-                return;
+                return null;
             }
         }
 
         // if file is not under baseDir report an access denied error and close session
         boolean underBaseDir = false;
         File baseDirCannonical = baseDir.getCanonicalFile();
+        File requestFileCanonical = requestFile.getCanonicalFile();
 
-        for (File candidate = requestFile.getCanonicalFile(); candidate != null; candidate = candidate.getParentFile()) {
+        for (File candidate = requestFileCanonical; candidate != null; candidate = candidate.getParentFile()) {
             if (candidate.equals(baseDirCannonical)) {
                 underBaseDir = true;
                 break;
@@ -175,14 +244,16 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         if (!underBaseDir) {
             reportError(session, HttpStatus.CLIENT_BAD_REQUEST);
             session.close(false);
-            return;
+            return null;
         }
 
         // Make another check for the file being a directory, return the welcomeFile
         // or a directory listing as appropriate. This is done in a separate set
         // from the redirect to allow bad requests to be detected before possibly
         // generating a directory listing.
+        File requestDirectory = null;
         if (requestFile.isDirectory()) {
+            requestDirectory = requestFile;
             boolean generateIndex = usingIndexes();
             if (welcomeFile != null) {
                 File testWelcomeFile = new File(requestFile, welcomeFile);
@@ -207,7 +278,7 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
                 IoBufferEx buf = allocator.wrap(nioBuf);
                 session.write(buf);
                 session.close(false);
-                return;
+                return null;
             }
         }
 
@@ -215,7 +286,7 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         if (!requestFile.exists()) {
             reportError(session, HttpStatus.CLIENT_NOT_FOUND);
             session.close(false);
-            return;
+            return null;
         }
 
         ServiceProperties properties = serviceContext.getProperties();
@@ -230,46 +301,183 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
             if (SYMLINK_RESTRICTED.equals(followSymlink) && !symLinkUnderBaseDir) {
                 reportError(session, HttpStatus.CLIENT_NOT_FOUND);
                 session.close(false);
-                return;
+                return null;
             }
         }
 
         String requestPath = requestFile.getPath().replaceAll("\\\\", "/");
-        addCacheControl(session, requestFile, requestPath);
+        CacheControlHandler cacheControlHandler = getCacheControlHandler(requestFile, requestPath);
+
+        long lastModified = requestFile.lastModified();
+        long length = requestFile.length();
+        String contentType = serviceContext.getContentType(FileUtils.getFileExtension(requestFile));
+        ByteBuffer gzippedContent = null;
+        if (gzipEnabled && length >= gzipMinimumSize && contentCache.isCacheable(length) && isCompressible(contentType)) {
+            gzippedContent = gzip(contentCache.get(requestFile, lastModified, length));
+        }
+
+        // paths are watched relative to the canonical base directory
+        Path watchedRequestPath = baseDirCannonical.toPath().resolve(baseDir.toPath().relativize(
+                (requestDirectory != null ? requestDirectory : requestFile).toPath())).normalize();
+        Path watchedCanonicalPath = requestFile.getCanonicalFile().toPath();
+
+        return new ResolvedFile(requestFile, HttpUtils.getETagHeaderValue(requestFile), lastModified,
+                HttpUtils.formatDateHeader(lastModified), length, contentType, cacheControlHandler, gzippedContent,
+                watchedRequestPath, watchedCanonicalPath);
+    }
+
+    private void serveFile(HttpAcceptSession session, HttpMethod method, ResolvedFile resolvedFile) throws IOException {
+        if (resolvedFile.cacheControlHandler != null) {
+            addCacheControlHeader(session, resolvedFile.cacheControlHandler);
+        }
 
         // check to see if the file has been modified since the last request
-        String etag = HttpUtils.getETagHeaderValue(requestFile);
-        boolean modified = HttpUtils.hasBeenModified(session, etag, requestFile);
+        String etag = resolvedFile.etag;
+        boolean modified = HttpUtils.hasBeenModified(session, etag, resolvedFile.lastModified);
         if (!modified) {
             // file has not been modified so set status and close session
             session.setWriteHeader("ETag", etag);
-            session.setWriteHeader("Last-Modified", RFC822_FORMAT_PATTERN.format(requestFile.lastModified()));
+            session.setWriteHeader("Last-Modified", resolvedFile.lastModifiedHeader);
             session.setStatus(HttpStatus.REDIRECT_NOT_MODIFIED);
             session.close(false);
             return;
         }
 
         // add cached content file headers.
-        HttpUtils.addLastModifiedHeader(session, requestFile);
-
+        session.setWriteHeader("Last-Modified", resolvedFile.lastModifiedHeader);
         session.setWriteHeader("ETag", etag);
+        session.setWriteHeader(HEADER_ACCEPT_RANGES, "bytes");
+        if (resolvedFile.gzippedContent != null) {
+            session.setWriteHeader("Vary", "Accept-Encoding");
+        }
 
-        // add the content type, based on file extension.
-        String contentType = serviceContext.getContentType(FileUtils.getFileExtension(requestFile));
-        if (contentType != null) {
-            session.setWriteHeader("Content-Type", contentType);
+        // small files are served from memory, larger files are streamed from the file system
+        File requestFile = resolvedFile.file;
+        long fileLength = resolvedFile.length;
+        ByteBuffer content = null;
+        if (contentCache.isCacheable(fileLength)) {
+            content = contentCache.get(requestFile, resolvedFile.lastModified, fileLength);
+            fileLength = content.remaining();
+        }
+
+        long position = 0L;
+        long length = fileLength;
+        String rangeHeader = session.getReadHeader(HEADER_RANGE);
+        if (rangeHeader != null && isRangeApplicable(session, resolvedFile)) {
+            ByteRange range = ByteRange.parse(rangeHeader, fileLength);
+            if (range == ByteRange.UNSATISFIABLE) {
+                session.setStatus(HttpStatus.CLIENT_REQUEST_RANGE_NOT_SATISFIABLE);
+                session.setWriteHeader(HEADER_CONTENT_RANGE, ByteRange.toUnsatisfiedContentRange(fileLength));
+                session.setWriteHeader(HEADER_CONTENT_LENGTH, "0");
+                session.close(false);
+                return;
+            }
+            if (range != null) {
+                session.setStatus(HttpStatus.SUCCESS_PARTIAL_CONTENT);
+                session.setWriteHeader(HEADER_CONTENT_RANGE, range.toContentRange(fileLength));
+                position = range.first();
+                length = range.length();
+            }
+        }
+        else if (resolvedFile.gzippedContent != null && acceptsGzip(session)) {
+            // ranges always refer to the identity encoding, so only complete responses are sent gzipped
+            content = resolvedFile.gzippedContent.duplicate();
+            length = content.remaining();
+            session.setWriteHeader("Content-Encoding", "gzip");
         }
 
-        // get io buffer for file
-        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
-        IoBufferEx buf = HttpUtils.getBufferForFile(allocator, requestFile);
+        // add the content type, based on file extension.
+        if (resolvedFile.contentType != null) {
+            session.setWriteHeader("Content-Type", resolvedFile.contentType);
+        }
 
         // add content length
-        session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, Integer.toString(buf.remaining()));
+        session.setWriteHeader(HEADER_CONTENT_LENGTH, Long.toString(length));
+
+        // content is excluded from HEAD responses, so there is nothing to write
+        if (method == HttpMethod.HEAD || length == 0L) {
+            session.close(false);
+            return;
+        }
+
+        if (content != null) {
+            // write buffer and close session
+            content.position(content.position() + (int) position);
+            content.limit(content.position() + (int) length);
+            IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+            session.write(allocator.wrap(content));
+            session.close(false);
+        }
+        else {
+            // session is closed once the last chunk has been written
+            FileChannel channel = FileChannel.open(requestFile.toPath(), StandardOpenOption.READ);
+            new MappedFileWriter(session, channel, position, length, chunkSize).start();
+        }
+    }
+
+    /**
+     * If-Range makes a Range request conditional on the representation being unchanged (RFC 7233, section 3.2).
+     * Entity tags require strong comparison, so weak ETags never match, while a date must match Last-Modified exactly.
+     */
+    private static boolean isRangeApplicable(HttpAcceptSession session, ResolvedFile resolvedFile) {
+        String ifRange = session.getReadHeader(HEADER_IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return !resolvedFile.etag.startsWith("W/") && resolvedFile.etag.equals(ifRange);
+        }
+        return ifRange.equals(resolvedFile.lastModifiedHeader);
+    }
 
-        // write buffer and close session
-        session.write(buf);
-        session.close(false);
+    private static boolean acceptsGzip(HttpAcceptSession session) {
+        String acceptEncoding = session.getReadHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.trim().split(";");
+            if ("gzip".equalsIgnoreCase(parameters[0].trim())) {
+                for (int i = 1; i < parameters.length; i++) {
+                    String parameter = parameters[i].trim().replace(" ", "");
+                    if (parameter.matches("[qQ]=0(\\.0{0,3})?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String mimeType = contentType.toLowerCase(Locale.ENGLISH);
+        return mimeType.startsWith("text/") || mimeType.startsWith("application/javascript")
+                || mimeType.startsWith("application/json") || mimeType.startsWith("application/xml")
+                || mimeType.startsWith("image/svg+xml");
+    }
+
+    // returns null if compression does not make the content smaller
+    private ByteBuffer gzip(ByteBuffer content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.remaining() / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(gzipCompressionLevel);
+            }
+        }) {
+            if (content.hasArray()) {
+                gzip.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+            }
+            else {
+                byte[] bytes = new byte[content.remaining()];
+                content.duplicate().get(bytes);
+                gzip.write(bytes);
+            }
+        }
+        return (out.size() < content.remaining()) ? ByteBuffer.wrap(out.toByteArray()) : null;
     }
 
     @Override
@@ -293,8 +501,8 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
             File errorContentFile = new File(errorPagesDir, errorFileName);
             if (errorContentFile.exists() && errorContentFile.canRead()) {
                 IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
-                IoBufferEx buf = HttpUtils.getBufferForFile(allocator, errorContentFile);
-                session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, Integer.toString(buf.remaining()));
+                IoBufferEx buf = allocator.wrap(contentCache.get(errorContentFile));
+                session.setWriteHeader(HEADER_CONTENT_LENGTH, Integer.toString(buf.remaining()));
                 session.write(buf);
             }
         }
@@ -303,27 +511,21 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
 
     /**
      * Matches the file URL with the most specific pattern and caches this information in a map
-     * Sets cache-control and expires headers
-     * @param session
      * @param requestFile
      * @param requestPath
+     * @return the handler for the cache-control and expires headers, or null if no pattern matches
      */
-    private void addCacheControl(HttpAcceptSession session, File requestFile, String requestPath) {
-        CacheControlHandler cacheControlHandler = urlCacheControlMap.computeIfAbsent(requestPath, 
+    private CacheControlHandler getCacheControlHandler(File requestFile, String requestPath) {
+        return urlCacheControlMap.computeIfAbsent(requestPath, 
                 path -> patterns.stream()
                      .filter(patternCacheControl -> PatternMatcherUtils.caseInsensitiveMatch(requestPath, patternCacheControl.getPattern()))
                      .findFirst()
                      .map(patternCacheControl -> new CacheControlHandler(requestFile, patternCacheControl))
                      .orElse(null)
         );
-
-        if (cacheControlHandler != null) {
-            addCacheControlHeader(session, requestFile, cacheControlHandler);
-        }
     }
 
-    private static final void addCacheControlHeader(HttpSession session, File requestFile,
-        CacheControlHandler cacheControlHandler) {
+    private static final void addCacheControlHeader(HttpSession session, CacheControlHandler cacheControlHandler) {
         cacheControlHandler.resetState();
         session.setWriteHeader("Cache-Control", cacheControlHandler.getCacheControlHeader());
         addExpiresHeader(session, cacheControlHandler.getExpiresHeader());
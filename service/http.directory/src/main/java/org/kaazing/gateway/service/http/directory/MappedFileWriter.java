@@ -0,0 +1,156 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
+import org.kaazing.gateway.transport.http.HttpAcceptSession;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams a region of a file to an HTTP session as slices of memory mapped buffers, so file content is never copied
+ * onto the heap. Only {@link #MAXIMUM_PENDING_CHUNKS} chunks are written ahead of the client; the next chunk is written
+ * as each earlier write completes, so a slow client does not cause the whole file to be queued in memory.
+ * <p>
+ * The session is closed once the last chunk has been written. If the file is truncated while it is being written, the
+ * session is closed without writing further chunks, as the declared Content-Length can no longer be honoured. All
+ * callbacks happen on the session's IO thread.
+ */
+final class MappedFileWriter implements IoFutureListener<WriteFuture> {
+
+    static final int MAXIMUM_PENDING_CHUNKS = 2;
+
+    // map large files a window at a time to bound the address space held by a single download
+    private static final long MAXIMUM_MAPPING_SIZE = 64L * 1024L * 1024L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("service.directory");
+
+    private final HttpAcceptSession session;
+    private final FileChannel channel;
+    private final long end;
+    private final int chunkSize;
+
+    private MappedByteBuffer mapping;
+    private long mappingPosition;
+    private long position;
+    private int pendingChunks;
+    private boolean writing;
+    private boolean done;
+
+    MappedFileWriter(HttpAcceptSession session, FileChannel channel, long position, long length, int chunkSize) {
+        this.session = session;
+        this.channel = channel;
+        this.position = position;
+        this.end = position + length;
+        this.chunkSize = chunkSize;
+    }
+
+    void start() {
+        writeChunks();
+    }
+
+    @Override
+    public void operationComplete(WriteFuture future) {
+        pendingChunks--;
+        if (!future.isWritten()) {
+            // session closed before the content was delivered
+            finish(true);
+            return;
+        }
+        writeChunks();
+    }
+
+    private void writeChunks() {
+        // a write that completes immediately notifies this listener from within session.write(...)
+        if (writing) {
+            return;
+        }
+
+        writing = true;
+        try {
+            IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+            while (!done && pendingChunks < MAXIMUM_PENDING_CHUNKS && position < end) {
+                ByteBuffer chunk = nextChunk();
+                pendingChunks++;
+                WriteFuture future = session.write(allocator.wrap(chunk));
+                future.addListener(this);
+            }
+
+            if (!done && position == end) {
+                finish(false);
+            }
+        }
+        catch (IOException e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Failed to write file content for %s", session), e);
+            }
+            finish(true);
+        }
+        finally {
+            writing = false;
+        }
+    }
+
+    private ByteBuffer nextChunk() throws IOException {
+        // touching a mapped page beyond the end of a truncated file raises SIGBUS, so fail the response instead
+        long size = channel.size();
+        if (size < end) {
+            throw new IOException(String.format("File truncated to %d bytes while writing up to %d", size, end));
+        }
+
+        if (mapping == null || position == mappingPosition + mapping.capacity()) {
+            long mappingSize = Math.min(MAXIMUM_MAPPING_SIZE, end - position);
+            mapping = channel.map(READ_ONLY, position, mappingSize);
+            mappingPosition = position;
+        }
+
+        int offset = (int) (position - mappingPosition);
+        int length = Math.min(chunkSize, mapping.capacity() - offset);
+        ByteBuffer chunk = mapping.duplicate();
+        chunk.limit(offset + length);
+        chunk.position(offset);
+        position += length;
+        return chunk.slice();
+    }
+
+    private void finish(boolean immediately) {
+        if (done) {
+            return;
+        }
+        done = true;
+        mapping = null;
+
+        // mapped buffers remain valid after the channel is closed
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            // ignore
+        }
+
+        // pending chunks are flushed before a graceful close completes
+        session.close(immediately);
+    }
+}
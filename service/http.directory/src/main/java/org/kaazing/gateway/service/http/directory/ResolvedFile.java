@@ -0,0 +1,68 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import org.kaazing.gateway.service.http.directory.cachecontrol.CacheControlHandler;
+
+/**
+ * Outcome of resolving a request path to a readable file under the service's base directory, along with the response
+ * headers derived from it, so repeated requests for the same path skip the file system checks.
+ */
+final class ResolvedFile {
+
+    final File file;
+    final String etag;
+    final long lastModified;
+    final String lastModifiedHeader;
+    final long length;
+    final String contentType;
+    final CacheControlHandler cacheControlHandler;
+    final ByteBuffer gzippedContent;
+
+    // paths that invalidate this entry when they change
+    final Path requestPath;
+    final Path canonicalPath;
+
+    // set on each cache hit, cleared as the eviction hand passes
+    volatile boolean referenced;
+
+    ResolvedFile(File file, String etag, long lastModified, String lastModifiedHeader, long length, String contentType,
+                 CacheControlHandler cacheControlHandler, ByteBuffer gzippedContent, Path requestPath, Path canonicalPath) {
+        this.file = file;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.lastModifiedHeader = lastModifiedHeader;
+        this.length = length;
+        this.contentType = contentType;
+        this.cacheControlHandler = cacheControlHandler;
+        this.gzippedContent = gzippedContent;
+        this.requestPath = requestPath;
+        this.canonicalPath = canonicalPath;
+    }
+
+    boolean dependsOn(Path directory, Path changed) {
+        return requestPath.startsWith(changed) || canonicalPath.startsWith(changed) || requestPath.equals(directory);
+    }
+
+    @Override
+    public String toString() {
+        return "ResolvedFile [" + file + "]";
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of request path to {@link ResolvedFile}. Lookups do not lock, eviction uses the CLOCK approximation of
+ * least recently used, and entries are invalidated by a {@link WatchService} registered on every directory under the
+ * base directory rather than by checking the file system on each request.
+ * <p>
+ * Entries are only cached while the watch service is running, so file changes are never missed for good, although they
+ * become visible only once the platform reports them.
+ */
+final class ResolvedFileCache implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("service.directory");
+
+    private final Path baseDir;
+    private final int maximumEntries;
+    private final ConcurrentMap<String, ResolvedFile> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+
+    // incremented on every invalidation, so entries resolved concurrently with a change are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private Iterator<ResolvedFile> hand;
+    private volatile WatchService watchService;
+    private Thread watcher;
+
+    ResolvedFileCache(Path baseDir, int maximumEntries) {
+        this.baseDir = baseDir;
+        this.maximumEntries = maximumEntries;
+    }
+
+    Path getBaseDir() {
+        return baseDir;
+    }
+
+    synchronized void start() {
+        if (maximumEntries <= 0 || watchService != null) {
+            return;
+        }
+
+        try {
+            WatchService newWatchService = baseDir.getFileSystem().newWatchService();
+            watchService = newWatchService;
+            register(baseDir);
+
+            watcher = new Thread(() -> watch(newWatchService), "directory-service-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn(String.format("Unable to watch %s for changes, directory service cache disabled", baseDir), e);
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        WatchService oldWatchService = watchService;
+        watchService = null;
+        if (oldWatchService != null) {
+            try {
+                oldWatchService.close();
+            }
+            catch (IOException e) {
+                // ignore
+            }
+        }
+        watcher = null;
+        watchedDirectories.clear();
+        invalidateAll();
+    }
+
+    /**
+     * Returns the generation to pass to {@link #put(String, ResolvedFile, long)}, read before resolving the file.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    ResolvedFile get(String path) {
+        ResolvedFile resolvedFile = entries.get(path);
+        if (resolvedFile == null) {
+            missCount.increment();
+            return null;
+        }
+        resolvedFile.referenced = true;
+        hitCount.increment();
+        return resolvedFile;
+    }
+
+    void put(String path, ResolvedFile resolvedFile, long resolvedGeneration) {
+        if (watchService == null || generation.get() != resolvedGeneration) {
+            return;
+        }
+
+        entries.put(path, resolvedFile);
+        if (generation.get() != resolvedGeneration) {
+            // changed while being added, may already be stale
+            entries.remove(path, resolvedFile);
+            return;
+        }
+
+        if (entries.size() > maximumEntries) {
+            evict();
+        }
+    }
+
+    void invalidate(Path directory, Path changed) {
+        generation.incrementAndGet();
+        entries.values().removeIf(resolvedFile -> resolvedFile.dependsOn(directory, changed));
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getHitCount() {
+        return hitCount.sum();
+    }
+
+    long getMissCount() {
+        return missCount.sum();
+    }
+
+    long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private synchronized void evict() {
+        // CLOCK: recently referenced entries get a second chance
+        while (entries.size() > maximumEntries) {
+            if (hand == null || !hand.hasNext()) {
+                hand = entries.values().iterator();
+                if (!hand.hasNext()) {
+                    return;
+                }
+            }
+            ResolvedFile resolvedFile = hand.next();
+            if (resolvedFile.referenced) {
+                resolvedFile.referenced = false;
+            }
+            else {
+                hand.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        // symbolic links to directories are not followed, content reached through them is not cached
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchService currentWatchService = watchService;
+                if (currentWatchService == null) {
+                    return FileVisitResult.TERMINATE;
+                }
+                WatchKey key = dir.register(currentWatchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                watchedDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch(WatchService watchService) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = watchedDirectories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW || directory == null) {
+                        invalidateAll();
+                        continue;
+                    }
+
+                    Path changed = directory.resolve((Path) event.context());
+                    invalidate(directory, changed);
+
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed, NOFOLLOW_LINKS)) {
+                        try {
+                            register(changed);
+                        }
+                        catch (IOException e) {
+                            LOGGER.debug(String.format("Unable to watch %s for changes", changed), e);
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e) {
+            // cache closed
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResolvedFileCache [" + baseDir + ", size=" + entries.size() + "]";
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void shouldParseClosedRange() {
+        ByteRange range = ByteRange.parse("bytes=0-499", 10000);
+        assertEquals(0, range.first());
+        assertEquals(499, range.last());
+        assertEquals(500, range.length());
+        assertEquals("bytes 0-499/10000", range.toContentRange(10000));
+    }
+
+    @Test
+    public void shouldParseOpenRange() {
+        ByteRange range = ByteRange.parse("bytes=9500-", 10000);
+        assertEquals(9500, range.first());
+        assertEquals(9999, range.last());
+    }
+
+    @Test
+    public void shouldParseSuffixRange() {
+        ByteRange range = ByteRange.parse("bytes=-500", 10000);
+        assertEquals(9500, range.first());
+        assertEquals(9999, range.last());
+    }
+
+    @Test
+    public void shouldLimitSuffixRangeToContent() {
+        ByteRange range = ByteRange.parse("bytes=-500", 100);
+        assertEquals(0, range.first());
+        assertEquals(99, range.last());
+    }
+
+    @Test
+    public void shouldLimitLastPositionToContent() {
+        ByteRange range = ByteRange.parse("bytes=100-20000", 10000);
+        assertEquals(100, range.first());
+        assertEquals(9999, range.last());
+    }
+
+    @Test
+    public void shouldIgnoreWhitespaceAndUnitCase() {
+        ByteRange range = ByteRange.parse(" Bytes= 10 - 19 ", 100);
+        assertEquals(10, range.first());
+        assertEquals(19, range.last());
+    }
+
+    @Test
+    public void shouldRejectFirstPositionBeyondContent() {
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=10000-", 10000));
+        assertEquals("bytes */10000", ByteRange.toUnsatisfiedContentRange(10000));
+    }
+
+    @Test
+    public void shouldRejectEmptySuffixRange() {
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 10000));
+    }
+
+    @Test
+    public void shouldRejectRangeOfEmptyContent() {
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=0-", 0));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-10", 0));
+    }
+
+    @Test
+    public void shouldIgnoreMultipleRanges() {
+        assertNull(ByteRange.parse("bytes=0-1,5-6", 10000));
+    }
+
+    @Test
+    public void shouldIgnoreMalformedRanges() {
+        assertNull(ByteRange.parse("items=0-1", 10000));
+        assertNull(ByteRange.parse("bytes=5", 10000));
+        assertNull(ByteRange.parse("bytes=-", 10000));
+        assertNull(ByteRange.parse("bytes=a-5", 10000));
+        assertNull(ByteRange.parse("bytes=5-a", 10000));
+        assertNull(ByteRange.parse("bytes=10-5", 10000));
+        assertNull(ByteRange.parse("bytes=99999999999999999999-", 10000));
+    }
+}
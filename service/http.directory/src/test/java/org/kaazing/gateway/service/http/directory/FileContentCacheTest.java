@@ -0,0 +1,136 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileContentCacheTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("FileContentCacheTest").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void shouldReadFileContent() throws Exception {
+        FileContentCache cache = new FileContentCache(1024, 4096);
+        File file = newFile("a.txt", "Hello, world");
+
+        assertEquals("Hello, world", asString(cache.get(file)));
+        assertEquals(12, cache.size());
+    }
+
+    @Test
+    public void shouldReturnIndependentViews() throws Exception {
+        FileContentCache cache = new FileContentCache(1024, 4096);
+        File file = newFile("a.txt", "Hello, world");
+
+        ByteBuffer first = cache.get(file);
+        first.position(5);
+        assertEquals("Hello, world", asString(cache.get(file)));
+    }
+
+    @Test
+    public void shouldReadModifiedFile() throws Exception {
+        FileContentCache cache = new FileContentCache(1024, 4096);
+        File file = newFile("a.txt", "Hello, world");
+        assertEquals("Hello, world", asString(cache.get(file)));
+
+        Files.write(file.toPath(), "Goodbye".getBytes(UTF_8));
+        file.setLastModified(file.lastModified() + 2000);
+
+        assertEquals("Goodbye", asString(cache.get(file)));
+        assertEquals(7, cache.size());
+    }
+
+    @Test
+    public void shouldCacheContentUnderLastModifiedTimeOfRead() throws Exception {
+        FileContentCache cache = new FileContentCache(1024, 4096);
+        File file = newFile("a.txt", "Hello");
+        long lastModified = file.lastModified();
+
+        // the caller saw an earlier version of the file, with the same length
+        long staleLastModified = lastModified - 2000;
+        assertEquals("Hello", asString(cache.get(file, staleLastModified, 5)));
+
+        // a later version carrying the time the caller saw must not be served the content read above
+        Files.write(file.toPath(), "World".getBytes(UTF_8));
+        file.setLastModified(staleLastModified);
+        assertEquals("World", asString(cache.get(file)));
+    }
+
+    @Test
+    public void shouldNotCacheLargeFiles() throws Exception {
+        FileContentCache cache = new FileContentCache(4, 4096);
+        File file = newFile("a.txt", "Hello, world");
+
+        assertEquals("Hello, world", asString(cache.get(file)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        FileContentCache cache = new FileContentCache(1024, 20);
+        File a = newFile("a.txt", "0123456789");
+        File b = newFile("b.txt", "0123456789");
+        File c = newFile("c.txt", "0123456789");
+
+        cache.get(a);
+        cache.get(b);
+        cache.get(a);
+        cache.get(c);
+        assertEquals(20, cache.size());
+
+        // b was evicted, reading it again evicts a
+        cache.get(b);
+        assertEquals(20, cache.size());
+    }
+
+    private File newFile(String name, String content) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        return file;
+    }
+
+    private static String asString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.remaining()];
+        buf.duplicate().get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
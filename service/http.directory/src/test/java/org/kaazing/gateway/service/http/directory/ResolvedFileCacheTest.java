@@ -0,0 +1,192 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolvedFileCacheTest {
+
+    private Path directory;
+    private ResolvedFileCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ResolvedFileCacheTest").toRealPath();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (cache != null) {
+            cache.close();
+        }
+        Files.walk(directory)
+             .sorted((first, second) -> second.compareTo(first))
+             .forEach(path -> path.toFile().delete());
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() throws Exception {
+        ResolvedFile resolvedFile = newResolvedFile("a.js");
+        cache = new ResolvedFileCache(directory, 16);
+        cache.start();
+
+        assertNull(cache.get("/a.js"));
+        cache.put("/a.js", resolvedFile, cache.generation());
+        assertSame(resolvedFile, cache.get("/a.js"));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void shouldNotCacheUntilStarted() throws Exception {
+        cache = new ResolvedFileCache(directory, 16);
+        cache.put("/a.js", newResolvedFile("a.js"), cache.generation());
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() throws Exception {
+        cache = new ResolvedFileCache(directory, 0);
+        cache.start();
+        cache.put("/a.js", newResolvedFile("a.js"), cache.generation());
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldNotCacheFileResolvedBeforeInvalidation() throws Exception {
+        ResolvedFile resolvedFile = newResolvedFile("a.js");
+        cache = new ResolvedFileCache(directory, 16);
+        cache.start();
+
+        long generation = cache.generation();
+        cache.invalidate(directory, resolvedFile.requestPath);
+        cache.put("/a.js", resolvedFile, generation);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldEvictUnreferencedEntries() throws Exception {
+        ResolvedFile a = newResolvedFile("a.js");
+        ResolvedFile b = newResolvedFile("b.js");
+        ResolvedFile c = newResolvedFile("c.js");
+        cache = new ResolvedFileCache(directory, 2);
+        cache.start();
+
+        cache.put("/a.js", a, cache.generation());
+        cache.put("/b.js", b, cache.generation());
+        cache.get("/a.js");
+        cache.get("/b.js");
+        cache.put("/c.js", c, cache.generation());
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void shouldInvalidateModifiedFile() throws Exception {
+        ResolvedFile a = newResolvedFile("a.js");
+        ResolvedFile b = newResolvedFile("b.js");
+        cache = new ResolvedFileCache(directory, 16);
+        cache.start();
+        cache.put("/a.js", a, cache.generation());
+        cache.put("/b.js", b, cache.generation());
+        assertEquals(2, cache.size());
+
+        Files.write(directory.resolve("a.js"), "modified".getBytes(UTF_8));
+
+        awaitSize(1);
+        assertNull(cache.get("/a.js"));
+    }
+
+    @Test
+    public void shouldInvalidateFileInNewDirectory() throws Exception {
+        cache = new ResolvedFileCache(directory, 16);
+        cache.start();
+        Path subdirectory = Files.createDirectory(directory.resolve("js"));
+        awaitGenerationChange(0);
+        Path file = Files.write(subdirectory.resolve("a.js"), "content".getBytes(UTF_8));
+        awaitGenerationChange(1);
+        awaitNoGenerationChange();
+
+        cache.put("/js/a.js", newResolvedFile(file), cache.generation());
+        assertEquals(1, cache.size());
+
+        Files.delete(file);
+        awaitSize(0);
+    }
+
+    @Test
+    public void shouldInvalidateWelcomeFileWhenDirectoryChanges() throws Exception {
+        Path file = Files.write(directory.resolve("index.html"), "content".getBytes(UTF_8));
+        cache = new ResolvedFileCache(directory, 16);
+        cache.start();
+
+        cache.put("/", new ResolvedFile(file.toFile(), "W/\"etag\"", 0L, "", 7L, "text/html", null, null, directory, file),
+                cache.generation());
+        Files.write(directory.resolve("other.html"), "content".getBytes(UTF_8));
+
+        awaitSize(0);
+    }
+
+    private ResolvedFile newResolvedFile(String name) throws IOException {
+        return newResolvedFile(Files.write(directory.resolve(name), name.getBytes(UTF_8)));
+    }
+
+    private static ResolvedFile newResolvedFile(Path path) {
+        File file = path.toFile();
+        return new ResolvedFile(file, "W/\"etag\"", file.lastModified(), "", file.length(), "application/javascript",
+                null, null, path, path);
+    }
+
+    private void awaitSize(int size) throws InterruptedException {
+        // watch service latency is platform dependent
+        for (int i = 0; i < 300 && cache.size() != size; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(size, cache.size());
+    }
+
+    private void awaitGenerationChange(long generation) throws InterruptedException {
+        for (int i = 0; i < 300 && cache.generation() == generation; i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    private void awaitNoGenerationChange() throws InterruptedException {
+        long generation;
+        do {
+            generation = cache.generation();
+            Thread.sleep(500);
+        } while (cache.generation() != generation);
+    }
+}
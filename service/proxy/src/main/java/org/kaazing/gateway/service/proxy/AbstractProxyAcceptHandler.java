@@ -58,13 +58,20 @@ public abstract class AbstractProxyAcceptHandler extends AbstractProxyHandler {
     public void initServiceConnectManager(BridgeServiceFactory bridgeServiceFactory) {
         String connectURI = connectURIs.iterator().next();
         serviceConnectManager = new ServiceConnectManager(getServiceContext(), getConnectHandler(),
-                bridgeServiceFactory, connectURI, getMaximumRecoveryInterval(), getPreparedConnectionCount());
+                bridgeServiceFactory, connectURI, getMaximumRecoveryInterval(), getConnectStrategy());
     }
 
     public void startServiceConnectManager() {
         serviceConnectManager.start();
     }
 
+    public void stopServiceConnectManager() {
+        // not created when the service failed to initialize
+        if (serviceConnectManager != null) {
+            serviceConnectManager.stop();
+        }
+    }
+
     public ConnectFuture getNextConnectFuture(final IoSessionInitializer<ConnectFuture> connectInitializer) {
         return serviceConnectManager.getNextConnectFuture(connectInitializer);
     }
@@ -99,4 +106,10 @@ public abstract class AbstractProxyAcceptHandler extends AbstractProxyHandler {
         super.setMaximumPendingBytes(maximumPendingBytes);
         connectHandler.setMaximumPendingBytes(maximumPendingBytes);
     }
+
+    @Override
+    public void setFlowControl(String flowControl) {
+        super.setFlowControl(flowControl);
+        connectHandler.setFlowControl(flowControl);
+    }
 }
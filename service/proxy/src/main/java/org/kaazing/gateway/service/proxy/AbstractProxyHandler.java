@@ -16,6 +16,8 @@
 package org.kaazing.gateway.service.proxy;
 
 import static java.lang.String.format;
+import static java.lang.Thread.currentThread;
+import static org.kaazing.mina.core.buffer.TransientBuffers.copyIfTransient;
 
 import java.io.IOException;
 import java.util.Queue;
@@ -34,7 +36,9 @@ import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.service.proxy.ProxyConnectStrategy.Strategy;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.IoSessionEx;
 import org.kaazing.mina.filter.util.WriteRequestFilterEx;
+import org.kaazing.mina.netty.ChannelIoSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +57,7 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
     private int thresholdPendingBytes;
     private int maximumRecoveryInterval = 0;
     private ProxyConnectStrategy connectStrategy;
+    private boolean creditFlowControl;
 
     @Override
     public void exceptionCaught(IoSession session, Throwable cause) throws Exception {
@@ -117,7 +122,10 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
             // write current message
             attachedSessionManager.writeMessage(session, message);
         } else if (messageQueue != null && !session.isClosing()) {
-            // queue message unless closing
+            // queue message unless closing, copying a received buffer that is reused by the next read
+            if (message instanceof IoBufferEx && session instanceof IoSessionEx) {
+                message = copyIfTransient((IoBufferEx) message, ((IoSessionEx) session).getBufferAllocator());
+            }
             messageQueue.add(message);
         }
     }
@@ -138,6 +146,23 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
         }
     }
 
+    public void setFlowControl(String flowControl) {
+        switch (flowControl) {
+        case "future":
+            creditFlowControl = false;
+            break;
+        case "credit":
+            creditFlowControl = true;
+            break;
+        default:
+            throw new IllegalArgumentException(String.format("Unexpected value for flow control: %s", flowControl));
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Proxy handler " + this + ": flow.control=" + flowControl + ".");
+        }
+    }
+
     public void setMaximumRecoveryInterval(int maximumRecoveryInterval) {
         this.maximumRecoveryInterval = maximumRecoveryInterval;
         if ( LOGGER.isDebugEnabled() ) {
@@ -154,24 +179,41 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
     }
 
     public void setPreparedConnectionCount(String connectStrategy, int preparedConnectionCount, int maxConnectionCount) {
+        setPreparedConnectionCount(connectStrategy, preparedConnectionCount, 0, maxConnectionCount);
+    }
+
+    public void setPreparedConnectionCount(String connectStrategy, int preparedConnectionCount,
+            int minimumPreparedConnectionCount, int maxConnectionCount) {
         switch (connectStrategy) {
         case "prepared":
         case "immediate":
         case "deferred":
+        case "adaptive":
             break;
         default:
             throw new IllegalArgumentException(String.format("Unexpected value for connect strategy: %s", connectStrategy));
         }
 
-        setConnectStrategy(Strategy.valueOf(connectStrategy.toUpperCase()), preparedConnectionCount, maxConnectionCount);
+        setConnectStrategy(Strategy.valueOf(connectStrategy.toUpperCase()), preparedConnectionCount,
+                minimumPreparedConnectionCount, maxConnectionCount);
+    }
+
+    protected void setConnectStrategy(
+        Strategy connectStrategy,
+        int preparedConnectionCount,
+        int maxConnectionCount)
+    {
+        setConnectStrategy(connectStrategy, preparedConnectionCount, 0, maxConnectionCount);
     }
 
     protected void setConnectStrategy(
         Strategy connectStrategy,
         int preparedConnectionCount,
+        int minimumPreparedConnectionCount,
         int maxConnectionCount)
     {
-        this.connectStrategy = ProxyConnectStrategy.newInstance(connectStrategy, preparedConnectionCount, maxConnectionCount);
+        this.connectStrategy = ProxyConnectStrategy.newInstance(connectStrategy, preparedConnectionCount,
+                minimumPreparedConnectionCount, maxConnectionCount);
         if ( LOGGER.isDebugEnabled() ) {
             LOGGER.debug("Proxy handler " + this + ": connect.strategy=" + connectStrategy + ".");
         }
@@ -181,6 +223,10 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
         return connectStrategy.getConnectionCount();
     }
 
+    protected ProxyConnectStrategy getConnectStrategy() {
+        return connectStrategy;
+    }
+
     protected boolean isDeferredConnectStrategy() {
         return connectStrategy.getStrategy() == Strategy.DEFERRED;
     }
@@ -245,17 +291,37 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
     // will be written. It maintains a total of the number of bytes of messages scheduled for write which
     // have not yet been written, and suspends reads on the source session when the number of bytes
     // scheduled for write exceeds the configured maximum.pending.bytes for the service.
+    //
+    // With flow.control "credit", writes made on the IO thread of an attached network session use the bytes
+    // scheduled for write on that session instead, which its IO processor reduces as it flushes them. Reads are
+    // suspended when they exceed maximum.pending.bytes and resumed once they drain to the threshold, without a
+    // listener on each write future. Writes from another thread are only counted by the attached session once
+    // they reach its IO thread, so those still use a write future listener. When both sessions also share a buffer
+    // allocator, each buffer is handed to the attached session as is rather than wrapped again.
     protected class AttachedSessionManager {
         private final IoSession attachedSession;
         private final AtomicInteger scheduledWriteBytes = new AtomicInteger(0);
         private final AtomicBoolean readSuspended = new AtomicBoolean(false);
         private final AtomicInteger totalTransferredBytes = new AtomicInteger(0);
 
+        // null unless flow control is credit based
+        private final ChannelIoSession<?> attachedChannelSession;
+        private final DuplicateBufferFilter duplicateFilter;
+
         // private throughput limit for this session
         private int sessionMaximumTransferredBytes = AbstractProxyHandler.this.maximumTransferredBytes;
 
         AttachedSessionManager(IoSession attachedSession) {
             this.attachedSession = attachedSession;
+
+            if (creditFlowControl && attachedSession instanceof ChannelIoSession) {
+                this.attachedChannelSession = (ChannelIoSession<?>) attachedSession;
+                this.duplicateFilter = (DuplicateBufferFilter) attachedSession.getFilterChain().get(DuplicateBufferFilter.class);
+            }
+            else {
+                this.attachedChannelSession = null;
+                this.duplicateFilter = null;
+            }
         }
 
         public IoSession getAttachedSession() {
@@ -301,6 +367,15 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
                 break;
             }
 
+            // a received buffer that is reused by the next read is kept until it has been written
+            final IoBufferEx transientBuf = (message instanceof IoBufferEx && ((IoBufferEx) message).isTransient())
+                    ? ((IoBufferEx) message).retain() : null;
+
+            if (attachedChannelSession != null && attachedChannelSession.getIoThread() == currentThread()) {
+                writeMessageWithCredit(sourceSession, message, transientBuf);
+                return;
+            }
+
             int newScheduledWriteBytes = scheduledWriteBytes.addAndGet(bytesWritten);
             if (newScheduledWriteBytes > maximumPendingBytes) {
                 if (LOGGER.isDebugEnabled()) {
@@ -321,6 +396,10 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
             future.addListener(new IoFutureListener<WriteFuture>() {
                 @Override
                 public void operationComplete(WriteFuture future) {
+                    if (transientBuf != null) {
+                        transientBuf.free();
+                    }
+
                     int newScheduledWriteBytes = scheduledWriteBytes.addAndGet(-bytesWritten);
                     // Use <= to ensure we resume read in case where both values are 0
                     if (readSuspended.get() && newScheduledWriteBytes <= thresholdPendingBytes) {
@@ -339,12 +418,66 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
             });
         }
 
+        private void writeMessageWithCredit(final IoSession sourceSession, Object message,
+                                            final IoBufferEx transientBuf) {
+            DuplicateBufferFilter handoffFilter = null;
+            if (duplicateFilter != null && message instanceof IoBufferEx && sourceSession instanceof IoSessionEx &&
+                    ((IoSessionEx) sourceSession).getBufferAllocator() == attachedChannelSession.getBufferAllocator()) {
+                // the write reaches the filter on this thread
+                handoffFilter = duplicateFilter;
+                handoffFilter.handoff = message;
+            }
+
+            try {
+                WriteFuture future = attachedSession.write(message);
+                if (transientBuf != null) {
+                    future.addListener(new IoFutureListener<WriteFuture>() {
+                        @Override
+                        public void operationComplete(WriteFuture future) {
+                            transientBuf.free();
+                        }
+                    });
+                }
+            }
+            finally {
+                if (handoffFilter != null) {
+                    handoffFilter.handoff = null;
+                }
+            }
+
+            long newScheduledWriteBytes = attachedChannelSession.getScheduledWriteBytes();
+            if (newScheduledWriteBytes > maximumPendingBytes && readSuspended.compareAndSet(false, true)) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("[" + sourceSession.getId() + "->" + attachedSession.getId() + ", "
+                            + Thread.currentThread().getName() + "] scheduledWriteBytes " + newScheduledWriteBytes
+                            + " exceeds " + maximumPendingBytes + ", suspending reads on " + sourceSession);
+                }
+                sourceSession.suspendRead();
+                attachedChannelSession.runWhenWritesDrained(thresholdPendingBytes, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (readSuspended.compareAndSet(true, false)) {
+                            if (LOGGER.isDebugEnabled()) {
+                                LOGGER.debug("[" + sourceSession.getId() + "->" + attachedSession.getId() + ", "
+                                        + Thread.currentThread().getName() + "] scheduledWriteBytes drained to "
+                                        + thresholdPendingBytes + ", resuming reads on " + sourceSession);
+                            }
+                            sourceSession.resumeRead();
+                        }
+                    }
+                });
+            }
+        }
+
     }
 
     protected static class DuplicateBufferFilter extends WriteRequestFilterEx {
 
         private final IoBufferAllocatorEx<?> allocator;
 
+        // message written from this session's IO thread that already has the type of the allocator's buffers
+        private Object handoff;
+
         public DuplicateBufferFilter(IoBufferAllocatorEx<?> allocator) {
             this.allocator = allocator;
         }
@@ -355,7 +488,10 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
                                        WriteRequest writeRequest,
                                        Object message) throws Exception {
 
-            if (message instanceof IoBufferEx) {
+            if (message == handoff) {
+                handoff = null;
+            }
+            else if (message instanceof IoBufferEx) {
                 IoBufferEx buf = (IoBufferEx) message;
                 message = allocator.wrap(buf.buf(), buf.flags());
             }
@@ -39,13 +39,17 @@ public abstract class AbstractProxyService<HandlerType extends AbstractProxyHand
     private static final String PROPERTY_MAXIMUM_PENDING_BYTES = "maximum.pending.bytes";
     private static final String PROPERTY_MAXIMUM_RECOVERY_INTERVAL = "maximum.recovery.interval";
     private static final String PROPERTY_PREPARED_CONNECTION_COUNT = "prepared.connection.count";
+    private static final String PROPERTY_MINIMUM_PREPARED_CONNECTION_COUNT = "minimum.prepared.connection.count";
     private static final String PROPERTY_CONNECT_STRATEGY = "connect.strategy";
     private static final String PROPERTY_MAXIMUM_TRANSFERRED_BYTES = "internal.maximum.transferred.bytes";
+    private static final String PROPERTY_FLOW_CONTROL = "flow.control";
 
     private static final int PROPERTY_MAXIMUM_PENDING_BYTES_DEFAULT = 64000;
     private static final int PROPERTY_MAXIMUM_RECOVERY_INTERVAL_DEFAULT = 0;
     private static final int PROPERTY_PREPARED_CONNECTION_COUNT_DEFAULT = 0;
+    private static final int PROPERTY_MINIMUM_PREPARED_CONNECTION_COUNT_DEFAULT = 0;
     private static final int PROPERTY_MAXIMUM_TRANSFERRED_BYTES_DEFAULT = -1;
+    private static final String PROPERTY_FLOW_CONTROL_DEFAULT = "future";
     private static final IntFunction<String> PROPERTY_CONNECT_STRATEGY_DEFAULT = count -> count > 0 ? "prepared" : "immediate";
 
     protected HandlerType handler;
@@ -68,14 +72,19 @@ public abstract class AbstractProxyService<HandlerType extends AbstractProxyHand
         int maximumTransferredBytes = getOptionalDataSizeProperty(properties, PROPERTY_MAXIMUM_TRANSFERRED_BYTES, PROPERTY_MAXIMUM_TRANSFERRED_BYTES_DEFAULT);
         int maximumRecoveryInterval = getOptionalIntProperty(properties, PROPERTY_MAXIMUM_RECOVERY_INTERVAL, PROPERTY_MAXIMUM_RECOVERY_INTERVAL_DEFAULT);
         int preparedConnectionCount = getOptionalIntProperty(properties, PROPERTY_PREPARED_CONNECTION_COUNT, PROPERTY_PREPARED_CONNECTION_COUNT_DEFAULT);
+        int minimumPreparedConnectionCount = getOptionalIntProperty(properties, PROPERTY_MINIMUM_PREPARED_CONNECTION_COUNT,
+                PROPERTY_MINIMUM_PREPARED_CONNECTION_COUNT_DEFAULT);
         String connectStrategy = getOptionalProperty(properties, PROPERTY_CONNECT_STRATEGY, PROPERTY_CONNECT_STRATEGY_DEFAULT.apply(preparedConnectionCount));
+        String flowControl = getOptionalProperty(properties, PROPERTY_FLOW_CONTROL, PROPERTY_FLOW_CONTROL_DEFAULT);
 
         handler = createHandler();
         handler.setServiceContext(serviceContext);
         handler.setMaximumPendingBytes(maximumPendingBytes);
+        handler.setFlowControl(flowControl);
         handler.setMaximumTransferredBytes(maximumTransferredBytes);
         handler.setMaximumRecoveryInterval(maximumRecoveryInterval);
-        handler.setPreparedConnectionCount(connectStrategy, preparedConnectionCount, serviceContext.getProcessorCount());
+        handler.setPreparedConnectionCount(connectStrategy, preparedConnectionCount, minimumPreparedConnectionCount,
+                serviceContext.getProcessorCount());
     }
 
     @Override
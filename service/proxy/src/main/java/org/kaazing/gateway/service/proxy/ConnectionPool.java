@@ -20,6 +20,7 @@ import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.mina.core.filterchain.IoFilterAdapter;
 import org.apache.mina.core.filterchain.IoFilterChain;
@@ -40,26 +41,45 @@ class ConnectionPool {
     private final HeartbeatFilter heartbeatFilter;
     private final IoFutureListener<ConnectFuture> connectListener;
     private final int preparedConnectionCount;
+    private final PreparedConnectionSizer sizer;
 
     private final AtomicInteger currentPreparedConnectionCount;
+    private final AtomicInteger pendingPreparedConnectionCount;
     private final PreConnectFilter preConnectFilter;
     private final AtomicBoolean preConnectFlag;
     private final ConnectFutures connectFutures;
     private boolean active = false;
 
+    // statistics, written by any thread taking a connection when the pool is not thread aligned
+    private final LongAdder preparedConnectionHits = new LongAdder();
+    private final LongAdder preparedConnectionMisses = new LongAdder();
+
     /**
      * hearbeatFilter the only parameter that can be null
      */
     ConnectionPool(ServiceContext serviceContext, AbstractProxyHandler connectHandler, String connectURI, HeartbeatFilter heartbeatFilter,
             IoFutureListener<ConnectFuture> connectListener, int preparedConnectionCount, boolean isThreadAligned) {
+        this(serviceContext, connectHandler, connectURI, heartbeatFilter, connectListener, preparedConnectionCount, null,
+                isThreadAligned);
+    }
+
+    /**
+     * @param sizer  sizes the pool between its minimum and preparedConnectionCount, or null to keep
+     *               preparedConnectionCount connections prepared at all times
+     */
+    ConnectionPool(ServiceContext serviceContext, AbstractProxyHandler connectHandler, String connectURI, HeartbeatFilter heartbeatFilter,
+            IoFutureListener<ConnectFuture> connectListener, int preparedConnectionCount, PreparedConnectionSizer sizer,
+            boolean isThreadAligned) {
         this.serviceContext = serviceContext;
         this.connectHandler = connectHandler;
         this.connectURI = connectURI;
         this.heartbeatFilter = heartbeatFilter;
         this.connectListener = connectListener;
         this.preparedConnectionCount = preparedConnectionCount;
+        this.sizer = sizer;
         preConnectFlag = new AtomicBoolean(false);
         currentPreparedConnectionCount = new AtomicInteger(0);
+        pendingPreparedConnectionCount = new AtomicInteger(0);
         preConnectFilter = new PreConnectFilter(this);
         connectFutures = ConnectFutures.createConnectFutures(preparedConnectionCount, isThreadAligned);
     }
@@ -72,10 +92,15 @@ class ConnectionPool {
     }
 
     ConnectFuture getNextConnectFuture(final IoSessionInitializer<ConnectFuture> connectInitializer) {
+        if (sizer != null) {
+            sizer.connectRequested(System.nanoTime());
+        }
         ConnectFuture future = connectFutures.pollFirstEntry();
         if (future == null) {
+            preparedConnectionMisses.increment();
             future = doConnect(false, connectInitializer);
         } else {
+            preparedConnectionHits.increment();
             currentPreparedConnectionCount.decrementAndGet();
 
             // No longer a pre-connect, remove the pre-connect filter which is responsible for cleaning up zombie pre-connects
@@ -94,7 +119,37 @@ class ConnectionPool {
         return future;
     }
 
+    /**
+     * Called periodically on the pool's IO thread when the pool is sized adaptively, to follow the target size
+     * as the connect rate changes: prepares connections that are missing and closes one surplus connection.
+     */
+    void adjust() {
+        // a quiesced pool is left alone until it is started again
+        if (sizer == null || !isActive()) {
+            return;
+        }
+        fillPreConnects();
+        if (currentPreparedConnectionCount.get() > sizer.getTargetSize()) {
+            // close the oldest surplus connection, one per adjustment so a short lull does not empty the pool
+            ConnectFuture future = connectFutures.pollFirstEntry();
+            if (future != null) {
+                currentPreparedConnectionCount.decrementAndGet();
+                IoSession connectSession = future.getSession();
+                IoFilterChain filterChain = connectSession.getFilterChain();
+                if (filterChain.contains("PreConnectFilter")) {
+                    filterChain.remove("PreConnectFilter");
+                    connectSession.removeAttribute(CONNECT_FUTURE_KEY);
+                }
+                connectSession.close(false);
+            }
+        }
+    }
+
     private void fillPreConnects() {
+        if (sizer != null) {
+            fillPreConnectsAdaptively();
+            return;
+        }
         if (preConnectFlag.compareAndSet(false, true)) {
             if (currentPreparedConnectionCount.get() < preparedConnectionCount) {
                 do {
@@ -105,6 +160,19 @@ class ConnectionPool {
         }
     }
 
+    private void fillPreConnectsAdaptively() {
+        if (preConnectFlag.compareAndSet(false, true)) {
+            int targetSize = sizer.updateTargetSize(System.nanoTime());
+            while (isActive() && currentPreparedConnectionCount.get() < targetSize
+                    && pendingPreparedConnectionCount.get() < sizer.getConnectWindow()) {
+                currentPreparedConnectionCount.incrementAndGet();
+                pendingPreparedConnectionCount.incrementAndGet();
+                doConnect(true, null);
+            }
+            preConnectFlag.compareAndSet(true, false);
+        }
+    }
+
     private boolean isActive() {
         return active;
     }
@@ -139,6 +207,7 @@ class ConnectionPool {
     }
 
     private ConnectFuture doConnect(final boolean preconnected, final IoSessionInitializer<ConnectFuture> connectInitializer) {
+        final long connectStartNanos = (sizer != null) ? System.nanoTime() : 0L;
         ConnectFuture future = serviceContext.connect(connectURI, connectHandler, new IoSessionInitializer<ConnectFuture>() {
             @Override
             public void initializeSession(IoSession connectSession, ConnectFuture future) {
@@ -155,10 +224,19 @@ class ConnectionPool {
         future.addListener(new IoFutureListener<ConnectFuture>() {
             @Override
             public void operationComplete(ConnectFuture future) {
+                if (sizer != null && future.isConnected()) {
+                    sizer.connectCompleted(System.nanoTime() - connectStartNanos);
+                }
+                if (preconnected && sizer != null) {
+                    pendingPreparedConnectionCount.decrementAndGet();
+                }
                 if ( future.isConnected() ) {
                     if (preconnected) {
                         // Add the future as an attribute so if the connection goes down it can be removed from the map.
                         addConnectFuture(future);
+                        if (sizer != null) {
+                            sizer.prepareSucceeded();
+                        }
                     }
                 }
                 else {
@@ -166,14 +244,36 @@ class ConnectionPool {
                         // The connection failed, quiesce the connect manager and decrement the connection count
                         quiesce();
                         decrementConnectionCount();
+                        if (sizer != null) {
+                            sizer.prepareFailed();
+                        }
                     }
                 }
                 connectListener.operationComplete(future);
+                if (preconnected && sizer != null && future.isConnected()) {
+                    // the connect window has grown, continue preparing connections up to the target
+                    fillPreConnects();
+                }
             }
         });
         return future;
     }
 
+    long getPreparedConnectionHits() {
+        return preparedConnectionHits.sum();
+    }
+
+    long getPreparedConnectionMisses() {
+        return preparedConnectionMisses.sum();
+    }
+
+    /**
+     * @return  the number of connections the pool is trying to keep prepared
+     */
+    int getPreparedConnectionTargetCount() {
+        return sizer != null ? sizer.getTargetSize() : preparedConnectionCount;
+    }
+
     static class PreConnectFilter extends IoFilterAdapter {
         private final ConnectionPool connectManager;
 
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.proxy;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Sizes the prepared connections of a {@link ConnectionPool} for the "adaptive" connect strategy.
+ * <p>
+ * By Little's law, the connections taken from the pool while their replacements are still connecting are on
+ * average the rate at which connections are taken times the time the backend takes to accept a connection.
+ * The target adds the square root of that load as headroom for bursts, and stays within the configured bounds.
+ * The rate decays exponentially, so an idle pool shrinks back to its minimum.
+ * <p>
+ * Connects preparing the pool are ramped up like a TCP slow start: the number of connects in progress doubles
+ * with each success, starting from one, and returns to one when a connect fails.  This keeps a pool that lost
+ * its backend from reconnecting all of its connections at once.
+ */
+final class PreparedConnectionSizer {
+
+    // time over which connect arrivals are averaged
+    static final long RATE_TIME_CONSTANT_NANOS = SECONDS.toNanos(2);
+
+    // weight of each new sample in the connect time average, as for the TCP smoothed round trip time
+    private static final double CONNECT_TIME_GAIN = 0.125;
+
+    private final int minimumSize;
+    private final int maximumSize;
+
+    private double decayedArrivals;
+    private long lastArrivalNanos;
+    private double connectNanos;
+    private int connectWindow = 1;
+    private volatile int targetSize;
+
+    PreparedConnectionSizer(int minimumSize, int maximumSize) {
+        if (minimumSize > maximumSize) {
+            throw new IllegalArgumentException(String.format("Minimum prepared connections %d exceeds maximum %d",
+                    minimumSize, maximumSize));
+        }
+        this.minimumSize = minimumSize;
+        this.maximumSize = maximumSize;
+        this.targetSize = minimumSize;
+    }
+
+    synchronized void connectRequested(long nowNanos) {
+        decay(nowNanos);
+        decayedArrivals += 1.0;
+    }
+
+    synchronized void connectCompleted(long connectTimeNanos) {
+        connectNanos = (connectNanos == 0.0) ? connectTimeNanos
+                                             : connectNanos + CONNECT_TIME_GAIN * (connectTimeNanos - connectNanos);
+    }
+
+    synchronized void prepareSucceeded() {
+        connectWindow = Math.min(connectWindow * 2, maximumSize);
+    }
+
+    synchronized void prepareFailed() {
+        connectWindow = 1;
+    }
+
+    /**
+     * @return  the number of connects that may be in progress to prepare the pool
+     */
+    synchronized int getConnectWindow() {
+        return connectWindow;
+    }
+
+    synchronized int updateTargetSize(long nowNanos) {
+        decay(nowNanos);
+        double arrivalsPerNano = decayedArrivals / RATE_TIME_CONSTANT_NANOS;
+        double load = arrivalsPerNano * connectNanos;
+        long size = (long) Math.ceil(load + Math.sqrt(load));
+        targetSize = (int) Math.max(minimumSize, Math.min(maximumSize, size));
+        return targetSize;
+    }
+
+    /**
+     * @return  the target size last computed, which may be read from any thread
+     */
+    int getTargetSize() {
+        return targetSize;
+    }
+
+    private void decay(long nowNanos) {
+        long elapsedNanos = nowNanos - lastArrivalNanos;
+        if (decayedArrivals == 0.0) {
+            lastArrivalNanos = nowNanos;
+        }
+        else if (elapsedNanos > 0) {
+            decayedArrivals *= Math.exp(-(double) elapsedNanos / RATE_TIME_CONSTANT_NANOS);
+            lastArrivalNanos = nowNanos;
+        }
+    }
+}
@@ -17,17 +17,23 @@ package org.kaazing.gateway.service.proxy;
 
 public final class ProxyConnectStrategy {
 
-    static enum Strategy { PREPARED, IMMEDIATE, DEFERRED }
+    static enum Strategy { PREPARED, IMMEDIATE, DEFERRED, ADAPTIVE }
+
+    // default maximum prepared connections per IO thread for the adaptive strategy
+    static final int ADAPTIVE_CONNECTION_COUNT_PER_THREAD = 16;
 
     private final Strategy strategy;
     private final int connectionCount;
+    private final int minimumConnectionCount;
 
     private ProxyConnectStrategy(
         Strategy strategy,
-        int connectionCount)
+        int connectionCount,
+        int minimumConnectionCount)
     {
         this.strategy = strategy;
         this.connectionCount = connectionCount;
+        this.minimumConnectionCount = minimumConnectionCount;
     }
 
     public Strategy getStrategy()
@@ -40,6 +46,14 @@ public final class ProxyConnectStrategy {
         return connectionCount;
     }
 
+    /**
+     * @return  the fewest connections kept prepared by the adaptive strategy, otherwise the connection count
+     */
+    public int getMinimumConnectionCount()
+    {
+        return minimumConnectionCount;
+    }
+
     @Override
     public String toString() {
 
@@ -48,21 +62,46 @@ public final class ProxyConnectStrategy {
         switch (strategy) {
         case PREPARED:
             return String.format("%s (%d)", strategyName, connectionCount);
+        case ADAPTIVE:
+            return String.format("%s (%d-%d)", strategyName, minimumConnectionCount, connectionCount);
         default:
             return strategyName;
         }
     }
 
     public static ProxyConnectStrategy newInstance(Strategy strategy, int connectionCount, int maxConnectionCount) {
+        return newInstance(strategy, connectionCount, 0, maxConnectionCount);
+    }
+
+    public static ProxyConnectStrategy newInstance(Strategy strategy, int connectionCount, int minimumConnectionCount,
+        int maxConnectionCount) {
         switch (strategy) {
         case PREPARED:
             if (connectionCount == 0) {
                 connectionCount = maxConnectionCount;
             }
+            if (minimumConnectionCount > 0) {
+                throw new IllegalArgumentException(String.format("Minimum prepared connections only apply to connect strategy: %s",
+                        Strategy.ADAPTIVE));
+            }
+            minimumConnectionCount = connectionCount;
+            break;
+        case ADAPTIVE:
+            if (connectionCount == 0) {
+                connectionCount = maxConnectionCount * ADAPTIVE_CONNECTION_COUNT_PER_THREAD;
+            }
+            if (minimumConnectionCount == 0) {
+                minimumConnectionCount = Math.min(maxConnectionCount, connectionCount);
+            }
+            if (minimumConnectionCount > connectionCount) {
+                throw new IllegalArgumentException(String.format(
+                        "Minimum prepared connections %d must not exceed prepared connections %d", minimumConnectionCount,
+                        connectionCount));
+            }
             break;
         case IMMEDIATE:
         case DEFERRED:
-            if (connectionCount > 0) {
+            if (connectionCount > 0 || minimumConnectionCount > 0) {
                 throw new IllegalArgumentException(String.format("Must not prepare connections for connect strategy: %s", strategy));
             }
             break;
@@ -70,6 +109,6 @@ public final class ProxyConnectStrategy {
             throw new IllegalArgumentException(String.format("Unexpected value for connect strategy: %s", strategy));
         }
 
-        return new ProxyConnectStrategy(strategy, connectionCount);
+        return new ProxyConnectStrategy(strategy, connectionCount, minimumConnectionCount);
     }
 }
@@ -73,6 +73,14 @@ public class ProxyService extends AbstractProxyService<ProxyServiceHandler> {
         getHandler().startServiceConnectManager();
     }
 
+    @Override
+    public void quiesce() throws Exception {
+        // also reached from stop(), and from the connect manager when the connect URI can no longer be reached, in which
+        // case the heartbeat starts the connect manager again
+        super.quiesce();
+        getHandler().stopServiceConnectManager();
+    }
+
     // FIXME:  How should this be exposed to Management?  For now the service connect manager object is exposed through this method, but
     //         perhaps management could attach a listener that in turn gets passed to the handler and on to the connect manager...
     public ServiceConnectManager getServiceConnectManager() {
@@ -17,7 +17,9 @@ package org.kaazing.gateway.service.proxy;
 
 import static java.lang.String.format;
 
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
@@ -36,6 +38,7 @@ import org.apache.mina.core.session.IoSession;
 import org.apache.mina.core.session.IoSessionInitializer;
 import org.jboss.netty.channel.socket.Worker;
 import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.service.proxy.ProxyConnectStrategy.Strategy;
 import org.kaazing.gateway.transport.BridgeAcceptor;
 import org.kaazing.gateway.transport.BridgeServiceFactory;
 import org.kaazing.gateway.transport.Transport;
@@ -76,6 +79,9 @@ public final class ServiceConnectManager {
 
     private HeartbeatFilter heartbeatFilter;
     private int preparedConnectionCount;
+    private int minimumPreparedConnectionCount;
+    private final boolean adaptive;
+    private final AtomicReference<ScheduledFuture<?>> adjustTask = new AtomicReference<>();
 
     // some statistics provided by the ServiceConnectManager
     private AtomicLong lastSuccessfulConnectTime = new AtomicLong(0);
@@ -87,6 +93,7 @@ public final class ServiceConnectManager {
     private AtomicInteger heartbeatPingFailures = new AtomicInteger(0);
 
     private final ThreadLocal<ConnectionPool> connectionPool = new VicariousThreadLocal<>();
+    private final List<ConnectionPool> connectionPools = new CopyOnWriteArrayList<>();
 
     public ServiceConnectManager(ServiceContext service,
                                  AbstractProxyHandler connectHandler,
@@ -94,6 +101,18 @@ public final class ServiceConnectManager {
                                  String connectURI,
                                  int interval,
                                  final int preparedConnectionCount) {
+        this(service, connectHandler, bridgeServiceFactory, connectURI, interval,
+                ProxyConnectStrategy.newInstance(preparedConnectionCount > 0 ? Strategy.PREPARED : Strategy.IMMEDIATE,
+                        preparedConnectionCount, preparedConnectionCount));
+    }
+
+    public ServiceConnectManager(ServiceContext service,
+                                 AbstractProxyHandler connectHandler,
+                                 BridgeServiceFactory bridgeServiceFactory,
+                                 String connectURI,
+                                 int interval,
+                                 ProxyConnectStrategy connectStrategy) {
+        final int preparedConnectionCount = connectStrategy.getConnectionCount();
         this.serviceCtx = service;
         this.connectHandler = connectHandler;
         this.connectURI = connectURI;
@@ -117,6 +136,8 @@ public final class ServiceConnectManager {
         int workerCount = service.getProcessorCount();
         assert workerCount > 0;
         this.preparedConnectionCount = preparedConnectionCount;
+        this.adaptive = connectStrategy.getStrategy() == Strategy.ADAPTIVE;
+        this.minimumPreparedConnectionCount = Math.max(connectStrategy.getMinimumConnectionCount(), workerCount);
         if ( preparedConnectionCount > 0 && preparedConnectionCount < workerCount) {
             this.preparedConnectionCount = workerCount;
             if (logger.isWarnEnabled()) {
@@ -129,6 +150,13 @@ public final class ServiceConnectManager {
             logger.debug(String.format("%s service with thread alignment, using prepared.connection.count=%d",
                               serviceCtx.getServiceType(), preparedConnectionCount));
         }
+        if (adaptive) {
+            this.minimumPreparedConnectionCount = Math.min(this.minimumPreparedConnectionCount, this.preparedConnectionCount);
+            if (logger.isDebugEnabled()) {
+                logger.debug(String.format("%s service sizing prepared connections adaptively, using minimum.prepared.connection.count=%d",
+                                  serviceCtx.getServiceType(), minimumPreparedConnectionCount));
+            }
+        }
 
         if (interval > 0) {
             heartbeatFilter = new HeartbeatFilter(interval);
@@ -163,21 +191,58 @@ public final class ServiceConnectManager {
         assert preparedConnectionCount == 0 || preparedConnectionCount >= workers.length : "Prepared connection count must be 0, or >= number of IO threads";
         int minCountPerThread = preparedConnectionCount / workers.length;
         int remainder = preparedConnectionCount % workers.length;
+        int minMinimumPerThread = minimumPreparedConnectionCount / workers.length;
+        int minimumRemainder = minimumPreparedConnectionCount % workers.length;
         for (Worker worker : workers) {
             final int count = remainder-- > 0 ? minCountPerThread + 1 : minCountPerThread;
+            final int minimumCount = minimumRemainder-- > 0 ? minMinimumPerThread + 1 : minMinimumPerThread;
             Runnable startConnectionPoolTask = () -> {
                 ConnectionPool currentPool = connectionPool.get();
                 if (currentPool == null) {
                     // the first time the pool is started is needs to be created, subsequent times it should just be started
                     // without re-creating.
+                    PreparedConnectionSizer sizer = adaptive ? new PreparedConnectionSizer(minimumCount, count) : null;
                     currentPool = new ConnectionPool(serviceCtx, connectHandler, connectURI, heartbeatFilter,
-                            connectListener, count, true);
+                            connectListener, count, sizer, true);
                     connectionPool.set(currentPool);
+                    connectionPools.add(currentPool);
                 }
                 currentPool.start();
             };
             worker.executeInIoThread(startConnectionPoolTask);
         }
+
+        if (adaptive && schedulerProvider != null && adjustTask.get() == null) {
+            scheduleAdjustTask(workers);
+        }
+    }
+
+    // Stop adjusting the connection pools, until the connection manager is started again.
+    public void stop() {
+        ScheduledFuture<?> future = adjustTask.getAndSet(null);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    // Periodically lets each adaptive pool follow its target size on its own IO thread, so pools grow
+    // and shrink even when no connections are taken from them.
+    private void scheduleAdjustTask(final Worker[] workers) {
+        ScheduledExecutorService executor = schedulerProvider.getScheduler("ServiceConnectManager-adjust", false);
+        Runnable adjustPools = () -> {
+            for (Worker worker : workers) {
+                worker.executeInIoThread(() -> {
+                    ConnectionPool pool = connectionPool.get();
+                    if (pool != null) {
+                        pool.adjust();
+                    }
+                });
+            }
+        };
+        ScheduledFuture<?> future = executor.scheduleAtFixedRate(adjustPools, 1, 1, TimeUnit.SECONDS);
+        if (!adjustTask.compareAndSet(null, future)) {
+            future.cancel(false);
+        }
     }
 
     public ConnectFuture getNextConnectFuture(final IoSessionInitializer<ConnectFuture> connectInitializer) {
@@ -225,6 +290,11 @@ public final class ServiceConnectManager {
         return preparedConnectionCount;
     }
 
+    // for unit test use
+    int getMinimumPreparedConnectionCount() {
+        return adaptive ? minimumPreparedConnectionCount : preparedConnectionCount;
+    }
+
     /**
      * A single instance of this filter is set on every outgoing connection. It is in charge of making sure
      * we periodically establish a connection (and close it immediately) if there are no (permanent)
@@ -528,6 +598,27 @@ public final class ServiceConnectManager {
         return heartbeat.heartbeatTask.get() != null;
     }
 
+    /**
+     * @return  for each IO thread's connection pool, how many connections were taken already prepared
+     */
+    public long[] getPreparedConnectionHits() {
+        return connectionPools.stream().mapToLong(ConnectionPool::getPreparedConnectionHits).toArray();
+    }
+
+    /**
+     * @return  for each IO thread's connection pool, how many connections had to be connected on demand
+     */
+    public long[] getPreparedConnectionMisses() {
+        return connectionPools.stream().mapToLong(ConnectionPool::getPreparedConnectionMisses).toArray();
+    }
+
+    /**
+     * @return  for each IO thread's connection pool, how many connections it is trying to keep prepared
+     */
+    public int[] getPreparedConnectionTargetCounts() {
+        return connectionPools.stream().mapToInt(ConnectionPool::getPreparedConnectionTargetCount).toArray();
+    }
+
     private void updateConnectTimes(boolean connected) {
         if (connected) {
             lastSuccessfulConnectTime.set(System.currentTimeMillis());
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.proxy;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PreparedConnectionSizerTest {
+
+    @Test
+    public void targetSizeShouldStartAtMinimum() {
+        PreparedConnectionSizer sizer = new PreparedConnectionSizer(2, 16);
+        assertEquals(2, sizer.getTargetSize());
+        assertEquals(2, sizer.updateTargetSize(SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void targetSizeShouldFollowArrivalRateTimesConnectTime() {
+        PreparedConnectionSizer sizer = new PreparedConnectionSizer(1, 1000);
+        long now = SECONDS.toNanos(100);
+
+        // a steady 1000 arrivals per second for several time constants, with connects taking 10ms
+        long interval = MILLISECONDS.toNanos(1);
+        for (int i = 0; i < 10000; i++) {
+            now += interval;
+            sizer.connectRequested(now);
+        }
+        sizer.connectCompleted(MILLISECONDS.toNanos(10));
+
+        // 1000/s * 10ms = 10 connections in flight, plus sqrt(10) headroom
+        int targetSize = sizer.updateTargetSize(now);
+        assertTrue("target size " + targetSize, targetSize >= 13 && targetSize <= 15);
+    }
+
+    @Test
+    public void targetSizeShouldStayWithinBounds() {
+        PreparedConnectionSizer sizer = new PreparedConnectionSizer(3, 8);
+        long now = SECONDS.toNanos(100);
+        for (int i = 0; i < 10000; i++) {
+            now += MILLISECONDS.toNanos(1);
+            sizer.connectRequested(now);
+        }
+        sizer.connectCompleted(SECONDS.toNanos(1));
+        assertEquals(8, sizer.updateTargetSize(now));
+
+        // once arrivals stop the rate decays and the pool returns to its minimum
+        assertEquals(3, sizer.updateTargetSize(now + SECONDS.toNanos(60)));
+    }
+
+    @Test
+    public void connectTimeShouldBeSmoothed() {
+        PreparedConnectionSizer sizer = new PreparedConnectionSizer(0, 1000);
+        long now = SECONDS.toNanos(100);
+        for (int i = 0; i < 10000; i++) {
+            now += MILLISECONDS.toNanos(1);
+            sizer.connectRequested(now);
+        }
+        sizer.connectCompleted(MILLISECONDS.toNanos(10));
+        int steadySize = sizer.updateTargetSize(now);
+
+        // a single slow connect moves the average by an eighth of the difference
+        sizer.connectCompleted(MILLISECONDS.toNanos(90));
+        int slowSize = sizer.updateTargetSize(now);
+        assertTrue(String.format("steady %d, slow %d", steadySize, slowSize), slowSize > steadySize && slowSize < 2 * steadySize);
+    }
+
+    @Test
+    public void connectWindowShouldDoubleOnSuccessAndResetOnFailure() {
+        PreparedConnectionSizer sizer = new PreparedConnectionSizer(1, 10);
+        assertEquals(1, sizer.getConnectWindow());
+        sizer.prepareSucceeded();
+        assertEquals(2, sizer.getConnectWindow());
+        sizer.prepareSucceeded();
+        sizer.prepareSucceeded();
+        assertEquals(8, sizer.getConnectWindow());
+        sizer.prepareSucceeded();
+        assertEquals(10, sizer.getConnectWindow());
+        sizer.prepareFailed();
+        assertEquals(1, sizer.getConnectWindow());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minimumShouldNotExceedMaximum() {
+        new PreparedConnectionSizer(5, 4);
+    }
+}
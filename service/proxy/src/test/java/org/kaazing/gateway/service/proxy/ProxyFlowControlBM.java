@@ -0,0 +1,159 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.proxy;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.session.IoSession;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioWorkerPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.netty.socket.nio.DefaultNioSocketChannelIoSessionConfig;
+import org.kaazing.mina.netty.socket.nio.NioSocketChannelIoAcceptor;
+
+/**
+ * Measures proxying 64KiB over loopback between two TCP sessions attached by the proxy handler on the same
+ * worker, from one client socket to the other.  "future" suspends and resumes reads from a listener on each
+ * write future, "credit" from the bytes the worker has yet to flush, handing buffers over without wrapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 8, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class ProxyFlowControlBM {
+
+    private static final int TRANSFER_SIZE = 64 * 1024;
+
+    @Param({"future", "credit"})
+    public String flowControl;
+
+    @Param({"65536"})
+    public int maximumPendingBytes;
+
+    private NioSocketChannelIoAcceptor acceptor;
+    private Socket source;
+    private Socket target;
+    private OutputStream output;
+    private InputStream input;
+    private byte[] data;
+    private byte[] received;
+
+    @Setup(Level.Trial)
+    public void init() throws Exception {
+        BenchmarkProxyHandler handler = new BenchmarkProxyHandler();
+        handler.setMaximumPendingBytes(maximumPendingBytes);
+        handler.setFlowControl(flowControl);
+
+        // a single worker, so both sessions share it
+        NioServerSocketChannelFactory serverChannelFactory =
+                new NioServerSocketChannelFactory(newCachedThreadPool(), new NioWorkerPool(newCachedThreadPool(), 1));
+        acceptor = new NioSocketChannelIoAcceptor(new DefaultNioSocketChannelIoSessionConfig(), serverChannelFactory);
+        acceptor.setFilterChainBuilder(new DefaultIoFilterChainBuilder());
+        acceptor.setHandler(handler);
+
+        InetSocketAddress address = new InetSocketAddress("localhost", 8190);
+        acceptor.bind(address);
+
+        source = new Socket();
+        source.connect(address);
+        IoSession sourceSession = handler.opened.take();
+        target = new Socket();
+        target.connect(address);
+        IoSession targetSession = handler.opened.take();
+        handler.attachSessions(sourceSession, targetSession);
+
+        output = source.getOutputStream();
+        input = target.getInputStream();
+        data = new byte[TRANSFER_SIZE];
+        received = new byte[TRANSFER_SIZE];
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() throws Exception {
+        source.close();
+        target.close();
+        acceptor.dispose();
+    }
+
+    @Benchmark
+    public int transfer() throws Exception {
+        output.write(data);
+        int read = 0;
+        while (read < received.length) {
+            int count = input.read(received, read, received.length - read);
+            if (count == -1) {
+                throw new IllegalStateException("connection closed");
+            }
+            read += count;
+        }
+        return read;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ProxyFlowControlBM.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    private static final class BenchmarkProxyHandler extends AbstractProxyHandler {
+        private final BlockingQueue<IoSession> opened = new LinkedBlockingQueue<>();
+
+        @Override
+        public void sessionOpened(IoSession session) {
+            IoSessionEx sessionEx = (IoSessionEx) session;
+            session.getFilterChain().addLast("duplicate", new DuplicateBufferFilter(sessionEx.getBufferAllocator()));
+            opened.add(session);
+        }
+    }
+
+    // Or from command line:
+    //
+    // mvn clean install
+    // java -jar target/benchmarks.jar ProxyFlowControlBM
+    //
+}
@@ -199,6 +199,47 @@ public class ServiceConnectManagerTest {
         context.assertIsSatisfied();
     }
 
+    @Test
+    public void minimumPreparedConnectionCountShouldBeAutomaticallySetToAtLeastNumberOfIoThreads() throws Exception {
+        Mockery context = new Mockery() {{
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }};
+        final AbstractProxyHandler handler = context.mock(AbstractProxyHandler.class);
+        final ServiceContext service = context.mock(ServiceContext.class);
+        final Logger logger = context.mock(Logger.class);
+        final BridgeServiceFactory bridgeServiceFactory = context.mock(BridgeServiceFactory.class);
+        final TransportFactory transportFactory = context.mock(TransportFactory.class);
+        final Transport transport = context.mock(Transport.class);
+        final NioSocketAcceptor acceptor = context.mock(NioSocketAcceptor.class);
+        final String CONNECT_URI = "http://localhost:8051";
+        final int PREPARED_CONNECTION_COUNT = 20;
+        final int MINIMUM_PREPARED_CONNECTION_COUNT = 2; // LT IO_THREADS
+        final int IO_THREADS = 3;
+
+        context.checking(new Expectations() {
+            {
+                allowing(service).getLogger(); will(returnValue(logger));
+                allowing(service).getProcessorCount(); will(returnValue(IO_THREADS));
+                allowing(logger).isDebugEnabled(); will(returnValue(false));
+                allowing(service).getSchedulerProvider(); will(returnValue(null));
+                allowing(logger).isWarnEnabled(); will(returnValue(false));
+                allowing(logger).isTraceEnabled(); will(returnValue(false));
+                allowing(bridgeServiceFactory).getTransportFactory(); will(returnValue(transportFactory));
+                allowing(transportFactory).getTransport("tcp"); will(returnValue(transport));
+                allowing(transport).getAcceptor(); will(returnValue(acceptor));
+            }
+        });
+
+        ProxyConnectStrategy connectStrategy = ProxyConnectStrategy.newInstance(ProxyConnectStrategy.Strategy.ADAPTIVE,
+                PREPARED_CONNECTION_COUNT, MINIMUM_PREPARED_CONNECTION_COUNT, IO_THREADS);
+        final ServiceConnectManager manager = new ServiceConnectManager(service, handler, bridgeServiceFactory, CONNECT_URI,
+                0 /*interval*/, connectStrategy);
+        assertEquals(PREPARED_CONNECTION_COUNT, manager.getPreparedConnectionCount());
+        assertEquals(IO_THREADS, manager.getMinimumPreparedConnectionCount());
+
+        context.assertIsSatisfied();
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void getConnectFutureShouldReturnNonNullWhenCalledFromNonIOThread() throws Exception {
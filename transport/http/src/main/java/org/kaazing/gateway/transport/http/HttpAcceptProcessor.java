@@ -280,7 +280,7 @@ public class HttpAcceptProcessor extends BridgeAcceptProcessor<DefaultHttpSessio
                     // Note: this code path only occurs if we need further encoding
                     //       for downstream with Connection:close header
                     // buffer is cached on parent, continue with derived caching
-                    newHttpMessage.initCache();
+                    newHttpMessage.initCache(httpBuffer.isAutoCacheShared());
                 }
 
                 // Put the new message in the buffer, and use whichever is stored there
@@ -42,6 +42,12 @@ import static org.kaazing.gateway.transport.http.bridge.filter.HttpNextProtocolH
 import static org.kaazing.gateway.transport.http.bridge.filter.HttpProtocolFilter.PROTOCOL_HTTP_1_1;
 import static org.kaazing.gateway.transport.http.resource.HttpDynamicResourceFactory.newHttpDynamicResourceFactory;
 import static org.kaazing.gateway.util.InternalSystemProperty.HTTPXE_SPECIFICATION;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_LOGIN_CACHE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_LOGIN_CACHE_TTL;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_LOGIN_QUEUE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_LOGIN_QUEUE_TIMEOUT;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_LOGIN_THREADS;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_LOGIN_VIRTUAL_THREADS;
 
 import java.io.IOException;
 import java.net.SocketAddress;
@@ -52,6 +58,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 import javax.security.auth.Subject;
@@ -72,6 +79,7 @@ import org.kaazing.gateway.resource.address.ResourceOptions;
 import org.kaazing.gateway.resource.address.uri.URIUtils;
 import org.kaazing.gateway.security.auth.context.ResultAwareLoginContext;
 import org.kaazing.gateway.server.spi.security.ExpiringState;
+import org.kaazing.gateway.service.cluster.ClusterContext;
 import org.kaazing.gateway.transport.AbstractBridgeAcceptor;
 import org.kaazing.gateway.transport.Bindings;
 import org.kaazing.gateway.transport.BridgeAcceptor;
@@ -90,6 +98,8 @@ import org.kaazing.gateway.transport.http.bridge.HttpRequestMessage;
 import org.kaazing.gateway.transport.http.bridge.HttpResponseMessage;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpBuffer;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpBufferAllocator;
+import org.kaazing.gateway.transport.http.bridge.filter.HttpLoginCache;
+import org.kaazing.gateway.transport.http.bridge.filter.HttpLoginExecutor;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpNextAddressFilter;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpProtocolDecoderException;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpSerializeRequestsFilter;
@@ -128,6 +138,10 @@ public class HttpAcceptor extends AbstractBridgeAcceptor<DefaultHttpSession, Htt
 
 	private ExpiringState expiringState;
 
+    private final HttpLoginCache loginCache;
+
+    private volatile HttpLoginExecutor loginExecutor;
+
     private Properties configuration;
 
     private boolean httpxeSpecCompliant;
@@ -142,10 +156,23 @@ public class HttpAcceptor extends AbstractBridgeAcceptor<DefaultHttpSession, Htt
         this.expiringState = expiringState;
     }
 
+    @Resource(name = "clusterContext")
+    public void setClusterContext(ClusterContext clusterContext) {
+        loginCache.setClusterContext(clusterContext);
+    }
+
     @Resource(name = "configuration")
     public void setConfiguration(Properties configuration) {
         this.configuration = configuration;
         httpxeSpecCompliant = HTTPXE_SPECIFICATION.getBooleanProperty(configuration);
+        loginCache.setMaximumSize(HTTP_LOGIN_CACHE_SIZE.getIntProperty(configuration));
+        loginCache.setTimeToLive(HTTP_LOGIN_CACHE_TTL.getIntProperty(configuration), TimeUnit.SECONDS);
+
+        HttpLoginExecutor oldLoginExecutor = loginExecutor;
+        loginExecutor = newLoginExecutor(configuration);
+        if (oldLoginExecutor != null) {
+            oldLoginExecutor.shutdown();
+        }
     }
 
     public HttpAcceptor() {
@@ -179,6 +206,31 @@ public class HttpAcceptor extends AbstractBridgeAcceptor<DefaultHttpSession, Htt
 
         this.acceptFiltersByProtocol = unmodifiableMap(acceptFiltersByProtocol);
         this.allAcceptFilters = allOf(HttpAcceptFilter.class);
+
+        Properties defaults = new Properties();
+        this.loginCache = new HttpLoginCache(HTTP_LOGIN_CACHE_SIZE.getIntProperty(defaults),
+                HTTP_LOGIN_CACHE_TTL.getIntProperty(defaults), TimeUnit.SECONDS);
+        this.loginExecutor = newLoginExecutor(defaults);
+    }
+
+    private static HttpLoginExecutor newLoginExecutor(Properties configuration) {
+        int threads = HTTP_LOGIN_THREADS.getIntProperty(configuration);
+        if (threads == 0) {
+            return null;
+        }
+        return new HttpLoginExecutor(threads, HTTP_LOGIN_QUEUE_SIZE.getIntProperty(configuration),
+                HTTP_LOGIN_QUEUE_TIMEOUT.getIntProperty(configuration), TimeUnit.SECONDS,
+                HTTP_LOGIN_VIRTUAL_THREADS.getBooleanProperty(configuration));
+    }
+
+    @Override
+    protected IoFuture dispose0() throws Exception {
+        loginCache.dispose();
+        HttpLoginExecutor loginExecutor = this.loginExecutor;
+        if (loginExecutor != null) {
+            loginExecutor.shutdown();
+        }
+        return super.dispose0();
     }
 
     @Override
@@ -577,6 +629,8 @@ public class HttpAcceptor extends AbstractBridgeAcceptor<DefaultHttpSession, Htt
                 // One instance of HttpSubjectSecurityFilter per session
                 HttpSubjectSecurityFilter filter = new HttpSubjectSecurityFilter(LoggerFactory.getLogger(SECURITY_LOGGER_NAME), expiringState);
                 filter.setSchedulerProvider(schedulerProvider);
+                filter.setLoginCache(loginCache);
+                filter.setLoginExecutor(loginExecutor);
                 chain.addLast(acceptFilter.filterName(), filter);
                 break;
             default:
@@ -87,6 +87,7 @@ import org.kaazing.gateway.transport.http.bridge.HttpResponseMessage;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpBuffer;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpBufferAllocator;
 import org.kaazing.gateway.transport.http.security.auth.WWWAuthChallenge;
+import org.kaazing.gateway.util.scheduler.SchedulerProvider;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.core.service.IoProcessorEx;
@@ -97,6 +98,7 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
     private static final TypedAttributeKey<HttpConnectSessionFactory> HTTP_SESSION_FACTORY_KEY = new TypedAttributeKey<>(HttpConnector.class, "httpSessionFactory");
     public static final TypedAttributeKey<DefaultHttpSession> HTTP_SESSION_KEY = new TypedAttributeKey<>(HttpConnector.class, "httpSession");
     private static final TypedAttributeKey<ConnectFuture> HTTP_CONNECT_FUTURE_KEY = new TypedAttributeKey<>(HttpConnector.class, "httpConnectFuture");
+    private static final TypedAttributeKey<HttpResourceAddress> WARM_UP_ADDRESS_KEY = new TypedAttributeKey<>(HttpConnector.class, "warmUpAddress");
     private Properties configuration;
     private boolean appendQueryWhenFollowingRedirect = true;
     
@@ -115,13 +117,43 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
         connectFiltersByProtocol.put(PROTOCOL_HTTPXE_1_1, complementOf(of(CONTENT_LENGTH_ADJUSTMENT)));
         this.connectFiltersByProtocol = unmodifiableMap(connectFiltersByProtocol);
         this.allConnectFilters = allOf(HttpConnectFilter.class);
-        this.persistentConnectionsStore = new PersistentConnectionPool(logger);
+        this.persistentConnectionsStore = new PersistentConnectionPool(logger, this::connectAheadOfDemand);
+    }
+
+    public static int getPoolIdleConnections() {
+        return PersistentConnectionPool.getIdleConnections();
+    }
+
+    public static int getPoolActiveConnections() {
+        return PersistentConnectionPool.getActiveConnections();
+    }
+
+    public static int getPoolWaiters() {
+        return PersistentConnectionPool.getWaiters();
+    }
+
+    public static long getPoolAcquireCount() {
+        return PersistentConnectionPool.getAcquireCount();
+    }
+
+    public static long getPoolAcquireTimeNanos() {
+        return PersistentConnectionPool.getAcquireTimeNanos();
+    }
+
+    public static long getPoolAcquireTimeoutCount() {
+        return PersistentConnectionPool.getAcquireTimeoutCount();
     }
 
     @Resource(name = "configuration")
     public void setConfiguration(Properties configuration) {
         this.configuration = configuration;
         appendQueryWhenFollowingRedirect = "true".equalsIgnoreCase(CONNECT_FOLLOW_REDIRECT_WITH_QUERY.getProperty(configuration));
+        persistentConnectionsStore.setConfiguration(configuration);
+    }
+
+    @Resource(name = "schedulerProvider")
+    public void setSchedulerProvider(SchedulerProvider provider) {
+        persistentConnectionsStore.setScheduler(provider.getScheduler("http_connect_pool", false));
     }
 
     @Resource(name = "bridgeServiceFactory")
@@ -139,6 +171,12 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
         return new HttpConnectProcessor(persistentConnectionsStore, logger);
     }
 
+    @Override
+    protected IoFuture dispose0() throws Exception {
+        persistentConnectionsStore.dispose();
+        return super.dispose0();
+    }
+
     @Override
     public TransportMetadata getTransportMetadata() {
         return new DefaultTransportMetadata(HttpProtocol.NAME);
@@ -176,15 +214,26 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
         return connectFuture;
     }
 
-    private <T extends ConnectFuture> void connectInternal0(ConnectFuture connectFuture,
-            final ResourceAddress address, HttpConnectSessionFactory httpSessionFactory) {
+    private <T extends ConnectFuture> void connectInternal0(final ConnectFuture connectFuture,
+            final ResourceAddress address, final HttpConnectSessionFactory httpSessionFactory) {
 
-        IoSession transportSession = persistentConnectionsStore.take((HttpResourceAddress) address);
-        if (transportSession != null) {
-            connectUsingExistingTransport(connectFuture, transportSession, httpSessionFactory);
-        } else {
-            connectUsingNewTransport(connectFuture, address, httpSessionFactory);
-        }
+        persistentConnectionsStore.acquire((HttpResourceAddress) address, new PersistentConnectionPool.AcquireHandler() {
+
+            @Override
+            public void pooled(IoSession transportSession) {
+                connectUsingExistingTransport(connectFuture, transportSession, httpSessionFactory);
+            }
+
+            @Override
+            public void leased(PersistentConnectionPool.Lease lease) {
+                connectUsingNewTransport(connectFuture, address, httpSessionFactory, lease);
+            }
+
+            @Override
+            public void failed(Throwable cause) {
+                connectFuture.setException(cause);
+            }
+        });
 
     }
 
@@ -202,12 +251,14 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
     }
 
     private <T extends ConnectFuture> void connectUsingNewTransport(final ConnectFuture connectFuture,
-               ResourceAddress address, HttpConnectSessionFactory httpSessionFactory) {
+               ResourceAddress address, HttpConnectSessionFactory httpSessionFactory,
+               PersistentConnectionPool.Lease lease) {
 
         // propagate connection failure, if necessary
         IoFutureListener<ConnectFuture> parentConnectListener = future -> {
             // fail bridge connect future if parent connect fails
             if (!future.isConnected()) {
+                lease.release();
                 connectFuture.setException(future.getException());
             }
         };
@@ -215,11 +266,28 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
         ResourceAddress transportAddress = address.getTransport();
         BridgeConnector connector = bridgeServiceFactory.newBridgeConnector(transportAddress);
         IoSessionInitializer<ConnectFuture> parentInitializer = createParentInitializer(address,
-                connectFuture, httpSessionFactory);
+                connectFuture, httpSessionFactory, lease);
         connector.connect(transportAddress, bridgeHandler, parentInitializer).addListener(parentConnectListener);
 
     }
 
+    // opens a transport connection to be cached by the pool, keeping its minimum number of idle connections
+    private void connectAheadOfDemand(HttpResourceAddress address, PersistentConnectionPool.Lease lease) {
+        IoFutureListener<ConnectFuture> parentConnectListener = future -> {
+            if (!future.isConnected()) {
+                lease.release();
+            }
+        };
+
+        ResourceAddress transportAddress = address.getTransport();
+        BridgeConnector connector = bridgeServiceFactory.newBridgeConnector(transportAddress);
+        IoSessionInitializer<ConnectFuture> parentInitializer = (parent, future) -> {
+            WARM_UP_ADDRESS_KEY.set(parent, address);
+            lease.attach(parent);
+        };
+        connector.connect(transportAddress, bridgeHandler, parentInitializer).addListener(parentConnectListener);
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     public void addBridgeFilters(IoFilterChain chain) {
@@ -270,11 +338,13 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
     }
 
     private <T extends ConnectFuture> IoSessionInitializer<ConnectFuture> createParentInitializer(final ResourceAddress connectAddress,
-            final ConnectFuture httpConnectFuture, HttpConnectSessionFactory httpSessionFactory) {
+            final ConnectFuture httpConnectFuture, HttpConnectSessionFactory httpSessionFactory,
+            PersistentConnectionPool.Lease lease) {
         // initialize parent session before connection attempt
         return (parent, future) -> {
             HTTP_SESSION_FACTORY_KEY.set(parent, httpSessionFactory);
             HTTP_CONNECT_FUTURE_KEY.set(parent, httpConnectFuture);
+            lease.attach(parent);
         };
     }
 
@@ -294,6 +364,15 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
         @Override
         protected void doSessionOpened(IoSessionEx session) throws Exception {
 
+            HttpResourceAddress warmUpAddress = WARM_UP_ADDRESS_KEY.remove(session);
+            if (warmUpAddress != null) {
+                // opened ahead of demand, cache it until a connect takes it
+                if (!persistentConnectionsStore.offer(warmUpAddress, session)) {
+                    session.close(false);
+                }
+                return;
+            }
+
             IoFilterChain filterChain = session.getFilterChain();
             addBridgeFilters(filterChain);
 
@@ -47,6 +47,10 @@ public interface HttpHeaders {
     String HEADER_IF_MATCH = "If-Match";
     String HEADER_WARNING = "Warning";
     String HEADER_ALLOW = "Allow";
+    String HEADER_RANGE = "Range";
+    String HEADER_IF_RANGE = "If-Range";
+    String HEADER_ACCEPT_RANGES = "Accept-Ranges";
+    String HEADER_CONTENT_RANGE = "Content-Range";
 
     String HEADER_UPGRADE = "Upgrade";
     String HEADER_VIA= "Via";
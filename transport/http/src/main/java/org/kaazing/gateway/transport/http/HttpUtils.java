@@ -30,7 +30,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -213,30 +215,39 @@ public class HttpUtils {
 
 	// TODO: should be able to remove this once we can send File down the pipe
     public static IoBufferEx getBufferForFile(IoBufferAllocatorEx<?> allocator, File requestFile) throws IOException {
-        FileInputStream in = new FileInputStream(requestFile);
-        IoBufferEx out = allocator.wrap(allocator.allocate(in.available())).setAutoExpander(allocator);
-        try {
-            int pos = out.position();
-            byte[] buf = new byte[1024 * 8];
-            int length;
-            while ((length = in.read(buf)) > 0) {
-                out.put(buf, 0, length);
+        try (FileChannel channel = FileChannel.open(requestFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to read into memory: " + requestFile);
             }
-            out.position(pos);
-        } finally {
-            in.close();
-        }
 
-        return out;
+            // read directly into the buffer, avoiding an intermediate copy
+            ByteBuffer buf = allocator.allocate((int) size);
+            int pos = buf.position();
+            while (buf.hasRemaining() && channel.read(buf) != -1) {
+                // keep reading until the buffer is full or the file was truncated
+            }
+            buf.flip();
+            buf.position(pos);
+            return allocator.wrap(buf);
+        }
     }
 
     public static boolean hasBeenModified(HttpSession session, String etag, File requestFile) {
+        return hasBeenModified(session, etag, requestFile.lastModified());
+    }
+
+    public static boolean hasBeenModified(HttpSession session, String etag, long lastModified) {
         String ifNoneMatch = session.getReadHeader("If-None-Match");
         String ifModifiedSince = session.getReadHeader("If-Modified-Since");
-        return hasBeenModified(requestFile, etag, ifNoneMatch, ifModifiedSince);
+        return hasBeenModified(lastModified, etag, ifNoneMatch, ifModifiedSince);
     }
 
     private static boolean hasBeenModified(File requestFile, String eTag, String ifNoneMatch, String ifModifiedSince) {
+        return hasBeenModified(requestFile.lastModified(), eTag, ifNoneMatch, ifModifiedSince);
+    }
+
+    private static boolean hasBeenModified(long lastModified, String eTag, String ifNoneMatch, String ifModifiedSince) {
         // "*" indicates skip ETag check, just use if-modified-since semantics, if present
         if (ifNoneMatch != null && !"*".equals(ifNoneMatch)) {
             // if ETag match is found, then not modified
@@ -256,7 +267,6 @@ public class HttpUtils {
             return true;
         }
 
-        long lastModified = requestFile.lastModified();
         Date ifModifiedSinceDate = null;
 
         // parse date format
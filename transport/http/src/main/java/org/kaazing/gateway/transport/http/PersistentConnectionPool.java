@@ -15,6 +15,15 @@
  */
 package org.kaazing.gateway.transport.http;
 
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_ACQUIRE_TIMEOUT;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_BORROW;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_LIFO;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_MAX_CONNECTIONS;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_MIN_IDLE;
+
 import org.apache.mina.core.filterchain.IoFilterChain;
 import org.apache.mina.core.future.CloseFuture;
 import org.apache.mina.core.future.IoFutureListener;
@@ -23,25 +32,68 @@ import org.apache.mina.core.session.IoSession;
 import org.kaazing.gateway.resource.address.http.HttpResourceAddress;
 import org.kaazing.gateway.transport.TypedAttributeKey;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpFilterAdapter;
+import org.kaazing.mina.core.session.AbstractIoSessionEx;
 import org.kaazing.mina.core.session.IoSessionEx;
 import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 import org.slf4j.Logger;
 
-import java.util.Arrays;
+import java.net.ConnectException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /*
  * A pool for reusable persistent transport connections. HttpConnector
- * may pick one of the transport connections instead of creating a new
- * one while connecting to the origin server.
+ * acquires a transport connection to the origin server from this pool,
+ * which either hands out one of its idle transport connections or leases
+ * the right to open a new one.
+ *
+ * Idle connections are kept per IO thread so that a connect is normally
+ * served by a thread-aligned transport session without contention. The
+ * number of transport connections per origin (connecting, active and idle)
+ * is bounded by HTTP_CONNECT_POOL_MAX_CONNECTIONS; connects beyond that
+ * limit wait in a per-origin queue for HTTP_CONNECT_POOL_ACQUIRE_TIMEOUT
+ * seconds until a connection is recycled or closed. With
+ * HTTP_CONNECT_POOL_BORROW a waiting connect may also be served by an idle
+ * connection of another IO thread, in which case it completes on the IO
+ * thread owning that connection.
+ *
+ * Acquire timeouts and the periodic reaping of drained origins run on the
+ * gateway scheduler. An origin without open connections or waiting connects
+ * is retired and removed, so the pool does not grow with every server ever
+ * connected to.
  */
 class PersistentConnectionPool {
 
     private static final String IDLE_FILTER = HttpProtocol.NAME + "#idle";
     private static final TypedAttributeKey<HttpResourceAddress> SERVER_ADDRESS =
             new TypedAttributeKey<>(PersistentConnectionPool.class, "address");
+    private static final TypedAttributeKey<Lease> LEASE =
+            new TypedAttributeKey<>(PersistentConnectionPool.class, "lease");
+
+    // gauges summed over all origins, exposed through management
+    private static final AtomicInteger IDLE_CONNECTIONS = new AtomicInteger();
+    private static final AtomicInteger OPEN_CONNECTIONS = new AtomicInteger();
+    private static final AtomicInteger WAITERS = new AtomicInteger();
+    private static final AtomicLong ACQUIRE_COUNT = new AtomicLong();
+    private static final AtomicLong ACQUIRE_TIME_NANOS = new AtomicLong();
+    private static final AtomicLong ACQUIRE_TIMEOUT_COUNT = new AtomicLong();
+
+    private static final long REAP_INTERVAL_MILLIS = SECONDS.toMillis(30);
 
     // server address -> set of persistent connections (per thread).
     // Using ThreadLocal for the following reasons:
@@ -49,36 +101,232 @@ class PersistentConnectionPool {
     // - it reduces contention compared to synchronized ServerConnections
     private final ThreadLocal<ServerConnections> connections;
 
+    // server address -> connection limit and waiting connects (shared by all threads)
+    private final ConcurrentMap<HttpResourceAddress, Origin> origins;
+
     private final Logger logger;
+    private final WarmUpConnector warmUpConnector;
     private final HttpConnectIdleFilter idleFilter;
     private final CloseListener closeListener;
 
-    PersistentConnectionPool(Logger logger) {
+    private int maxConnections;
+    private long acquireTimeoutMillis;
+    private boolean borrow;
+    private int minIdle;
+    private boolean lifo;
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> reaper;
+
+    PersistentConnectionPool(Logger logger, WarmUpConnector warmUpConnector) {
         this.connections = new VicariousThreadLocal<ServerConnections>() {
             @Override
             protected  ServerConnections initialValue() {
                 return new ServerConnections();
             }
         };
+        this.origins = new ConcurrentHashMap<>();
         this.logger = logger;
-        this.idleFilter = new HttpConnectIdleFilter(logger);
+        this.warmUpConnector = warmUpConnector;
+        this.idleFilter = new HttpConnectIdleFilter();
         this.closeListener = new CloseListener(this);
+        setConfiguration(new Properties());
+    }
+
+    void setConfiguration(Properties configuration) {
+        this.maxConnections = HTTP_CONNECT_POOL_MAX_CONNECTIONS.getIntProperty(configuration);
+        this.acquireTimeoutMillis = SECONDS.toMillis(HTTP_CONNECT_POOL_ACQUIRE_TIMEOUT.getIntProperty(configuration));
+        this.borrow = HTTP_CONNECT_POOL_BORROW.getBooleanProperty(configuration);
+        this.minIdle = HTTP_CONNECT_POOL_MIN_IDLE.getIntProperty(configuration);
+        this.lifo = HTTP_CONNECT_POOL_LIFO.getBooleanProperty(configuration);
+    }
+
+    synchronized void setScheduler(ScheduledExecutorService scheduler) {
+        if (reaper != null) {
+            reaper.cancel(false);
+        }
+        this.scheduler = scheduler;
+        this.reaper = scheduler.scheduleWithFixedDelay(this::reap, REAP_INTERVAL_MILLIS, REAP_INTERVAL_MILLIS,
+                MILLISECONDS);
+    }
+
+    synchronized void dispose() {
+        // the scheduler is shared, only stop using it
+        if (reaper != null) {
+            reaper.cancel(false);
+            reaper = null;
+        }
+    }
+
+    /*
+     * Acquires a transport connection to the server. The handler is either
+     * given an idle transport session, on the IO thread owning it, or a lease
+     * to open a new transport connection, on the calling IO thread. Connects
+     * beyond the connection limit of the server wait for a connection to be
+     * recycled or closed, and fail when the acquire timeout expires.
+     */
+    void acquire(HttpResourceAddress serverAddress, AcquireHandler handler) {
+        Origin origin = origin(serverAddress);
+        Acquire acquire = new Acquire(origin, handler, AbstractIoSessionEx.CURRENT_WORKER.get());
+        acquire(acquire);
     }
 
     /*
      * Cache existing transport session so that it can be used for future
      * connect requests to server
      *
-     * @return true if the idle connection is cached for reuse
+     * @return true if the idle connection is cached or handed to a waiting connect
      *         false otherwise
      */
     boolean recycle(DefaultHttpSession httpSession) {
-        if (!add(httpSession)) {
-            return false;
-        }
-
         HttpResourceAddress serverAddress = (HttpResourceAddress)httpSession.getRemoteAddress();
         IoSession transportSession = httpSession.getParent();
+        return recycle(serverAddress, transportSession);
+    }
+
+    /*
+     * Caches a transport connection opened ahead of demand to keep the
+     * minimum number of idle connections to the server
+     *
+     * @return true if the connection is cached or handed to a waiting connect
+     *         false otherwise
+     */
+    boolean offer(HttpResourceAddress serverAddress, IoSession transportSession) {
+        Lease lease = LEASE.get(transportSession);
+        if (lease != null) {
+            lease.warmedUp();
+        }
+        return recycle(serverAddress, transportSession);
+    }
+
+    static int getIdleConnections() {
+        return IDLE_CONNECTIONS.get();
+    }
+
+    static int getActiveConnections() {
+        return OPEN_CONNECTIONS.get() - IDLE_CONNECTIONS.get();
+    }
+
+    static int getWaiters() {
+        return WAITERS.get();
+    }
+
+    static long getAcquireCount() {
+        return ACQUIRE_COUNT.get();
+    }
+
+    static long getAcquireTimeNanos() {
+        return ACQUIRE_TIME_NANOS.get();
+    }
+
+    static long getAcquireTimeoutCount() {
+        return ACQUIRE_TIMEOUT_COUNT.get();
+    }
+
+    /*
+     * Removes the origins of servers without open connections or waiting connects
+     */
+    void reap() {
+        for (Origin origin : origins.values()) {
+            if (origin.retire()) {
+                origins.remove(origin.serverAddress, origin);
+                if (logger.isDebugEnabled()) {
+                    logger.debug(format("Removed drained persistent connection origin: server = %s",
+                            origin.serverAddress.getResource()));
+                }
+                // connects that raced with retiring move to the new origin of the server
+                origin.migrateWaiters();
+            }
+        }
+    }
+
+    int getOrigins() {
+        return origins.size();
+    }
+
+    private Origin origin(HttpResourceAddress serverAddress) {
+        for (;;) {
+            Origin origin = origins.get(serverAddress);
+            if (origin == null) {
+                Origin newOrigin = new Origin(serverAddress);
+                origin = origins.putIfAbsent(serverAddress, newOrigin);
+                if (origin == null) {
+                    return newOrigin;
+                }
+            }
+            if (!origin.isRetired()) {
+                return origin;
+            }
+            origins.remove(serverAddress, origin);
+        }
+    }
+
+    private void acquire(Acquire acquire) {
+        Origin origin = acquire.origin;
+
+        IoSession transportSession = take(origin);
+        if (transportSession != null) {
+            acquire.pooled(transportSession);
+            warmUp(origin);
+            return;
+        }
+
+        Lease lease = origin.tryLease();
+        if (lease != null) {
+            acquire.leased(lease);
+            warmUp(origin);
+            return;
+        }
+
+        if (origin.isRetired()) {
+            // retired after this connect looked it up
+            acquire.origin = origin(origin.serverAddress);
+            acquire(acquire);
+            return;
+        }
+
+        ScheduledExecutorService scheduler = this.scheduler;
+        if (acquireTimeoutMillis == 0 || scheduler == null) {
+            acquire.failed(new ConnectException(format("Connection limit of %d reached for server %s",
+                    maxConnections, origin.serverAddress.getResource())));
+            return;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(format("Waiting for persistent connection: server = %s limit = %d",
+                    origin.serverAddress.getResource(), maxConnections));
+        }
+        origin.enqueue(acquire);
+        acquire.timeout = scheduler.schedule(acquire, acquireTimeoutMillis, MILLISECONDS);
+
+        // close, recycle or retiring may have raced with enqueue
+        if (origin.isRetired()) {
+            origin.migrateWaiters();
+            return;
+        }
+        origin.dispatchLeases();
+        if (borrow) {
+            origin.dispatchIdle();
+        }
+    }
+
+    private boolean recycle(HttpResourceAddress serverAddress, IoSession transportSession) {
+        Origin origin = origin(serverAddress);
+
+        // hand the connection straight to a waiting connect, if any
+        Acquire waiting = origin.claimWaiter(borrow ? null : Thread.currentThread());
+        if (waiting != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(format("Handing persistent connection to waiting connect: server = %s session = %s",
+                        serverAddress.getResource(), transportSession));
+            }
+            waiting.pooled(transportSession);
+            return true;
+        }
+
+        if (!add(origin, transportSession)) {
+            return false;
+        }
 
         SERVER_ADDRESS.set(transportSession, serverAddress);
 
@@ -97,15 +345,19 @@ class PersistentConnectionPool {
     }
 
     /*
-     * Returns an existing transport session for the resource address that can be reused
+     * Returns an existing transport session of this thread for the server that can be reused,
+     * skipping connections that were closed while idle
      *
      * @return a reusable IoSession for the address
      *         otherwise null
      */
-    IoSession take(HttpResourceAddress serverAddress) {
-        IoSession transportSession = removeThreadAligned(serverAddress);
-        if (transportSession != null) {
-            // Got a cached persistent connection
+    private IoSession take(Origin origin) {
+        IoSession transportSession;
+        do {
+            transportSession = removeThreadAligned(origin);
+            if (transportSession == null) {
+                return null;
+            }
 
             // Remove session idle tracking for this session
             transportSession.getConfig().setBothIdleTime(0);
@@ -119,18 +371,41 @@ class PersistentConnectionPool {
             closeFuture.removeListener(closeListener);
 
             SERVER_ADDRESS.remove(transportSession);
-        }
+        } while (!isValid(transportSession));
 
         return transportSession;
     }
 
-    private boolean add(DefaultHttpSession httpSession) {
-        HttpResourceAddress serverAddress = (HttpResourceAddress)httpSession.getRemoteAddress();
-        IoSession transportSession = httpSession.getParent();
+    private boolean isValid(IoSession transportSession) {
+        if (transportSession.isConnected() && !transportSession.isClosing()) {
+            return true;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(format("Discarding closed persistent connection: session = %s", transportSession));
+        }
+        return false;
+    }
+
+    private void warmUp(Origin origin) {
+        while (origin.idle.get() + origin.warmingUp.get() < minIdle) {
+            Lease lease = origin.tryLease();
+            if (lease == null) {
+                break;
+            }
+            lease.warmingUp();
+            if (logger.isDebugEnabled()) {
+                logger.debug(format("Opening persistent connection ahead of demand: server = %s idle = %d",
+                        origin.serverAddress.getResource(), origin.idle.get()));
+            }
+            warmUpConnector.connect(origin.serverAddress, lease);
+        }
+    }
 
+    private boolean add(Origin origin, IoSession transportSession) {
+        HttpResourceAddress serverAddress = origin.serverAddress;
 
         ServerConnections serverConnections = connections.get();
-        boolean cached = serverConnections.add(serverAddress, transportSession);
+        boolean cached = serverConnections.add(origin, transportSession);
         if (cached) {
             if (logger.isDebugEnabled()) {
                 int cachedConnections = serverConnections.cachedConnections(serverAddress);
@@ -150,7 +425,7 @@ class PersistentConnectionPool {
 
     private void remove(HttpResourceAddress serverAddress, IoSession session) {
         ServerConnections serverConnections = connections.get();
-        boolean removed = serverConnections.remove(serverAddress, session);
+        boolean removed = serverConnections.remove(origin(serverAddress), session);
         if (removed) {
             if (logger.isDebugEnabled()) {
                 int cachedConnections = serverConnections.cachedConnections(serverAddress);
@@ -160,9 +435,10 @@ class PersistentConnectionPool {
         }
     }
 
-    private IoSession removeThreadAligned(HttpResourceAddress serverAddress) {
+    private IoSession removeThreadAligned(Origin origin) {
+        HttpResourceAddress serverAddress = origin.serverAddress;
         ServerConnections serverConnections = connections.get();
-        IoSession session = serverConnections.removeAny(serverAddress);
+        IoSession session = serverConnections.removeAny(origin, lifo);
         if (session != null) {
             // Connection was in the pool
             if (logger.isDebugEnabled()) {
@@ -179,6 +455,302 @@ class PersistentConnectionPool {
         return session;
     }
 
+    /*
+     * Receives the outcome of an acquire
+     */
+    interface AcquireHandler {
+
+        // Called on the IO thread owning the idle transport session
+        void pooled(IoSession transportSession);
+
+        // Called on the IO thread that requested the connection, the lease must be attached to
+        // the new transport session or released if the connection attempt fails
+        void leased(Lease lease);
+
+        void failed(Throwable cause);
+    }
+
+    /*
+     * Opens a transport connection ahead of demand, the lease must be attached to the new
+     * transport session or released if the connection attempt fails
+     */
+    interface WarmUpConnector {
+
+        void connect(HttpResourceAddress serverAddress, Lease lease);
+    }
+
+    /*
+     * Counts a transport connection against the connection limit of its server
+     * until the transport session is closed
+     */
+    static final class Lease implements IoFutureListener<CloseFuture> {
+        private final Origin origin;
+        private final AtomicBoolean released;
+        private final AtomicBoolean warmingUp;
+
+        private Lease(Origin origin) {
+            this.origin = origin;
+            this.released = new AtomicBoolean();
+            this.warmingUp = new AtomicBoolean();
+        }
+
+        void attach(IoSession transportSession) {
+            LEASE.set(transportSession, this);
+            transportSession.getCloseFuture().addListener(this);
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                warmedUp();
+                origin.release();
+            }
+        }
+
+        @Override
+        public void operationComplete(CloseFuture future) {
+            release();
+        }
+
+        private void warmingUp() {
+            warmingUp.set(true);
+            origin.warmingUp.incrementAndGet();
+        }
+
+        private void warmedUp() {
+            if (warmingUp.compareAndSet(true, false)) {
+                origin.warmingUp.decrementAndGet();
+            }
+        }
+    }
+
+    /*
+     * Connection limit, idle connection holders and waiting connects of a server
+     */
+    private final class Origin {
+        // open count of a retired origin, which no longer hands out leases
+        private static final int RETIRED = -1;
+
+        private final HttpResourceAddress serverAddress;
+        private final AtomicInteger open;
+        private final AtomicInteger idle;
+        private final AtomicInteger warmingUp;
+        private final Queue<Acquire> waiters;
+        private final Set<ServerConnections> holders;
+
+        private Origin(HttpResourceAddress serverAddress) {
+            this.serverAddress = serverAddress;
+            this.open = new AtomicInteger();
+            this.idle = new AtomicInteger();
+            this.warmingUp = new AtomicInteger();
+            this.waiters = new ConcurrentLinkedQueue<>();
+            this.holders = ConcurrentHashMap.newKeySet();
+        }
+
+        private Lease tryLease() {
+            for (;;) {
+                int count = open.get();
+                if (count == RETIRED || maxConnections > 0 && count >= maxConnections) {
+                    return null;
+                }
+                if (open.compareAndSet(count, count + 1)) {
+                    OPEN_CONNECTIONS.incrementAndGet();
+                    return new Lease(this);
+                }
+            }
+        }
+
+        private void release() {
+            open.decrementAndGet();
+            OPEN_CONNECTIONS.decrementAndGet();
+            dispatchLeases();
+        }
+
+        private boolean isRetired() {
+            return open.get() == RETIRED;
+        }
+
+        /*
+         * Retires the origin if it has no open connections, idle connections or waiting connects
+         */
+        private boolean retire() {
+            // every idle or warming up connection holds a lease, so open covers them once they are closed
+            return idle.get() == 0 && warmingUp.get() == 0 && waiters.isEmpty() && holders.isEmpty() &&
+                    open.compareAndSet(0, RETIRED);
+        }
+
+        /*
+         * Moves the connects waiting on a retired origin to the current origin of the server
+         */
+        private void migrateWaiters() {
+            Acquire waiting;
+            while ((waiting = claimWaiter(null)) != null) {
+                waiting.state.set(Acquire.NEW);
+                waiting.origin = origin(serverAddress);
+                acquire(waiting);
+            }
+        }
+
+        private void enqueue(Acquire acquire) {
+            acquire.state.set(Acquire.QUEUED);
+            WAITERS.incrementAndGet();
+            waiters.offer(acquire);
+        }
+
+        /*
+         * Hands leases freed by closed connections to waiting connects
+         */
+        private void dispatchLeases() {
+            while (!waiters.isEmpty()) {
+                Lease lease = tryLease();
+                if (lease == null) {
+                    return;
+                }
+                Acquire waiting = claimWaiter(null);
+                if (waiting == null) {
+                    // releasing the lease dispatches again for connects queued meanwhile
+                    lease.release();
+                    return;
+                }
+                waiting.leased(lease);
+            }
+        }
+
+        /*
+         * Asks the IO threads holding idle connections to hand them to waiting connects
+         */
+        private void dispatchIdle() {
+            for (final ServerConnections holder : holders) {
+                holder.ioExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serveWaiters();
+                    }
+                });
+            }
+        }
+
+        // runs on an IO thread holding idle connections to this server
+        private void serveWaiters() {
+            while (!waiters.isEmpty() && connections.get().cachedConnections(serverAddress) > 0) {
+                Acquire waiting = claimWaiter(null);
+                if (waiting == null) {
+                    return;
+                }
+                IoSession transportSession = take(this);
+                if (transportSession == null) {
+                    // all idle connections had been closed, start over as a new connect
+                    waiting.state.set(Acquire.NEW);
+                    acquire(waiting);
+                    return;
+                }
+                waiting.pooled(transportSession);
+            }
+        }
+
+        /*
+         * Claims the first waiting connect issued by the given thread, or by any thread if null
+         */
+        private Acquire claimWaiter(Thread thread) {
+            if (waiters.isEmpty()) {
+                return null;
+            }
+            for (Iterator<Acquire> i = waiters.iterator(); i.hasNext();) {
+                Acquire acquire = i.next();
+                if ((thread == null || acquire.thread == thread) && acquire.claim()) {
+                    i.remove();
+                    return acquire;
+                }
+            }
+            return null;
+        }
+    }
+
+    /*
+     * A connect acquiring a transport connection, which runs as the acquire timeout while queued
+     */
+    private final class Acquire implements Runnable {
+        private static final int NEW = 0;
+        private static final int QUEUED = 1;
+        private static final int DONE = 2;
+
+        private volatile Origin origin;
+        private final AcquireHandler handler;
+        private final Executor executor;
+        private final Thread thread;
+        private final long startTime;
+        private final AtomicInteger state;
+        private volatile ScheduledFuture<?> timeout;
+
+        private Acquire(Origin origin, AcquireHandler handler, Executor executor) {
+            this.origin = origin;
+            this.handler = handler;
+            this.executor = executor;
+            this.thread = Thread.currentThread();
+            this.startTime = System.nanoTime();
+            this.state = new AtomicInteger(NEW);
+        }
+
+        private boolean claim() {
+            if (state.compareAndSet(QUEUED, DONE)) {
+                WAITERS.decrementAndGet();
+                ScheduledFuture<?> timeout = this.timeout;
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+                return true;
+            }
+            return state.compareAndSet(NEW, DONE);
+        }
+
+        private void pooled(IoSession transportSession) {
+            acquired();
+            handler.pooled(transportSession);
+        }
+
+        private void leased(final Lease lease) {
+            acquired();
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    handler.leased(lease);
+                }
+            });
+        }
+
+        private void failed(final Throwable cause) {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    handler.failed(cause);
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            if (claim()) {
+                Origin origin = this.origin;
+                origin.waiters.remove(this);
+                ACQUIRE_TIMEOUT_COUNT.incrementAndGet();
+                failed(new ConnectException(format("Timed out waiting for a connection to server %s",
+                        origin.serverAddress.getResource())));
+            }
+        }
+
+        private void acquired() {
+            ACQUIRE_COUNT.incrementAndGet();
+            ACQUIRE_TIME_NANOS.addAndGet(System.nanoTime() - startTime);
+        }
+
+        private void execute(Runnable task) {
+            if (executor == null || thread == Thread.currentThread()) {
+                task.run();
+            } else {
+                executor.execute(task);
+            }
+        }
+    }
+
     /*
      * If a session is closed, it will be removed from this pool using this
      * CloseFuture listener
@@ -202,15 +774,16 @@ class PersistentConnectionPool {
     /*
      * Filter to detect if a persistent connection is idle
      */
-    private static class HttpConnectIdleFilter extends HttpFilterAdapter<IoSessionEx> {
-        private final Logger logger;
-
-        HttpConnectIdleFilter(Logger logger) {
-            this.logger = logger;
-        }
+    private final class HttpConnectIdleFilter extends HttpFilterAdapter<IoSessionEx> {
 
         @Override
         public void sessionIdle(NextFilter nextFilter, IoSession session, IdleStatus status) throws Exception {
+            HttpResourceAddress serverAddress = SERVER_ADDRESS.get(session);
+            if (serverAddress != null && origin(serverAddress).idle.get() <= minIdle) {
+                // keep the minimum number of idle connections open
+                return;
+            }
+
             if (logger.isDebugEnabled()) {
                 logger.debug(String.format("Idle cached persistent connection: session=%s", session));
             }
@@ -226,9 +799,11 @@ class PersistentConnectionPool {
      * and the caller will take care of thread safety.
      */
     private static class ServerConnections {
-        // IoSession[] limits the number of connections as per config
-        // null means empty spot, non null means already cached connection
-        private final Map<HttpResourceAddress, IoSession[]> addressToConnections;
+        // idle connections per server, bounded by the keep-alive connections option
+        private final Map<HttpResourceAddress, Deque<IoSession>> addressToConnections;
+
+        // executor of the IO thread owning this instance, known once it caches a connection
+        private Executor ioExecutor;
 
         private ServerConnections() {
             this.addressToConnections = new HashMap<>();
@@ -239,22 +814,21 @@ class PersistentConnectionPool {
          * @return true if it is cached
          *         false otherwise
          */
-        private boolean add(HttpResourceAddress serverAddress, IoSession session) {
+        private boolean add(Origin origin, IoSession session) {
+            HttpResourceAddress serverAddress = origin.serverAddress;
             int maxConnections = serverAddress.getOption(HttpResourceAddress.KEEP_ALIVE_CONNECTIONS);
-            IoSession[] connections = addressToConnections.get(serverAddress);
+            Deque<IoSession> connections = addressToConnections.get(serverAddress);
             if (connections == null) {
-                connections = new IoSession[maxConnections];
+                connections = new ArrayDeque<>(maxConnections);
                 addressToConnections.put(serverAddress, connections);
             }
 
-            assert maxConnections == connections.length;
-            for(int i=0; i < connections.length; i++) {
-                if (connections[i] == null) {
-                    connections[i] = session;
-                    return true;
-                }
+            if (connections.size() >= maxConnections) {
+                return false;
             }
-            return false;
+            connections.addLast(session);
+            cached(origin, connections, session);
+            return true;
         }
 
         /*
@@ -262,35 +836,32 @@ class PersistentConnectionPool {
          * @return true if the session is removed from the pool
          *         false otherwise
          */
-        private boolean remove(HttpResourceAddress serverAddress, IoSession session) {
-            IoSession[] connections = addressToConnections.get(serverAddress);
-            if (connections != null) {
-                for(int i=0; i < connections.length; i++) {
-                    if (connections[i] == session) {
-                        connections[i] = null;
-                        return true;
-                    }
+        private boolean remove(Origin origin, IoSession session) {
+            Deque<IoSession> connections = addressToConnections.get(origin.serverAddress);
+            if (connections != null && connections.remove(session)) {
+                uncached(origin, connections);
+                if (connections.isEmpty()) {
+                    // the last idle connection to the server was closed
+                    addressToConnections.remove(origin.serverAddress);
                 }
+                return true;
             }
             return false;
         }
 
         /*
-         * Returns a cached persistent connection for the server
+         * Returns a cached persistent connection for the server, the most recently
+         * cached one when lifo is true and the least recently cached one otherwise
          *
          * @return any IoSession for the server if available
          *         null otherwise
          */
-        private IoSession removeAny(HttpResourceAddress serverAddress) {
-            IoSession[] connections = addressToConnections.get(serverAddress);
-            if (connections != null) {
-                for(int i=0; i < connections.length; i++) {
-                    if (connections[i] != null) {
-                        IoSession session = connections[i];
-                        connections[i] = null;
-                        return session;
-                    }
-                }
+        private IoSession removeAny(Origin origin, boolean lifo) {
+            Deque<IoSession> connections = addressToConnections.get(origin.serverAddress);
+            if (connections != null && !connections.isEmpty()) {
+                IoSession session = lifo ? connections.pollLast() : connections.pollFirst();
+                uncached(origin, connections);
+                return session;
             }
             return null;
         }
@@ -302,12 +873,27 @@ class PersistentConnectionPool {
          *         0 if there no caching for the server
          */
         private int cachedConnections(HttpResourceAddress serverAddress) {
-            IoSession[] connections = addressToConnections.get(serverAddress);
-            if (connections != null) {
-                return (int) Arrays.stream(connections).filter(Objects::nonNull).count();
+            Deque<IoSession> connections = addressToConnections.get(serverAddress);
+            return connections != null ? connections.size() : 0;
+        }
+
+        private void cached(Origin origin, Deque<IoSession> connections, IoSession session) {
+            if (ioExecutor == null && session instanceof IoSessionEx) {
+                ioExecutor = ((IoSessionEx) session).getIoExecutor();
             }
+            origin.idle.incrementAndGet();
+            IDLE_CONNECTIONS.incrementAndGet();
+            if (connections.size() == 1 && ioExecutor != null) {
+                origin.holders.add(this);
+            }
+        }
 
-            return 0;
+        private void uncached(Origin origin, Deque<IoSession> connections) {
+            origin.idle.decrementAndGet();
+            IDLE_CONNECTIONS.decrementAndGet();
+            if (connections.isEmpty()) {
+                origin.holders.remove(this);
+            }
         }
     }
 
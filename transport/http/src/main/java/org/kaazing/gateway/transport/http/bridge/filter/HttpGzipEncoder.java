@@ -15,27 +15,88 @@
  */
 package org.kaazing.gateway.transport.http.bridge.filter;
 
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_GZIP_COMPRESSION_LEVEL;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_GZIP_MINIMUM_SIZE;
+
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
 
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 
 public class HttpGzipEncoder implements HttpContentWriter {
-	
+
+    public static final int GZIP_PREFIX_SIZE = 5;
+
+    // largest payload that fits in a single stored block
+    private static final int STORED_BLOCK_MAXIMUM_SIZE = 0xFFFF;
+
+    // scratch buffers larger than this are not retained by the IO thread between messages
+    private static final int MAXIMUM_RETAINED_SCRATCH_SIZE = 64 * 1024;
+
+    private static final AtomicLong COMPRESSED_MESSAGES = new AtomicLong();
+    private static final AtomicLong COMPRESSION_INPUT_BYTES = new AtomicLong();
+    private static final AtomicLong COMPRESSION_OUTPUT_BYTES = new AtomicLong();
+    private static final AtomicLong COMPRESSION_TIME_NANOS = new AtomicLong();
+
+    private final int compressionLevel;
+    private final int minimumSize;
+
+    // Deflater and scratch arrays are reused by each IO thread, so the hot path does not allocate
+    private final ThreadLocal<DeflaterState> deflaterState;
+
+    public HttpGzipEncoder() {
+        this(HTTP_GZIP_COMPRESSION_LEVEL.getIntProperty(System.getProperties()),
+             HTTP_GZIP_MINIMUM_SIZE.getIntProperty(System.getProperties()));
+    }
+
+    public HttpGzipEncoder(int compressionLevel, int minimumSize) {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid gzip compression level: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        this.minimumSize = minimumSize;
+        this.deflaterState = new VicariousThreadLocal<DeflaterState>() {
+            @Override
+            protected DeflaterState initialValue() {
+                return new DeflaterState(HttpGzipEncoder.this.compressionLevel);
+            }
+        };
+    }
+
     @Override
     public IoBufferEx write(IoBufferEx source, IoBufferAllocatorEx<?> allocator) {
         return writeGzipped(source, allocator);
     }
-    
-    public static final int GZIP_PREFIX_SIZE = 5;
+
+    public static long getCompressedMessageCount() {
+        return COMPRESSED_MESSAGES.get();
+    }
+
+    public static long getCompressionInputBytes() {
+        return COMPRESSION_INPUT_BYTES.get();
+    }
+
+    public static long getCompressionOutputBytes() {
+        return COMPRESSION_OUTPUT_BYTES.get();
+    }
+
+    public static long getCompressionTimeNanos() {
+        return COMPRESSION_TIME_NANOS.get();
+    }
 
     /*
-     * Gzipped Transfer-Encoding (trivial passthrough)
+     * Gzipped Transfer-Encoding
+     *
+     * Each message is deflated independently and terminated by a sync flush, so the output is byte aligned,
+     * can be appended to any gzip stream already on the wire, and can be cached and shared by every session
+     * receiving the same message (see CachingMessageEncoder). Small messages are sent as stored blocks.
      */
-	private static IoBufferEx writeGzipped(IoBufferEx sourceIoBuf, IoBufferAllocatorEx<?> allocator) {
+    private IoBufferEx writeGzipped(IoBufferEx sourceIoBuf, IoBufferAllocatorEx<?> allocator) {
         ByteBuffer source = sourceIoBuf.buf();
-        int position = source.position();
         int remaining = source.remaining();
         if (remaining == 0) {
         	return sourceIoBuf;
@@ -47,8 +108,45 @@ public class HttpGzipEncoder implements HttpContentWriter {
         if (source.hasArray() && source.array() == WSEB_4K_PADDING_BYTES) {
             return allocator.wrap(ByteBuffer.wrap(GZIPPED_WSEB_4K_PADDING_BYTES));
         }
-        
-        // We don't implement Gzip - instead simply prepend gzip preamble
+
+        if (remaining < minimumSize && remaining <= STORED_BLOCK_MAXIMUM_SIZE) {
+            return writeStored(sourceIoBuf, allocator);
+        }
+
+        long startTime = System.nanoTime();
+        DeflaterState state = deflaterState.get();
+        int compressedLength = state.deflate(source);
+        long compressionTime = System.nanoTime() - startTime;
+
+        COMPRESSED_MESSAGES.incrementAndGet();
+        COMPRESSION_INPUT_BYTES.addAndGet(remaining);
+        COMPRESSION_TIME_NANOS.addAndGet(compressionTime);
+
+        if (compressedLength >= GZIP_PREFIX_SIZE + remaining && remaining <= STORED_BLOCK_MAXIMUM_SIZE) {
+            // incompressible payload, a stored block is smaller
+            state.release();
+            COMPRESSION_OUTPUT_BYTES.addAndGet(GZIP_PREFIX_SIZE + remaining);
+            return writeStored(sourceIoBuf, allocator);
+        }
+
+        COMPRESSION_OUTPUT_BYTES.addAndGet(compressedLength);
+
+        ByteBuffer newSource = allocator.allocate(compressedLength);
+        int offset = newSource.position();
+        newSource.put(state.output, 0, compressedLength);
+        newSource.flip();
+        newSource.position(offset);
+        state.release();
+
+        return allocator.wrap(newSource, sourceIoBuf.flags());
+    }
+
+    private static IoBufferEx writeStored(IoBufferEx sourceIoBuf, IoBufferAllocatorEx<?> allocator) {
+        ByteBuffer source = sourceIoBuf.buf();
+        int position = source.position();
+        int remaining = source.remaining();
+
+        // Prepend a stored block header
         if (position >= GZIP_PREFIX_SIZE) {
             // Note: duplicate first to support parallel encoding (atomic race condition)
             ByteBuffer newSource = source.duplicate();
@@ -107,7 +205,60 @@ public class HttpGzipEncoder implements HttpContentWriter {
             return allocator.wrap(newSource, sourceIoBuf.flags());
         }
     }
-	
+
+    private static final class DeflaterState {
+        private static final int INITIAL_SCRATCH_SIZE = 4096;
+
+        private final Deflater deflater;
+        private byte[] input;
+        private byte[] output;
+
+        DeflaterState(int compressionLevel) {
+            // raw deflate, gzip header is written once by HttpResponseEncoder
+            this.deflater = new Deflater(compressionLevel, true);
+            this.input = new byte[INITIAL_SCRATCH_SIZE];
+            this.output = new byte[INITIAL_SCRATCH_SIZE];
+        }
+
+        // deflates the remaining bytes of source (without moving its position) into output, returns compressed length
+        int deflate(ByteBuffer source) {
+            int remaining = source.remaining();
+            if (source.hasArray()) {
+                deflater.setInput(source.array(), source.arrayOffset() + source.position(), remaining);
+            }
+            else {
+                if (input.length < remaining) {
+                    input = new byte[remaining];
+                }
+                // (KG-8125) duplicate to ensure we don't affect other threads sharing the buffer
+                source.duplicate().get(input, 0, remaining);
+                deflater.setInput(input, 0, remaining);
+            }
+
+            int length = 0;
+            while (true) {
+                length += deflater.deflate(output, length, output.length - length, Deflater.SYNC_FLUSH);
+                if (length < output.length) {
+                    break;
+                }
+                // output full, more compressed data may be pending
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            deflater.reset();
+            return length;
+        }
+
+        // drop oversized scratch buffers after an unusually large message
+        void release() {
+            if (input.length > MAXIMUM_RETAINED_SCRATCH_SIZE) {
+                input = new byte[INITIAL_SCRATCH_SIZE];
+            }
+            if (output.length > MAXIMUM_RETAINED_SCRATCH_SIZE) {
+                output = new byte[INITIAL_SCRATCH_SIZE];
+            }
+        }
+    }
+
     /*
      * GZip Content-Encoding
      */
@@ -20,7 +20,7 @@ import static org.kaazing.gateway.transport.http.HttpStatus.CLIENT_BAD_REQUEST;
 
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -81,6 +81,23 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
 
     }
 
+    private static final List<String> WELL_KNOWN_HEADERS = Arrays.asList(
+            "Accept", "Accept-Charset", "Accept-Encoding", "Accept-Language", "Accept-Ranges", "Allow",
+            "Authorization", "Cache-Control", "Connection", "Content-Encoding", "Content-Language", "Content-Length",
+            "Content-Range", "Content-Type", "Cookie", "Date", "DNT", "ETag", "Expect", "Expires", "Forwarded",
+            "Host", "If-Match", "If-Modified-Since", "If-None-Match", "If-Range", "If-Unmodified-Since",
+            "Last-Modified", "Location", "Max-Forwards", "Origin", "Pragma", "Proxy-Authenticate",
+            "Proxy-Authorization", "Range", "Referer", "Sec-WebSocket-Accept", "Sec-WebSocket-Extensions",
+            "Sec-WebSocket-Key", "Sec-WebSocket-Protocol", "Sec-WebSocket-Version", "Server", "Set-Cookie", "TE",
+            "Trailer", "Transfer-Encoding", "Upgrade", "Upgrade-Insecure-Requests", "User-Agent", "Vary", "Via",
+            "Warning", "WWW-Authenticate", "X-Accept-Commands", "X-Create-Encoding", "X-Forwarded-For",
+            "X-Forwarded-Host", "X-Forwarded-Proto", "X-Forwarded-Server", "X-Next-Protocol", "X-Origin",
+            "X-Requested-With", "X-Sequence-No", "X-WebSocket-Extensions", "X-WebSocket-Protocol",
+            "X-WebSocket-Version");
+
+    private static final HttpHeaderNameTable HEADER_NAMES =
+            new HttpHeaderNameTable(WELL_KNOWN_HEADERS, COMMA_SEPARATED_HEADERS);
+
     private static final String HEADER_WEBSOCKET_KEY_PREFIX = "Sec-WebSocket-Key";
 
     private static final Charset US_ASCII = Charset.forName("US-ASCII");
@@ -92,6 +109,7 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
     // use list to preserve header value ordering
     private Map<String, List<String>> headers;
     private String lastHeaderName;
+    private boolean lastHeaderCommaSeparated;
 
     private final DecodingState FIND_EMPTY_LINE = new CrLfDecodingState() {
         @Override
@@ -115,10 +133,19 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
             if (buffer == null || !buffer.hasRemaining()) {
                 throw new ProtocolDecoderException("Invalid header name in the request");
             }
+            // well-known names are matched on their bytes, yielding the interned name without decoding
+            HttpHeaderNameTable.Entry headerName = HEADER_NAMES.lookup(buffer);
+            if (headerName != null) {
+                lastHeaderName = headerName.name;
+                lastHeaderCommaSeparated = headerName.commaSeparated;
+                return AFTER_READ_HEADER_NAME;
+            }
+
             lastHeaderName = buffer.getString(asciiDecoder);
             if (!lastHeaderName.trim().equals(lastHeaderName)) {
                 throw new HttpProtocolDecoderException(CLIENT_BAD_REQUEST);
             }
+            lastHeaderCommaSeparated = COMMA_SEPARATED_HEADERS.contains(lastHeaderName);
             return AFTER_READ_HEADER_NAME;
         }
     };
@@ -134,14 +161,39 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
         @Override
         protected DecodingState finishDecode(IoBuffer buffer,
                                              ProtocolDecoderOutput out) throws Exception {
-            String value = buffer.getString(utf8Decoder);
-            List<String> values = headers.get(lastHeaderName);
+            HttpHeaderValueList values = (HttpHeaderValueList) headers.get(lastHeaderName);
             if (values == null) {
-                values = new ArrayList<>();
+                values = new HttpHeaderValueList();
                 headers.put(lastHeaderName, values);
             }
 
-            if (COMMA_SEPARATED_HEADERS.contains(lastHeaderName)) {
+            // US-ASCII values (up to any NUL, like getString) are kept as bytes until they are read
+            int start = buffer.position();
+            int end = start;
+            int limit = buffer.limit();
+            boolean ascii = true;
+            for (; end < limit; end++) {
+                byte b = buffer.get(end);
+                if (b == 0) {
+                    break;
+                }
+                if (b < 0) {
+                    ascii = false;
+                    break;
+                }
+            }
+            if (ascii) {
+                if (lastHeaderCommaSeparated) {
+                    addCommaSeparated(values, buffer, start, end);
+                } else {
+                    values.addEncoded(copyBytes(buffer, start, end));
+                }
+                buffer.position(limit);
+                return AFTER_READ_HEADER_VALUE;
+            }
+
+            String value = buffer.getString(utf8Decoder);
+            if (lastHeaderCommaSeparated) {
                 // multiple values for the same header has comma separator
                 String[] separatedValues = value.split(",");
                 for (String separatedValue : separatedValues) {
@@ -180,6 +232,55 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
     protected void destroy() throws Exception {
     }
 
+    // adds the same elements as value.split(",") with each element trimmed
+    private static void addCommaSeparated(HttpHeaderValueList values, IoBuffer buffer, int start, int end) {
+        if (indexOf(buffer, start, end, (byte) ',') == -1) {
+            values.addEncoded(copyTrimmed(buffer, start, end));
+            return;
+        }
+
+        // split drops trailing empty elements
+        while (end > start && buffer.get(end - 1) == ',') {
+            end--;
+        }
+        while (start < end) {
+            int comma = indexOf(buffer, start, end, (byte) ',');
+            int elementEnd = comma == -1 ? end : comma;
+            values.addEncoded(copyTrimmed(buffer, start, elementEnd));
+            if (comma == -1) {
+                break;
+            }
+            start = comma + 1;
+        }
+    }
+
+    private static int indexOf(IoBuffer buffer, int start, int end, byte b) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] copyTrimmed(IoBuffer buffer, int start, int end) {
+        // trims like String.trim()
+        while (start < end && (buffer.get(start) & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer.get(end - 1) & 0xff) <= ' ') {
+            end--;
+        }
+        return copyBytes(buffer, start, end);
+    }
+
+    private static byte[] copyBytes(IoBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.position(start);
+        buffer.get(bytes);
+        return bytes;
+    }
+
     private void initHeaders() {
         headers = new TreeMap<>(HttpHeaderNameComparator.INSTANCE);
     }
@@ -0,0 +1,135 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.mina.core.buffer.IoBuffer;
+
+/**
+ * Maps the bytes of well-known header names to canonical, interned name instances without decoding them.  Each
+ * name is registered as given and in lower case.  The table is a perfect hash: the multiplier is searched for
+ * when the table is built so that no two names share a slot, and a lookup hashes the bytes once and compares
+ * them with the single candidate.
+ */
+final class HttpHeaderNameTable {
+
+    private static final int INITIAL_MULTIPLIER = 0x9e3779b1;
+
+    private final Entry[] entries;
+    private final int multiplier;
+    private final int shift;
+
+    HttpHeaderNameTable(Collection<String> names, Set<String> commaSeparatedNames) {
+        Set<String> spellings = new LinkedHashSet<>();
+        for (String name : names) {
+            spellings.add(name.intern());
+            spellings.add(name.toLowerCase(Locale.ROOT).intern());
+        }
+
+        int bits = 32 - Integer.numberOfLeadingZeros(spellings.size() * 4 - 1);
+        Entry[] entries = new Entry[1 << bits];
+        int multiplier = INITIAL_MULTIPLIER;
+        // odd multipliers only, so that the multiplication is a bijection on the hash
+        while (!fill(entries, spellings, commaSeparatedNames, multiplier, 32 - bits)) {
+            multiplier += 2;
+            if (multiplier == INITIAL_MULTIPLIER + 2 * 4096) {
+                bits++;
+                entries = new Entry[1 << bits];
+                multiplier = INITIAL_MULTIPLIER;
+            }
+        }
+
+        this.entries = entries;
+        this.multiplier = multiplier;
+        this.shift = 32 - bits;
+    }
+
+    /**
+     * Returns the entry for the header name between the position and the limit of the buffer, or {@code null} if
+     * it is not a well-known name.  The buffer position is not changed.
+     */
+    Entry lookup(IoBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int hash = limit - position;
+        for (int i = position; i < limit; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+
+        Entry entry = entries[(hash * multiplier) >>> shift];
+        if (entry == null || entry.hash != hash) {
+            return null;
+        }
+
+        byte[] bytes = entry.bytes;
+        if (bytes.length != limit - position) {
+            return null;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != buffer.get(position + i)) {
+                return null;
+            }
+        }
+        return entry;
+    }
+
+    private static boolean fill(Entry[] entries, Set<String> spellings, Set<String> commaSeparatedNames,
+                                int multiplier, int shift) {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        for (String name : spellings) {
+            byte[] bytes = name.getBytes(US_ASCII);
+            int hash = hash(bytes);
+            int slot = (hash * multiplier) >>> shift;
+            if (entries[slot] != null) {
+                return false;
+            }
+            entries[slot] = new Entry(name, bytes, hash, commaSeparatedNames.contains(name));
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes) {
+        int hash = bytes.length;
+        for (byte b : bytes) {
+            hash = 31 * hash + b;
+        }
+        return hash;
+    }
+
+    static final class Entry {
+
+        final String name;
+        final boolean commaSeparated;
+
+        private final byte[] bytes;
+        private final int hash;
+
+        Entry(String name, byte[] bytes, int hash, boolean commaSeparated) {
+            this.name = name;
+            this.bytes = bytes;
+            this.hash = hash;
+            this.commaSeparated = commaSeparated;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The values of a decoded header.  US-ASCII values are kept as the bytes received and only turned into a
+ * {@link String} when they are first read, as most headers of a request are never looked at.  Otherwise this is a
+ * plain modifiable list.
+ */
+final class HttpHeaderValueList extends AbstractList<String> implements RandomAccess {
+
+    // each element is either a String or the byte[] of a US-ASCII value that has not been read yet
+    private Object[] elements;
+    private int size;
+
+    HttpHeaderValueList() {
+        elements = new Object[2];
+    }
+
+    /**
+     * Adds a US-ASCII value without decoding it.
+     */
+    void addEncoded(byte[] value) {
+        ensureCapacity(size + 1);
+        elements[size++] = value;
+        modCount++;
+    }
+
+    @Override
+    public String get(int index) {
+        checkIndex(index);
+        Object element = elements[index];
+        if (element instanceof byte[]) {
+            String value = new String((byte[]) element, ISO_8859_1);
+            elements[index] = value;
+            return value;
+        }
+        return (String) element;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String set(int index, String value) {
+        String oldValue = get(index);
+        elements[index] = value;
+        return oldValue;
+    }
+
+    @Override
+    public void add(int index, String value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public String remove(int index) {
+        String oldValue = get(index);
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+        modCount++;
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, elements.length * 2));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
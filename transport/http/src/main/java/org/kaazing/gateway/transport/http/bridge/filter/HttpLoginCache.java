@@ -0,0 +1,365 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+import java.net.InetAddress;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.security.auth.Subject;
+
+import org.kaazing.gateway.security.auth.DefaultLoginResult;
+import org.kaazing.gateway.server.spi.security.AuthenticationToken;
+import org.kaazing.gateway.server.spi.security.LoginResult;
+import org.kaazing.gateway.service.cluster.ClusterContext;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+
+/**
+ * Per-realm cache of successful logins, keyed on the authentication scheme, a digest of the token components and
+ * the remote address of the client, so that clients reconnecting with the same token do not run the login module
+ * chain every time.  The remote address is the one login modules see through the
+ * {@link org.kaazing.gateway.server.spi.security.InetAddressCallback}, so a login that depends on it is not reused
+ * from another address.  Only the digest of the token is kept, not the credentials themselves.
+ * <p>
+ * Only logins whose {@link LoginResult} is a plain success are cached; challenges and failures always go through
+ * the login modules.  A cached login expires after the configured time to live, or earlier when its login result
+ * specifies a shorter session timeout.  The entry holds a copy of the subject, so logging out of the original
+ * login context does not affect sessions established from the cache.
+ * <p>
+ * When a {@link ClusterContext} is available, {@link #invalidate(String)} is published on a cluster topic so that
+ * every cluster member drops the cached logins of the realm.
+ */
+public final class HttpLoginCache {
+
+    private static final String INVALIDATION_TOPIC_NAME = "HttpLoginCacheInvalidation";
+    private static final String KEY_DIGEST_ALGORITHM = "SHA-256";
+
+    private static final ConcurrentMap<String, RealmStatistics> STATISTICS = new ConcurrentHashMap<>();
+    private static final Set<HttpLoginCache> CACHES = new CopyOnWriteArraySet<>();
+
+    private final ConcurrentMap<String, RealmCache> realmCaches = new ConcurrentHashMap<>();
+
+    private volatile int maximumSize;
+    private volatile long timeToLiveMillis;
+
+    private ITopic<String> invalidationTopic;
+    private String invalidationListenerId;
+
+    public HttpLoginCache(int maximumSize, long timeToLive, TimeUnit unit) {
+        setMaximumSize(maximumSize);
+        setTimeToLive(timeToLive, unit);
+        CACHES.add(this);
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        realmCaches.clear();
+    }
+
+    public void setTimeToLive(long timeToLive, TimeUnit unit) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("timeToLive: " + timeToLive);
+        }
+        this.timeToLiveMillis = unit.toMillis(timeToLive);
+        realmCaches.clear();
+    }
+
+    public boolean isEnabled() {
+        return maximumSize > 0 && timeToLiveMillis > 0;
+    }
+
+    /**
+     * Subscribes to cluster-wide invalidations, replacing any previous subscription.
+     */
+    public synchronized void setClusterContext(ClusterContext clusterContext) {
+        unsubscribe();
+        if (clusterContext != null) {
+            ITopic<String> topic = clusterContext.getTopic(INVALIDATION_TOPIC_NAME);
+            invalidationListenerId = topic.addMessageListener(new MessageListener<String>() {
+                @Override
+                public void onMessage(Message<String> message) {
+                    invalidateLocal(message.getMessageObject());
+                }
+            });
+            invalidationTopic = topic;
+        }
+    }
+
+    public synchronized void dispose() {
+        unsubscribe();
+        realmCaches.clear();
+        CACHES.remove(this);
+    }
+
+    /**
+     * Returns the cached login for the token presented from the remote address in the given realm, or
+     * <code>null</code> if there is no unexpired cached login.
+     */
+    public Entry get(String realmName, InetAddress remoteAddress, AuthenticationToken authToken) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        RealmCache realmCache = realmCaches.get(realmName);
+        Entry entry = null;
+        if (realmCache != null) {
+            String key = newKey(remoteAddress, authToken);
+            synchronized (realmCache) {
+                entry = realmCache.get(key);
+                if (entry != null && entry.expirationTime - System.currentTimeMillis() <= 0) {
+                    realmCache.remove(key);
+                    entry = null;
+                }
+            }
+        }
+
+        RealmStatistics statistics = getOrCreateStatistics(realmName);
+        if (entry != null) {
+            statistics.hits.incrementAndGet();
+        }
+        else {
+            statistics.misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Caches a successful login for the token presented from the remote address in the given realm.  Login results
+     * other than {@link LoginResult.Type#SUCCESS} are never cached.
+     */
+    public void put(String realmName, InetAddress remoteAddress, AuthenticationToken authToken, Subject subject,
+                    DefaultLoginResult loginResult) {
+        if (!isEnabled() || subject == null || loginResult == null || loginResult.getType() != LoginResult.Type.SUCCESS) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long timeToLive = timeToLiveMillis;
+        Long sessionExpirationTime = null;
+        Long sessionTimeout = loginResult.getSessionTimeout();
+        if (sessionTimeout != null) {
+            long sessionTimeoutMillis = TimeUnit.SECONDS.toMillis(sessionTimeout);
+            timeToLive = Math.min(timeToLive, sessionTimeoutMillis);
+            sessionExpirationTime = now + sessionTimeoutMillis;
+        }
+
+        Entry entry = new Entry(subject, loginResult.getLoginAuthorizationAttachment(), sessionExpirationTime,
+                now + timeToLive);
+
+        RealmCache realmCache = realmCaches.get(realmName);
+        if (realmCache == null) {
+            RealmCache newRealmCache = new RealmCache(maximumSize);
+            realmCache = realmCaches.putIfAbsent(realmName, newRealmCache);
+            if (realmCache == null) {
+                realmCache = newRealmCache;
+            }
+        }
+
+        String key = newKey(remoteAddress, authToken);
+        synchronized (realmCache) {
+            realmCache.put(key, entry);
+        }
+    }
+
+    public int size(String realmName) {
+        RealmCache realmCache = realmCaches.get(realmName);
+        if (realmCache == null) {
+            return 0;
+        }
+        synchronized (realmCache) {
+            return realmCache.size();
+        }
+    }
+
+    /**
+     * Drops the cached logins of the realm from every login cache, on every cluster member when clustered.
+     */
+    public static void invalidate(String realmName) {
+        for (HttpLoginCache cache : CACHES) {
+            cache.invalidateRealm(realmName);
+        }
+    }
+
+    public static long getHitCount(String realmName) {
+        RealmStatistics statistics = STATISTICS.get(realmName);
+        return statistics != null ? statistics.hits.get() : 0L;
+    }
+
+    public static long getMissCount(String realmName) {
+        RealmStatistics statistics = STATISTICS.get(realmName);
+        return statistics != null ? statistics.misses.get() : 0L;
+    }
+
+    private void invalidateRealm(String realmName) {
+        ITopic<String> topic;
+        synchronized (this) {
+            topic = invalidationTopic;
+        }
+
+        if (topic != null) {
+            // delivered to the local listener as well
+            topic.publish(realmName);
+        }
+        else {
+            invalidateLocal(realmName);
+        }
+    }
+
+    private void invalidateLocal(String realmName) {
+        realmCaches.remove(realmName);
+    }
+
+    private void unsubscribe() {
+        if (invalidationTopic != null) {
+            invalidationTopic.removeMessageListener(invalidationListenerId);
+            invalidationTopic = null;
+            invalidationListenerId = null;
+        }
+    }
+
+    private static RealmStatistics getOrCreateStatistics(String realmName) {
+        RealmStatistics statistics = STATISTICS.get(realmName);
+        if (statistics == null) {
+            RealmStatistics newStatistics = new RealmStatistics();
+            statistics = STATISTICS.putIfAbsent(realmName, newStatistics);
+            if (statistics == null) {
+                statistics = newStatistics;
+            }
+        }
+        return statistics;
+    }
+
+    private static String newKey(InetAddress remoteAddress, AuthenticationToken authToken) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(KEY_DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        // components are length prefixed, so different splits of the same characters have different digests
+        int size = authToken.size();
+        for (int i = 0; i < size; i++) {
+            updateDigest(digest, authToken.get(i));
+        }
+
+        return format("%s %s %s", authToken.getScheme(), remoteAddress.getHostAddress(),
+                Base64.getEncoder().encodeToString(digest.digest()));
+    }
+
+    private static void updateDigest(MessageDigest digest, String component) {
+        if (component == null) {
+            digest.update(new byte[] { -1, -1, -1, -1 });
+            return;
+        }
+        byte[] bytes = component.getBytes(UTF_8);
+        int length = bytes.length;
+        digest.update(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length });
+        digest.update(bytes);
+    }
+
+    /**
+     * Snapshot of a successful login.
+     */
+    public static final class Entry {
+
+        private final Set<Principal> principals;
+        private final Set<Object> publicCredentials;
+        private final Set<Object> privateCredentials;
+        private final Object authorizationAttachment;
+        private final Long sessionExpirationTime;
+        private final long expirationTime;
+
+        Entry(Subject subject, Object authorizationAttachment, Long sessionExpirationTime, long expirationTime) {
+            this.principals = new HashSet<>(subject.getPrincipals());
+            this.publicCredentials = new HashSet<>(subject.getPublicCredentials());
+            this.privateCredentials = new HashSet<>(subject.getPrivateCredentials());
+            this.authorizationAttachment = authorizationAttachment;
+            this.sessionExpirationTime = sessionExpirationTime;
+            this.expirationTime = expirationTime;
+        }
+
+        /**
+         * Returns a new subject holding the principals and credentials of the cached login.
+         */
+        public Subject newSubject() {
+            return new Subject(false, principals, publicCredentials, privateCredentials);
+        }
+
+        /**
+         * Returns a new successful login result whose session timeout, if the original login result had one,
+         * ends when the original would have ended.
+         */
+        public DefaultLoginResult newLoginResult() {
+            DefaultLoginResult loginResult = new DefaultLoginResult();
+            loginResult.setAuthorizationAttachment(authorizationAttachment);
+            if (sessionExpirationTime != null) {
+                long remainingMillis = sessionExpirationTime - System.currentTimeMillis();
+                loginResult.setSessionTimeout(Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999L)));
+            }
+            return loginResult;
+        }
+
+        @Override
+        public String toString() {
+            return format("[principals=%s, expires=%d]", principals, expirationTime);
+        }
+    }
+
+    private static final class RealmCache extends LinkedHashMap<String, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        RealmCache(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maximumSize;
+        }
+    }
+
+    private static final class RealmStatistics {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+    }
+}
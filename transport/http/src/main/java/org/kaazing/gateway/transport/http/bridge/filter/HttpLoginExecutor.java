@@ -0,0 +1,265 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs login tasks on a bounded pool of threads per realm, so that a realm whose login modules block
+ * (on a remote directory, for example) cannot starve the logins of other realms or the gateway's
+ * background tasks.
+ * <p>
+ * Each realm has its own pool of at most <tt>threads</tt> threads and a queue of at most <tt>queueSize</tt>
+ * logins.  A login that cannot be queued is refused, and a login that waited in the queue longer than the
+ * queue timeout is not run; in both cases the caller is expected to answer with <tt>503 Service Unavailable</tt>.
+ * A login to a chain of realms is queued on the pool of each realm in turn.
+ * <p>
+ * On JDK 21 and later the pool threads can be virtual threads, so blocking login modules do not pin platform
+ * threads; concurrency per realm remains bounded by <tt>threads</tt>.
+ */
+public final class HttpLoginExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpLoginExecutor.class);
+
+    /**
+     * Upper bounds in milliseconds of the login latency histogram buckets, the last bucket counting
+     * every longer login.
+     */
+    public static final long[] LATENCY_BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+    private static final ConcurrentMap<String, RealmStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+
+    private final int threads;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final boolean virtualThreads;
+
+    private volatile boolean shutdown;
+
+    public HttpLoginExecutor(int threads, int queueSize, long queueTimeout, TimeUnit unit, boolean virtualThreads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads: " + threads);
+        }
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("queueSize: " + queueSize);
+        }
+        if (queueTimeout < 0) {
+            throw new IllegalArgumentException("queueTimeout: " + queueTimeout);
+        }
+
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.queueTimeoutNanos = unit.toNanos(queueTimeout);
+        this.virtualThreads = virtualThreads && newVirtualThreadFactory("login") != null;
+        if (virtualThreads && !this.virtualThreads) {
+            LOGGER.warn("Virtual threads are not available on this JVM, logins will run on platform threads");
+        }
+    }
+
+    /**
+     * Queues the login task on the pool of the given realm.
+     *
+     * @param realmName  the realm whose pool runs the task
+     * @param task       the login task
+     * @param timedOut   run instead of the task, on a pool thread, when the task waited longer than the queue timeout
+     * @return <tt>false</tt> if the pool of the realm is saturated and the task was refused
+     */
+    public boolean execute(String realmName, final Runnable task, final Runnable timedOut) {
+        final RealmStatistics statistics = getOrCreateStatistics(realmName);
+        final long queuedTime = System.nanoTime();
+
+        Runnable login = new Runnable() {
+            @Override
+            public void run() {
+                statistics.queueDepth.decrementAndGet();
+                long startTime = System.nanoTime();
+                if (queueTimeoutNanos > 0 && startTime - queuedTime > queueTimeoutNanos) {
+                    statistics.timedOut.incrementAndGet();
+                    timedOut.run();
+                    return;
+                }
+
+                try {
+                    task.run();
+                }
+                finally {
+                    statistics.record(System.nanoTime() - queuedTime);
+                }
+            }
+        };
+
+        ThreadPoolExecutor executor = shutdown ? null : getOrCreateExecutor(realmName);
+        statistics.queueDepth.incrementAndGet();
+        try {
+            if (executor == null) {
+                throw new RejectedExecutionException("shutdown");
+            }
+            executor.execute(login);
+            return true;
+        }
+        catch (RejectedExecutionException e) {
+            statistics.queueDepth.decrementAndGet();
+            statistics.rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.shutdown();
+        }
+        executors.clear();
+    }
+
+    public static long getLoginCount(String realmName) {
+        RealmStatistics statistics = STATISTICS.get(realmName);
+        return statistics != null ? statistics.logins.get() : 0L;
+    }
+
+    public static long getRejectedCount(String realmName) {
+        RealmStatistics statistics = STATISTICS.get(realmName);
+        return statistics != null ? statistics.rejected.get() : 0L;
+    }
+
+    public static long getTimedOutCount(String realmName) {
+        RealmStatistics statistics = STATISTICS.get(realmName);
+        return statistics != null ? statistics.timedOut.get() : 0L;
+    }
+
+    public static int getQueueDepth(String realmName) {
+        RealmStatistics statistics = STATISTICS.get(realmName);
+        return statistics != null ? statistics.queueDepth.get() : 0;
+    }
+
+    /**
+     * Returns the number of logins of the realm, queueing included, per latency bucket.
+     *
+     * @see #LATENCY_BUCKET_BOUNDS_MILLIS
+     */
+    public static long[] getLatencyHistogram(String realmName) {
+        long[] histogram = new long[LATENCY_BUCKET_BOUNDS_MILLIS.length + 1];
+        RealmStatistics statistics = STATISTICS.get(realmName);
+        if (statistics != null) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = statistics.latencies.get(i);
+            }
+        }
+        return histogram;
+    }
+
+    private ThreadPoolExecutor getOrCreateExecutor(String realmName) {
+        ThreadPoolExecutor executor = executors.get(realmName);
+        if (executor == null) {
+            ThreadPoolExecutor newExecutor = newExecutor(realmName);
+            executor = executors.putIfAbsent(realmName, newExecutor);
+            if (executor == null) {
+                executor = newExecutor;
+                if (shutdown) {
+                    executor.shutdown();
+                }
+            }
+            else {
+                newExecutor.shutdown();
+            }
+        }
+        return executor;
+    }
+
+    private ThreadPoolExecutor newExecutor(final String realmName) {
+        final String namePrefix = "login-" + realmName + "-";
+        ThreadFactory threadFactory = virtualThreads ? newVirtualThreadFactory(namePrefix) : null;
+        if (threadFactory == null) {
+            threadFactory = new ThreadFactory() {
+                final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Returns <tt>Thread.ofVirtual().name(namePrefix, 1).factory()</tt>, or <code>null</code> before JDK 21.
+     */
+    private static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            Method factory = builderClass.getMethod("factory");
+            Object builder = name.invoke(ofVirtual.invoke(null), namePrefix, 1L);
+            return (ThreadFactory) factory.invoke(builder);
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static RealmStatistics getOrCreateStatistics(String realmName) {
+        RealmStatistics statistics = STATISTICS.get(realmName);
+        if (statistics == null) {
+            RealmStatistics newStatistics = new RealmStatistics();
+            statistics = STATISTICS.putIfAbsent(realmName, newStatistics);
+            if (statistics == null) {
+                statistics = newStatistics;
+            }
+        }
+        return statistics;
+    }
+
+    private static final class RealmStatistics {
+        final AtomicLong logins = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong timedOut = new AtomicLong();
+        final AtomicInteger queueDepth = new AtomicInteger();
+        final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKET_BOUNDS_MILLIS.length + 1);
+
+        void record(long latencyNanos) {
+            logins.incrementAndGet();
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKET_BOUNDS_MILLIS.length && latencyMillis >= LATENCY_BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            latencies.incrementAndGet(bucket);
+        }
+    }
+}
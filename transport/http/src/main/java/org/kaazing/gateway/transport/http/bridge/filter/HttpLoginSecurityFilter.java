@@ -81,6 +81,8 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
 
     private final ExpiringState expiringState;
 
+    private HttpLoginCache loginCache;
+
 	public HttpLoginSecurityFilter() {
         super();
         this.expiringState = null;
@@ -91,6 +93,14 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
         this.expiringState = expiringState;
     }
 
+    /**
+     * Sets the cache of successful logins consulted before running the login modules of a realm,
+     * or <code>null</code> to always run them.
+     */
+    public void setLoginCache(HttpLoginCache loginCache) {
+        this.loginCache = loginCache;
+    }
+
     /**
      * A session is "already logged in" under either of these circumstances:
      * <ol>
@@ -129,6 +139,8 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
         }
     }
 
+    private static final SuccessConfiguration SUCCESS_CONFIGURATION = new SuccessConfiguration();
+
     /**
      * Used to model the context of a login when login is not required but is successful
      * (for example accessing a non-protected service)
@@ -138,7 +150,7 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
     static {
         try {
             LOGIN_CONTEXT_OK = new ResultAwareLoginContext("LOGIN_CONTEXT_OK", new Subject(),
-                    new LoginResultCallbackHandler(LOGIN_RESULT_OK), new SuccessConfiguration(), LOGIN_RESULT_OK);
+                    new LoginResultCallbackHandler(LOGIN_RESULT_OK), SUCCESS_CONFIGURATION, LOGIN_RESULT_OK);
         } catch (LoginException e) {
             throw new RuntimeException(e);
         }
@@ -329,21 +341,40 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
             // We have a token to validate - let us validate it by logging in to a login module.
             final LoginContextFactory loginContextFactory = realm.getLoginContextFactory();
 
-            try {
-                TypedCallbackHandlerMap callbackHandlerMap = new TypedCallbackHandlerMap();
+            // Logins of chained realms depend on the subjects of the previous realms, so only the first is cached
+            final boolean loginCacheable = loginCache != null && realmIndex == 0 && additionalCallbacks == null;
 
-                registerCallbacks(session, httpRequest, authToken, callbackHandlerMap);
+            try {
+                // a cached login is bound to the remote address login modules see through the InetAddressCallback
+                InetAddress remoteAddress = loginCacheable ? resolveRemoteAddress(session, httpRequest) : null;
+                HttpLoginCache.Entry cachedLogin = (remoteAddress != null)
+                        ? loginCache.get(realm.getName(), remoteAddress, authToken) : null;
+                if (cachedLogin != null) {
+                    if (loggerEnabled()) {
+                        log("Login module login not required - found cached login; [%s].", authToken);
+                    }
 
-                callbackHandlerMap.putAll(additionalCallbacks);
-                loginContext = (ResultAwareLoginContext) loginContextFactory.createLoginContext(callbackHandlerMap);
-                if (loginContext == null) {
-                    throw new LoginException("Login failed; cannot create a login context for authentication token '" + authToken+ "\'.");
+                    // a cached login is a success by construction, so challenge semantics are unaffected
+                    DefaultLoginResult cachedLoginResult = cachedLogin.newLoginResult();
+                    loginContext = new ResultAwareLoginContext(realm.getName(), cachedLogin.newSubject(),
+                            new LoginResultCallbackHandler(cachedLoginResult), SUCCESS_CONFIGURATION, cachedLoginResult);
                 }
-                if (loggerEnabled()) {
-                    log("Login module login required; [%s].", authToken);
+                else {
+                    TypedCallbackHandlerMap callbackHandlerMap = new TypedCallbackHandlerMap();
+
+                    registerCallbacks(session, httpRequest, authToken, callbackHandlerMap);
+
+                    callbackHandlerMap.putAll(additionalCallbacks);
+                    loginContext = (ResultAwareLoginContext) loginContextFactory.createLoginContext(callbackHandlerMap);
+                    if (loginContext == null) {
+                        throw new LoginException("Login failed; cannot create a login context for authentication token '" + authToken+ "\'.");
+                    }
+                    if (loggerEnabled()) {
+                        log("Login module login required; [%s].", authToken);
+                    }
+
+                    loginContext.login();
                 }
-                
-                loginContext.login();
                 loginResult = loginContext.getLoginResult();
                 final LoginResult.Type resultType = loginResult.getType();
                 if (resultType == LoginResult.Type.FAILURE) {
@@ -354,6 +385,11 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
                     }
                 }
 
+                if (remoteAddress != null && cachedLogin == null) {
+                    // only successful logins are cached, challenges must always reach the login modules
+                    loginCache.put(realm.getName(), remoteAddress, authToken, loginContext.getSubject(), loginResult);
+                }
+
                 subject = loginContext.getSubject();
                 if (!isSubjectAuthorized(subject, requireRoles)) {
                     // we only enforce subject authorization at the end of the realm chain, otherwise we skip to the next realm
@@ -485,6 +521,18 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
                                                  = new AuthenticationTokenCallbackHandler(authToken);
         callbackHandlerMap.put(AuthenticationTokenCallback.class, authenticationTokenCallbackHandler);
 
+        InetAddress remoteAddress = resolveRemoteAddress(session, httpRequest);
+        if (remoteAddress != null) {
+            InetAddressCallbackHandler inetAddressCallbackHandler = new InetAddressCallbackHandler(remoteAddress);
+            callbackHandlerMap.put(InetAddressCallback.class, inetAddressCallbackHandler);
+        }
+    }
+
+    /**
+     * Resolves the remote address of the client from the 'Forwarded' header, or from the TCP transport.
+     * @return the remote address, or null if it is unknown
+     */
+    private InetAddress resolveRemoteAddress(IoSession session, HttpRequestMessage httpRequest) {
         String forwarded = httpRequest.getHeader(HEADER_FORWARDED);
         if (forwarded != null) {
             Matcher matcher = PATTERN_HEADER_FORWARDED.matcher(forwarded.toLowerCase());
@@ -520,19 +568,20 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
             // throw an exception that will result in a 403 response.
             if (!ipAddress.equals(HEADER_FORWARDED_UNKNOWN_VALUE)) {
                 URI uri = URI.create(format(FORWARDED_URI, ipAddress));
-                populateRemoteAddress(callbackHandlerMap, uri);
+                return getInetAddress(uri);
             }
         } else {
             ResourceAddress resourceAddress = REMOTE_ADDRESS.get(session);
             ResourceAddress tcpResourceAddress = resourceAddress.findTransport("tcp");
             if (tcpResourceAddress != null) {
                 URI resource = tcpResourceAddress.getResource();
-                populateRemoteAddress(callbackHandlerMap, resource);
+                return getInetAddress(resource);
             }
         }
+        return null;
     }
 
-    private void populateRemoteAddress(TypedCallbackHandlerMap callbackHandlerMap, URI resource) {
+    private InetAddress getInetAddress(URI resource) {
         String remoteIpAddress = resource.getHost();
         InetAddress remoteAddr;
 
@@ -547,8 +596,7 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
             throw new IllegalStateException(e);
         }
 
-        InetAddressCallbackHandler inetAddressCallbackHandler = new InetAddressCallbackHandler(remoteAddr);
-        callbackHandlerMap.put(InetAddressCallback.class, inetAddressCallbackHandler);
+        return remoteAddr;
     }
 
     protected void writeSessionCookie(IoSession session, HttpRequestMessage httpRequest, DefaultLoginResult loginResult) {
@@ -43,6 +43,7 @@ import org.kaazing.gateway.server.spi.security.ExpiringState;
 import org.kaazing.gateway.server.spi.security.NamedSubjectCallback;
 import org.kaazing.gateway.transport.http.DefaultHttpSession;
 import org.kaazing.gateway.transport.http.HttpCookie;
+import org.kaazing.gateway.transport.http.HttpStatus;
 import org.kaazing.gateway.transport.http.bridge.HttpMessage;
 import org.kaazing.gateway.transport.http.bridge.HttpRequestMessage;
 import org.kaazing.gateway.transport.http.bridge.HttpResponseMessage;
@@ -69,6 +70,8 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
 
     private ScheduledExecutorService scheduler;
 
+    private HttpLoginExecutor loginExecutor;
+
     public HttpSubjectSecurityFilter() {
         this(null, null);
     }
@@ -89,6 +92,13 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
         this.scheduler = provider.getScheduler("loginmodule", false);
     }
 
+    /**
+     * Sets the per-realm executor running logins, or <code>null</code> to run them on the shared scheduler.
+     */
+    public void setLoginExecutor(HttpLoginExecutor loginExecutor) {
+        this.loginExecutor = loginExecutor;
+    }
+
     // --------------------------------------------------------
     // Security code for subject-security LEGACY
 
@@ -381,7 +391,24 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
 
         // Schedule LoginContext.login() execution using a separate thread
         LoginContextTask loginContextTask = new LoginContextTask(nextFilter, session, httpRequest, authToken, additionalCallbacks, realms, realmIndex, loginContexts);
-        scheduler.execute(loginContextTask);
+        executeLogin(loginContextTask);
+    }
+
+    // Runs the login to the current realm of the task on the login executor of that realm
+    private void executeLogin(LoginContextTask loginContextTask) {
+        if (loginExecutor == null) {
+            scheduler.execute(loginContextTask);
+        }
+        else {
+            String realmName = loginContextTask.realms[loginContextTask.realmIndex].getName();
+            if (!loginExecutor.execute(realmName, loginContextTask, loginContextTask.new LoginUnavailableTask())) {
+                if (loggerEnabled()) {
+                    logger.trace("Login refused for session {}, realm {} has too many pending logins",
+                            loginContextTask.session, realmName);
+                }
+                loginContextTask.new LoginUnavailableTask().run();
+            }
+        }
     }
 
     private Subject findNamedSubject(String name, HttpRealmInfo[] realms, int realmIndex, LoginContext[] loginContexts) {
@@ -416,8 +443,8 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
         private final TypedCallbackHandlerMap additionalCallbacks;
         private final long createdTime;
         private final HttpRealmInfo[] realms;
-        private final int realmStartAt;
         private final LoginContext[] loginContexts;
+        private int realmIndex;
 
         LoginContextTask(NextFilter nextFilter, IoSession session, HttpRequestMessage httpRequest,
                          DefaultAuthenticationToken authToken, TypedCallbackHandlerMap additionalCallbacks,
@@ -429,7 +456,7 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
             this.additionalCallbacks = additionalCallbacks;
             this.createdTime = System.currentTimeMillis();
             this.realms = realms;
-            this.realmStartAt = realmIndex;
+            this.realmIndex = realmIndex;
             this.loginContexts = loginContexts != null ? loginContexts : new LoginContext[realms.length];
         }
 
@@ -440,9 +467,15 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
                         (System.currentTimeMillis() - createdTime) , session);
             }
 
-            boolean succeeded = true;
-            for (int realmIndex = realmStartAt; succeeded && realmIndex < realms.length; realmIndex++) {
-                succeeded &= login(nextFilter, session, httpRequest, authToken, additionalCallbacks, realms, realmIndex, loginContexts);
+            boolean succeeded = login(nextFilter, session, httpRequest, authToken, additionalCallbacks, realms, realmIndex, loginContexts);
+            while (succeeded && realmIndex + 1 < realms.length) {
+                realmIndex++;
+                if (loginExecutor != null) {
+                    // the next realm logs in on its own executor, so a slow realm only holds up its own logins
+                    executeLogin(this);
+                    return;
+                }
+                succeeded = login(nextFilter, session, httpRequest, authToken, additionalCallbacks, realms, realmIndex, loginContexts);
             }
 
             //
@@ -461,6 +494,25 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
                         (System.currentTimeMillis() - createdTime), session);
             }
         }
+
+        // Run instead of the login task when the realm refused it or it waited too long for a login thread
+        private final class LoginUnavailableTask implements Runnable {
+
+            @Override
+            public void run() {
+                if (loggerEnabled()) {
+                    logger.trace(String.format("Login unavailable after %d ms for session %s",
+                            (System.currentTimeMillis() - createdTime), session));
+                }
+
+                try {
+                    writeResponse(HttpStatus.SERVER_SERVICE_UNAVAILABLE, nextFilter, session, httpRequest);
+                    HttpSubjectSecurityFilter.super.resumeIncoming(session);
+                } catch (Exception e) {
+                    session.getFilterChain().fireExceptionCaught(e);
+                }
+            }
+        }
     }
 
 }
@@ -100,6 +100,7 @@ public class HttpConnectorRule implements TestRule {
                 httpConnector = (HttpConnector)transportFactory.getTransport("http").getConnector();
                 httpConnector.setBridgeServiceFactory(serviceFactory);
                 httpConnector.setResourceAddressFactory(addressFactory);
+                httpConnector.setSchedulerProvider(schedulerProvider);
 
                 httpConnector.setConfiguration(props);
 
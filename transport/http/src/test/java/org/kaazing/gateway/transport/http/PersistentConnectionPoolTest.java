@@ -0,0 +1,283 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.gateway.resource.address.ResourceAddressFactory.newResourceAddressFactory;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_ACQUIRE_TIMEOUT;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_BORROW;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_LIFO;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_MAX_CONNECTIONS;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_CONNECT_POOL_MIN_IDLE;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.session.IoSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kaazing.gateway.resource.address.http.HttpResourceAddress;
+import org.kaazing.gateway.util.scheduler.SchedulerProvider;
+import org.kaazing.mina.core.session.DummySessionEx;
+import org.slf4j.LoggerFactory;
+
+public class PersistentConnectionPoolTest {
+
+    private HttpResourceAddress serverAddress;
+    private SchedulerProvider schedulerProvider;
+    private PersistentConnectionPool pool;
+    private List<PersistentConnectionPool.Lease> warmUps;
+
+    @Before
+    public void before() {
+        serverAddress = (HttpResourceAddress) newResourceAddressFactory().newResourceAddress("http://localhost:8080/");
+        warmUps = new ArrayList<>();
+        pool = new PersistentConnectionPool(LoggerFactory.getLogger(PersistentConnectionPoolTest.class),
+                (address, lease) -> warmUps.add(lease));
+        schedulerProvider = new SchedulerProvider();
+        pool.setScheduler(schedulerProvider.getScheduler("http_connect_pool", false));
+    }
+
+    @After
+    public void after() {
+        pool.dispose();
+        schedulerProvider.shutdownNow();
+    }
+
+    @Test
+    public void shouldLeaseUpToMaxConnectionsThenFailWithoutWaiting() {
+        configure("2", "0", "true");
+
+        Handler first = acquire();
+        Handler second = acquire();
+        Handler third = acquire();
+
+        assertNotNull(first.lease);
+        assertNotNull(second.lease);
+        assertNull(third.lease);
+        assertTrue(third.cause instanceof ConnectException);
+    }
+
+    @Test
+    public void shouldHandReleasedLeaseToWaitingConnect() {
+        configure("1", "30", "true");
+        int waiters = PersistentConnectionPool.getWaiters();
+
+        Handler first = acquire();
+        Handler second = acquire();
+        assertNotNull(first.lease);
+        assertNull(second.lease);
+        assertNull(second.cause);
+        assertEquals(waiters + 1, PersistentConnectionPool.getWaiters());
+
+        first.lease.release();
+
+        assertNotNull(second.lease);
+        assertEquals(waiters, PersistentConnectionPool.getWaiters());
+    }
+
+    @Test
+    public void shouldHandRecycledConnectionToWaitingConnect() {
+        configure("1", "30", "true");
+
+        Handler first = acquire();
+        Handler second = acquire();
+        DummySessionEx transport = new DummySessionEx();
+        first.lease.attach(transport);
+
+        assertTrue(pool.offer(serverAddress, transport));
+
+        assertSame(transport, second.pooled);
+    }
+
+    @Test
+    public void shouldBorrowIdleConnectionOfAnotherThread() throws Exception {
+        Properties configuration = configuration("1", "30", "true");
+        configuration.setProperty(HTTP_CONNECT_POOL_BORROW.getPropertyName(), "true");
+        pool.setConfiguration(configuration);
+
+        ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        try {
+            Thread ioThread = ioExecutor.submit(Thread::currentThread).get();
+            DummySessionEx transport = new DummySessionEx(ioThread, ioExecutor);
+            assertTrue(ioExecutor.submit(() -> pool.offer(serverAddress, transport)).get());
+
+            acquire();
+            Handler second = acquire();
+
+            assertTrue(second.acquired.await(5, TimeUnit.SECONDS));
+            assertSame(transport, second.pooled);
+            assertSame(ioThread, second.thread);
+        } finally {
+            ioExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldFailWaitingConnectAfterAcquireTimeout() throws Exception {
+        configure("1", "1", "true");
+        long timeouts = PersistentConnectionPool.getAcquireTimeoutCount();
+
+        acquire();
+        Handler second = acquire();
+
+        assertTrue(second.failed.await(5, TimeUnit.SECONDS));
+        assertTrue(second.cause instanceof ConnectException);
+        assertEquals(timeouts + 1, PersistentConnectionPool.getAcquireTimeoutCount());
+    }
+
+    @Test
+    public void shouldReuseMostRecentlyCachedConnectionFirst() {
+        configure("0", "30", "true");
+        DummySessionEx older = new DummySessionEx();
+        DummySessionEx newer = new DummySessionEx();
+
+        assertTrue(pool.offer(serverAddress, older));
+        assertTrue(pool.offer(serverAddress, newer));
+
+        assertSame(newer, acquire().pooled);
+        assertSame(older, acquire().pooled);
+    }
+
+    @Test
+    public void shouldReuseLeastRecentlyCachedConnectionFirst() {
+        configure("0", "30", "false");
+        DummySessionEx older = new DummySessionEx();
+        DummySessionEx newer = new DummySessionEx();
+
+        assertTrue(pool.offer(serverAddress, older));
+        assertTrue(pool.offer(serverAddress, newer));
+
+        assertSame(older, acquire().pooled);
+        assertSame(newer, acquire().pooled);
+    }
+
+    @Test
+    public void shouldSkipConnectionsClosedWhileIdle() {
+        configure("0", "30", "true");
+        DummySessionEx closed = new DummySessionEx();
+        DummySessionEx open = new DummySessionEx();
+
+        assertTrue(pool.offer(serverAddress, open));
+        assertTrue(pool.offer(serverAddress, closed));
+        closed.close(true);
+
+        assertSame(open, acquire().pooled);
+        assertNotNull(acquire().lease);
+    }
+
+    @Test
+    public void shouldReapOriginWithoutOpenConnections() {
+        configure("1", "30", "true");
+        int origins = pool.getOrigins();
+
+        Handler first = acquire();
+        pool.reap();
+        assertEquals(origins + 1, pool.getOrigins());
+
+        first.lease.release();
+        pool.reap();
+        assertEquals(origins, pool.getOrigins());
+
+        // the server gets a new origin with the full connection limit
+        Handler second = acquire();
+        assertNotNull(second.lease);
+        assertNull(acquire().lease);
+    }
+
+    @Test
+    public void shouldNotReapOriginWithIdleConnection() {
+        configure("1", "30", "true");
+        int origins = pool.getOrigins();
+
+        Handler first = acquire();
+        DummySessionEx transport = new DummySessionEx();
+        first.lease.attach(transport);
+        assertTrue(pool.offer(serverAddress, transport));
+        pool.reap();
+
+        assertEquals(origins + 1, pool.getOrigins());
+        assertSame(transport, acquire().pooled);
+    }
+
+    @Test
+    public void shouldWarmUpMinimumIdleConnections() {
+        Properties configuration = configuration("0", "30", "true");
+        configuration.setProperty(HTTP_CONNECT_POOL_MIN_IDLE.getPropertyName(), "2");
+        pool.setConfiguration(configuration);
+
+        acquire();
+
+        assertEquals(2, warmUps.size());
+    }
+
+    private Handler acquire() {
+        Handler handler = new Handler();
+        pool.acquire(serverAddress, handler);
+        return handler;
+    }
+
+    private void configure(String maxConnections, String acquireTimeout, String lifo) {
+        pool.setConfiguration(configuration(maxConnections, acquireTimeout, lifo));
+    }
+
+    private static Properties configuration(String maxConnections, String acquireTimeout, String lifo) {
+        Properties configuration = new Properties();
+        configuration.setProperty(HTTP_CONNECT_POOL_MAX_CONNECTIONS.getPropertyName(), maxConnections);
+        configuration.setProperty(HTTP_CONNECT_POOL_ACQUIRE_TIMEOUT.getPropertyName(), acquireTimeout);
+        configuration.setProperty(HTTP_CONNECT_POOL_LIFO.getPropertyName(), lifo);
+        return configuration;
+    }
+
+    private static final class Handler implements PersistentConnectionPool.AcquireHandler {
+        private final CountDownLatch acquired = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private volatile Thread thread;
+        private volatile IoSession pooled;
+        private volatile PersistentConnectionPool.Lease lease;
+        private volatile Throwable cause;
+
+        @Override
+        public void pooled(IoSession transportSession) {
+            pooled = transportSession;
+            thread = Thread.currentThread();
+            acquired.countDown();
+        }
+
+        @Override
+        public void leased(PersistentConnectionPool.Lease lease) {
+            this.lease = lease;
+            acquired.countDown();
+        }
+
+        @Override
+        public void failed(Throwable cause) {
+            this.cause = cause;
+            failed.countDown();
+        }
+    }
+}
@@ -15,9 +15,13 @@
  */
 package org.kaazing.gateway.transport.http.bridge.filter;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Inflater;
 
 import org.junit.Test;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
@@ -52,4 +56,61 @@ public class HttpContentFilterTest {
 		assertEquals(actual, expected);
 	}
 
+	@Test
+	public void testWriteGzippedCompressesLargeContent() throws Exception {
+	    IoBufferAllocatorEx<?> allocator = SimpleBufferAllocator.BUFFER_ALLOCATOR;
+	    HttpGzipEncoder encoder = new HttpGzipEncoder(6, 256);
+	    byte[] bytes = new byte[100000];
+	    for (int i = 0; i < bytes.length; i++) {
+	        bytes[i] = (byte) ('a' + (i % 7));
+	    }
+	    IoBufferEx buf = allocator.wrap(ByteBuffer.wrap(bytes));
+	    IoBufferEx actual = encoder.write(buf, allocator);
+
+	    assertEquals(0, buf.position());
+	    assertTrue(actual.remaining() < bytes.length / 10);
+	    assertArrayEquals(bytes, inflate(actual, bytes.length));
+	}
+
+	@Test
+	public void testWriteGzippedMessagesAreConcatenable() throws Exception {
+	    IoBufferAllocatorEx<?> allocator = SimpleBufferAllocator.BUFFER_ALLOCATOR;
+	    HttpGzipEncoder encoder = new HttpGzipEncoder(6, 0);
+	    byte[] first = new byte[1024];
+	    Arrays.fill(first, (byte) 'x');
+	    byte[] second = new byte[512];
+	    Arrays.fill(second, (byte) 'y');
+	    ByteBuffer data = ByteBuffer.allocateDirect(second.length);
+	    data.put(second);
+	    data.flip();
+
+	    IoBufferEx firstGzipped = encoder.write(allocator.wrap(ByteBuffer.wrap(first)), allocator);
+	    IoBufferEx secondGzipped = encoder.write(allocator.wrap(data), allocator);
+	    ByteBuffer stream = ByteBuffer.allocate(firstGzipped.remaining() + secondGzipped.remaining());
+	    stream.put(firstGzipped.buf().duplicate());
+	    stream.put(secondGzipped.buf().duplicate());
+	    stream.flip();
+
+	    byte[] expected = new byte[first.length + second.length];
+	    System.arraycopy(first, 0, expected, 0, first.length);
+	    System.arraycopy(second, 0, expected, first.length, second.length);
+	    assertArrayEquals(expected, inflate(allocator.wrap(stream), expected.length));
+	}
+
+	private static byte[] inflate(IoBufferEx deflated, int length) throws Exception {
+	    ByteBuffer buf = deflated.buf().duplicate();
+	    byte[] input = new byte[buf.remaining()];
+	    buf.get(input);
+	    Inflater inflater = new Inflater(true);
+	    inflater.setInput(input);
+	    byte[] output = new byte[length];
+	    int inflated = 0;
+	    while (inflated < length && !inflater.needsInput()) {
+	        inflated += inflater.inflate(output, inflated, length - inflated);
+	    }
+	    inflater.end();
+	    assertEquals(length, inflated);
+	    return output;
+	}
+
 }
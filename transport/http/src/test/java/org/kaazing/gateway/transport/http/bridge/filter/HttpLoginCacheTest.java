@@ -0,0 +1,170 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kaazing.gateway.security.auth.DefaultLoginResult;
+import org.kaazing.gateway.security.auth.token.DefaultAuthenticationToken;
+import org.kaazing.gateway.server.spi.security.LoginResult;
+
+public class HttpLoginCacheTest {
+
+    private static final InetAddress ADDRESS = InetAddress.getLoopbackAddress();
+
+    private final HttpLoginCache cache = new HttpLoginCache(2, 60, TimeUnit.SECONDS);
+
+    @After
+    public void dispose() {
+        cache.dispose();
+    }
+
+    @Test
+    public void shouldCacheSuccessfulLogin() throws Exception {
+        Subject subject = newSubject("joe");
+        cache.put("shouldCacheSuccessfulLogin", ADDRESS, newToken("Basic", "am9lOndlbGNvbWU="), subject, new DefaultLoginResult());
+
+        // logging out of the original login context must not affect cached logins
+        subject.getPrincipals().clear();
+
+        HttpLoginCache.Entry entry = cache.get("shouldCacheSuccessfulLogin", ADDRESS, newToken("Basic", "am9lOndlbGNvbWU="));
+        assertNotNull(entry);
+        assertEquals(1, entry.newSubject().getPrincipals().size());
+        assertEquals(LoginResult.Type.SUCCESS, entry.newLoginResult().getType());
+        assertEquals(1L, HttpLoginCache.getHitCount("shouldCacheSuccessfulLogin"));
+        assertEquals(0L, HttpLoginCache.getMissCount("shouldCacheSuccessfulLogin"));
+    }
+
+    @Test
+    public void shouldNotCacheChallenge() throws Exception {
+        DefaultLoginResult loginResult = new DefaultLoginResult();
+        loginResult.challenge("more");
+        cache.put("shouldNotCacheChallenge", ADDRESS, newToken("Basic", "token"), newSubject("joe"), loginResult);
+
+        assertNull(cache.get("shouldNotCacheChallenge", ADDRESS, newToken("Basic", "token")));
+        assertEquals(0L, HttpLoginCache.getHitCount("shouldNotCacheChallenge"));
+        assertEquals(1L, HttpLoginCache.getMissCount("shouldNotCacheChallenge"));
+    }
+
+    @Test
+    public void shouldKeyOnSchemeTokenAndRealm() throws Exception {
+        cache.put("shouldKeyOnSchemeTokenAndRealm", ADDRESS, newToken("Basic", "token"), newSubject("joe"), new DefaultLoginResult());
+
+        assertNull(cache.get("shouldKeyOnSchemeTokenAndRealm", ADDRESS, newToken("Bearer", "token")));
+        assertNull(cache.get("shouldKeyOnSchemeTokenAndRealm", ADDRESS, newToken("Basic", "other")));
+        assertNull(cache.get("shouldKeyOnSchemeTokenAndRealm.other", ADDRESS, newToken("Basic", "token")));
+        assertNotNull(cache.get("shouldKeyOnSchemeTokenAndRealm", ADDRESS, newToken("Basic", "token")));
+    }
+
+    @Test
+    public void shouldKeyOnRemoteAddress() throws Exception {
+        cache.put("shouldKeyOnRemoteAddress", ADDRESS, newToken("Basic", "token"), newSubject("joe"), new DefaultLoginResult());
+
+        InetAddress otherAddress = InetAddress.getByName("192.0.2.43");
+        assertNull(cache.get("shouldKeyOnRemoteAddress", otherAddress, newToken("Basic", "token")));
+        assertNotNull(cache.get("shouldKeyOnRemoteAddress", ADDRESS, newToken("Basic", "token")));
+    }
+
+    @Test
+    public void shouldKeyOnTokenComponentBoundaries() throws Exception {
+        cache.put("shouldKeyOnTokenComponentBoundaries", ADDRESS, newToken("Basic", "ab", "c"), newSubject("joe"),
+                new DefaultLoginResult());
+
+        assertNull(cache.get("shouldKeyOnTokenComponentBoundaries", ADDRESS, newToken("Basic", "a", "bc")));
+        assertNotNull(cache.get("shouldKeyOnTokenComponentBoundaries", ADDRESS, newToken("Basic", "ab", "c")));
+    }
+
+    @Test
+    public void shouldBoundTimeToLiveBySessionTimeout() throws Exception {
+        DefaultLoginResult loginResult = new DefaultLoginResult();
+        loginResult.setSessionTimeout(30);
+        cache.put("shouldBoundTimeToLiveBySessionTimeout", ADDRESS, newToken("Basic", "token"), newSubject("joe"), loginResult);
+
+        HttpLoginCache.Entry entry = cache.get("shouldBoundTimeToLiveBySessionTimeout", ADDRESS, newToken("Basic", "token"));
+        assertNotNull(entry);
+        long sessionTimeout = entry.newLoginResult().getSessionTimeout();
+        assertTrue(sessionTimeout > 0 && sessionTimeout <= 30);
+
+        cache.setTimeToLive(1, TimeUnit.MILLISECONDS);
+        cache.put("shouldBoundTimeToLiveBySessionTimeout", ADDRESS, newToken("Basic", "token"), newSubject("joe"), loginResult);
+        Thread.sleep(10);
+        assertNull(cache.get("shouldBoundTimeToLiveBySessionTimeout", ADDRESS, newToken("Basic", "token")));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        cache.put("shouldEvictLeastRecentlyUsed", ADDRESS, newToken("Basic", "1"), newSubject("one"), new DefaultLoginResult());
+        cache.put("shouldEvictLeastRecentlyUsed", ADDRESS, newToken("Basic", "2"), newSubject("two"), new DefaultLoginResult());
+        assertNotNull(cache.get("shouldEvictLeastRecentlyUsed", ADDRESS, newToken("Basic", "1")));
+        cache.put("shouldEvictLeastRecentlyUsed", ADDRESS, newToken("Basic", "3"), newSubject("three"), new DefaultLoginResult());
+
+        assertEquals(2, cache.size("shouldEvictLeastRecentlyUsed"));
+        assertNotNull(cache.get("shouldEvictLeastRecentlyUsed", ADDRESS, newToken("Basic", "1")));
+        assertNull(cache.get("shouldEvictLeastRecentlyUsed", ADDRESS, newToken("Basic", "2")));
+    }
+
+    @Test
+    public void shouldInvalidateRealm() throws Exception {
+        cache.put("shouldInvalidateRealm", ADDRESS, newToken("Basic", "token"), newSubject("joe"), new DefaultLoginResult());
+        cache.put("shouldInvalidateRealm.other", ADDRESS, newToken("Basic", "token"), newSubject("joe"), new DefaultLoginResult());
+
+        HttpLoginCache.invalidate("shouldInvalidateRealm");
+
+        assertNull(cache.get("shouldInvalidateRealm", ADDRESS, newToken("Basic", "token")));
+        assertNotNull(cache.get("shouldInvalidateRealm.other", ADDRESS, newToken("Basic", "token")));
+    }
+
+    @Test
+    public void shouldBeDisabledWithZeroSize() throws Exception {
+        cache.setMaximumSize(0);
+        assertFalse(cache.isEnabled());
+        cache.put("shouldBeDisabledWithZeroSize", ADDRESS, newToken("Basic", "token"), newSubject("joe"), new DefaultLoginResult());
+        assertNull(cache.get("shouldBeDisabledWithZeroSize", ADDRESS, newToken("Basic", "token")));
+    }
+
+    private static DefaultAuthenticationToken newToken(String scheme, String component) {
+        return new DefaultAuthenticationToken(scheme, component);
+    }
+
+    private static DefaultAuthenticationToken newToken(String scheme, String component, String otherComponent) {
+        DefaultAuthenticationToken token = new DefaultAuthenticationToken(scheme, component);
+        token.add(otherComponent);
+        return token;
+    }
+
+    private static Subject newSubject(final String name) {
+        Subject subject = new Subject();
+        subject.getPrincipals().add(new Principal() {
+            @Override
+            public String getName() {
+                return name;
+            }
+        });
+        return subject;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HttpLoginExecutorTest {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final HttpLoginExecutor executor = new HttpLoginExecutor(1, 1, 50, TimeUnit.MILLISECONDS, false);
+
+    @After
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldRunLoginAndRecordLatency() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        assertTrue(executor.execute("shouldRunLoginAndRecordLatency", newTask(null, done), NOOP));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        waitForLoginCount("shouldRunLoginAndRecordLatency", 1);
+        long total = 0;
+        for (long count : HttpLoginExecutor.getLatencyHistogram("shouldRunLoginAndRecordLatency")) {
+            total += count;
+        }
+        assertEquals(1L, total);
+    }
+
+    @Test
+    public void shouldRejectWhenRealmSaturated() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        assertTrue(executor.execute("shouldRejectWhenRealmSaturated", newTask(blocked, started), NOOP));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.execute("shouldRejectWhenRealmSaturated", NOOP, NOOP));
+
+        assertFalse(executor.execute("shouldRejectWhenRealmSaturated", NOOP, NOOP));
+        assertEquals(1L, HttpLoginExecutor.getRejectedCount("shouldRejectWhenRealmSaturated"));
+
+        // other realms are not affected
+        CountDownLatch done = new CountDownLatch(1);
+        assertTrue(executor.execute("shouldRejectWhenRealmSaturated.other", newTask(null, done), NOOP));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        blocked.countDown();
+    }
+
+    @Test
+    public void shouldTimeOutQueuedLogin() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        assertTrue(executor.execute("shouldTimeOutQueuedLogin", newTask(blocked, started), NOOP));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final AtomicBoolean loggedIn = new AtomicBoolean();
+        final CountDownLatch timedOut = new CountDownLatch(1);
+        assertTrue(executor.execute("shouldTimeOutQueuedLogin", new Runnable() {
+            @Override
+            public void run() {
+                loggedIn.set(true);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                timedOut.countDown();
+            }
+        }));
+
+        Thread.sleep(100);
+        blocked.countDown();
+
+        assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+        assertFalse(loggedIn.get());
+        assertEquals(1L, HttpLoginExecutor.getTimedOutCount("shouldTimeOutQueuedLogin"));
+    }
+
+    private static Runnable newTask(final CountDownLatch blocked, final CountDownLatch started) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                if (blocked != null) {
+                    try {
+                        blocked.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+    }
+
+    private static void waitForLoginCount(String realmName, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (HttpLoginExecutor.getLoginCount(realmName) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, HttpLoginExecutor.getLoginCount(realmName));
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.filter.codec.ProtocolDecoder;
+import org.kaazing.gateway.transport.http.bridge.HttpRequestMessage;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.filter.codec.ProtocolCodecSessionEx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures decoding of captured browser requests: a WebSocket upgrade for wsn, and the create, downstream
+ * long-poll and upstream requests of wseb.  Only the headers the gateway looks at on the way in are read, so
+ * the rest stay undecoded, as in production; run with -prof gc to see the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 8, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpRequestDecoderBM {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 " +
+            "(KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.36";
+
+    private static final String WSN_UPGRADE =
+            "GET /echo HTTP/1.1\r\n" +
+            "Host: gateway.example.com:8000\r\n" +
+            "Connection: Upgrade\r\n" +
+            "Pragma: no-cache\r\n" +
+            "Cache-Control: no-cache\r\n" +
+            "Upgrade: websocket\r\n" +
+            "Origin: http://www.example.com\r\n" +
+            "Sec-WebSocket-Version: 13\r\n" +
+            "User-Agent: " + USER_AGENT + "\r\n" +
+            "Accept-Encoding: gzip, deflate, sdch\r\n" +
+            "Accept-Language: en-US,en;q=0.8\r\n" +
+            "Cookie: _ga=GA1.2.1486326017.1494012345; JSESSIONID=1a2b3c4d5e6f\r\n" +
+            "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n" +
+            "Sec-WebSocket-Extensions: permessage-deflate; client_max_window_bits\r\n" +
+            "Sec-WebSocket-Protocol: x-kaazing-handshake\r\n" +
+            "\r\n";
+
+    private static final String WSEB_CREATE =
+            "POST /echo/;e/cbm?.kn=2518113186734406 HTTP/1.1\r\n" +
+            "Host: gateway.example.com:8000\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Content-Length: 0\r\n" +
+            "Origin: http://www.example.com\r\n" +
+            "X-WebSocket-Version: wseb-1.0\r\n" +
+            "User-Agent: " + USER_AGENT + "\r\n" +
+            "Content-Type: text/plain; charset=UTF-8\r\n" +
+            "X-Accept-Commands: ping\r\n" +
+            "X-Sequence-No: 5291813049\r\n" +
+            "Accept: */*\r\n" +
+            "Referer: http://www.example.com/demo/index.html\r\n" +
+            "Accept-Encoding: gzip, deflate, br\r\n" +
+            "Accept-Language: en-US,en;q=0.8\r\n" +
+            "\r\n";
+
+    private static final String WSEB_DOWNSTREAM =
+            "GET /echo/;e/cbm/Ht8Z3jCVRksPdlKVX6UQ0CA1zC6MvY5J?.ksn=5291813050 HTTP/1.1\r\n" +
+            "Host: gateway.example.com:8000\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Origin: http://www.example.com\r\n" +
+            "User-Agent: " + USER_AGENT + "\r\n" +
+            "X-Sequence-No: 5291813050\r\n" +
+            "Accept: */*\r\n" +
+            "Referer: http://www.example.com/demo/index.html\r\n" +
+            "Accept-Encoding: gzip, deflate, sdch, br\r\n" +
+            "Accept-Language: en-US,en;q=0.8\r\n" +
+            "\r\n";
+
+    private static final String WSEB_UPSTREAM =
+            "POST /echo/;e/ubm/Ht8Z3jCVRksPdlKVX6UQ0CA1zC6MvY5J HTTP/1.1\r\n" +
+            "Host: gateway.example.com:8000\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Content-Length: 12\r\n" +
+            "Origin: http://www.example.com\r\n" +
+            "User-Agent: " + USER_AGENT + "\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "X-Sequence-No: 5291813051\r\n" +
+            "Accept: */*\r\n" +
+            "Referer: http://www.example.com/demo/index.html\r\n" +
+            "Accept-Encoding: gzip, deflate, br\r\n" +
+            "Accept-Language: en-US,en;q=0.8\r\n" +
+            "\r\n" +
+            "Hello, world";
+
+    @Param({"wsnUpgrade", "wsebCreate", "wsebDownstream", "wsebUpstream"})
+    public String capture;
+
+    private ProtocolCodecSessionEx session;
+    private ProtocolDecoder decoder;
+    private IoBuffer in;
+
+    @Setup
+    public void init() throws Exception {
+        String request;
+        switch (capture) {
+        case "wsnUpgrade":
+            request = WSN_UPGRADE;
+            break;
+        case "wsebCreate":
+            request = WSEB_CREATE;
+            break;
+        case "wsebDownstream":
+            request = WSEB_DOWNSTREAM;
+            break;
+        default:
+            request = WSEB_UPSTREAM;
+            break;
+        }
+
+        session = new ProtocolCodecSessionEx();
+        decoder = new HttpRequestDecoder();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        byte[] bytes = request.getBytes(US_ASCII);
+        in = (IoBuffer) allocator.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        in.rewind();
+        decoder.decode(session, in, session.getDecoderOutput());
+        HttpRequestMessage request = (HttpRequestMessage) session.getDecoderOutputQueue().poll();
+        request.getHeader("Origin");
+        request.getHeader("X-Sequence-No");
+        request.getHeaderValues("Sec-WebSocket-Protocol", false);
+        return request;
+    }
+
+    // Or from command line:
+    //
+    // mvn clean install
+    // java -jar target/benchmarks.jar HttpRequestDecoderBM
+    //
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HttpRequestDecoderBM.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
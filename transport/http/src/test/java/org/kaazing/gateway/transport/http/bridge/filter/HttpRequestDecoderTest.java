@@ -435,4 +435,52 @@ public class HttpRequestDecoderTest {
         assertFalse(in.hasRemaining());
     }
 
+
+    @Test
+    public void decodeCommaSeparatedHeaderValues() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        ProtocolDecoder decoder = new HttpRequestDecoder();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+
+        ByteBuffer in = ByteBuffer.wrap(("GET / HTTP/1.1\r\n" +
+                                         "Host: example.com\r\n" +
+                                         "connection: keep-alive , Upgrade\r\n" +
+                                         "Accept-Encoding: ,gzip,, deflate,,\r\n" +
+                                         "Sec-WebSocket-Protocol: ,\r\n" +
+                                         "X-Custom: a, b\r\n" +
+                                         "\r\n").getBytes());
+
+        IoBufferEx buf = allocator.wrap(in);
+        decoder.decode(session, (IoBuffer) buf, session.getDecoderOutput());
+
+        HttpRequestMessage httpRequest = (HttpRequestMessage)session.getDecoderOutputQueue().poll();
+        assertEquals(Arrays.asList("keep-alive", "Upgrade"), httpRequest.getHeaderValues("Connection"));
+        assertEquals(Arrays.asList("", "gzip", "", "deflate"), httpRequest.getHeaderValues("Accept-Encoding"));
+        assertEquals(Collections.emptyList(), httpRequest.getHeaderValues("Sec-WebSocket-Protocol"));
+        assertEquals(Arrays.asList("a, b"), httpRequest.getHeaderValues("X-Custom"));
+    }
+
+    @Test
+    public void decodeHeaderValuesThatCanBeModified() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        ProtocolDecoder decoder = new HttpRequestDecoder();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+
+        ByteBuffer in = ByteBuffer.wrap(("GET / HTTP/1.1\r\n" +
+                                         "Host: example.com\r\n" +
+                                         "User-Agent: caf\u00e9\r\n" +
+                                         "Cookie: a=1\r\n" +
+                                         "\r\n").getBytes(UTF_8));
+
+        IoBufferEx buf = allocator.wrap(in);
+        decoder.decode(session, (IoBuffer) buf, session.getDecoderOutput());
+
+        HttpRequestMessage httpRequest = (HttpRequestMessage)session.getDecoderOutputQueue().poll();
+        assertEquals("caf\u00e9", httpRequest.getHeader("User-Agent"));
+        httpRequest.addHeader("Cookie", "b=2");
+        httpRequest.getHeaderValues("Cookie").set(0, "c=3");
+        assertEquals(Arrays.asList("c=3", "b=2"), httpRequest.getHeaderValues("Cookie"));
+        httpRequest.setHeader("Cookie", "d=4");
+        assertEquals(Arrays.asList("d=4"), httpRequest.getHeaderValues("Cookie"));
+    }
 }
@@ -18,6 +18,7 @@ package org.kaazing.gateway.transport.nio.internal.datagram;
 import static org.kaazing.gateway.resource.address.udp.UdpResourceAddress.PADDING_ALIGNMENT;
 import static org.kaazing.gateway.util.InternalSystemProperty.TCP_MINIMUM_READ_BUFFER_SIZE;
 import static org.kaazing.gateway.util.InternalSystemProperty.TCP_MAXIMUM_READ_BUFFER_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.UDP_BOSS_COUNT;
 import static org.kaazing.gateway.util.InternalSystemProperty.UDP_IDLE_TIMEOUT;
 
 import org.apache.mina.core.future.IoFuture;
@@ -79,7 +80,8 @@ public class NioDatagramAcceptor extends AbstractNioAcceptor {
     protected IoAcceptorEx initAcceptor(final IoSessionInitializer<? extends IoFuture> initializer) {
 	    DatagramChannelIoSessionConfig config = new DefaultDatagramChannelIoSessionConfig();
         WorkerPool<NioWorker> workerPool = tcpAcceptor.initWorkerPool(logger, "UDP acceptor: {}", configuration);
-        NioServerDatagramChannelFactory channelFactory = new NioServerDatagramChannelFactory(newCachedThreadPool(), 1, workerPool);
+        int bossCount = UDP_BOSS_COUNT.getIntProperty(configuration);
+        NioServerDatagramChannelFactory channelFactory = new NioServerDatagramChannelFactory(newCachedThreadPool(), bossCount, workerPool);
         NioDatagramChannelIoAcceptor acceptor = new NioDatagramChannelIoAcceptor(config, channelFactory);
         acceptor.setIoSessionInitializer(initializer);
 
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.tcp;
+
+import static org.kaazing.gateway.util.InternalSystemProperty.TCP_PROCESSOR_COUNT;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kaazing.gateway.resource.address.ResourceAddress;
+import org.kaazing.gateway.resource.address.ResourceAddressFactory;
+import org.kaazing.gateway.transport.BridgeServiceFactory;
+import org.kaazing.gateway.transport.IoHandlerAdapter;
+import org.kaazing.gateway.transport.TransportFactory;
+import org.kaazing.gateway.transport.nio.internal.socket.NioSocketAcceptor;
+import org.kaazing.gateway.util.scheduler.SchedulerProvider;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.netty.config.InternalSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how fast a single TCP worker reads, with and without zero copy reads.  Blocking client writes are
+ * paced by the worker draining the socket, so bytes per second is the reported throughput times writeSize.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 8, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TcpReadBM {
+
+    private static final int PORT = 8081;
+    private static final String URI = "tcp://127.0.0.1:8081";
+
+    private static final AtomicLong bytesReceived = new AtomicLong();
+
+    @Param({"false", "true"})
+    public String zeroCopy;
+
+    @Param({"512", "16384"})
+    public int writeSize;
+
+    private SchedulerProvider schedulerProvider;
+    private NioSocketAcceptor tcpAcceptor;
+
+    @Setup
+    public void init() throws Exception {
+        // read before the workers are created
+        System.setProperty(InternalSystemProperty.ZERO_COPY_TCP_READ.getPropertyName(), zeroCopy);
+
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put(TCP_PROCESSOR_COUNT.getPropertyName(), "1");
+
+        ResourceAddressFactory addressFactory = ResourceAddressFactory.newResourceAddressFactory();
+        TransportFactory transportFactory = TransportFactory.newTransportFactory(configuration);
+        BridgeServiceFactory serviceFactory = new BridgeServiceFactory(transportFactory);
+
+        schedulerProvider = new SchedulerProvider();
+
+        tcpAcceptor = (NioSocketAcceptor) transportFactory.getTransport("tcp").getAcceptor();
+        tcpAcceptor.setResourceAddressFactory(addressFactory);
+        tcpAcceptor.setBridgeServiceFactory(serviceFactory);
+        tcpAcceptor.setSchedulerProvider(schedulerProvider);
+
+        ResourceAddress address = addressFactory.newResourceAddress(URI);
+        tcpAcceptor.bind(address, new CountingHandler(), null);
+    }
+
+    @TearDown
+    public void destroy() throws Exception {
+        System.out.println("Total bytes received = " + bytesReceived);
+        tcpAcceptor.dispose();
+        schedulerProvider.shutdownNow();
+        System.clearProperty(InternalSystemProperty.ZERO_COPY_TCP_READ.getPropertyName());
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        Socket socket;
+        OutputStream output;
+        byte[] data;
+
+        @Setup
+        public void connect(TcpReadBM benchmark) throws Exception {
+            socket = new Socket("127.0.0.1", PORT);
+            socket.setTcpNoDelay(true);
+            output = socket.getOutputStream();
+            data = new byte[benchmark.writeSize];
+        }
+
+        @TearDown
+        public void close() throws Exception {
+            socket.close();
+        }
+    }
+
+    @Benchmark
+    public void write(ClientState client) throws Exception {
+        client.output.write(client.data);
+    }
+
+    private static final class CountingHandler extends IoHandlerAdapter<IoSessionEx> {
+        @Override
+        protected void doMessageReceived(IoSessionEx session, Object message) {
+            bytesReceived.addAndGet(((IoBufferEx) message).remaining());
+        }
+    }
+
+    // Or from command line:
+    //
+    // mvn clean install
+    // java -jar target/benchmarks.jar TcpReadBM -t 4
+    //
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TcpReadBM.class.getSimpleName())
+                .threads(4)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
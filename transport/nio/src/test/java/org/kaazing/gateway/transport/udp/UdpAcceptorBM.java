@@ -35,6 +35,7 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -58,6 +59,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.kaazing.gateway.util.InternalSystemProperty.UDP_BOSS_COUNT;
 import static org.kaazing.gateway.util.InternalSystemProperty.UDP_IDLE_TIMEOUT;
 
 @BenchmarkMode(Mode.Throughput)
@@ -81,10 +83,15 @@ public class UdpAcceptorBM {
     private static AtomicInteger clientSent = new AtomicInteger(0);
     private static AtomicInteger clientReceived = new AtomicInteger(0);
 
+    // number of boss threads (SO_REUSEPORT sockets) servicing the bound port
+    @Param({"1", "2", "4", "8"})
+    public int bossCount;
+
     @Setup
     public void init() throws Exception {
         Map<String, Object> configuration = new HashMap<>();
         configuration.put(UDP_IDLE_TIMEOUT.getPropertyName(), "2");
+        configuration.put(UDP_BOSS_COUNT.getPropertyName(), Integer.toString(bossCount));
 
         addressFactory = ResourceAddressFactory.newResourceAddressFactory();
         TransportFactory transportFactory = TransportFactory.newTransportFactory(configuration);
@@ -23,10 +23,10 @@ import org.apache.mina.core.filterchain.IoFilterChain;
 import org.apache.mina.core.future.IoFuture;
 import org.apache.mina.core.service.IoHandler;
 import org.apache.mina.core.service.TransportMetadata;
-import org.apache.mina.core.session.DefaultIoSessionDataStructureFactory;
 import org.apache.mina.core.session.IoSessionInitializer;
 import org.kaazing.mina.core.service.AbstractIoServiceEx;
 import org.kaazing.mina.core.service.IoProcessorEx;
+import org.kaazing.mina.core.session.IoAlignedSessionDataStructureFactory;
 import org.kaazing.mina.core.session.IoSessionConfigEx;
 import org.kaazing.mina.util.ExceptionMonitor;
 import org.slf4j.Logger;
@@ -41,7 +41,7 @@ public abstract class AbstractBridgeService<T extends AbstractBridgeSession<?, ?
             public void execute(Runnable command) {}
         });
 
-        setSessionDataStructureFactory(new DefaultIoSessionDataStructureFactory());
+        setSessionDataStructureFactory(new IoAlignedSessionDataStructureFactory());
     }
 
     protected abstract Logger getLogger();
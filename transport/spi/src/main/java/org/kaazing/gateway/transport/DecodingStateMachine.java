@@ -15,8 +15,11 @@
  */
 package org.kaazing.gateway.transport;
 
+import static org.kaazing.mina.core.buffer.TransientBuffers.copyIfTransient;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.ListIterator;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.filterchain.IoFilter.NextFilter;
@@ -27,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
 
 /**
  * 
@@ -100,7 +104,9 @@ public abstract class DecodingStateMachine implements DecodingState {
                 }
                 pos = newPos;
             }
-            
+
+            // products are kept until decoding finishes, after the received buffer may have been reused
+            copyTransientProducts();
             return this;
         } catch (Exception e) {
             state = null;
@@ -148,6 +154,15 @@ public abstract class DecodingStateMachine implements DecodingState {
         return nextState;
     }
 
+    private void copyTransientProducts() {
+        for (ListIterator<Object> i = childProducts.listIterator(); i.hasNext();) {
+            Object product = i.next();
+            if (product instanceof IoBufferEx) {
+                i.set(copyIfTransient((IoBufferEx) product, allocator));
+            }
+        }
+    }
+
     private void cleanup() {
         if (!initialized) {
             throw new IllegalStateException();
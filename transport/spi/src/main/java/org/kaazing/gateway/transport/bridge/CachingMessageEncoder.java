@@ -15,6 +15,7 @@
  */
 package org.kaazing.gateway.transport.bridge;
 
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
 import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_ZERO_COPY;
 
 import java.util.concurrent.ConcurrentMap;
@@ -41,7 +42,14 @@ public abstract class CachingMessageEncoder {
         if (cachedBuffer == null) {
             // when cachedBuffer is null, perform encode, then cache the result
             // with standard atomic race condition awareness (put-if-absent)            
-            if ((flags & FLAG_ZERO_COPY) != 0) {
+            boolean shared = message.isCacheShared();
+            if (shared) {
+                // encodings are read concurrently by every IO thread, so they must be shared buffers, and
+                // the payload cannot be framed in place as other threads may be encoding it at the same time
+                flags |= FLAG_SHARED;
+                flags &= ~FLAG_ZERO_COPY;
+            }
+            else if ((flags & FLAG_ZERO_COPY) != 0) {
                 if (!cache.isEmpty()) {
                     flags &= ~FLAG_ZERO_COPY;
                 }
@@ -50,6 +58,7 @@ public abstract class CachingMessageEncoder {
             IoBufferEx newCachedBuffer = encoder.encode(allocator, message, flags);
             if (newCachedBuffer instanceof MessageBuffer<?>) {
                 MessageBuffer<?> cacheableBuffer = (MessageBuffer<?>) newCachedBuffer;
+                cacheableBuffer.setAutoCacheShared(shared);
                 cacheableBuffer.setAutoCache(true);
             }
             cachedBuffer = cache.putIfAbsent(cacheKey, newCachedBuffer);
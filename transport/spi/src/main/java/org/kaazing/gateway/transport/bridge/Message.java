@@ -41,22 +41,46 @@ public class Message implements Cloneable {
      */
     private ThreadLocal<ConcurrentMap<String, IoBufferEx>> cacheRef;
 
+    /**
+     * The optional transport encoded buffer cache shared by all IO threads.
+     */
+    private ConcurrentMap<String, IoBufferEx> sharedCache;
+
     /**
      * Initializes the transport buffer cache.
      */
     public void initCache() {
-        if (cacheRef != null) {
+        initCache(false);
+    }
+
+    /**
+     * Initializes the transport buffer cache.
+     *
+     * @param shared  true if each transport encoding should be computed once and shared by all IO threads,
+     *                false if each IO thread keeps its own encodings
+     */
+    public void initCache(boolean shared) {
+        if (hasCache()) {
             throw new IllegalStateException("Cache already initialized");
         }
-        cacheRef = new CacheRef();
+        if (shared) {
+            sharedCache = new ConcurrentHashMap<>();
+        }
+        else {
+            cacheRef = new CacheRef();
+        }
     }
-    
+
     public ConcurrentMap<String, IoBufferEx> getCache() {
-        return cacheRef.get();
+        return (sharedCache != null) ? sharedCache : cacheRef.get();
     }
-    
+
     public boolean hasCache() {
-        return (cacheRef != null);
+        return (cacheRef != null) || (sharedCache != null);
+    }
+
+    public boolean isCacheShared() {
+        return (sharedCache != null);
     }
 
     // A more verbose (and expensive-to-generate) version of toString(),
@@ -69,6 +93,7 @@ public class Message implements Cloneable {
     public Object clone() throws CloneNotSupportedException {
         Message clonedMessage = (Message)super.clone();
         clonedMessage.cacheRef = null;
+        clonedMessage.sharedCache = null;
         return clonedMessage;
     }
     
@@ -25,6 +25,7 @@ public abstract class MessageBuffer<T extends Message> extends AbstractIoBufferE
     private ByteBuffer buf;
     private AtomicReference<T> message;
     private volatile boolean autoCache;
+    private volatile boolean autoCacheShared;
 
     protected MessageBuffer(ByteBuffer buf) {
         super(buf.capacity());
@@ -100,4 +101,16 @@ public abstract class MessageBuffer<T extends Message> extends AbstractIoBufferE
     public boolean isAutoCache() {
         return autoCache;
     }
+
+    public void setAutoCacheShared(boolean autoCacheShared) {
+        this.autoCacheShared = autoCacheShared;
+    }
+
+    /**
+     * Indicates whether the message derived from this auto-cached buffer should use a cache shared
+     * by all IO threads, see {@link Message#initCache(boolean)}.
+     */
+    public boolean isAutoCacheShared() {
+        return autoCacheShared;
+    }
 }
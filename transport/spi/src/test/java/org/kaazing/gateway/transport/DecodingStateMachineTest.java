@@ -0,0 +1,86 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.filter.codec.ProtocolDecoderOutput;
+import org.apache.mina.filter.codec.statemachine.DecodingState;
+import org.junit.Test;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.netty.ChannelIoBufferAllocator;
+
+public class DecodingStateMachineTest {
+
+    @Test
+    public void shouldCopyTransientProductsKeptForMoreData() throws Exception {
+        byte[] received = "ab".getBytes("US-ASCII");
+        IoBufferEx in = new ChannelIoBufferAllocator().wrapTransient(ByteBuffer.wrap(received), null);
+
+        DecodingStateMachine machine = new TwoPartDecodingStateMachine();
+        machine.decode((IoBuffer) in, null);
+
+        // the next read reuses the received buffer
+        received[0] = 'x';
+        received[1] = 'y';
+
+        IoBufferEx product = (IoBufferEx) machine.childProducts.get(0);
+        assertFalse(product.isTransient());
+        assertEquals(2, product.remaining());
+        assertEquals('a', product.get(0));
+        assertEquals('b', product.get(1));
+    }
+
+    // keeps each part received as a product until two parts have been received
+    private static final class TwoPartDecodingStateMachine extends DecodingStateMachine {
+
+        TwoPartDecodingStateMachine() {
+            super(BUFFER_ALLOCATOR);
+        }
+
+        @Override
+        protected DecodingState init() throws Exception {
+            return new DecodingState() {
+                @Override
+                public DecodingState decode(IoBuffer in, ProtocolDecoderOutput out) throws Exception {
+                    out.write(((IoBufferEx) in).slice());
+                    in.position(in.limit());
+                    return (childProducts.size() < 2) ? this : null;
+                }
+
+                @Override
+                public DecodingState finishDecode(ProtocolDecoderOutput out) throws Exception {
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        protected DecodingState finishDecode(List<Object> childProducts, ProtocolDecoderOutput out) throws Exception {
+            return null;
+        }
+
+        @Override
+        protected void destroy() throws Exception {
+        }
+    }
+}
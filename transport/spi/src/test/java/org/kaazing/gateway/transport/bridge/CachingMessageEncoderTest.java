@@ -0,0 +1,110 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.gateway.transport.bridge.CachingMessageEncoder.IO_MESSAGE_ENCODER;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_ZERO_COPY;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+
+public class CachingMessageEncoderTest {
+
+    @Test
+    public void shouldEncodeOncePerThreadWithThreadLocalCache() throws Exception {
+        final Message message = new Message();
+        message.initCache();
+        final CountingEncoder encoder = new CountingEncoder();
+
+        IoBufferEx encoded = IO_MESSAGE_ENCODER.encode(encoder, message, BUFFER_ALLOCATOR, FLAG_SHARED | FLAG_ZERO_COPY);
+        assertSame(encoded, IO_MESSAGE_ENCODER.encode(encoder, message, BUFFER_ALLOCATOR, FLAG_SHARED | FLAG_ZERO_COPY));
+        assertTrue((encoder.lastFlags & FLAG_ZERO_COPY) != 0);
+
+        IoBufferEx encodedInOtherThread = encodeInOtherThread(encoder, message);
+        assertNotSame(encoded, encodedInOtherThread);
+        assertEquals(2, encoder.count.get());
+    }
+
+    @Test
+    public void shouldEncodeOnceForAllThreadsWithSharedCache() throws Exception {
+        final Message message = new Message();
+        message.initCache(true);
+        final CountingEncoder encoder = new CountingEncoder();
+
+        IoBufferEx encoded = IO_MESSAGE_ENCODER.encode(encoder, message, BUFFER_ALLOCATOR, FLAG_ZERO_COPY);
+        assertSame(encoded, encodeInOtherThread(encoder, message));
+        assertEquals(1, encoder.count.get());
+
+        // shared encodings must be shared buffers and never framed in place
+        assertTrue((encoder.lastFlags & FLAG_SHARED) != 0);
+        assertFalse((encoder.lastFlags & FLAG_ZERO_COPY) != 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotInitializeCacheTwice() throws Exception {
+        Message message = new Message();
+        message.initCache(true);
+        message.initCache();
+    }
+
+    @Test
+    public void shouldNotCloneCache() throws Exception {
+        Message message = new Message();
+        message.initCache(true);
+        Message cloned = (Message) message.clone();
+        assertTrue(message.isCacheShared());
+        assertFalse(cloned.hasCache());
+        assertFalse(cloned.isCacheShared());
+    }
+
+    private static IoBufferEx encodeInOtherThread(final MessageEncoder<Message> encoder, final Message message)
+            throws InterruptedException {
+        final AtomicReference<IoBufferEx> result = new AtomicReference<>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                result.set(IO_MESSAGE_ENCODER.encode(encoder, message, BUFFER_ALLOCATOR, FLAG_SHARED | FLAG_ZERO_COPY));
+            }
+        };
+        thread.start();
+        thread.join();
+        return result.get();
+    }
+
+    private static final class CountingEncoder implements MessageEncoder<Message> {
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile int lastFlags;
+
+        @Override
+        public IoBufferEx encode(IoBufferAllocatorEx<?> allocator, Message message, int flags) {
+            count.incrementAndGet();
+            lastFlags = flags;
+            return allocator.wrap(ByteBuffer.wrap(new byte[] { 0x01, 0x02 }), flags);
+        }
+    }
+}
@@ -166,21 +166,29 @@ public class SseAcceptProcessor extends BridgeAcceptProcessor<SseSession> {
                             // cache newly constructed message (atomic update)
                             SseMessage newSseMessage = new SseMessage();
                             newSseMessage.setData(buf);
+                            session.assignEventId(newSseMessage);
                             if (sseBuffer.isAutoCache()) {
                                 // buffer is cached on parent, continue with derived caching
-                                newSseMessage.initCache();
+                                newSseMessage.initCache(sseBuffer.isAutoCacheShared());
                             }
                             boolean wasUpdated = sseBuffer.setMessage(newSseMessage);
                             sseMessage = wasUpdated ? newSseMessage : sseBuffer.getMessage();
+                            if (wasUpdated) {
+                                // message (and event id) can be shared by every session this buffer is written to
+                                session.eventCreated(sseMessage, true);
+                            }
                         }
                         // flush the buffer out to the session
                         lastWrite = flushNowInternal(parent, sseMessage, sseBuffer, filterChain, request);
+                        session.eventSent(sseMessage, true);
                     }
                     else {
                         SseMessage sseMessage = new SseMessage();
                         sseMessage.setData(buf);
+                        session.assignEventId(sseMessage);
                         // flush the buffer out to the session
                         lastWrite = flushNowInternal(parent, sseMessage, buf, filterChain, request);
+                        session.eventSent(sseMessage, false);
                     }
 
                     // increment session written bytes
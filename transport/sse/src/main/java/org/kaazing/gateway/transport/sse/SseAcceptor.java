@@ -19,10 +19,17 @@ import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.mina.core.session.IdleStatus.WRITER_IDLE;
 import static org.kaazing.gateway.resource.address.ResourceAddress.TRANSPORT;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSE_REPLAY_AGE;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSE_REPLAY_BYTES;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSE_REPLAY_EVENTS;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSE_REPLAY_SHARED;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -91,6 +98,8 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
 
     private static final String CODEC_FILTER = SseProtocol.NAME + "#codec";
 
+    private static final String HEADER_LAST_EVENT_ID = "Last-Event-ID";
+
     // TODO: make these settings available via configuration, with a reasonable default
     private static final long TIME_TO_FIRST_WRITE_MILLIS = SECONDS.toMillis(5);
     private static final long TIME_TO_PULSE_MILLIS = SECONDS.toMillis(30L);
@@ -98,6 +107,13 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
 
     private ScheduledExecutorService scheduler;
 
+    // replay rings per SSE bind address, issuing event ids and retaining events shared by its sessions
+    private final ConcurrentMap<ResourceAddress, SseReplayRing> replayRings = new ConcurrentHashMap<>();
+    private int replayEvents;
+    private int replayBytes;
+    private long replayAgeMillis;
+    private boolean sharedReplay;
+
     private IoFilter sseCodec;
 
     private BridgeServiceFactory bridgeServiceFactory;
@@ -118,6 +134,14 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
     }
 
 
+    @Resource(name = "configuration")
+    public void setConfiguration(Properties configuration) {
+        this.replayEvents = SSE_REPLAY_EVENTS.getIntProperty(configuration);
+        this.replayBytes = SSE_REPLAY_BYTES.getIntProperty(configuration);
+        this.replayAgeMillis = SECONDS.toMillis(SSE_REPLAY_AGE.getIntProperty(configuration));
+        this.sharedReplay = SSE_REPLAY_SHARED.getBooleanProperty(configuration);
+    }
+
     @Resource(name = "schedulerProvider")
     public void setSchedulerProvider(SchedulerProvider provider) {
         this.scheduler = provider.getScheduler("KeepAlive-Sse", true);
@@ -191,6 +215,7 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
 
     @Override
     protected UnbindFuture unbindInternal(ResourceAddress address, IoHandler handler, BridgeSessionInitializer<? extends IoFuture> initializer) {
+        replayRings.remove(address);
         final ResourceAddress transportBindAddress = address.getTransport();
         final BridgeAcceptor transportAcceptor = bridgeServiceFactory.newBridgeAcceptor(transportBindAddress);
         return transportAcceptor.unbind(transportBindAddress);
@@ -202,6 +227,18 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
         return super.dispose0();
     }
 
+    private SseReplayRing replayRing(ResourceAddress sseBindAddress) {
+        SseReplayRing replayRing = replayRings.get(sseBindAddress);
+        if (replayRing == null) {
+            SseReplayRing newReplayRing = new SseReplayRing(replayEvents, replayBytes, replayAgeMillis);
+            replayRing = replayRings.putIfAbsent(sseBindAddress, newReplayRing);
+            if (replayRing == null) {
+                replayRing = newReplayRing;
+            }
+        }
+        return replayRing;
+    }
+
     private IoHandler selectTransportHandler(ResourceAddress address) {
         Protocol protocol  = bridgeServiceFactory.getTransportFactory().getProtocol(address.getResource());
         if ( protocol instanceof HttpProtocol ) {
@@ -333,6 +370,12 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
                                                            allocator,
                                                            httpSession);
                     sseSession.setHandler(sseHandler);
+                    if (replayEvents > 0) {
+                        SseReplayRing bindingReplayRing = replayRing(sseBindAddress);
+                        SseReplayRing replayRing = new SseReplayRing(replayEvents, replayBytes, replayAgeMillis);
+                        SseSentEventIds sentSharedEventIds = new SseSentEventIds(replayEvents);
+                        sseSession.setReplayRings(bindingReplayRing, replayRing, sentSharedEventIds, sharedReplay);
+                    }
                     return sseSession;
                 }
             });
@@ -516,6 +559,12 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
                 httpSession.write(sseMessage);
             }
 
+            // resend the events the client may have missed while reconnecting to its session location; a request to
+            // the create location, as made by a standard EventSource, starts a new session with no events to replay
+            if (hasSessionId(httpSession)) {
+                replayEvents(httpSession);
+            }
+
             // attach now or attach after commit if header flush is required
             if (!useHttpStreaming) {
                 // currently this is required for Silverlight as it seems to want some data to be
@@ -554,6 +603,27 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
             // attach http session to sse session
             sseSession.attach(httpSession);
         }
+
+        private void replayEvents(HttpAcceptSession httpSession) {
+            String lastEventId = httpSession.getReadHeader(HEADER_LAST_EVENT_ID);
+            if (lastEventId == null) {
+                return;
+            }
+
+            long lastId;
+            try {
+                lastId = Long.parseLong(lastEventId.trim());
+            }
+            catch (NumberFormatException e) {
+                // not an event id issued by this acceptor
+                return;
+            }
+
+            int replayed = sseSession.replay(lastId, httpSession);
+            if (logger.isDebugEnabled()) {
+                logger.debug(format("Replayed %d events after Last-Event-ID %d on SSE session %s", replayed, lastId, sseSession));
+            }
+        }
     }
 
     private URI locateSecureAcceptURI(HttpAcceptSession session) throws Exception {
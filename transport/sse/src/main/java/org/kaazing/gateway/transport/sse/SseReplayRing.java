@@ -0,0 +1,133 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.sse;
+
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kaazing.gateway.transport.sse.bridge.SseMessage;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+
+/**
+ * Bounded ring of recently sent SSE events, replayed to a client reconnecting with a Last-Event-ID.
+ * Events are evicted oldest first once the ring holds more than the maximum number of events,
+ * more than the maximum number of data bytes, or events older than the maximum age.
+ *
+ * The ring of an SSE binding also issues the event ids of all its sessions, and holds the events
+ * shared by its sessions, such as broadcast messages, so that they are retained once per binding
+ * rather than once per session. Each session records the ids of the shared events it has sent
+ * in {@link SseSentEventIds}, and only those are replayed to it.
+ */
+final class SseReplayRing {
+
+    private final AtomicLong lastEventId;
+    private final int maxEvents;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+
+    // allocated on first append, as sessions sending only shared events never retain any
+    private long[] ids;
+    private long[] timestamps;
+    private int[] sizes;
+    private SseMessage[] events;
+    private int head;
+    private int count;
+    private long bytes;
+
+    SseReplayRing(int maxEvents, long maxBytes, long maxAgeMillis) {
+        this.lastEventId = new AtomicLong();
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    long nextEventId() {
+        return lastEventId.incrementAndGet();
+    }
+
+    long lastEventId() {
+        return lastEventId.get();
+    }
+
+    synchronized void append(long id, SseMessage event, long now) {
+        int size = size(event);
+        if (size > maxBytes) {
+            return;
+        }
+
+        if (events == null) {
+            ids = new long[maxEvents];
+            timestamps = new long[maxEvents];
+            sizes = new int[maxEvents];
+            events = new SseMessage[maxEvents];
+        }
+
+        expire(now);
+        while (count == maxEvents || bytes + size > maxBytes) {
+            evict();
+        }
+
+        int tail = (head + count) % maxEvents;
+        ids[tail] = id;
+        timestamps[tail] = now;
+        sizes[tail] = size;
+        events[tail] = event;
+        bytes += size;
+        count++;
+    }
+
+    /*
+     * Collects the retained events with ids after lastId, restricted to the given ids unless null
+     */
+    synchronized void replay(long lastId, Set<Long> includedIds, long now, SortedMap<Long, SseMessage> replayed) {
+        expire(now);
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % maxEvents;
+            long id = ids[index];
+            if (id > lastId && (includedIds == null || includedIds.contains(id))) {
+                replayed.put(id, events[index]);
+            }
+        }
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    private void expire(long now) {
+        long expiredBefore = now - maxAgeMillis;
+        while (count > 0 && timestamps[head] < expiredBefore) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        bytes -= sizes[head];
+        events[head] = null;
+        head = (head + 1) % maxEvents;
+        count--;
+    }
+
+    private static int size(SseMessage event) {
+        IoBufferEx data = event.getData();
+        return (data != null) ? data.remaining() : 0;
+    }
+}
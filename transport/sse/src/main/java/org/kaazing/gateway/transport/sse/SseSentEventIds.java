@@ -0,0 +1,68 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.sse;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Bounded record of the ids of the shared events an SSE session has sent, oldest first. The binding ring
+ * holds events sent to any of its sessions, so a reconnecting client is only replayed the ids recorded here.
+ */
+final class SseSentEventIds {
+
+    private final int maxIds;
+
+    // allocated on first add, as sessions sending no shared events never record any
+    private long[] ids;
+    private int head;
+    private int count;
+
+    SseSentEventIds(int maxIds) {
+        this.maxIds = maxIds;
+    }
+
+    synchronized void add(long id) {
+        if (ids == null) {
+            ids = new long[maxIds];
+        }
+
+        if (count == maxIds) {
+            head = (head + 1) % maxIds;
+            count--;
+        }
+        ids[(head + count) % maxIds] = id;
+        count++;
+    }
+
+    /*
+     * Returns the recorded ids after lastId
+     */
+    synchronized Set<Long> after(long lastId) {
+        Set<Long> after = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            long id = ids[(head + i) % maxIds];
+            if (id > lastId) {
+                after.add(id);
+            }
+        }
+        return after;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+}
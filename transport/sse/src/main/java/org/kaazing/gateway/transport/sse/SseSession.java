@@ -15,6 +15,9 @@
  */
 package org.kaazing.gateway.transport.sse;
 
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.Executor;
 
 import org.apache.mina.core.future.CloseFuture;
@@ -26,6 +29,7 @@ import org.kaazing.gateway.transport.Direction;
 import org.kaazing.gateway.transport.bridge.CachingMessageEncoder;
 import org.kaazing.gateway.transport.bridge.Message;
 import org.kaazing.gateway.transport.bridge.MessageEncoder;
+import org.kaazing.gateway.transport.sse.bridge.SseMessage;
 import org.kaazing.gateway.transport.sse.bridge.filter.SseBuffer;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
@@ -49,6 +53,15 @@ public class SseSession extends AbstractBridgeSession<SseSession, SseBuffer> {
     // for a customer.
     private final IoSessionEx parentSession;
 
+    // replay of events missed by a reconnecting client, null when replay is disabled
+    private SseReplayRing bindingReplayRing;
+    private SseReplayRing replayRing;
+    private boolean sharedReplay;
+
+    // ids of the events retained by the binding that this session has sent, as the binding ring also
+    // holds events sent only to other sessions, or sent before this session was created
+    private SseSentEventIds sentSharedEventIds;
+
     public SseSession(IoServiceEx service, IoProcessorEx<SseSession> processor, ResourceAddress localAddress, ResourceAddress remoteAddress, IoSessionEx parent,
                       IoBufferAllocatorEx<SseBuffer> allocator) {
     	super(service, processor, localAddress, remoteAddress, parent, allocator, Direction.WRITE, new DefaultSseSessionConfig());
@@ -125,6 +138,72 @@ public class SseSession extends AbstractBridgeSession<SseSession, SseBuffer> {
 		return super.setParent(parent);
 	}
 
+    void setReplayRings(SseReplayRing bindingReplayRing, SseReplayRing replayRing, SseSentEventIds sentSharedEventIds,
+                        boolean sharedReplay) {
+        this.bindingReplayRing = bindingReplayRing;
+        this.replayRing = replayRing;
+        this.sentSharedEventIds = sentSharedEventIds;
+        this.sharedReplay = sharedReplay;
+    }
+
+    /*
+     * Assigns the next event id of the binding to a new event, if replay is enabled
+     */
+    void assignEventId(SseMessage event) {
+        if (bindingReplayRing != null) {
+            event.setId(Long.toString(bindingReplayRing.nextEventId()));
+        }
+    }
+
+    /*
+     * Retains a new event written to this session, or a new event that may be written to other
+     * sessions of the binding too, which is retained once by the binding when replay is shared
+     */
+    void eventCreated(SseMessage event, boolean shareable) {
+        if (bindingReplayRing != null && shareable && sharedReplay) {
+            bindingReplayRing.append(Long.parseLong(event.getId()), event, System.currentTimeMillis());
+        }
+    }
+
+    void eventSent(SseMessage event, boolean shareable) {
+        if (bindingReplayRing == null || event.getId() == null) {
+            return;
+        }
+
+        long id = Long.parseLong(event.getId());
+        if (shareable && sharedReplay) {
+            sentSharedEventIds.add(id);
+        }
+        else {
+            replayRing.append(id, event, System.currentTimeMillis());
+        }
+    }
+
+    /*
+     * Writes the retained events sent after the given event id to the new parent, in id order.  Only a client
+     * reconnecting to the location of this session can have missed its events, the create location starts a new session
+     */
+    int replay(long lastEventId, IoSession newParent) {
+        if (bindingReplayRing == null) {
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+        SortedMap<Long, SseMessage> replayed = new TreeMap<>();
+        replayRing.replay(lastEventId, null, now, replayed);
+        if (sharedReplay) {
+            Set<Long> sentIds = sentSharedEventIds.after(lastEventId);
+            if (!sentIds.isEmpty()) {
+                bindingReplayRing.replay(lastEventId, sentIds, now, replayed);
+            }
+        }
+
+        for (SseMessage event : replayed.values()) {
+            newParent.write(event);
+        }
+        return replayed.size();
+    }
+
     // Temporary workaround till issues related to setting the 'parent' member variable
     // in the super class are addressed. This method is used in an extension-service
     // built for a customer
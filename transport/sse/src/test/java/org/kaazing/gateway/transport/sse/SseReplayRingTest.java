@@ -0,0 +1,147 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.sse;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.kaazing.gateway.transport.sse.bridge.SseMessage;
+
+public class SseReplayRingTest {
+
+    @Test
+    public void shouldIssueMonotonicEventIds() {
+        SseReplayRing ring = new SseReplayRing(4, 1024, 60000);
+
+        assertEquals(0L, ring.lastEventId());
+        assertEquals(1L, ring.nextEventId());
+        assertEquals(2L, ring.nextEventId());
+        assertEquals(2L, ring.lastEventId());
+    }
+
+    @Test
+    public void shouldReplayEventsAfterLastEventId() {
+        SseReplayRing ring = new SseReplayRing(4, 1024, 60000);
+        SseMessage first = event("first");
+        SseMessage second = event("second");
+        SseMessage third = event("third");
+        ring.append(1L, first, 0L);
+        ring.append(2L, second, 0L);
+        ring.append(3L, third, 0L);
+
+        SortedMap<Long, SseMessage> replayed = new TreeMap<>();
+        ring.replay(1L, null, 0L, replayed);
+
+        assertEquals(2, replayed.size());
+        assertSame(second, replayed.get(2L));
+        assertSame(third, replayed.get(3L));
+    }
+
+    @Test
+    public void shouldReplayOnlyEventsSentToSession() {
+        SseReplayRing ring = new SseReplayRing(8, 1024, 60000);
+        for (long id = 1L; id <= 6L; id++) {
+            ring.append(id, event("event"), 0L);
+        }
+
+        // the session was created after event 1, and events 3 and 5 went to other sessions only
+        SseSentEventIds sentIds = new SseSentEventIds(8);
+        sentIds.add(2L);
+        sentIds.add(4L);
+        sentIds.add(6L);
+
+        SortedMap<Long, SseMessage> replayed = new TreeMap<>();
+        ring.replay(2L, sentIds.after(2L), 0L, replayed);
+
+        assertEquals(2, replayed.size());
+        assertTrue(replayed.containsKey(4L));
+        assertTrue(replayed.containsKey(6L));
+    }
+
+    @Test
+    public void shouldRecordOnlyMostRecentSentEventIds() {
+        SseSentEventIds sentIds = new SseSentEventIds(2);
+        sentIds.add(1L);
+        sentIds.add(3L);
+        sentIds.add(7L);
+
+        assertEquals(2, sentIds.size());
+        assertEquals(new HashSet<>(Arrays.asList(3L, 7L)), sentIds.after(0L));
+        assertEquals(new HashSet<>(Arrays.asList(7L)), sentIds.after(3L));
+    }
+
+    @Test
+    public void shouldEvictOldestEventsBeyondMaxEvents() {
+        SseReplayRing ring = new SseReplayRing(2, 1024, 60000);
+        ring.append(1L, event("first"), 0L);
+        ring.append(2L, event("second"), 0L);
+        ring.append(3L, event("third"), 0L);
+
+        SortedMap<Long, SseMessage> replayed = new TreeMap<>();
+        ring.replay(0L, null, 0L, replayed);
+
+        assertEquals(2, ring.size());
+        assertEquals(2L, (long) replayed.firstKey());
+        assertEquals(3L, (long) replayed.lastKey());
+    }
+
+    @Test
+    public void shouldEvictOldestEventsBeyondMaxBytes() {
+        SseReplayRing ring = new SseReplayRing(8, 10, 60000);
+        ring.append(1L, event("12345"), 0L);
+        ring.append(2L, event("12345"), 0L);
+        ring.append(3L, event("123"), 0L);
+
+        assertEquals(2, ring.size());
+        assertEquals(8L, ring.bytes());
+    }
+
+    @Test
+    public void shouldNotRetainEventLargerThanMaxBytes() {
+        SseReplayRing ring = new SseReplayRing(8, 4, 60000);
+        ring.append(1L, event("12345"), 0L);
+
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void shouldExpireEventsOlderThanMaxAge() {
+        SseReplayRing ring = new SseReplayRing(8, 1024, 1000);
+        ring.append(1L, event("first"), 0L);
+        ring.append(2L, event("second"), 500L);
+
+        SortedMap<Long, SseMessage> replayed = new TreeMap<>();
+        ring.replay(0L, null, 1200L, replayed);
+
+        assertEquals(1, replayed.size());
+        assertTrue(replayed.containsKey(2L));
+        assertEquals(6L, ring.bytes());
+    }
+
+    private static SseMessage event(String data) {
+        return new SseMessage(null, BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(data.getBytes(UTF_8))));
+    }
+}
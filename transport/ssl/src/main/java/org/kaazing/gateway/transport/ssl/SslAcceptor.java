@@ -27,6 +27,10 @@ import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.WANT_C
 import static org.kaazing.gateway.transport.BridgeSession.LOCAL_ADDRESS;
 import static org.kaazing.gateway.transport.BridgeSession.NEXT_PROTOCOL_KEY;
 import static org.kaazing.gateway.transport.BridgeSession.REMOTE_ADDRESS;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_QUEUE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_THREADS;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_SESSION_CACHE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_SESSION_TIMEOUT;
 
 import java.io.IOException;
 import java.net.URI;
@@ -37,6 +41,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 import java.util.SortedSet;
 import java.util.concurrent.Callable;
 
@@ -79,6 +84,7 @@ import org.kaazing.gateway.transport.TypedAttributeKey;
 import org.kaazing.gateway.transport.dispatch.ProtocolDispatcher;
 import org.kaazing.gateway.transport.ssl.bridge.filter.SslCertificateSelectionFilter;
 import org.kaazing.gateway.transport.ssl.bridge.filter.SslFilter;
+import org.kaazing.gateway.transport.ssl.bridge.filter.SslHandshakeExecutor;
 import org.kaazing.gateway.transport.ssl.cert.VirtualHostKeySelector;
 import org.kaazing.gateway.util.ssl.SslCipherSuites;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
@@ -106,6 +112,9 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
     private ResourceAddressFactory resourceAddressFactory;
     private BridgeServiceFactory bridgeServiceFactory;
     private VirtualHostKeySelector vhostKeySelector;
+    private Properties configuration = new Properties();
+    private boolean sessionResumption;
+    private SslHandshakeExecutor handshakeExecutor;
 
     // TODO: SslBindings like HttpBindings
     
@@ -123,6 +132,11 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
         this.resourceAddressFactory = factory;
     }
 
+    @Resource(name = "configuration")
+    public void setConfiguration(Properties configuration) {
+        this.configuration = configuration;
+    }
+
     @Resource(name = "securityContext")
     public void setSecurityContext(SecurityContext securityContext) {
         vhostKeySelector = new VirtualHostKeySelector();
@@ -144,11 +158,6 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
             // various key selection criteria
             KeyManagerFactory kmf = KeyManagerFactory.getInstance("SslTransport", new SslProvider());
             sslContextFactory.setKeyManagerFactory(kmf);
-
-            // avoid caching SSLSession in shared SSLContextFactory instance
-            // Note: SSLSessionContext.setSessionCacheSize(0) means unlimited,
-            // so we use 1 instead
-            sslContextFactory.setServerSessionCacheSize(1);
         } catch (NoSuchAlgorithmException ne) {
             throw new RuntimeException(ne);
         }
@@ -163,7 +172,15 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
     protected void init() {
         super.init();
 
+        // Each acceptor owns its SSLContext, so the server session cache is bounded per acceptor.
+        // Note: SSLSessionContext.setSessionCacheSize(0) means unlimited, so when resumption is
+        // disabled we keep a single entry and invalidate every session once its handshake completes
+        int sessionCacheSize = SSL_SESSION_CACHE_SIZE.getIntProperty(configuration);
+        sessionResumption = sessionCacheSize > 0;
+
         try {
+            sslContextFactory.setServerSessionCacheSize(sessionResumption ? sessionCacheSize : 1);
+            sslContextFactory.setServerSessionTimeout(SSL_SESSION_TIMEOUT.getIntProperty(configuration));
             sslContext = sslContextFactory.newInstance();
 
         } catch (UnrecoverableKeyException uke) {
@@ -179,6 +196,20 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
         }
 
         certificateSelection = new SslCertificateSelectionFilter(false);
+
+        int handshakeThreads = SSL_HANDSHAKE_THREADS.getIntProperty(configuration);
+        if (handshakeThreads > 0) {
+            int handshakeQueueSize = SSL_HANDSHAKE_QUEUE_SIZE.getIntProperty(configuration);
+            handshakeExecutor = new SslHandshakeExecutor("ssl-accept-handshake", handshakeThreads, handshakeQueueSize);
+        }
+    }
+
+    @Override
+    protected IoFuture dispose0() throws Exception {
+        if (handshakeExecutor != null) {
+            handshakeExecutor.shutdown();
+        }
+        return super.dispose0();
     }
 
     @Override
@@ -216,6 +247,8 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
         // Create our SslFilter instance, and configure it based on the
         // resource address.
         SslFilter sslFilter = new SslFilter(sslContext, false, logger);
+        sslFilter.setSessionResumption(sessionResumption);
+        sslFilter.setHandshakeExecutor(handshakeExecutor);
 
         IoSession session = filterChain.getSession();
 
@@ -22,6 +22,8 @@ import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.KEY_SE
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.NEED_CLIENT_AUTH;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.WANT_CLIENT_AUTH;
 import static org.kaazing.gateway.transport.BridgeSession.LOCAL_ADDRESS;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_QUEUE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_THREADS;
 import static java.lang.String.format;
 
 import java.io.IOException;
@@ -30,6 +32,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
@@ -39,6 +42,7 @@ import javax.net.ssl.SSLContext;
 import org.apache.mina.core.filterchain.IoFilterChain;
 import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.future.DefaultConnectFuture;
+import org.apache.mina.core.future.IoFuture;
 import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.service.IoHandler;
 import org.apache.mina.core.service.TransportMetadata;
@@ -65,6 +69,7 @@ import org.kaazing.gateway.transport.TransportKeySelector;
 import org.kaazing.gateway.transport.TypedAttributeKey;
 import org.kaazing.gateway.transport.ssl.bridge.filter.SslCertificateSelectionFilter;
 import org.kaazing.gateway.transport.ssl.bridge.filter.SslFilter;
+import org.kaazing.gateway.transport.ssl.bridge.filter.SslHandshakeExecutor;
 import org.kaazing.gateway.transport.ssl.cert.VirtualHostKeySelector;
 import org.kaazing.gateway.util.ssl.SslCipherSuites;
 import org.kaazing.mina.core.service.IoProcessorEx;
@@ -85,6 +90,8 @@ public class SslConnector extends AbstractBridgeConnector<SslSession> {
     private SslCertificateSelectionFilter certificateSelection;
     private ResourceAddressFactory resourceAddressFactory;
     private VirtualHostKeySelector vhostKeySelector;
+    private Properties configuration = new Properties();
+    private SslHandshakeExecutor handshakeExecutor;
 
     public SslConnector() {
         super(new DefaultIoSessionConfigEx());
@@ -100,6 +107,11 @@ public class SslConnector extends AbstractBridgeConnector<SslSession> {
         this.bridgeServiceFactory = bridgeServiceFactory;
     }
 
+    @Resource(name = "configuration")
+    public void setConfiguration(Properties configuration) {
+        this.configuration = configuration;
+    }
+
     @Resource(name = "securityContext")
     public void setSecurityContext(SecurityContext securityContext) {
         vhostKeySelector = new VirtualHostKeySelector();
@@ -149,6 +161,20 @@ public class SslConnector extends AbstractBridgeConnector<SslSession> {
         }
 
         certificateSelection = new SslCertificateSelectionFilter(true);
+
+        int handshakeThreads = SSL_HANDSHAKE_THREADS.getIntProperty(configuration);
+        if (handshakeThreads > 0) {
+            int handshakeQueueSize = SSL_HANDSHAKE_QUEUE_SIZE.getIntProperty(configuration);
+            handshakeExecutor = new SslHandshakeExecutor("ssl-connect-handshake", handshakeThreads, handshakeQueueSize);
+        }
+    }
+
+    @Override
+    protected IoFuture dispose0() throws Exception {
+        if (handshakeExecutor != null) {
+            handshakeExecutor.shutdown();
+        }
+        return super.dispose0();
     }
 
     @Override
@@ -167,6 +193,7 @@ public class SslConnector extends AbstractBridgeConnector<SslSession> {
                 // resource address.
                 SslFilter sslFilter = new SslFilter(sslContext, true, logger);
                 sslFilter.setUseClientMode(true);
+                sslFilter.setHandshakeExecutor(handshakeExecutor);
 
                 boolean wantClientAuth = address.getOption(WANT_CLIENT_AUTH);
                 boolean needClientAuth = address.getOption(NEED_CLIENT_AUTH);
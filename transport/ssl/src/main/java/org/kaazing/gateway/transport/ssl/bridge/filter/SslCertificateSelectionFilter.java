@@ -119,6 +119,11 @@ public class SslCertificateSelectionFilter
         return certAliases.get(serverInfo.getCertAliasesKey());
     }
 
+    public static ResourceAddress getAvailableCertAliasesKey(boolean clientMode) {
+        AvailableCertInfo certInfo = (clientMode ? availClientCertInfo.get() : availServerCertInfo.get());
+        return certInfo.getCertAliasesKey();
+    }
+
     public static void setAvailableCertAliases(ResourceAddress key,
                                                Collection<String> aliases,
                                                boolean clientMode) {
@@ -17,6 +17,7 @@ package org.kaazing.gateway.transport.ssl.bridge.filter;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.List;
 
 import javax.net.ssl.SSLContext;
@@ -142,6 +143,11 @@ public class SslFilter extends IoFilterAdapter {
     public static final SslFilterMessage SESSION_UNSECURED = new SslFilterMessage(
             "SESSION_UNSECURED");
 
+    private static final AtomicLong FULL_HANDSHAKES = new AtomicLong();
+    private static final AtomicLong FULL_HANDSHAKE_TIME_NANOS = new AtomicLong();
+    private static final AtomicLong RESUMED_HANDSHAKES = new AtomicLong();
+    private static final AtomicLong RESUMED_HANDSHAKE_TIME_NANOS = new AtomicLong();
+
     private static final AttributeKey NEXT_FILTER = new AttributeKey(SslFilter.class, "nextFilter");
     private static final AttributeKey SSL_HANDLER = new AttributeKey(SslFilter.class, "handler");
 
@@ -166,6 +172,10 @@ public class SslFilter extends IoFilterAdapter {
 
     private String[] enabledProtocols;
 
+    private boolean sessionResumption = true;
+
+    private SslHandshakeExecutor handshakeExecutor;
+
     /**
      * Creates a new SSL filter using the specified {@link SSLContext}.
      * The handshake will start immediately.
@@ -189,6 +199,45 @@ public class SslFilter extends IoFilterAdapter {
         this.logger = logger;
     }
 
+    /**
+     * Returns the number of server handshakes that negotiated a new session.
+     */
+    public static long getFullHandshakeCount() {
+        return FULL_HANDSHAKES.get();
+    }
+
+    /**
+     * Returns the total time spent in server handshakes that negotiated a new session.
+     */
+    public static long getFullHandshakeTimeNanos() {
+        return FULL_HANDSHAKE_TIME_NANOS.get();
+    }
+
+    /**
+     * Returns the number of server handshakes that resumed a cached session.
+     */
+    public static long getResumedHandshakeCount() {
+        return RESUMED_HANDSHAKES.get();
+    }
+
+    /**
+     * Returns the total time spent in server handshakes that resumed a cached session.
+     */
+    public static long getResumedHandshakeTimeNanos() {
+        return RESUMED_HANDSHAKE_TIME_NANOS.get();
+    }
+
+    static void recordHandshake(boolean resumed, long handshakeTimeNanos) {
+        if (resumed) {
+            RESUMED_HANDSHAKES.incrementAndGet();
+            RESUMED_HANDSHAKE_TIME_NANOS.addAndGet(handshakeTimeNanos);
+        }
+        else {
+            FULL_HANDSHAKES.incrementAndGet();
+            FULL_HANDSHAKE_TIME_NANOS.addAndGet(handshakeTimeNanos);
+        }
+    }
+
     /**
      * Returns the underlying {@link SSLSession} for the specified session.
      *
@@ -312,6 +361,40 @@ public class SslFilter extends IoFilterAdapter {
         this.wantClientAuth = wantClientAuth;
     }
 
+    /**
+     * Returns <tt>true</tt> if sessions negotiated by this filter may be
+     * resumed by later connections.
+     */
+    public boolean isSessionResumption() {
+        return sessionResumption;
+    }
+
+    /**
+     * Configures whether sessions negotiated by this filter may be resumed.
+     * When disabled, each {@link SSLSession} is invalidated as soon as its
+     * handshake completes, so every connection performs a full handshake.
+     */
+    public void setSessionResumption(boolean sessionResumption) {
+        this.sessionResumption = sessionResumption;
+    }
+
+    /**
+     * Returns the executor running {@link SSLEngine} delegated tasks, or
+     * <tt>null</tt> if they are run on the IO thread.
+     */
+    public SslHandshakeExecutor getHandshakeExecutor() {
+        return handshakeExecutor;
+    }
+
+    /**
+     * Configures the executor running {@link SSLEngine} delegated tasks.
+     *
+     * @param handshakeExecutor <tt>null</tt> means run them on the IO thread.
+     */
+    public void setHandshakeExecutor(SslHandshakeExecutor handshakeExecutor) {
+        this.handshakeExecutor = handshakeExecutor;
+    }
+
     /**
      * Returns the list of cipher suites to be enabled when {@link SSLEngine}
      * is initialized.
@@ -614,6 +697,43 @@ public class SslFilter extends IoFilterAdapter {
         }
     }
 
+    void delegatedTasksComplete(NextFilter nextFilter, IoSession session, SslHandler handler, Throwable failure) {
+        try {
+            synchronized (handler) {
+                try {
+                    SslCertificateSelectionFilter.setCurrentSession(session, isUseClientMode());
+
+                    handler.delegatedTasksComplete(nextFilter, failure);
+                    handleSslData(nextFilter, handler);
+
+                    if (handler.isInboundDone()) {
+                        if (handler.isOutboundDone()) {
+                            handler.destroy();
+                        } else {
+                            initiateClosure(nextFilter, session);
+                        }
+                    }
+                } catch (SSLException ssle) {
+                    if (!handler.isHandshakeComplete()) {
+                        SSLException newSsle = new SSLHandshakeException(
+                            "SSL handshake failed.");
+                        newSsle.initCause(ssle);
+                        ssle = newSsle;
+                    }
+
+                    throw ssle;
+                } finally {
+                    SslCertificateSelectionFilter.setCurrentSession(null, isUseClientMode());
+                }
+            }
+
+            handler.flushScheduledEvents();
+        } catch (SSLException | RuntimeException e) {
+            // not called from the filter chain, so report the failure through it
+            session.getFilterChain().fireExceptionCaught(e);
+        }
+    }
+
     private void initiateHandshake(NextFilter nextFilter, IoSession session)
             throws SSLException {
         SslHandler handler = getSslSessionHandler(session);
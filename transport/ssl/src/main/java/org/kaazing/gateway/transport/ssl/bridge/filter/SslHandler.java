@@ -15,11 +15,15 @@
  */
 package org.kaazing.gateway.transport.ssl.bridge.filter;
 
+import static org.kaazing.mina.core.buffer.TransientBuffers.copyIfTransient;
+
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -40,6 +44,8 @@ import org.apache.mina.core.session.IoEventType;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.core.write.WriteRequest;
 import org.apache.mina.util.CircularQueue;
+import org.kaazing.gateway.resource.address.ResourceAddress;
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 import org.slf4j.Logger;
 
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
@@ -56,11 +62,30 @@ import org.kaazing.mina.core.write.DefaultWriteRequestEx;
  * We allocate buffers for use as the outbound and inbound network buffers.
  * These buffers handle all of the intermediary data for the SSL connection. To make things easy,
  * we'll require outNetBuffer be completely flushed before trying to wrap any more data.
+ * <p/>
+ * The SSLEngine requires packet sized buffers for every wrap and unwrap, so those operate on scratch
+ * buffers owned by the calling thread, and only the bytes actually produced are copied into buffers
+ * held by the handler.  Received data is unwrapped in place, so between reads an idle handler holds
+ * no buffers beyond any partial record still waiting for the rest of its bytes.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
 class SslHandler {
 
+    private static final int NET_SCRATCH = 0;
+    private static final int APP_SCRATCH = 1;
+
+    private static final ThreadLocal<ByteBuffer[]> SCRATCH_BUFFERS = new VicariousThreadLocal<ByteBuffer[]>() {
+        @Override
+        protected ByteBuffer[] initialValue() {
+            return new ByteBuffer[2];
+        }
+    };
+
+    // SSLSession value recording the server certificate aliases a session was negotiated against,
+    // so that it is only resumed by connections that would have selected the same certificate
+    private static final String CERT_ALIASES_VALUE = SslHandler.class.getName() + ".certAliases";
+
     private final SslFilter parent;
     private final SSLContext sslContext;
     private final IoSessionEx session;
@@ -72,10 +97,15 @@ class SslHandler {
     private SSLEngine sslEngine;
 
     /**
-     * Encrypted data from the net
+     * Encrypted data from the net not yet unwrapped, such as a partial record
      */
     private IoBufferEx inNetBuffer;
 
+    /**
+     * Encrypted data being unwrapped, either the received buffer or inNetBuffer
+     */
+    private ByteBuffer netIn;
+
     /**
      * Encrypted data to be written to the net
      */
@@ -93,9 +123,18 @@ class SslHandler {
 
     private SSLEngineResult.HandshakeStatus handshakeStatus;
     private boolean initialHandshakeComplete;
+    private boolean initialHandshakeRecorded;
     private boolean handshakeComplete;
     private boolean writingEncryptedData;
     private final IoBufferAllocatorEx<?> allocator;
+    private long handshakeStartMillis;
+    private long handshakeStartNanos;
+
+    /**
+     * Set while delegated tasks run on the handshake executor; reads are suspended and
+     * handshaking does not progress until they complete
+     */
+    private boolean delegatedTasksPending;
 
     /**
      * Constuctor.
@@ -110,7 +149,8 @@ class SslHandler {
         this.sslContext = sslContext;
         this.logger = logger;
         this.allocator = session.getBufferAllocator();
-        this.emptyBuffer = allocator.wrap(allocator.allocate(0));
+        // not allocated from the (possibly pooled) allocator, as it is held for the life of the handler
+        this.emptyBuffer = allocator.wrap(ByteBuffer.allocate(0));
         init();
     }
 
@@ -208,6 +248,9 @@ class SslHandler {
         }
         sslEngine.setEnabledProtocols(protocols);
 
+        handshakeStartMillis = System.currentTimeMillis();
+        handshakeStartNanos = System.nanoTime();
+
         // TODO : we may not need to call this method...
         sslEngine.beginHandshake();
         
@@ -215,6 +258,7 @@ class SslHandler {
 
         handshakeComplete = false;
         initialHandshakeComplete = false;
+        initialHandshakeRecorded = false;
         writingEncryptedData = false;
     }
 
@@ -228,21 +272,24 @@ class SslHandler {
 
         sslEngine.closeOutbound();
 
-        if (outNetBuffer != null) {
-            outNetBuffer.capacity(sslEngine.getSession().getPacketBufferSize(), allocator);
-        } else {
-            createOutNetBuffer(0);
-        }
+        ByteBuffer scratch = scratchBuffer(NET_SCRATCH, sslEngine.getSession().getPacketBufferSize());
 
         try {
             do {
-                outNetBuffer.clear();
-            } while (sslEngine.wrap(emptyBuffer.buf(), outNetBuffer.buf()).bytesProduced() > 0);
+                scratch.clear();
+            } while (sslEngine.wrap(emptyBuffer.buf(), scratch).bytesProduced() > 0);
 
         } catch (SSLException e) {
             // Ignore.
         } finally {
-            destroyOutNetBuffer();
+            if (outNetBuffer != null) {
+                destroyOutNetBuffer();
+            }
+            if (inNetBuffer != null) {
+                inNetBuffer.free();
+                inNetBuffer = null;
+                netIn = null;
+            }
         }
 
         /* As per the SSLEngine Javadoc, we are the application which is
@@ -268,7 +315,9 @@ class SslHandler {
     }
 
     private void destroyOutNetBuffer() {
-        outNetBuffer.free();
+        if (outNetBuffer != emptyBuffer) {
+            outNetBuffer.free();
+        }
         outNetBuffer = null;
     }
 
@@ -329,6 +378,10 @@ class SslHandler {
     }
 
     public void scheduleMessageReceived(NextFilter nextFilter, Object message) {
+        // another thread may be flushing the queue, after the received buffer has been reused
+        if (message instanceof IoBufferEx) {
+            message = copyIfTransient((IoBufferEx) message, allocator);
+        }
         messageReceivedEventQueue.add(new IoFilterEvent(nextFilter, IoEventType.MESSAGE_RECEIVED, session, message));
     }
 
@@ -377,28 +430,69 @@ class SslHandler {
      * @throws SSLException on errors
      */
     public void messageReceived(NextFilter nextFilter, ByteBuffer buf) throws SSLException {
-        // append buf to inNetBuffer
+        int received = buf.remaining();
+
         if (inNetBuffer == null) {
-            inNetBuffer = allocator.wrap(allocator.allocate(buf.remaining())).setAutoExpander(allocator);
+            // unwrap directly from the received buffer
+            netIn = buf;
+        } else {
+            // complete the partial record left over from the previous read
+            IoBufferEx combined = allocator.wrap(allocator.allocate(inNetBuffer.remaining() + received));
+            combined.put(inNetBuffer.buf());
+            combined.put(buf);
+            combined.flip();
+            inNetBuffer.free();
+            inNetBuffer = combined;
+            netIn = combined.buf();
         }
 
-        inNetBuffer.put(buf);
-        if (!handshakeComplete) {
-            handshake(nextFilter);
+        try {
+            if (!handshakeComplete) {
+                handshake(nextFilter);
+            }
+
+            // Application data will be in the same message as the handshake
+            // during False Start
+            if (handshakeComplete) {
+                decrypt(nextFilter);
+            }
+        } finally {
+            if (isInboundDone()) {
+                // Rewind the MINA buffer if not all data is processed and inbound is finished.
+                if (netIn != buf) {
+                    buf.position(buf.limit() - Math.min(netIn.remaining(), received));
+                }
+                netIn = null;
+            }
+
+            retainNetIn();
         }
+    }
+
+    /**
+     * Keep any encrypted data not yet unwrapped, copied into a buffer of exactly its size
+     * so a handler waiting for the rest of a record does not hold on to a whole read.
+     */
+    private void retainNetIn() {
+        IoBufferEx retained = null;
 
-        // Application data will be in the same message as the handshake
-        // during False Start
-        if (handshakeComplete) {
-            decrypt(nextFilter);
+        if (netIn != null && netIn.hasRemaining()) {
+            if (inNetBuffer != null && netIn == inNetBuffer.buf() && netIn.position() == 0) {
+                // nothing was consumed, keep it as is
+                return;
+            }
+
+            retained = allocator.wrap(allocator.allocate(netIn.remaining()));
+            retained.put(netIn);
+            retained.flip();
         }
 
-        if (isInboundDone()) {
-            // Rewind the MINA buffer if not all data is processed and inbound is finished.
-            int inNetBufferPosition = inNetBuffer == null? 0 : inNetBuffer.position();
-            buf.position(buf.position() - inNetBufferPosition);
-            inNetBuffer = null;
+        if (inNetBuffer != null) {
+            inNetBuffer.free();
         }
+
+        inNetBuffer = retained;
+        netIn = (retained != null) ? retained.buf() : null;
     }
 
     /**
@@ -407,9 +501,13 @@ class SslHandler {
      * @return buffer with data
      */
     public IoBuffer fetchAppBuffer() {
-        IoBufferEx appBuffer = this.appBuffer.flip();
-        this.appBuffer = null;
-        return (IoBuffer) appBuffer;
+        IoBufferEx answer = appBuffer;
+        if (answer == null) {
+            return (IoBuffer) emptyBuffer;
+        }
+
+        appBuffer = null;
+        return (IoBuffer) answer.flip();
     }
 
     /**
@@ -424,7 +522,7 @@ class SslHandler {
         }
 
         outNetBuffer = null;
-        return (IoBuffer) answer.shrink(allocator);
+        return (IoBuffer) answer;
     }
 
     /**
@@ -445,19 +543,26 @@ class SslHandler {
             return;
         }
 
-        createOutNetBuffer(src.remaining());
+        // SSLEngine requires us to allocate unnecessarily big buffer
+        // even for small data.  *Shrug*
+        ByteBuffer scratch = scratchBuffer(NET_SCRATCH, sslEngine.getSession().getPacketBufferSize());
 
         // Loop until there is no more data in src
         while (src.hasRemaining()) {
 
-            SSLEngineResult result = sslEngine.wrap(src, outNetBuffer.buf());
+            SSLEngineResult result = sslEngine.wrap(src, scratch);
             if (result.getStatus() == SSLEngineResult.Status.OK) {
                 if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
                     doTasks();
                 }
             } else if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
-                outNetBuffer.capacity(outNetBuffer.capacity() << 1, allocator);
-                outNetBuffer.limit(outNetBuffer.capacity());
+                if (scratch.position() > 0) {
+                    // scratch is full of records, move them out and wrap the rest of src into it again
+                    appendOutNetBuffer(scratch);
+                    scratch.clear();
+                } else {
+                    scratch = growScratchBuffer(scratch);
+                }
             } else {
                 throw new SSLException("SSLEngine error during encrypt: "
                         + result.getStatus() + " src: " + src
@@ -465,7 +570,7 @@ class SslHandler {
             }
         }
 
-        outNetBuffer.flip();
+        appendOutNetBuffer(scratch);
     }
 
     /**
@@ -482,13 +587,12 @@ class SslHandler {
 
         sslEngine.closeOutbound();
 
-        createOutNetBuffer(0);
+        ByteBuffer scratch = scratchBuffer(NET_SCRATCH, sslEngine.getSession().getPacketBufferSize());
         SSLEngineResult result;
         for (;;) {
-            result = sslEngine.wrap(emptyBuffer.buf(), outNetBuffer.buf());
+            result = sslEngine.wrap(emptyBuffer.buf(), scratch);
             if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
-                outNetBuffer.capacity(outNetBuffer.capacity() << 1, allocator);
-                outNetBuffer.limit(outNetBuffer.capacity());
+                scratch = growScratchBuffer(scratch);
             } else {
                 break;
             }
@@ -497,7 +601,7 @@ class SslHandler {
         if (result.getStatus() != SSLEngineResult.Status.CLOSED) {
             throw new SSLException("Improper close state: " + result);
         }
-        outNetBuffer.flip();
+        appendOutNetBuffer(scratch);
         return true;
     }
 
@@ -541,13 +645,49 @@ class SslHandler {
         }
     }
 
+    private void serverHandshakeComplete(SSLSession sslSession) throws SSLException {
+        // a resumed session was created by an earlier connection, before this handshake began
+        boolean resumed = sslSession.getCreationTime() < handshakeStartMillis;
+        SslFilter.recordHandshake(resumed, System.nanoTime() - handshakeStartNanos);
+
+        if (!parent.isSessionResumption()) {
+            sslSession.invalidate();
+            return;
+        }
+
+        // the session cache is shared by every binding of the acceptor, so only resume
+        // sessions negotiated against the certificates available to this connection
+        Collection<String> certAliases = SslCertificateSelectionFilter.getAvailableServerCertAliases();
+        if (certAliases == null) {
+            return;
+        }
+
+        Collection<String> currentAliases = new HashSet<>(certAliases);
+        if (!resumed) {
+            sslSession.putValue(CERT_ALIASES_VALUE, currentAliases);
+        }
+        else if (!currentAliases.equals(sslSession.getValue(CERT_ALIASES_VALUE))) {
+            sslSession.invalidate();
+            throw new SSLHandshakeException("Resumed SSL session was negotiated for a different certificate");
+        }
+    }
+
     /**
      * Perform any handshaking processing.
      */
     public void handshake(NextFilter nextFilter) throws SSLException {
+        if (delegatedTasksPending) {
+            return;
+        }
+
         for (;;) {
             switch (handshakeStatus) {
                 case FINISHED :
+                    if (!initialHandshakeRecorded && !sslEngine.getUseClientMode()) {
+                        initialHandshakeRecorded = true;
+                        serverHandshakeComplete(sslEngine.getSession());
+                    }
+
                     session.setAttribute(
                             SslFilter.SSL_SESSION, sslEngine.getSession());
                     handshakeComplete = true;
@@ -570,6 +710,10 @@ class SslHandler {
                     return;
                     
                 case NEED_TASK :
+                    if (offloadTasks(nextFilter)) {
+                        // handshaking resumes on the IO thread once the tasks complete
+                        return;
+                    }
                     handshakeStatus = doTasks();
                     break;
                     
@@ -594,19 +738,18 @@ class SslHandler {
                     }
 
                     SSLEngineResult result;
-                    createOutNetBuffer(0);
+                    ByteBuffer scratch = scratchBuffer(NET_SCRATCH, sslEngine.getSession().getPacketBufferSize());
                     
                     for (;;) {
-                        result = sslEngine.wrap(emptyBuffer.buf(), outNetBuffer.buf());
+                        result = sslEngine.wrap(emptyBuffer.buf(), scratch);
                         if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
-                            outNetBuffer.capacity(outNetBuffer.capacity() << 1, allocator);
-                            outNetBuffer.limit(outNetBuffer.capacity());
+                            scratch = growScratchBuffer(scratch);
                         } else {
                             break;
                         }
                     }
 
-                    outNetBuffer.flip();
+                    appendOutNetBuffer(scratch);
                     handshakeStatus = result.getHandshakeStatus();
                     writeNetBuffer(nextFilter);
                     break;
@@ -618,18 +761,65 @@ class SslHandler {
         }
     }
 
-    private void createOutNetBuffer(int expectedRemaining) {
-        // SSLEngine requires us to allocate unnecessarily big buffer
-        // even for small data.  *Shrug*
-        int capacity = Math.max(
-                expectedRemaining,
-                sslEngine.getSession().getPacketBufferSize());
+    /**
+     * Append the data wrapped into a scratch buffer to outNetBuffer, which holds the encrypted data
+     * waiting to be written.  The first append sizes outNetBuffer exactly, later ones before it is
+     * written use its spare capacity or double it.
+     */
+    private void appendOutNetBuffer(ByteBuffer scratch) {
+        scratch.flip();
+        if (!scratch.hasRemaining()) {
+            return;
+        }
+
+        if (outNetBuffer != null && outNetBuffer != emptyBuffer) {
+            ByteBuffer pending = outNetBuffer.buf();
+            int limit = pending.limit();
+            if (pending.capacity() - limit >= scratch.remaining()) {
+                pending.limit(limit + scratch.remaining());
+                ByteBuffer tail = pending.duplicate();
+                tail.position(limit);
+                tail.put(scratch);
+                return;
+            }
+        }
 
+        int pending = (outNetBuffer != null) ? outNetBuffer.remaining() : 0;
+        int capacity = (pending == 0) ? scratch.remaining() : Math.max(pending + scratch.remaining(), pending << 1);
+        IoBufferEx buffer = allocator.wrap(allocator.allocate(capacity));
         if (outNetBuffer != null) {
-            outNetBuffer.capacity(capacity, allocator);
-        } else {
-            outNetBuffer = allocator.wrap(allocator.allocate(capacity)).minimumCapacity(0);
+            buffer.put(outNetBuffer.buf());
+            destroyOutNetBuffer();
+        }
+        buffer.put(scratch);
+        outNetBuffer = buffer.flip();
+    }
+
+    /**
+     * Returns the calling thread's scratch buffer, cleared and holding at least the given capacity.
+     * Callers ask for the packet or application buffer size of the session, so that is all a thread
+     * keeps between wraps and unwraps.
+     */
+    private static ByteBuffer scratchBuffer(int index, int minimumCapacity) {
+        ByteBuffer[] scratchBuffers = SCRATCH_BUFFERS.get();
+        ByteBuffer scratch = scratchBuffers[index];
+        if (scratch == null || scratch.capacity() < minimumCapacity) {
+            scratch = ByteBuffer.allocate(minimumCapacity);
+            scratchBuffers[index] = scratch;
         }
+        scratch.clear();
+        return scratch;
+    }
+
+    /**
+     * Returns a buffer of twice the capacity of the scratch buffer, keeping its data.  The larger buffer
+     * is only used for the current wrap or unwrap, the calling thread keeps its own scratch buffer.
+     */
+    private static ByteBuffer growScratchBuffer(ByteBuffer scratch) {
+        ByteBuffer grown = ByteBuffer.allocate(scratch.capacity() << 1);
+        scratch.flip();
+        grown.put(scratch);
+        return grown;
     }
 
     public WriteFuture writeNetBuffer(NextFilter nextFilter)
@@ -679,36 +869,19 @@ class SslHandler {
     }
 
     private void unwrap(NextFilter nextFilter) throws SSLException {
-        // Prepare the net data for reading.
-        if (inNetBuffer != null) {
-            inNetBuffer.flip();
-        }
-
-        if (inNetBuffer == null || !inNetBuffer.hasRemaining()) {
+        if (netIn == null || !netIn.hasRemaining()) {
             return;
         }
 
         SSLEngineResult res = unwrap0();
 
-        // prepare to be written again
-        if (inNetBuffer.hasRemaining()) {
-            inNetBuffer.compact();
-        } else {
-            inNetBuffer = null;
-        }
-
         checkStatus(res);
 
         renegotiateIfNeeded(nextFilter, res);
     }
 
     private SSLEngineResult.Status unwrapHandshake(NextFilter nextFilter) throws SSLException {
-        // Prepare the net data for reading.
-        if (inNetBuffer != null) {
-            inNetBuffer.flip();
-        }
-
-        if (inNetBuffer == null || !inNetBuffer.hasRemaining()) {
+        if (netIn == null || !netIn.hasRemaining()) {
             // Need more data.
             return SSLEngineResult.Status.BUFFER_UNDERFLOW;
         }
@@ -722,24 +895,10 @@ class SslHandler {
         // try to unwrap more
         if (handshakeStatus == SSLEngineResult.HandshakeStatus.FINISHED
                 && res.getStatus() == SSLEngineResult.Status.OK
-                && inNetBuffer.hasRemaining()) {
+                && netIn.hasRemaining()) {
             res = unwrap0();
 
-            // prepare to be written again
-            if (inNetBuffer.hasRemaining()) {
-                inNetBuffer.compact();
-            } else {
-                inNetBuffer = null;
-            }
-
             renegotiateIfNeeded(nextFilter, res);
-        } else {
-            // prepare to be written again
-            if (inNetBuffer.hasRemaining()) {
-                inNetBuffer.compact();
-            } else {
-                inNetBuffer = null;
-            }
         }
 
         return res.getStatus();
@@ -758,27 +917,145 @@ class SslHandler {
     }
 
     private SSLEngineResult unwrap0() throws SSLException {
-        if (appBuffer == null) {
-            appBuffer = allocator.wrap(allocator.allocate(inNetBuffer.remaining()));
-        } else {
-            appBuffer.expand(inNetBuffer.remaining(), allocator);
-        }
+        ByteBuffer scratch = scratchBuffer(APP_SCRATCH, sslEngine.getSession().getApplicationBufferSize());
 
         SSLEngineResult res;
         do {
-            res = sslEngine.unwrap(inNetBuffer.buf(), appBuffer.buf());
+            res = sslEngine.unwrap(netIn, scratch);
             if (res.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
-                appBuffer.capacity(appBuffer.capacity() << 1, allocator);
-                appBuffer.limit(appBuffer.capacity());
+                if (scratch.position() > 0) {
+                    // scratch is full of decrypted records, move them out and unwrap the rest into it again
+                    appendAppBuffer(scratch);
+                    scratch.clear();
+                } else {
+                    scratch = growScratchBuffer(scratch);
+                }
                 continue;
             }
         } while ((res.getStatus() == SSLEngineResult.Status.OK || res.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) &&
                  (handshakeComplete && res.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING ||
                   res.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_UNWRAP));
 
+        appendAppBuffer(scratch);
+
         return res;
     }
 
+    // copy only the decrypted data out of the scratch buffer
+    private void appendAppBuffer(ByteBuffer scratch) {
+        scratch.flip();
+        if (scratch.hasRemaining()) {
+            if (appBuffer == null) {
+                appBuffer = allocator.wrap(allocator.allocate(scratch.remaining()));
+            } else {
+                appBuffer.expand(scratch.remaining(), allocator);
+            }
+            appBuffer.put(scratch);
+        }
+    }
+
+    /**
+     * Hand the outstanding handshake tasks to the handshake executor, if any, suspending reads
+     * on the session until they have completed.
+     *
+     * @return <tt>false</tt> if the tasks must be run in the current Thread
+     */
+    private boolean offloadTasks(final NextFilter nextFilter) {
+        SslHandshakeExecutor handshakeExecutor = parent.getHandshakeExecutor();
+        if (handshakeExecutor == null) {
+            return false;
+        }
+
+        // delegated tasks select the local certificate, so they need the aliases
+        // that the certificate selection filter made available to this thread
+        final boolean clientMode = parent.isUseClientMode();
+        final ResourceAddress certAliasesKey = SslCertificateSelectionFilter.getAvailableCertAliasesKey(clientMode);
+        final Collection<String> certAliases = clientMode
+                ? SslCertificateSelectionFilter.getAvailableClientCertAliases()
+                : SslCertificateSelectionFilter.getAvailableServerCertAliases();
+        final SSLEngine engine = sslEngine;
+
+        delegatedTasksPending = true;
+        session.suspendRead();
+
+        boolean offloaded = handshakeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Throwable failure = null;
+                SslCertificateSelectionFilter.setCurrentSession(session, clientMode);
+                SslCertificateSelectionFilter.setAvailableCertAliases(certAliasesKey, certAliases, clientMode);
+                try {
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                }
+                catch (Throwable t) {
+                    // reported on the IO thread, failing the handshake
+                    failure = t;
+                }
+                finally {
+                    SslCertificateSelectionFilter.setCurrentSession(null, clientMode);
+
+                    // always return to the IO thread, otherwise reads stay suspended and the connection hangs
+                    final Throwable taskFailure = failure;
+                    session.getIoExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            SslCertificateSelectionFilter.setAvailableCertAliases(certAliasesKey, certAliases, clientMode);
+                            parent.delegatedTasksComplete(nextFilter, session, SslHandler.this, taskFailure);
+                        }
+                    });
+                }
+            }
+        });
+
+        if (!offloaded) {
+            delegatedTasksPending = false;
+            session.resumeRead();
+        }
+
+        return offloaded;
+    }
+
+    /**
+     * Continue handshaking after delegated tasks have completed on the handshake executor, or fail the handshake
+     * if one of the tasks failed. Must be called from the IO thread owning the session.
+     *
+     * @param failure  the failure of a delegated task, or <tt>null</tt> if they all completed
+     */
+    void delegatedTasksComplete(NextFilter nextFilter, Throwable failure) throws SSLException {
+        delegatedTasksPending = false;
+
+        if (sslEngine == null) {
+            // destroyed while the tasks were running
+            return;
+        }
+
+        session.resumeRead();
+
+        if (failure != null) {
+            SSLHandshakeException e = new SSLHandshakeException("SSL handshake task failed.");
+            e.initCause(failure);
+            throw e;
+        }
+
+        try {
+            handshakeStatus = sslEngine.getHandshakeStatus();
+            handshake(nextFilter);
+
+            // data received while the tasks were running may include application data
+            if (handshakeComplete) {
+                decrypt(nextFilter);
+            }
+        } finally {
+            if (isInboundDone()) {
+                netIn = null;
+            }
+            retainNetIn();
+        }
+    }
+
     /**
      * Do all the outstanding handshake tasks in the current Thread.
      */
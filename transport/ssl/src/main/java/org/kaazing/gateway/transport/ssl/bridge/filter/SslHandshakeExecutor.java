@@ -0,0 +1,127 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl.bridge.filter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of threads running {@link javax.net.ssl.SSLEngine} delegated tasks, so that the key exchange
+ * computations of a handshake do not stall the other sessions owned by the same IO worker thread.
+ * <p>
+ * When every thread is busy and the queue is full, {@link #execute(Runnable)} refuses the task and the caller
+ * runs it inline, so a handshake storm degrades to the previous behavior rather than failing handshakes.
+ */
+public final class SslHandshakeExecutor {
+
+    private static final AtomicInteger QUEUE_DEPTH = new AtomicInteger();
+    private static final AtomicLong OFFLOADED_TASKS = new AtomicLong();
+    private static final AtomicLong INLINE_TASKS = new AtomicLong();
+    private static final AtomicLong TASK_TIME_NANOS = new AtomicLong();
+
+    private final ThreadPoolExecutor executor;
+
+    public SslHandshakeExecutor(final String name, int threads, int queueSize) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads: " + threads);
+        }
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("queueSize: " + queueSize);
+        }
+
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                    final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, name + "-" + threadNumber.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues the task for execution on a handshake thread.
+     *
+     * @return <tt>false</tt> if the task was not accepted and should be run by the caller
+     */
+    public boolean execute(final Runnable task) {
+        QUEUE_DEPTH.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    QUEUE_DEPTH.decrementAndGet();
+                    long startTime = System.nanoTime();
+                    try {
+                        task.run();
+                    }
+                    finally {
+                        TASK_TIME_NANOS.addAndGet(System.nanoTime() - startTime);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            QUEUE_DEPTH.decrementAndGet();
+            INLINE_TASKS.incrementAndGet();
+            return false;
+        }
+
+        OFFLOADED_TASKS.incrementAndGet();
+        return true;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the number of handshake tasks waiting for a thread, across all executors.
+     */
+    public static int getQueueDepth() {
+        return QUEUE_DEPTH.get();
+    }
+
+    /**
+     * Returns the number of handshake tasks run on handshake threads.
+     */
+    public static long getOffloadedTaskCount() {
+        return OFFLOADED_TASKS.get();
+    }
+
+    /**
+     * Returns the number of handshake tasks run on IO threads because the executor was saturated.
+     */
+    public static long getInlineTaskCount() {
+        return INLINE_TASKS.get();
+    }
+
+    /**
+     * Returns the total time spent running offloaded handshake tasks.
+     */
+    public static long getTaskTimeNanos() {
+        return TASK_TIME_NANOS.get();
+    }
+}
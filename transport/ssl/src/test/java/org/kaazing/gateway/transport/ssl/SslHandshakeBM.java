@@ -0,0 +1,249 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl;
+
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_THREADS;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_SESSION_CACHE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.TCP_PROCESSOR_COUNT;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.kaazing.gateway.resource.address.ResourceAddress;
+import org.kaazing.gateway.resource.address.ResourceAddressFactory;
+import org.kaazing.gateway.transport.BridgeServiceFactory;
+import org.kaazing.gateway.transport.IoHandlerAdapter;
+import org.kaazing.gateway.transport.TransportFactory;
+import org.kaazing.gateway.transport.nio.internal.socket.NioSocketAcceptor;
+import org.kaazing.gateway.util.scheduler.SchedulerProvider;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the echo latency of established TLS sessions while other clients perform a storm of full handshakes
+ * against the same single IO worker, with handshake computations run on the worker (handshakeThreads 0) or on the
+ * handshake executor.  Compare the p0.99 sample times reported for each parameter value.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 8, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SslHandshakeBM {
+
+    private static final int PORT = 8082;
+    private static final String URI = "ssl://localhost:8082";
+
+    @Param({"0", "4"})
+    public String handshakeThreads;
+
+    @Param({"4"})
+    public int stormThreads;
+
+    private SchedulerProvider schedulerProvider;
+    private NioSocketAcceptor tcpAcceptor;
+    private SslAcceptor sslAcceptor;
+    private SSLContext clientContext;
+    private List<Thread> storm;
+    private volatile boolean storming;
+
+    @Setup
+    public void init() throws Exception {
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put(TCP_PROCESSOR_COUNT.getPropertyName(), "1");
+
+        ResourceAddressFactory addressFactory = ResourceAddressFactory.newResourceAddressFactory();
+        TransportFactory transportFactory = TransportFactory.newTransportFactory(configuration);
+        BridgeServiceFactory serviceFactory = new BridgeServiceFactory(transportFactory);
+
+        schedulerProvider = new SchedulerProvider();
+
+        tcpAcceptor = (NioSocketAcceptor) transportFactory.getTransport("tcp").getAcceptor();
+        tcpAcceptor.setResourceAddressFactory(addressFactory);
+        tcpAcceptor.setBridgeServiceFactory(serviceFactory);
+        tcpAcceptor.setSchedulerProvider(schedulerProvider);
+
+        // every storm connection performs a full handshake
+        Properties sslConfiguration = new Properties();
+        sslConfiguration.setProperty(SSL_HANDSHAKE_THREADS.getPropertyName(), handshakeThreads);
+        sslConfiguration.setProperty(SSL_SESSION_CACHE_SIZE.getPropertyName(), "0");
+
+        String keyStorePassword = getPassword("keystore.pw");
+        KeyStore keyStore = getKeyStore("target/truststore/keystore.db", "JCEKS", keyStorePassword.toCharArray());
+        KeyStore trustStore = getKeyStore(getResourcePath("truststore.db"), "JKS", null);
+
+        sslAcceptor = (SslAcceptor) transportFactory.getTransport("ssl").getAcceptor();
+        sslAcceptor.setResourceAddressFactory(addressFactory);
+        sslAcceptor.setBridgeServiceFactory(serviceFactory);
+        sslAcceptor.setConfiguration(sslConfiguration);
+        sslAcceptor.setSecurityContext(new TestSecurityContext(keyStore, null, null, keyStorePassword.toCharArray(),
+                null, trustStore, null, null, null));
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("nextProtocol", "test-protocol");
+        ResourceAddress address = addressFactory.newResourceAddress(URI, options);
+        sslAcceptor.bind(address, new EchoHandler(), null);
+
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, tmf.getTrustManagers(), null);
+
+        storming = true;
+        storm = new ArrayList<>(stormThreads);
+        for (int i = 0; i < stormThreads; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (storming) {
+                        try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", PORT)) {
+                            socket.startHandshake();
+                        }
+                        catch (Exception e) {
+                            // keep storming
+                        }
+                    }
+                }
+            }, "handshake-storm-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            storm.add(thread);
+        }
+    }
+
+    @TearDown
+    public void destroy() throws Exception {
+        storming = false;
+        for (Thread thread : storm) {
+            thread.join();
+        }
+        sslAcceptor.dispose();
+        tcpAcceptor.dispose();
+        schedulerProvider.shutdownNow();
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        SSLSocket socket;
+        InputStream input;
+        OutputStream output;
+        byte[] data = new byte[64];
+
+        @Setup
+        public void connect(SslHandshakeBM benchmark) throws Exception {
+            socket = (SSLSocket) benchmark.clientContext.getSocketFactory().createSocket("localhost", PORT);
+            socket.setTcpNoDelay(true);
+            socket.startHandshake();
+            input = socket.getInputStream();
+            output = socket.getOutputStream();
+        }
+
+        @TearDown
+        public void close() throws Exception {
+            socket.close();
+        }
+    }
+
+    @Benchmark
+    public void echo(ClientState client) throws Exception {
+        client.output.write(client.data);
+        client.output.flush();
+
+        int remaining = client.data.length;
+        while (remaining > 0) {
+            int read = client.input.read(client.data, client.data.length - remaining, remaining);
+            if (read == -1) {
+                throw new IllegalStateException("connection closed");
+            }
+            remaining -= read;
+        }
+    }
+
+    private static String getResourcePath(String resource) throws Exception {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return new File(loader.getResource(resource).toURI()).getPath();
+    }
+
+    private static String getPassword(String resource) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new FileReader(getResourcePath(resource)))) {
+            return reader.readLine();
+        }
+    }
+
+    private static KeyStore getKeyStore(String path, String type, char[] password) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance(type);
+        try (FileInputStream input = new FileInputStream(path)) {
+            keyStore.load(input, password);
+        }
+        return keyStore;
+    }
+
+    private static final class EchoHandler extends IoHandlerAdapter<IoSessionEx> {
+        @Override
+        protected void doMessageReceived(IoSessionEx session, Object message) {
+            IoBufferEx buf = (IoBufferEx) message;
+            session.write(buf.duplicate());
+        }
+    }
+
+    // Or from command line:
+    //
+    // mvn clean install
+    // java -jar target/benchmarks.jar SslHandshakeBM -t 4
+    //
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SslHandshakeBM.class.getSimpleName())
+                .threads(4)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl.bridge.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SslHandshakeExecutorTest {
+
+    private SslHandshakeExecutor executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRunTaskOnHandshakeThread() throws Exception {
+        executor = new SslHandshakeExecutor("test-handshake", 1, 1);
+        final AtomicReference<Thread> taskThread = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        long offloaded = SslHandshakeExecutor.getOffloadedTaskCount();
+
+        assertTrue(executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                taskThread.set(Thread.currentThread());
+                done.countDown();
+            }
+        }));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), taskThread.get());
+        assertTrue(taskThread.get().getName().startsWith("test-handshake-"));
+        assertEquals(offloaded + 1, SslHandshakeExecutor.getOffloadedTaskCount());
+    }
+
+    @Test
+    public void shouldRefuseTaskWhenSaturated() throws Exception {
+        executor = new SslHandshakeExecutor("test-handshake", 1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        long inline = SslHandshakeExecutor.getInlineTaskCount();
+
+        assertTrue(executor.execute(blocking));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.execute(blocking));
+        assertEquals(1, SslHandshakeExecutor.getQueueDepth());
+
+        assertFalse(executor.execute(blocking));
+        assertEquals(inline + 1, SslHandshakeExecutor.getInlineTaskCount());
+        assertEquals(1, SslHandshakeExecutor.getQueueDepth());
+
+        release.countDown();
+    }
+
+    @Test
+    public void shouldRefuseTaskAfterShutdown() {
+        executor = new SslHandshakeExecutor("test-handshake", 1, 1);
+        executor.shutdown();
+
+        assertFalse(executor.execute(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }));
+        assertEquals(0, SslHandshakeExecutor.getQueueDepth());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectZeroThreads() {
+        new SslHandshakeExecutor("test-handshake", 0, 1);
+    }
+}
@@ -60,7 +60,7 @@ public abstract class AbstractWsAcceptProcessor<T extends AbstractBridgeSession<
                 }
                 if (wsBuffer.isAutoCache()) {
                     // buffer is cached on parent, continue with derived caching
-                    newWsMessage.initCache();
+                    newWsMessage.initCache(wsBuffer.isAutoCacheShared());
                 }
                 boolean wasUpdated = wsBuffer.setMessage(newWsMessage);
                 wsMessage = wasUpdated ? newWsMessage : wsBuffer.getMessage();
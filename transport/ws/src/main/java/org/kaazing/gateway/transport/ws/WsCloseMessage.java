@@ -26,6 +26,7 @@ import org.kaazing.gateway.util.Utils;
 public class WsCloseMessage extends WsMessage {
     public static final WsCloseMessage NORMAL_CLOSE = new WsCloseMessage(1000, null);
     public static final WsCloseMessage PROTOCOL_ERROR = new WsCloseMessage(1002, null);
+    public static final WsCloseMessage BAD_DATA_ERROR = new WsCloseMessage(1007, null);
     public static final WsCloseMessage MESSAGE_TOO_LONG_ERROR = new WsCloseMessage(1009, null);
     public static final WsCloseMessage UNEXPECTED_CONDITION = new WsCloseMessage(1011, null);
 
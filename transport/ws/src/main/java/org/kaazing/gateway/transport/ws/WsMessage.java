@@ -25,12 +25,18 @@ public abstract class WsMessage extends Message {
         BINARY, TEXT, CONTINUATION, CLOSE, COMMAND, PING, PONG
     }
 
-    private final boolean fin;
+    private boolean fin;
+
+    // RSV1, RSV2 and RSV3 bits as positioned in the first byte of the frame header (0x40, 0x20, 0x10),
+    // only meaningful when an extension defining them has been negotiated
+    private int rsv;
 
     public abstract Kind getKind();
 
     private IoBufferEx buf;
 
+    private boolean released;
+
     public WsMessage() {
         this(true);
     }
@@ -51,6 +57,38 @@ public abstract class WsMessage extends Message {
         return fin;
     }
 
+    protected void setFin(boolean fin) {
+        this.fin = fin;
+    }
+
+    /**
+     * Tells the WebSocket codec that the consumer of this decoded message is done with the message object.  When
+     * message reuse is enabled on the codec, only released data messages are reused for later frames of the same
+     * connection, once the message received event that delivered them returns; messages that are never released,
+     * such as those queued while reads are suspended, are left to the garbage collector.  The bytes of a message
+     * are never reused, so a consumer may keep them.  Must be called on the IO thread, and the message must not be
+     * used afterwards.  Has no effect on messages that are not reused.
+     */
+    public void release() {
+        released = true;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    protected void setReleased(boolean released) {
+        this.released = released;
+    }
+
+    public int getRsv() {
+        return rsv;
+    }
+
+    public void setRsv(int rsv) {
+        this.rsv = rsv;
+    }
+
     @Override
     public int hashCode() {
         return buf.hashCode();
@@ -63,7 +101,7 @@ public abstract class WsMessage extends Message {
         }
 
         WsMessage that = (WsMessage) obj;
-        return (that.getKind() == this.getKind() && that.fin == this.fin &&
+        return (that.getKind() == this.getKind() && that.fin == this.fin && that.rsv == this.rsv &&
                 Utils.sameOrEquals(this.buf == null ? null : this.buf.buf(),
                         that.buf == null ? null : that.buf.buf())); // IoBufferEx has no equals method
     }
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.kaazing.gateway.resource.address.ResourceAddress.NEXT_PROTOCOL;
+import static org.kaazing.gateway.util.InternalSystemProperty.WS_DEFLATE_CLIENT_MAX_WINDOW_BITS;
+import static org.kaazing.gateway.util.InternalSystemProperty.WS_DEFLATE_COMPRESSION_LEVEL;
+import static org.kaazing.gateway.util.InternalSystemProperty.WS_DEFLATE_CONTEXT_TAKEOVER;
+import static org.kaazing.gateway.util.InternalSystemProperty.WS_DEFLATE_MINIMUM_SIZE;
+
+import java.net.ProtocolException;
+import java.util.Properties;
+import java.util.zip.Deflater;
+
+import org.kaazing.gateway.resource.address.ResourceAddress;
+import org.kaazing.gateway.resource.address.ws.WsResourceAddress;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeader;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHelper;
+import org.kaazing.gateway.transport.ws.extension.ExtensionParameter;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtension;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtensionFactorySpi;
+
+/**
+ * Negotiates RFC 7692 permessage-deflate. Offers that cannot be honoured (unknown parameters, or a
+ * server_max_window_bits below the 15 bits used by java.util.zip) are declined rather than failing the connection,
+ * so the client can fall back to its next offer or to no compression.
+ * <p>
+ * Only native RFC 6455 WebSocket connections negotiate the extension, as compressed messages are flagged by the RSV1
+ * bit of the native frame header, which the emulated (wseb) and draft framings do not carry.
+ */
+public final class PerMessageDeflateExtensionFactory extends WebSocketExtensionFactorySpi {
+
+    private static final String WS_NATIVE_PROTOCOL_NAME = "ws/rfc6455";
+
+    private final int compressionLevel;
+    private final int minimumSize;
+    private final boolean contextTakeover;
+    private final int clientMaxWindowBits;
+
+    public PerMessageDeflateExtensionFactory() {
+        this(System.getProperties());
+    }
+
+    PerMessageDeflateExtensionFactory(Properties configuration) {
+        int compressionLevel = WS_DEFLATE_COMPRESSION_LEVEL.getIntProperty(configuration);
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid permessage-deflate compression level: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        this.minimumSize = WS_DEFLATE_MINIMUM_SIZE.getIntProperty(configuration);
+        this.contextTakeover = WS_DEFLATE_CONTEXT_TAKEOVER.getBooleanProperty(configuration);
+        int clientMaxWindowBits = WS_DEFLATE_CLIENT_MAX_WINDOW_BITS.getIntProperty(configuration);
+        this.clientMaxWindowBits = isValidWindowBits(clientMaxWindowBits) ? clientMaxWindowBits
+                : PerMessageDeflateExtension.MAX_WINDOW_BITS;
+    }
+
+    @Override
+    public String getExtensionName() {
+        return PerMessageDeflateExtension.EXTENSION_TOKEN;
+    }
+
+    @Override
+    public ExtensionOrderCategory getOrderCategory() {
+        return ExtensionOrderCategory.NETWORK;
+    }
+
+    @Override
+    public WebSocketExtension offer(ExtensionHelper extensionHelper, WsResourceAddress address) {
+        // connectors are not sending this extension in handshake request
+        return null;
+    }
+
+    @Override
+    public WebSocketExtension negotiate(ExtensionHeader requestedExtension, ExtensionHelper extensionHelper,
+        WsResourceAddress address) throws ProtocolException {
+
+        ResourceAddress transport = address.getTransport();
+        if (transport == null || !WS_NATIVE_PROTOCOL_NAME.equals(transport.getOption(NEXT_PROTOCOL))) {
+            return null;
+        }
+
+        // without context takeover, zlib state is only held for the duration of a message and can be shared per IO thread
+        boolean serverNoContextTakeover = !contextTakeover;
+        boolean clientNoContextTakeover = !contextTakeover;
+        Integer negotiatedServerMaxWindowBits = null;
+        Integer negotiatedClientMaxWindowBits = null;
+
+        for (ExtensionParameter parameter : requestedExtension.getParameters()) {
+            String name = parameter.getName();
+            String value = parameter.getValue();
+            switch (name) {
+            case PerMessageDeflateExtension.SERVER_NO_CONTEXT_TAKEOVER:
+                if (value != null) {
+                    return null;
+                }
+                serverNoContextTakeover = true;
+                break;
+            case PerMessageDeflateExtension.CLIENT_NO_CONTEXT_TAKEOVER:
+                if (value != null) {
+                    return null;
+                }
+                clientNoContextTakeover = true;
+                break;
+            case PerMessageDeflateExtension.SERVER_MAX_WINDOW_BITS:
+                // Deflater always uses a 32K window, so only the maximum can be honoured
+                if (parseWindowBits(value) != PerMessageDeflateExtension.MAX_WINDOW_BITS) {
+                    return null;
+                }
+                negotiatedServerMaxWindowBits = PerMessageDeflateExtension.MAX_WINDOW_BITS;
+                break;
+            case PerMessageDeflateExtension.CLIENT_MAX_WINDOW_BITS:
+                if (value == null) {
+                    negotiatedClientMaxWindowBits = clientMaxWindowBits;
+                }
+                else {
+                    int windowBits = parseWindowBits(value);
+                    if (windowBits == -1) {
+                        return null;
+                    }
+                    negotiatedClientMaxWindowBits = Math.min(windowBits, clientMaxWindowBits);
+                }
+                break;
+            default:
+                return null;
+            }
+        }
+
+        return new PerMessageDeflateExtension(extensionHelper, serverNoContextTakeover, clientNoContextTakeover,
+                negotiatedServerMaxWindowBits, negotiatedClientMaxWindowBits, compressionLevel, minimumSize,
+                address.getOption(WsResourceAddress.MAX_MESSAGE_SIZE));
+    }
+
+    // returns -1 if the value is missing or invalid
+    private static int parseWindowBits(String value) {
+        if (value == null) {
+            return -1;
+        }
+        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            int windowBits = Integer.parseInt(value);
+            return isValidWindowBits(windowBits) ? windowBits : -1;
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isValidWindowBits(int windowBits) {
+        return windowBits >= PerMessageDeflateExtension.MIN_WINDOW_BITS
+                && windowBits <= PerMessageDeflateExtension.MAX_WINDOW_BITS;
+    }
+
+}
@@ -0,0 +1,485 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.kaazing.gateway.transport.ws.util.WsUtils.NEGOTIATED_RSV_BITS_KEY;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_ZERO_COPY;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.WriteRequest;
+import org.kaazing.gateway.transport.ws.WsBinaryMessage;
+import org.kaazing.gateway.transport.ws.WsCloseMessage;
+import org.kaazing.gateway.transport.ws.WsContinuationMessage;
+import org.kaazing.gateway.transport.ws.WsFilterAdapter;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.WsMessage.Kind;
+import org.kaazing.gateway.transport.ws.WsPingMessage;
+import org.kaazing.gateway.transport.ws.WsPongMessage;
+import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.core.write.DefaultWriteRequestEx;
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
+
+/**
+ * This filter is used when the permessage-deflate extension is active, to compress outgoing and decompress incoming
+ * TEXT and BINARY messages (RFC 7692). Compressed messages are marked with the RSV1 bit on their first frame.
+ * <p>
+ * When no context takeover is negotiated for a direction, the zlib state for that direction is borrowed from the
+ * current IO thread for the duration of a frame, so idle connections hold no zlib state at all. Outgoing messages
+ * carrying a transport encoding cache (e.g. broadcast) are then compressed once and the result is shared by every
+ * session writing the same message.
+ */
+class PerMessageDeflateFilter extends WsFilterAdapter {
+    static final int RSV1 = 0x40;
+    static final String CACHE_KEY = "ws/permessage-deflate";
+
+    // appended to each received message, and stripped from each sent message (RFC 7692, section 7.2)
+    private static final byte[] EMPTY_BLOCK_TAIL = { (byte)0x00, (byte)0x00, (byte)0xff, (byte)0xff };
+
+    private static final ThreadLocal<DeflateCodec> CODEC = new VicariousThreadLocal<DeflateCodec>() {
+        @Override
+        protected DeflateCodec initialValue() {
+            return new DeflateCodec();
+        }
+    };
+
+    private final boolean serverNoContextTakeover;
+    private final boolean clientNoContextTakeover;
+    private final int compressionLevel;
+    private final int minimumSize;
+    private final int maxMessageSize;
+
+    private IoBufferAllocatorEx<?> allocator;
+
+    // zlib state owned by this session, only when context is kept between messages or a received message is fragmented
+    private Deflater sessionDeflater;
+    private Inflater sessionInflater;
+
+    private boolean deflatingMessage;
+    private boolean inflatingMessage;
+    private long inflatedMessageSize;
+
+    PerMessageDeflateFilter(boolean serverNoContextTakeover, boolean clientNoContextTakeover, int compressionLevel,
+                            int minimumSize, int maxMessageSize) {
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        this.clientNoContextTakeover = clientNoContextTakeover;
+        this.compressionLevel = compressionLevel;
+        this.minimumSize = minimumSize;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    @Override
+    public void onPreAdd(IoFilterChain parent, String name, NextFilter nextFilter) throws Exception {
+        IoSessionEx sessionEx = (IoSessionEx) parent.getSession();
+        allocator = sessionEx.getBufferAllocator();
+        // allow the frame decoder to accept RSV1
+        NEGOTIATED_RSV_BITS_KEY.set(sessionEx, NEGOTIATED_RSV_BITS_KEY.get(sessionEx) | RSV1);
+    }
+
+    @Override
+    public void onPostRemove(IoFilterChain parent, String name, NextFilter nextFilter) throws Exception {
+        IoSession session = parent.getSession();
+        NEGOTIATED_RSV_BITS_KEY.set(session, NEGOTIATED_RSV_BITS_KEY.get(session) & ~RSV1);
+        release();
+    }
+
+    @Override
+    public void sessionClosed(NextFilter nextFilter, IoSession session) throws Exception {
+        release();
+        super.sessionClosed(nextFilter, session);
+    }
+
+    @Override
+    protected Object doFilterWriteWsText(NextFilter nextFilter, IoSession session, WriteRequest writeRequest, WsTextMessage wsText)
+            throws Exception {
+        return deflateOutgoing(wsText);
+    }
+
+    @Override
+    protected Object doFilterWriteWsBinary(NextFilter nextFilter, IoSession session, WriteRequest writeRequest,
+            WsBinaryMessage wsBinary) throws Exception {
+        return deflateOutgoing(wsBinary);
+    }
+
+    @Override
+    protected Object doFilterWriteWsCont(NextFilter nextFilter, IoSession session, WriteRequest writeRequest,
+            WsContinuationMessage wsCont) throws Exception {
+        return deflateOutgoing(wsCont);
+    }
+
+    @Override
+    protected void wsTextReceived(NextFilter nextFilter, IoSession session, WsTextMessage wsText) throws Exception {
+        inflateIncoming(nextFilter, session, wsText);
+    }
+
+    @Override
+    protected void wsBinaryReceived(NextFilter nextFilter, IoSession session, WsBinaryMessage wsBinary) throws Exception {
+        inflateIncoming(nextFilter, session, wsBinary);
+    }
+
+    @Override
+    protected void wsContinuationReceived(NextFilter nextFilter, IoSession session, WsContinuationMessage wsCont)
+            throws Exception {
+        inflateIncoming(nextFilter, session, wsCont);
+    }
+
+    @Override
+    protected void wsPingReceived(NextFilter nextFilter, IoSession session, WsPingMessage wsPing) throws Exception {
+        if ((wsPing.getRsv() & RSV1) != 0) {
+            protocolError(nextFilter, session);
+            return;
+        }
+        super.wsPingReceived(nextFilter, session, wsPing);
+    }
+
+    @Override
+    protected void wsPongReceived(NextFilter nextFilter, IoSession session, WsPongMessage wsPong) throws Exception {
+        if ((wsPong.getRsv() & RSV1) != 0) {
+            protocolError(nextFilter, session);
+            return;
+        }
+        super.wsPongReceived(nextFilter, session, wsPong);
+    }
+
+    @Override
+    protected void wsCloseReceived(NextFilter nextFilter, IoSession session, WsCloseMessage wsClose) throws Exception {
+        if ((wsClose.getRsv() & RSV1) != 0) {
+            protocolError(nextFilter, session);
+            return;
+        }
+        super.wsCloseReceived(nextFilter, session, wsClose);
+    }
+
+    private WsMessage deflateOutgoing(WsMessage message) {
+        Kind kind = message.getKind();
+        boolean first = kind != Kind.CONTINUATION;
+        boolean fin = message.isFin();
+        IoBufferEx payload = message.getBytes();
+
+        if (first) {
+            // small messages are not worth compressing, the decision holds for all frames of a fragmented message
+            deflatingMessage = !fin || payload.remaining() >= minimumSize;
+        }
+        if (!deflatingMessage) {
+            return message;
+        }
+
+        IoBufferEx compressed;
+        if (first && fin && serverNoContextTakeover && message.hasCache()) {
+            // output does not depend on previous messages, so compress once for every session writing this message
+            ConcurrentMap<String, IoBufferEx> cache = message.getCache();
+            compressed = cache.get(CACHE_KEY);
+            if (compressed == null) {
+                IoBufferEx newCompressed = deflate(payload, true, FLAG_SHARED);
+                compressed = cache.putIfAbsent(CACHE_KEY, newCompressed);
+                if (compressed == null) {
+                    compressed = newCompressed;
+                }
+            }
+        }
+        else {
+            compressed = deflate(payload, fin, FLAG_ZERO_COPY);
+        }
+
+        if (fin) {
+            deflatingMessage = false;
+        }
+
+        WsMessage result = newMessage(kind, compressed, fin);
+        if (first) {
+            result.setRsv(RSV1);
+        }
+        return result;
+    }
+
+    private IoBufferEx deflate(IoBufferEx payload, boolean fin, int flags) {
+        DeflateCodec codec = CODEC.get();
+        Deflater deflater;
+        if (serverNoContextTakeover) {
+            deflater = codec.deflater(compressionLevel);
+        }
+        else {
+            if (sessionDeflater == null) {
+                sessionDeflater = new Deflater(compressionLevel, true);
+            }
+            deflater = sessionDeflater;
+        }
+
+        int length = codec.deflate(deflater, payload.buf());
+        if (serverNoContextTakeover) {
+            deflater.reset();
+        }
+        if (fin && codec.endsWithEmptyBlockTail(length)) {
+            length -= EMPTY_BLOCK_TAIL.length;
+        }
+
+        ByteBuffer buf = allocator.allocate(length, flags);
+        int offset = buf.position();
+        buf.put(codec.output, 0, length);
+        buf.flip();
+        buf.position(offset);
+        return allocator.wrap(buf, flags);
+    }
+
+    private void inflateIncoming(NextFilter nextFilter, IoSession session, WsMessage message) throws Exception {
+        Kind kind = message.getKind();
+        boolean first = kind != Kind.CONTINUATION;
+        boolean fin = message.isFin();
+        boolean compressed = (message.getRsv() & RSV1) != 0;
+
+        if (first) {
+            inflatingMessage = compressed;
+            inflatedMessageSize = 0;
+        }
+        else if (compressed) {
+            // RSV1 is only set on the first frame of a message
+            protocolError(nextFilter, session);
+            return;
+        }
+
+        if (!inflatingMessage) {
+            nextFilter.messageReceived(session, message);
+            return;
+        }
+
+        IoBufferEx inflated;
+        try {
+            inflated = inflate(message.getBytes(), first, fin);
+        }
+        catch (DataFormatException e) {
+            protocolError(nextFilter, session);
+            return;
+        }
+
+        if (inflated == null) {
+            nextFilter.filterWrite(session, new DefaultWriteRequestEx(WsCloseMessage.MESSAGE_TOO_LONG_ERROR));
+            session.close(true);
+            return;
+        }
+
+        if (fin) {
+            inflatingMessage = false;
+        }
+        nextFilter.messageReceived(session, newMessage(kind, inflated, fin));
+    }
+
+    // returns null if the message exceeds the maximum message size
+    private IoBufferEx inflate(IoBufferEx payload, boolean first, boolean fin) throws DataFormatException {
+        DeflateCodec codec = CODEC.get();
+
+        // an unfragmented message without client context takeover can use the IO thread's inflater
+        boolean pooled = clientNoContextTakeover && first && fin;
+        Inflater inflater;
+        if (pooled) {
+            inflater = codec.inflater;
+        }
+        else {
+            if (sessionInflater == null) {
+                sessionInflater = new Inflater(true);
+            }
+            inflater = sessionInflater;
+        }
+
+        long limit = maxMessageSize > 0 ? maxMessageSize - inflatedMessageSize : Long.MAX_VALUE;
+        int length;
+        try {
+            length = codec.inflate(inflater, payload.buf(), 0, limit);
+            if (length != -1 && fin && !inflater.finished()) {
+                length = codec.inflate(inflater, ByteBuffer.wrap(EMPTY_BLOCK_TAIL), length, limit);
+            }
+        }
+        finally {
+            if (pooled) {
+                inflater.reset();
+            }
+            else if (fin || inflater.finished()) {
+                if (clientNoContextTakeover) {
+                    sessionInflater = null;
+                    inflater.end();
+                }
+                else if (inflater.finished()) {
+                    // peer terminated the deflate stream with a final block
+                    inflater.reset();
+                }
+            }
+        }
+
+        if (length == -1) {
+            return null;
+        }
+        inflatedMessageSize += length;
+
+        ByteBuffer buf = allocator.allocate(length);
+        int offset = buf.position();
+        buf.put(codec.output, 0, length);
+        buf.flip();
+        buf.position(offset);
+        return allocator.wrap(buf);
+    }
+
+    private void release() {
+        if (sessionDeflater != null) {
+            sessionDeflater.end();
+            sessionDeflater = null;
+        }
+        if (sessionInflater != null) {
+            sessionInflater.end();
+            sessionInflater = null;
+        }
+    }
+
+    private static WsMessage newMessage(Kind kind, IoBufferEx payload, boolean fin) {
+        switch (kind) {
+        case TEXT:
+            return new WsTextMessage(payload, fin);
+        case BINARY:
+            return new WsBinaryMessage(payload, fin);
+        case CONTINUATION:
+            return new WsContinuationMessage(payload, fin);
+        default:
+            throw new IllegalStateException("Unexpected WS message kind: " + kind);
+        }
+    }
+
+    private void protocolError(NextFilter nextFilter, IoSession session) {
+        nextFilter.filterWrite(session, new DefaultWriteRequestEx(WsCloseMessage.PROTOCOL_ERROR));
+        session.close(true);
+    }
+
+    /**
+     * zlib state and scratch space for one IO thread, only ever used for the duration of a single frame
+     */
+    private static final class DeflateCodec {
+        private static final int INITIAL_SCRATCH_SIZE = 4096;
+
+        // scratch buffers larger than this are not retained between frames
+        private static final int MAXIMUM_RETAINED_SCRATCH_SIZE = 64 * 1024;
+
+        private final Deflater[] deflaters = new Deflater[Deflater.BEST_COMPRESSION + 1];
+        private final Inflater inflater = new Inflater(true);
+        private byte[] input = new byte[INITIAL_SCRATCH_SIZE];
+        private byte[] output = new byte[INITIAL_SCRATCH_SIZE];
+
+        Deflater deflater(int compressionLevel) {
+            Deflater deflater = deflaters[compressionLevel];
+            if (deflater == null) {
+                deflater = new Deflater(compressionLevel, true);
+                deflaters[compressionLevel] = deflater;
+            }
+            return deflater;
+        }
+
+        // deflates the remaining bytes of source (without moving its position) into output, returns compressed length
+        int deflate(Deflater deflater, ByteBuffer source) {
+            trimScratch();
+            setInput(deflater, source);
+
+            int length = 0;
+            while (true) {
+                length += deflater.deflate(output, length, output.length - length, Deflater.SYNC_FLUSH);
+                if (length < output.length) {
+                    return length;
+                }
+                // output full, more compressed data may be pending
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+        }
+
+        boolean endsWithEmptyBlockTail(int length) {
+            if (length < EMPTY_BLOCK_TAIL.length) {
+                return false;
+            }
+            for (int i = 0; i < EMPTY_BLOCK_TAIL.length; i++) {
+                if (output[length - EMPTY_BLOCK_TAIL.length + i] != EMPTY_BLOCK_TAIL[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // inflates the remaining bytes of source into output starting at offset, returns the new output length,
+        // or -1 if more than limit bytes would be produced
+        int inflate(Inflater inflater, ByteBuffer source, int offset, long limit) throws DataFormatException {
+            if (offset == 0) {
+                trimScratch();
+            }
+            if (source.hasArray()) {
+                inflater.setInput(source.array(), source.arrayOffset() + source.position(), source.remaining());
+            }
+            else {
+                int remaining = source.remaining();
+                if (input.length < remaining) {
+                    input = new byte[remaining];
+                }
+                source.duplicate().get(input, 0, remaining);
+                inflater.setInput(input, 0, remaining);
+            }
+
+            int length = offset;
+            while (!inflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                int inflated = inflater.inflate(output, length, output.length - length);
+                length += inflated;
+                if (length > limit) {
+                    return -1;
+                }
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+            return length;
+        }
+
+        private void setInput(Deflater deflater, ByteBuffer source) {
+            int remaining = source.remaining();
+            if (source.hasArray()) {
+                deflater.setInput(source.array(), source.arrayOffset() + source.position(), remaining);
+            }
+            else {
+                if (input.length < remaining) {
+                    input = new byte[remaining];
+                }
+                // (KG-8125) duplicate to ensure we don't affect other threads sharing the buffer
+                source.duplicate().get(input, 0, remaining);
+                deflater.setInput(input, 0, remaining);
+            }
+        }
+
+        // drop oversized scratch buffers left behind by an unusually large message
+        private void trimScratch() {
+            if (input.length > MAXIMUM_RETAINED_SCRATCH_SIZE) {
+                input = new byte[INITIAL_SCRATCH_SIZE];
+            }
+            if (output.length > MAXIMUM_RETAINED_SCRATCH_SIZE) {
+                output = new byte[INITIAL_SCRATCH_SIZE];
+            }
+        }
+    }
+
+}
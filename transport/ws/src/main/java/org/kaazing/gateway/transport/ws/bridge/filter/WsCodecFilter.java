@@ -15,32 +15,62 @@
  */
 package org.kaazing.gateway.transport.ws.bridge.filter;
 
+import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolCodecFactory;
 import org.apache.mina.filter.codec.ProtocolDecoder;
 import org.apache.mina.filter.codec.ProtocolEncoder;
 import org.kaazing.gateway.transport.BridgeSession;
+import org.kaazing.gateway.transport.ws.WsMessage;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.session.IoSessionEx;
 import org.kaazing.mina.filter.codec.ProtocolCodecFilter;
 
 public class WsCodecFilter extends ProtocolCodecFilter {
 
+    private final boolean reuseMessages;
 
     /**
      * @param wsMaxMessageSize   Maximum permitted number of bytes in a message being decoded. If <0 there is no limit.
      */
     public WsCodecFilter(int wsMaxMessageSize, boolean maskSends) {
-        super(new WsCodecFactory(wsMaxMessageSize > 0 ? wsMaxMessageSize : 0, maskSends));
+        this(wsMaxMessageSize, maskSends, false);
+    }
+
+    /**
+     * @param wsMaxMessageSize   Maximum permitted number of bytes in a message being decoded. If <0 there is no limit.
+     * @param reuseMessages      true to reuse decoded data message instances on IO aligned sessions once their consumer
+     *                           calls {@link WsMessage#release()} and the message received event returns
+     */
+    public WsCodecFilter(int wsMaxMessageSize, boolean maskSends, boolean reuseMessages) {
+        super(new WsCodecFactory(wsMaxMessageSize > 0 ? wsMaxMessageSize : 0, maskSends, reuseMessages));
+        this.reuseMessages = reuseMessages;
+    }
+
+    @Override
+    public void messageReceived(NextFilter nextFilter, IoSession session, Object message) throws Exception {
+        try {
+            super.messageReceived(nextFilter, session, message);
+        }
+        finally {
+            if (reuseMessages && message instanceof IoBuffer) {
+                ProtocolDecoder decoder = getDecoder(session);
+                if (decoder instanceof WsFrameDecoder) {
+                    ((WsFrameDecoder) decoder).recycleMessages();
+                }
+            }
+        }
     }
 
     private static class WsCodecFactory implements ProtocolCodecFactory {
         private int wsMaxMessageSize;
         private boolean maskSends;
+        private boolean reuseMessages;
 
-        public WsCodecFactory(int wsMaxMessageSize, boolean maskSends) {
+        public WsCodecFactory(int wsMaxMessageSize, boolean maskSends, boolean reuseMessages) {
             this.wsMaxMessageSize = wsMaxMessageSize;
             this.maskSends = maskSends;
+            this.reuseMessages = reuseMessages;
         }
 
         @Override
@@ -61,7 +91,8 @@ public class WsCodecFilter extends ProtocolCodecFilter {
             IoSessionEx sessionEx = (IoSessionEx) session;
             IoBufferAllocatorEx<?> allocator = sessionEx.getBufferAllocator();
 
-            return new WsFrameDecoder(allocator, wsMaxMessageSize, !maskSends);
+            // decoded messages are only confined to one thread when the session is aligned with its IO thread
+            return new WsFrameDecoder(allocator, wsMaxMessageSize, !maskSends, reuseMessages && sessionEx.isIoAligned());
         }
     }
 }
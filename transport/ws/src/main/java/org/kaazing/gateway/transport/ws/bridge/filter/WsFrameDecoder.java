@@ -18,8 +18,12 @@ package org.kaazing.gateway.transport.ws.bridge.filter;
 import static org.kaazing.gateway.transport.ws.WsMessage.Kind.BINARY;
 import static org.kaazing.gateway.transport.ws.WsMessage.Kind.CONTINUATION;
 import static org.kaazing.gateway.transport.ws.WsMessage.Kind.TEXT;
+import static org.kaazing.gateway.transport.ws.util.WsUtils.NEGOTIATED_RSV_BITS_KEY;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolDecoderException;
@@ -27,11 +31,13 @@ import org.apache.mina.filter.codec.ProtocolDecoderOutput;
 import org.kaazing.gateway.transport.ws.WsBinaryMessage;
 import org.kaazing.gateway.transport.ws.WsCloseMessage;
 import org.kaazing.gateway.transport.ws.WsContinuationMessage;
+import org.kaazing.gateway.transport.ws.WsMessage;
 import org.kaazing.gateway.transport.ws.WsMessage.Kind;
 import org.kaazing.gateway.transport.ws.WsPingMessage;
 import org.kaazing.gateway.transport.ws.WsPongMessage;
 import org.kaazing.gateway.transport.ws.WsTextMessage;
 import org.kaazing.gateway.transport.ws.bridge.filter.WsFrameEncodingSupport.Opcode;
+import org.kaazing.gateway.transport.ws.util.WSInvalidUTF8Exception;
 import org.kaazing.gateway.transport.ws.util.WSMessageTooLongException;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
@@ -39,16 +45,52 @@ import org.kaazing.mina.filter.codec.CumulativeProtocolDecoderEx;
 
 public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
 
+    // UTF-8 validation states, carried across the frames of a fragmented TEXT message
+    static final int UTF8_ACCEPT = 0;
+    static final int UTF8_REJECT = -1;
+    private static final int UTF8_TAIL1 = 1;        // one more 80..BF byte
+    private static final int UTF8_TAIL2 = 2;        // two more 80..BF bytes
+    private static final int UTF8_TAIL3 = 3;        // three more 80..BF bytes
+    private static final int UTF8_E0 = 4;           // after E0, next byte A0..BF (no overlong 3 byte forms)
+    private static final int UTF8_ED = 5;           // after ED, next byte 80..9F (no UTF-16 surrogates)
+    private static final int UTF8_F0 = 6;           // after F0, next byte 90..BF (no overlong 4 byte forms)
+    private static final int UTF8_F4 = 7;           // after F4, next byte 80..8F (nothing above U+10FFFF)
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    // upper bound on idle message instances kept per kind by a session when reusing messages
+    private static final int MAX_REUSABLE_MESSAGES = 16;
+
     private final int maxMessageSize;
-    private BinaryTextMessageDecoder binaryTextDecoder = DEFAULT_BINARY_TEXT_DECODER;
+    private final BinaryTextMessageDecoder binaryTextDecoder;
     private boolean prevDataFin = true;
     private long currentMessageSize;           // accumulates frame sizes of a message
+    private boolean validatingText;            // current message is TEXT and not compressed
+    private int utf8State = UTF8_ACCEPT;
     private final boolean maskingExpected;
 
     WsFrameDecoder(IoBufferAllocatorEx<?> allocator, int maxMessageSize, boolean maskingExpected) {
+        this(allocator, maxMessageSize, maskingExpected, false);
+    }
+
+    /**
+     * @param reuseMessages  true to recycle BINARY, TEXT and CONTINUATION message instances once released by their
+     *                       consumer, see {@link #recycleMessages()} and {@link WsMessage#release()}
+     */
+    WsFrameDecoder(IoBufferAllocatorEx<?> allocator, int maxMessageSize, boolean maskingExpected, boolean reuseMessages) {
         super(allocator);
         this.maxMessageSize = maxMessageSize;
         this.maskingExpected = maskingExpected;
+        this.binaryTextDecoder = reuseMessages ? new ReusingBinaryTextMessageDecoder() : DEFAULT_BINARY_TEXT_DECODER;
+    }
+
+    /**
+     * Makes the data messages written since the last call available for reuse, if their consumer released them.
+     * Messages not released by then are never reused.  Must only be called on the IO thread, once the message
+     * received event that decoded the messages returns.
+     */
+    void recycleMessages() {
+        binaryTextDecoder.recycle();
     }
 
     @Override
@@ -60,7 +102,8 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
         in.mark();
 
         byte opcodeByte = in.get();
-        validateRSV(opcodeByte);
+        validateRSV(session, opcodeByte);
+        int rsv = opcodeByte & 0x70;
 
         int i = (opcodeByte & 0x0f);
         Opcode opcode;
@@ -125,31 +168,58 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
         int mask = masked ? in.getInt() : 0;
 
         IoBufferEx buf = in.getSlice((int) frameSize);
-        if (mask != 0) {
+
+        switch (opcode) {
+            case TEXT:
+                // a compressed payload can only be validated after it has been inflated
+                validatingText = (rsv & 0x40) == 0;
+                utf8State = UTF8_ACCEPT;
+                break;
+            case BINARY:
+                validatingText = false;
+                break;
+            default:
+                break;
+        }
+
+        if (validatingText && (opcode == Opcode.TEXT || opcode == Opcode.CONTINUATION)) {
+            utf8State = unmaskAndValidateUTF8(buf.buf(), mask, utf8State);
+            if (utf8State == UTF8_REJECT) {
+                throw new WSInvalidUTF8Exception("Invalid UTF-8 in TEXT frame payload on session " + session.getLocalAddress());
+            }
+            if (fin && utf8State != UTF8_ACCEPT) {
+                throw new WSInvalidUTF8Exception("Incomplete UTF-8 sequence at end of TEXT message on session " + session.getLocalAddress());
+            }
+        }
+        else if (mask != 0) {
             unmask(buf.buf(), mask);
         }
 
         switch (opcode) {
             case CONTINUATION:
-                binaryTextDecoder.decodeWsMessage(buf, CONTINUATION, fin, out);
+                binaryTextDecoder.decodeWsMessage(buf, CONTINUATION, fin, rsv, out);
                 prevDataFin = fin;
                 currentMessageSize = currentMessageSizeCandidate;
                 break;
             case BINARY:
-                binaryTextDecoder.decodeWsMessage(buf, BINARY, fin, out);
+                binaryTextDecoder.decodeWsMessage(buf, BINARY, fin, rsv, out);
                 prevDataFin = fin;
                 currentMessageSize = currentMessageSizeCandidate;
                 break;
             case TEXT:
-                binaryTextDecoder.decodeWsMessage(buf, TEXT, fin, out);
+                binaryTextDecoder.decodeWsMessage(buf, TEXT, fin, rsv, out);
                 prevDataFin = fin;
                 currentMessageSize = currentMessageSizeCandidate;
                 break;
             case PING:
-                out.write(new WsPingMessage(buf));
+                WsPingMessage ping = new WsPingMessage(buf);
+                ping.setRsv(rsv);
+                out.write(ping);
                 break;
             case PONG:
-                out.write(new WsPongMessage(buf));
+                WsPongMessage pong = new WsPongMessage(buf);
+                pong.setRsv(rsv);
+                out.write(pong);
                 break;
             case CLOSE:
                 WsCloseMessage close;
@@ -160,6 +230,7 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
                 } else {
                     close = new WsCloseMessage();
                 }
+                close.setRsv(rsv);
                 out.write(close);
                 break;
             default:
@@ -196,17 +267,17 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
         }
     }
 
-    // Validates RSV bits
-    private void validateRSV(byte opcodeByte) throws ProtocolDecoderException {
+    // Validates RSV bits, only those claimed by a negotiated extension (e.g. RSV1 for permessage-deflate) may be set
+    private void validateRSV(IoSession session, byte opcodeByte) throws ProtocolDecoderException {
         if ((opcodeByte & 0x70) != 0) {
-            // We don't support negotiated extensions that deal with RSV bits
-            if ((opcodeByte & 0x40) != 0) {
+            int unexpected = opcodeByte & 0x70 & ~NEGOTIATED_RSV_BITS_KEY.get(session);
+            if ((unexpected & 0x40) != 0) {
                 throw new ProtocolDecoderException("RSV1 is set");
             }
-            if ((opcodeByte & 0x20) != 0) {
+            if ((unexpected & 0x20) != 0) {
                 throw new ProtocolDecoderException("RSV2 is set");
             }
-            if ((opcodeByte & 0x10) != 0) {
+            if ((unexpected & 0x10) != 0) {
                 throw new ProtocolDecoderException("RSV3 is set");
             }
         }
@@ -216,47 +287,114 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
      * Unmask a buffer in place
      */
     protected static void unmask(ByteBuffer buf, int mask) {
-        if (!buf.hasRemaining()) {
-            return;
+        int start = buf.position();
+        int limit = buf.limit();
+        int end = start + ((limit - start) & ~7);
+        long mask64 = (mask & 0xffffffffL) << 32 | (mask & 0xffffffffL);
+
+        // xor a 64bit word at a time as long as possible
+        for (int index = start; index < end; index += 8) {
+            buf.putLong(index, buf.getLong(index) ^ mask64);
+        }
+
+        // xor the remaining 1 to 7 bytes, starting again from the first mask byte
+        for (int index = end; index < limit; index++) {
+            buf.put(index, (byte) (buf.get(index) ^ (mask >> (24 - ((index - end) & 3) * 8))));
         }
+    }
 
-        byte b;
+    /*
+     * Unmask a TEXT payload in place, if mask is non-zero, and validate it as UTF-8 in the same pass,
+     * returning the validation state to carry into the next CONTINUATION frame, or UTF8_REJECT.
+     * Words that start on a character boundary with no high bit set are pure ASCII and skip the byte walk.
+     */
+    static int unmaskAndValidateUTF8(ByteBuffer buf, int mask, int state) {
         int start = buf.position();
-        int remainder = buf.remaining() % 4;
-        int remaining = buf.remaining() - remainder;
-        int end = remaining + buf.position();
-
-        // xor a 32bit word at a time as long as possible
-        while (buf.position() < end) {
-            int plaintext = buf.getInt(buf.position()) ^ mask;
-            buf.putInt(plaintext);
-        }
-
-        // xor the remaining 3, 2, or 1 bytes
-        switch (remainder) {
-        case 3:
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 24) & 0xff));
-            buf.put(b);
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 16) & 0xff));
-            buf.put(b);
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 8) & 0xff));
-            buf.put(b);
-            break;
-        case 2:
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 24) & 0xff));
-            buf.put(b);
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 16) & 0xff));
-            buf.put(b);
-            break;
-        case 1:
-            b = (byte) (buf.get(buf.position()) ^ (mask >> 24));
-            buf.put(b);
-            break;
-        case 0:
+        int limit = buf.limit();
+        int end = start + ((limit - start) & ~7);
+        long mask64 = (mask & 0xffffffffL) << 32 | (mask & 0xffffffffL);
+
+        for (int index = start; index < end; index += 8) {
+            long word = buf.getLong(index);
+            if (mask != 0) {
+                word ^= mask64;
+                buf.putLong(index, word);
+            }
+            if (state == UTF8_ACCEPT && (word & HIGH_BITS) == 0) {
+                continue;
+            }
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                state = nextUTF8State(state, (int) (word >>> shift) & 0xff);
+                if (state == UTF8_REJECT) {
+                    return UTF8_REJECT;
+                }
+            }
+        }
+
+        for (int index = end; index < limit; index++) {
+            int b = buf.get(index);
+            if (mask != 0) {
+                b ^= mask >> (24 - ((index - end) & 3) * 8);
+                buf.put(index, (byte) b);
+            }
+            state = nextUTF8State(state, b & 0xff);
+            if (state == UTF8_REJECT) {
+                return UTF8_REJECT;
+            }
+        }
+
+        return state;
+    }
+
+    // RFC 3629 well-formed byte sequences, one (unsigned) byte at a time
+    private static int nextUTF8State(int state, int b) {
+        switch (state) {
+        case UTF8_ACCEPT:
+            if (b < 0x80) {
+                return UTF8_ACCEPT;
+            }
+            else if (b < 0xc2) {
+                return UTF8_REJECT;
+            }
+            else if (b < 0xe0) {
+                return UTF8_TAIL1;
+            }
+            else if (b == 0xe0) {
+                return UTF8_E0;
+            }
+            else if (b == 0xed) {
+                return UTF8_ED;
+            }
+            else if (b < 0xf0) {
+                return UTF8_TAIL2;
+            }
+            else if (b == 0xf0) {
+                return UTF8_F0;
+            }
+            else if (b < 0xf4) {
+                return UTF8_TAIL3;
+            }
+            else if (b == 0xf4) {
+                return UTF8_F4;
+            }
+            return UTF8_REJECT;
+        case UTF8_TAIL1:
+            return (b & 0xc0) == 0x80 ? UTF8_ACCEPT : UTF8_REJECT;
+        case UTF8_TAIL2:
+            return (b & 0xc0) == 0x80 ? UTF8_TAIL1 : UTF8_REJECT;
+        case UTF8_TAIL3:
+            return (b & 0xc0) == 0x80 ? UTF8_TAIL2 : UTF8_REJECT;
+        case UTF8_E0:
+            return (b >= 0xa0 && b <= 0xbf) ? UTF8_TAIL1 : UTF8_REJECT;
+        case UTF8_ED:
+            return (b >= 0x80 && b <= 0x9f) ? UTF8_TAIL1 : UTF8_REJECT;
+        case UTF8_F0:
+            return (b >= 0x90 && b <= 0xbf) ? UTF8_TAIL2 : UTF8_REJECT;
+        case UTF8_F4:
+            return (b >= 0x80 && b <= 0x8f) ? UTF8_TAIL2 : UTF8_REJECT;
         default:
-                break;
+            return UTF8_REJECT;
         }
-        buf.position(start);
     }
 
     private void validateMessageSize(long messageSize) throws WSMessageTooLongException {
@@ -287,28 +425,147 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
     }
 
     private interface BinaryTextMessageDecoder {
-        void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, ProtocolDecoderOutput out);
+        void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, int rsv, ProtocolDecoderOutput out);
+
+        void recycle();
     }
 
     private static final BinaryTextMessageDecoder DEFAULT_BINARY_TEXT_DECODER = new BinaryTextMessageDecoder() {
         @Override
-        public void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, ProtocolDecoderOutput out) {
+        public void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, int rsv, ProtocolDecoderOutput out) {
+            WsMessage message;
             switch(messageKind) {
             case CONTINUATION:
-                out.write(new WsContinuationMessage(payload, fin));
+                message = new WsContinuationMessage(payload, fin);
                 break;
             case BINARY:
-                out.write(new WsBinaryMessage(payload, fin));
+                message = new WsBinaryMessage(payload, fin);
                 break;
             case TEXT:
-                out.write(new WsTextMessage(payload, fin));
+                message = new WsTextMessage(payload, fin);
                 break;
             default:
                 assert false;
+                return;
             }
+            message.setRsv(rsv);
+            out.write(message);
+        }
+
+        @Override
+        public void recycle() {
         }
     };
 
+    /*
+     * Decodes data frames into message instances owned by the session, reused once released by their consumer.
+     * Only the message objects are reused, each frame still gets its own payload slice.
+     */
+    private static final class ReusingBinaryTextMessageDecoder implements BinaryTextMessageDecoder {
+        private final ArrayDeque<WsMessage> binaryMessages = new ArrayDeque<>();
+        private final ArrayDeque<WsMessage> textMessages = new ArrayDeque<>();
+        private final ArrayDeque<WsMessage> continuationMessages = new ArrayDeque<>();
+        private final List<WsMessage> delivered = new ArrayList<>();
+
+        @Override
+        public void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, int rsv, ProtocolDecoderOutput out) {
+            WsMessage message = reusableMessages(messageKind).pollLast();
+            if (message == null) {
+                switch (messageKind) {
+                case CONTINUATION:
+                    message = new ReusableContinuationMessage();
+                    break;
+                case BINARY:
+                    message = new ReusableBinaryMessage();
+                    break;
+                case TEXT:
+                    message = new ReusableTextMessage();
+                    break;
+                default:
+                    assert false;
+                    return;
+                }
+            }
+            ((ReusableMessage) message).reuse(payload, fin, rsv);
+            delivered.add(message);
+            out.write(message);
+        }
+
+        @Override
+        public void recycle() {
+            for (int i = 0; i < delivered.size(); i++) {
+                WsMessage message = delivered.get(i);
+                // messages still queued, or kept by a consumer, have not been released
+                if (message.isReleased()) {
+                    ArrayDeque<WsMessage> messages = reusableMessages(message.getKind());
+                    if (messages.size() < MAX_REUSABLE_MESSAGES) {
+                        // do not pin the read buffer while idle
+                        message.setBytes(null);
+                        messages.addLast(message);
+                    }
+                }
+            }
+            delivered.clear();
+        }
+
+        private ArrayDeque<WsMessage> reusableMessages(Kind messageKind) {
+            switch (messageKind) {
+            case CONTINUATION:
+                return continuationMessages;
+            case TEXT:
+                return textMessages;
+            default:
+                return binaryMessages;
+            }
+        }
+    }
+
+    private interface ReusableMessage {
+        void reuse(IoBufferEx payload, boolean fin, int rsv);
+    }
+
+    private static final class ReusableBinaryMessage extends WsBinaryMessage implements ReusableMessage {
+        ReusableBinaryMessage() {
+            super(null);
+        }
+
+        @Override
+        public void reuse(IoBufferEx payload, boolean fin, int rsv) {
+            setBytes(payload);
+            setFin(fin);
+            setRsv(rsv);
+            setReleased(false);
+        }
+    }
+
+    private static final class ReusableTextMessage extends WsTextMessage implements ReusableMessage {
+        ReusableTextMessage() {
+            super(null);
+        }
+
+        @Override
+        public void reuse(IoBufferEx payload, boolean fin, int rsv) {
+            setBytes(payload);
+            setFin(fin);
+            setRsv(rsv);
+            setReleased(false);
+        }
+    }
+
+    private static final class ReusableContinuationMessage extends WsContinuationMessage implements ReusableMessage {
+        ReusableContinuationMessage() {
+            super(null);
+        }
+
+        @Override
+        public void reuse(IoBufferEx payload, boolean fin, int rsv) {
+            setBytes(payload);
+            setFin(fin);
+            setRsv(rsv);
+            setReleased(false);
+        }
+    }
+
     private static void validateWireCloseCode(int statusCode) throws ProtocolDecoderException {
         if (statusCode == 1005 || statusCode == 1006) {
             throw new ProtocolDecoderException("Invalid close code: " + statusCode);
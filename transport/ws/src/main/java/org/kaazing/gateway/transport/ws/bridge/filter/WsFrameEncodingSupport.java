@@ -50,6 +50,7 @@ public class WsFrameEncodingSupport {
 		byte b1 = (byte) (fin ? 0x80 : 0x00);
 		byte b2 = (byte) (mask ? 0x80 : 0x00);
 
+		b1 |= message.getRsv();
 		b1 = doEncodeOpcode(b1, message);
 		b2 |= lenBits(remaining);
 
@@ -62,8 +63,11 @@ public class WsFrameEncodingSupport {
 		}
 
 		if ( mask ) {
-            WsFrameUtils.xor(buf, b, maskValue);
+            // mask into the frame from a duplicate, leaving the payload and its position as they were, so the
+            // same buffer can be written again or retried
+            WsFrameUtils.xor(buf.duplicate(), b, maskValue);
         }
+        else {
             // reset buffer position after write in case of reuse
             // (KG-8125) if shared, duplicate to ensure we don't affect other threads
             if (ioBuf.isShared()) {
@@ -74,6 +78,7 @@ public class WsFrameEncodingSupport {
                 b.put(buf);
                 buf.position(bufPos);
             }
+        }
             b.limit(b.position());
             b.position(start);
     		return allocator.wrap(b, flags);
@@ -110,6 +115,7 @@ public class WsFrameEncodingSupport {
     		byte b1 = (byte) (fin ? 0x80 : 0x00);
     		byte b2 = (byte) (mask ? 0x80 : 0x00);
 
+    		b1 |= message.getRsv();
     		b1 = doEncodeOpcode(b1, message);
     		b2 |= lenBits(remaining);
 
@@ -132,6 +138,7 @@ public class WsFrameEncodingSupport {
     		byte b1 = (byte) (fin ? 0x80 : 0x00);
     		byte b2 = (byte) (mask ? 0x80 : 0x00);
 
+    		b1 |= message.getRsv();
     		b1 = doEncodeOpcode(b1, message);
     		b2 |= lenBits(remaining);
 
@@ -213,7 +220,7 @@ public class WsFrameEncodingSupport {
     private static int calculateLengthSize(int length) {
         if (length < 126) {
         	return 0;
-        } else if (length < 65535) {
+        } else if (length <= 0xFFFF) {
         	return 2;
         } else {
         	return 8;
@@ -84,16 +84,20 @@ public final class WebSocketExtensionFactory {
 
             // get the acceptedExtensions
             LinkedList<WebSocketExtension> acceptedExtensions = new LinkedList<>();
+            Set<String> acceptedTokens = new HashSet<>();
 
             // Orders the extensions based on SPI preferences, and then order that they came in
             for(Set<ExtensionHeader> extensionHeaders: extensionHeadersByCategory.values()){
                 for (ExtensionHeader candidate : requestedExtensions) {
-                    if(extensionHeaders.contains(candidate)){
+                    // a client may offer the same extension several times with alternative parameters (e.g. permessage-deflate),
+                    // in order of preference, only the first acceptable offer is negotiated
+                    if(extensionHeaders.contains(candidate) && !acceptedTokens.contains(candidate.getExtensionToken())){
                         WebSocketExtensionFactorySpi extension = factoriesRO.get(candidate.getExtensionToken());
                         WebSocketExtension acceptedExtension = extension.negotiate(candidate, extensionHelper, address);
                         // negotiated can be null if the extension doesn't want to be active
                         if (acceptedExtension != null) {
                             acceptedExtensions.add(acceptedExtension);
+                            acceptedTokens.add(candidate.getExtensionToken());
                         }
                     }
                 }
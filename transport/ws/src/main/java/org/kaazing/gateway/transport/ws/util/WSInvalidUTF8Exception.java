@@ -0,0 +1,38 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.util;
+
+import org.apache.mina.filter.codec.ProtocolDecoderException;
+
+@SuppressWarnings("serial")
+public class WSInvalidUTF8Exception extends ProtocolDecoderException {
+
+    public WSInvalidUTF8Exception() {
+    }
+
+    public WSInvalidUTF8Exception(String message) {
+        super(message);
+    }
+
+    public WSInvalidUTF8Exception(Throwable cause) {
+        super(cause);
+    }
+
+    public WSInvalidUTF8Exception(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
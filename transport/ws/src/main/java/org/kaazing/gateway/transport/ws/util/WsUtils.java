@@ -68,6 +68,10 @@ public class WsUtils {
     public static final TypedAttributeKey<List<WebSocketExtension>> ACTIVE_EXTENSIONS_KEY
         = new TypedAttributeKey<>(WsUtils.class, "active-ws-extensions", EMPTY_EXTENSIONS);
 
+    // RSV bits (as positioned in the first frame header byte) that negotiated extensions allow peers to set
+    public static final TypedAttributeKey<Integer> NEGOTIATED_RSV_BITS_KEY
+        = new TypedAttributeKey<>(WsUtils.class, "negotiated-ws-rsv-bits", 0);
+
 
     private WsUtils() {
         // no instances
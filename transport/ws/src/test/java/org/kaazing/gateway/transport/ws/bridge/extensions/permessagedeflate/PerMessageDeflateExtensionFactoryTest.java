@@ -0,0 +1,149 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.mina.core.session.IoSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.kaazing.gateway.resource.address.ResourceAddressFactory;
+import org.kaazing.gateway.resource.address.ws.WsResourceAddress;
+import org.kaazing.gateway.security.auth.context.ResultAwareLoginContext;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeader;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeaderBuilder;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHelper;
+import org.kaazing.gateway.transport.ws.extension.ExtensionParameter;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtensionFactorySpi.ExtensionOrderCategory;
+
+public class PerMessageDeflateExtensionFactoryTest {
+    private static final String extensionName = "permessage-deflate";
+    private static final ExtensionHelper extensionHelper = new ExtensionHelper() {
+
+        @Override
+        public void setLoginContext(IoSession session, ResultAwareLoginContext loginContext) {
+            throw new RuntimeException("Not expected to be called");
+        }
+
+        @Override
+        public void closeWebSocketConnection(IoSession session) {
+            throw new RuntimeException("Not expected to be called");
+        }
+    };
+
+    WsResourceAddress address;
+    PerMessageDeflateExtensionFactory factory;
+
+    @Before
+    public void setUp() {
+        address = newResourceAddress("ws://localhost:2020/");
+        factory = new PerMessageDeflateExtensionFactory(new Properties());
+    }
+
+    @Test
+    public void negotiateShouldDisableContextTakeoverByDefault() throws Exception {
+        ExtensionHeader requested = new ExtensionHeaderBuilder(extensionName).done();
+        PerMessageDeflateExtension extension = (PerMessageDeflateExtension) factory.negotiate(requested, extensionHelper, address);
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover",
+                extension.getExtensionHeader().toString());
+    }
+
+    @Test
+    public void negotiateShouldKeepContextTakeoverWhenConfigured() throws Exception {
+        Properties configuration = new Properties();
+        configuration.setProperty("org.kaazing.gateway.server.transport.ws.DEFLATE_CONTEXT_TAKEOVER", "true");
+        factory = new PerMessageDeflateExtensionFactory(configuration);
+
+        ExtensionHeader requested = new ExtensionHeaderBuilder(extensionName + "; client_no_context_takeover").done();
+        PerMessageDeflateExtension extension = (PerMessageDeflateExtension) factory.negotiate(requested, extensionHelper, address);
+        List<ExtensionParameter> parameters = extension.getExtensionHeader().getParameters();
+        assertEquals(1, parameters.size());
+        assertEquals("client_no_context_takeover", parameters.get(0).getName());
+    }
+
+    @Test
+    public void negotiateShouldLimitClientMaxWindowBits() throws Exception {
+        Properties configuration = new Properties();
+        configuration.setProperty("org.kaazing.gateway.server.transport.ws.DEFLATE_CLIENT_MAX_WINDOW_BITS", "10");
+        factory = new PerMessageDeflateExtensionFactory(configuration);
+
+        ExtensionHeader requested = new ExtensionHeaderBuilder(extensionName + "; client_max_window_bits").done();
+        PerMessageDeflateExtension extension = (PerMessageDeflateExtension) factory.negotiate(requested, extensionHelper, address);
+        assertTrue(extension.getExtensionHeader().toString().endsWith("client_max_window_bits=10"));
+
+        requested = new ExtensionHeaderBuilder(extensionName + "; client_max_window_bits=\"9\"").done();
+        extension = (PerMessageDeflateExtension) factory.negotiate(requested, extensionHelper, address);
+        assertTrue(extension.getExtensionHeader().toString().endsWith("client_max_window_bits=9"));
+    }
+
+    @Test
+    public void negotiateShouldAcceptMaximumServerWindowBits() throws Exception {
+        ExtensionHeader requested = new ExtensionHeaderBuilder(extensionName + "; server_max_window_bits=15").done();
+        PerMessageDeflateExtension extension = (PerMessageDeflateExtension) factory.negotiate(requested, extensionHelper, address);
+        assertTrue(extension.getExtensionHeader().toString().endsWith("server_max_window_bits=15"));
+    }
+
+    @Test
+    public void negotiateShouldDeclineSmallerServerWindowBits() throws Exception {
+        ExtensionHeader requested = new ExtensionHeaderBuilder(extensionName + "; server_max_window_bits=10").done();
+        assertNull(factory.negotiate(requested, extensionHelper, address));
+    }
+
+    @Test
+    public void negotiateShouldDeclineInvalidParameters() throws Exception {
+        assertNull(factory.negotiate(new ExtensionHeaderBuilder(extensionName + "; unknown").done(), extensionHelper, address));
+        assertNull(factory.negotiate(new ExtensionHeaderBuilder(extensionName + "; server_no_context_takeover=1").done(),
+                extensionHelper, address));
+        assertNull(factory.negotiate(new ExtensionHeaderBuilder(extensionName + "; client_max_window_bits=16").done(),
+                extensionHelper, address));
+        assertNull(factory.negotiate(new ExtensionHeaderBuilder(extensionName + "; server_max_window_bits").done(),
+                extensionHelper, address));
+    }
+
+    @Test
+    public void negotiateShouldAcceptSecureNative() throws Exception {
+        WsResourceAddress wssAddress = newResourceAddress("wss://localhost:2020/");
+        ExtensionHeader requested = new ExtensionHeaderBuilder(extensionName).done();
+        assertNotNull(factory.negotiate(requested, extensionHelper, wssAddress));
+    }
+
+    @Test
+    public void negotiateShouldDeclineWseb() throws Exception {
+        ExtensionHeader requested = new ExtensionHeaderBuilder(extensionName).done();
+        assertNull(factory.negotiate(requested, extensionHelper, newResourceAddress("wse://localhost:2020/")));
+        assertNull(factory.negotiate(requested, extensionHelper, newResourceAddress("wse+ssl://localhost:2020/")));
+    }
+
+    @Test
+    public void shouldBeOrderedClosestToNetwork() throws Exception {
+        assertEquals(ExtensionOrderCategory.NETWORK, factory.getOrderCategory());
+        assertNull(factory.offer(extensionHelper, address));
+    }
+
+    private static WsResourceAddress newResourceAddress(String addressURI) {
+        Map<String, Object> options = new HashMap<>();
+        return (WsResourceAddress) ResourceAddressFactory.newResourceAddressFactory().newResourceAddress(addressURI, options);
+    }
+
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.PerMessageDeflateFilter.CACHE_KEY;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.PerMessageDeflateFilter.RSV1;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Rule;
+import org.junit.Test;
+import org.kaazing.gateway.transport.test.Expectations;
+import org.kaazing.gateway.transport.ws.WsCloseMessage;
+import org.kaazing.gateway.transport.ws.WsContinuationMessage;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.WsPingMessage;
+import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.core.write.WriteRequestEx;
+
+public class PerMessageDeflateFilterTest {
+    private static final byte[] TEXT_BYTES = new byte[2000];
+    private static final byte[] EMPTY_BLOCK_TAIL = { (byte)0x00, (byte)0x00, (byte)0xff, (byte)0xff };
+
+    static {
+        for (int i = 0; i < TEXT_BYTES.length; i++) {
+            TEXT_BYTES[i] = (byte) ('a' + (i % 13));
+        }
+    }
+
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery();
+
+    private final IoFilterChain filterChain = context.mock(IoFilterChain.class, "filterChain");
+    final IoSessionEx session = context.mock(IoSessionEx.class);
+    final NextFilter nextFilter = context.mock(NextFilter.class);
+
+    @Test
+    public void shouldCompressTextMessage() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(true, true, 64, 0);
+        final WriteRequestEx writeRequest = context.mock(WriteRequestEx.class);
+        final WsTextMessage message = new WsTextMessage(BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(TEXT_BYTES)));
+        final AtomicReference<WsMessage> compressed = new AtomicReference<>();
+
+        context.checking(new Expectations() {
+            {
+                allowing(writeRequest).getMessage(); will(returnValue(message));
+                oneOf(writeRequest).setMessage(with(any(Object.class))); will(saveParameter(compressed, 0));
+                oneOf(nextFilter).filterWrite(session, writeRequest);
+            }
+        });
+
+        filter.filterWrite(nextFilter, session, writeRequest);
+        context.assertIsSatisfied();
+
+        assertEquals(RSV1, compressed.get().getRsv());
+        assertTrue(compressed.get().getBytes().remaining() < TEXT_BYTES.length);
+        assertArrayEquals(TEXT_BYTES, inflate(compressed.get().getBytes()));
+    }
+
+    @Test
+    public void shouldNotCompressSmallTextMessage() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(true, true, 64, 0);
+        final WriteRequestEx writeRequest = context.mock(WriteRequestEx.class);
+        final WsTextMessage message = new WsTextMessage(BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap("ABC".getBytes())));
+
+        context.checking(new Expectations() {
+            {
+                allowing(writeRequest).getMessage(); will(returnValue(message));
+                oneOf(nextFilter).filterWrite(session, writeRequest);
+            }
+        });
+
+        filter.filterWrite(nextFilter, session, writeRequest);
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public void shouldCompressCachedMessageOnce() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(true, true, 64, 0);
+        final WriteRequestEx writeRequest = context.mock(WriteRequestEx.class);
+        final WsTextMessage message = new WsTextMessage(BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(TEXT_BYTES)));
+        message.initCache(true);
+        final AtomicReference<WsMessage> first = new AtomicReference<>();
+        final AtomicReference<WsMessage> second = new AtomicReference<>();
+
+        context.checking(new Expectations() {
+            {
+                allowing(writeRequest).getMessage(); will(returnValue(message));
+                oneOf(writeRequest).setMessage(with(any(Object.class))); will(saveParameter(first, 0));
+                oneOf(writeRequest).setMessage(with(any(Object.class))); will(saveParameter(second, 0));
+                exactly(2).of(nextFilter).filterWrite(session, writeRequest);
+            }
+        });
+
+        filter.filterWrite(nextFilter, session, writeRequest);
+        filter.filterWrite(nextFilter, session, writeRequest);
+        context.assertIsSatisfied();
+
+        assertSame(message.getCache().get(CACHE_KEY), first.get().getBytes());
+        assertSame(first.get().getBytes(), second.get().getBytes());
+    }
+
+    @Test
+    public void shouldInflateReceivedFragmentedMessage() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(true, true, 64, 0);
+        byte[] compressed = deflate(TEXT_BYTES);
+        int split = compressed.length / 2;
+        WsTextMessage first = new WsTextMessage(BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(Arrays.copyOf(compressed, split))), false);
+        first.setRsv(RSV1);
+        WsContinuationMessage last = new WsContinuationMessage(
+                BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(Arrays.copyOfRange(compressed, split, compressed.length))), true);
+        final AtomicReference<WsMessage> firstInflated = new AtomicReference<>();
+        final AtomicReference<WsMessage> lastInflated = new AtomicReference<>();
+
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).messageReceived(with(session), with(any(WsTextMessage.class)));
+                will(saveParameter(firstInflated, 1));
+                oneOf(nextFilter).messageReceived(with(session), with(any(WsContinuationMessage.class)));
+                will(saveParameter(lastInflated, 1));
+            }
+        });
+
+        filter.messageReceived(nextFilter, session, first);
+        filter.messageReceived(nextFilter, session, last);
+        context.assertIsSatisfied();
+
+        ByteBuffer inflated = ByteBuffer.allocate(TEXT_BYTES.length);
+        inflated.put(firstInflated.get().getBytes().buf());
+        inflated.put(lastInflated.get().getBytes().buf());
+        assertArrayEquals(TEXT_BYTES, inflated.array());
+        assertEquals(0, firstInflated.get().getRsv());
+    }
+
+    @Test
+    public void shouldCloseWhenInflatedMessageTooLong() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(true, true, 64, 1000);
+        WsTextMessage message = new WsTextMessage(BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(deflate(TEXT_BYTES))));
+        message.setRsv(RSV1);
+
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).filterWrite(with(session), with(hasMessage(WsCloseMessage.MESSAGE_TOO_LONG_ERROR)));
+                oneOf(session).close(true);
+            }
+        });
+
+        filter.messageReceived(nextFilter, session, message);
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public void shouldCloseWhenControlFrameHasRsv1() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(true, true, 64, 0);
+        WsPingMessage ping = new WsPingMessage();
+        ping.setRsv(RSV1);
+
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).filterWrite(with(session), with(hasMessage(WsCloseMessage.PROTOCOL_ERROR)));
+                oneOf(session).close(true);
+            }
+        });
+
+        filter.messageReceived(nextFilter, session, ping);
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public void shouldKeepContextBetweenMessages() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(false, false, 0, 0);
+        final WriteRequestEx writeRequest = context.mock(WriteRequestEx.class);
+        final WsTextMessage message = new WsTextMessage(BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(TEXT_BYTES)));
+        final AtomicReference<WsMessage> first = new AtomicReference<>();
+        final AtomicReference<WsMessage> second = new AtomicReference<>();
+
+        context.checking(new Expectations() {
+            {
+                allowing(writeRequest).getMessage(); will(returnValue(message));
+                oneOf(writeRequest).setMessage(with(any(Object.class))); will(saveParameter(first, 0));
+                oneOf(writeRequest).setMessage(with(any(Object.class))); will(saveParameter(second, 0));
+                exactly(2).of(nextFilter).filterWrite(session, writeRequest);
+            }
+        });
+
+        filter.filterWrite(nextFilter, session, writeRequest);
+        filter.filterWrite(nextFilter, session, writeRequest);
+        context.assertIsSatisfied();
+
+        // the second message refers back to the first
+        assertTrue(second.get().getBytes().remaining() < first.get().getBytes().remaining());
+    }
+
+    private PerMessageDeflateFilter newFilter(boolean serverNoContextTakeover, boolean clientNoContextTakeover, int minimumSize,
+                                              int maxMessageSize) throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(serverNoContextTakeover, clientNoContextTakeover,
+                6, minimumSize, maxMessageSize);
+        context.checking(new Expectations() {
+            {
+                oneOf(filterChain).getSession(); will(returnValue(session));
+                allowing(session).getBufferAllocator(); will(returnValue(BUFFER_ALLOCATOR));
+                oneOf(session).getAttribute(with(any(Object.class)), with(0)); will(returnValue(0));
+                oneOf(session).setAttribute(with(any(Object.class)), with(RSV1));
+            }
+        });
+        filter.onPreAdd(filterChain, "permessage-deflate", nextFilter);
+        return filter;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(bytes);
+        byte[] output = new byte[bytes.length];
+        int length = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+        deflater.end();
+        return Arrays.copyOf(output, length - EMPTY_BLOCK_TAIL.length);
+    }
+
+    private static byte[] inflate(IoBufferEx compressed) throws Exception {
+        ByteBuffer buf = compressed.buf().duplicate();
+        byte[] input = new byte[buf.remaining() + EMPTY_BLOCK_TAIL.length];
+        buf.get(input, 0, buf.remaining());
+        System.arraycopy(EMPTY_BLOCK_TAIL, 0, input, input.length - EMPTY_BLOCK_TAIL.length, EMPTY_BLOCK_TAIL.length);
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(input);
+        byte[] output = new byte[TEXT_BYTES.length];
+        int length = inflater.inflate(output);
+        inflater.end();
+        assertEquals(TEXT_BYTES.length, length);
+        return output;
+    }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.filter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.filter.codec.ProtocolDecoder;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.filter.codec.ProtocolCodecSessionEx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures decoding of a single TEXT frame, masked as sent by a browser or unmasked as sent by a server, with
+ * chat-style ASCII or multibyte payloads.  Masked payloads are unmasked in place, so every invocation starts by
+ * copying the original frame back into the input buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 8, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class WsFrameDecoderBM {
+
+    private static final String ASCII = "{\"user\":\"alice\",\"room\":\"lobby\",\"text\":\"see you at the standup\"}";
+
+    private static final String MULTIBYTE = "{\"user\":\"\u00e9lise\",\"text\":\"\u4f1a\u8bae\u5728\u4e09\u70b9 \u00e0 bient\u00f4t \ud83d\ude00\"}";
+
+    @Param({"true", "false"})
+    public boolean masked;
+
+    @Param({"ascii", "multibyte"})
+    public String payload;
+
+    @Param({"64", "16384"})
+    public int size;
+
+    private ProtocolCodecSessionEx session;
+    private ProtocolDecoder decoder;
+    private byte[] frame;
+    private IoBuffer in;
+
+    @Setup
+    public void init() throws Exception {
+        byte[] text = ("ascii".equals(payload) ? ASCII : MULTIBYTE).getBytes(UTF_8);
+        ByteBuffer data = ByteBuffer.allocate(size);
+        while (data.remaining() >= text.length) {
+            data.put(text);
+        }
+        while (data.hasRemaining()) {
+            data.put((byte) ' ');
+        }
+        data.flip();
+
+        int mask = 0x37fa213d;
+        ByteBuffer frame = ByteBuffer.allocate(size + 14);
+        frame.put((byte) 0x81);
+        if (size < 126) {
+            frame.put((byte) ((masked ? 0x80 : 0x00) | size));
+        }
+        else {
+            frame.put((byte) ((masked ? 0x80 : 0x00) | 126));
+            frame.putShort((short) size);
+        }
+        if (masked) {
+            frame.putInt(mask);
+            for (int i = 0; data.hasRemaining(); i++) {
+                frame.put((byte) (data.get() ^ (mask >> (24 - (i % 4) * 8))));
+            }
+        }
+        else {
+            frame.put(data);
+        }
+        frame.flip();
+        this.frame = new byte[frame.remaining()];
+        frame.get(this.frame);
+
+        session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        decoder = new WsFrameDecoder(allocator, 0, masked);
+        in = (IoBuffer) allocator.wrap(ByteBuffer.allocate(this.frame.length));
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        in.clear();
+        in.put(frame);
+        in.flip();
+        decoder.decode(session, in, session.getDecoderOutput());
+        return session.getDecoderOutputQueue().poll();
+    }
+
+    // Or from command line:
+    //
+    // mvn clean install
+    // java -jar target/benchmarks.jar WsFrameDecoderBM
+    //
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(WsFrameDecoderBM.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
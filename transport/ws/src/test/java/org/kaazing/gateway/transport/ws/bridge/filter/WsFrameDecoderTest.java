@@ -17,8 +17,11 @@ package org.kaazing.gateway.transport.ws.bridge.filter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.kaazing.gateway.transport.ws.util.WsUtils.NEGOTIATED_RSV_BITS_KEY;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -35,6 +38,7 @@ import org.kaazing.gateway.transport.ws.WsMessage;
 import org.kaazing.gateway.transport.ws.WsPingMessage;
 import org.kaazing.gateway.transport.ws.WsPongMessage;
 import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.gateway.transport.ws.util.WSInvalidUTF8Exception;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.filter.codec.ProtocolCodecSessionEx;
@@ -70,6 +74,43 @@ public class WsFrameDecoderTest {
         assertFalse(in.hasRemaining());
     }
 
+    @Test(expected = ProtocolDecoderException.class)
+    public void shouldRejectRsv1WhenNotNegotiated() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(3))
+                                 .put((byte)0xc1)
+                                 .put((byte)0x01)
+                                 .put((byte)0x00)
+                                 .flip();
+
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+    }
+
+    @Test
+    public void shouldDecodeRsv1WhenNegotiated() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+        NEGOTIATED_RSV_BITS_KEY.set(session, 0x40);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(3))
+                                 .put((byte)0xc1)
+                                 .put((byte)0x01)
+                                 .put((byte)0x00)
+                                 .flip();
+
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+        WsMessage out = (WsMessage)session.getDecoderOutputQueue().poll();
+        WsTextMessage expected = new WsTextMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { 0x00 })));
+        expected.setRsv(0x40);
+        assertEquals(expected, out);
+        assertTrue(session.getDecoderOutputQueue().isEmpty());
+    }
+
     @Test
     public void decodeTextContinuationFrame() throws Exception {
         ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
@@ -955,6 +996,200 @@ public class WsFrameDecoderTest {
         thrown.expect(ProtocolDecoderException.class);
         decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
     }
+
+    @Test
+    public void decodeMaskedTextFrameOfEveryTailLength() throws Exception {
+        for (int length = 0; length < 20; length++) {
+            ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+            IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+            ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, true);
+
+            String text = createString('x', length - length / 3) + createString('\u00e9', length / 6);
+            byte[] payload = text.getBytes(UTF_8);
+            int mask = 0x1234abcd;
+
+            IoBufferEx in = allocator.wrap(allocator.allocate(payload.length + 6))
+                                     .put((byte) 0x81)
+                                     .put((byte) (0x80 | payload.length))
+                                     .putInt(mask);
+            for (int i = 0; i < payload.length; i++) {
+                in.put((byte) (payload[i] ^ (mask >> (24 - (i % 4) * 8))));
+            }
+            in.flip();
+
+            decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+            WsMessage out = (WsMessage) session.getDecoderOutputQueue().poll();
+            assertEquals(new WsTextMessage(allocator.wrap(ByteBuffer.wrap(payload))), out);
+            assertFalse(in.hasRemaining());
+        }
+    }
+
+    @Test
+    public void decodeTextContinuationFrameSplittingCharacter() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+
+        // U+1F600 split after its second byte
+        IoBufferEx in = allocator.wrap(allocator.allocate(16))
+                                 .put((byte) 0x01)
+                                 .put((byte) 0x03)
+                                 .put((byte) 'a')
+                                 .put((byte) 0xf0)
+                                 .put((byte) 0x9f)
+                                 .put((byte) 0x80)
+                                 .put((byte) 0x03)
+                                 .put((byte) 0x98)
+                                 .put((byte) 0x80)
+                                 .put((byte) 'b')
+                                 .flip();
+
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+        assertTrue(session.getDecoderOutputQueue().poll() instanceof WsTextMessage);
+        assertTrue(session.getDecoderOutputQueue().poll() instanceof WsContinuationMessage);
+        assertTrue(session.getDecoderOutputQueue().isEmpty());
+    }
+
+    @Test
+    public void shouldRejectInvalidUTF8AfterAsciiWord() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(12))
+                                 .put((byte) 0x81)
+                                 .put((byte) 0x0a)
+                                 .putString(createString('a', 8), UTF_8.newEncoder())
+                                 .put((byte) 0xc0)
+                                 .put((byte) 0xaf)
+                                 .flip();
+
+        thrown.expect(WSInvalidUTF8Exception.class);
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+    }
+
+    @Test
+    public void shouldRejectEncodedSurrogate() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(5))
+                                 .put((byte) 0x81)
+                                 .put((byte) 0x03)
+                                 .put((byte) 0xed)
+                                 .put((byte) 0xa0)
+                                 .put((byte) 0x80)
+                                 .flip();
+
+        thrown.expect(WSInvalidUTF8Exception.class);
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+    }
+
+    @Test
+    public void shouldRejectIncompleteCharacterAtEndOfMessage() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(8))
+                                 .put((byte) 0x01)
+                                 .put((byte) 0x01)
+                                 .put((byte) 0xe2)
+                                 .put((byte) 0x80)
+                                 .put((byte) 0x01)
+                                 .put((byte) 0x82)
+                                 .flip();
+
+        thrown.expect(WSInvalidUTF8Exception.class);
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+    }
+
+    @Test
+    public void shouldNotValidateBinaryOrCompressedText() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+        NEGOTIATED_RSV_BITS_KEY.set(session, 0x40);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(6))
+                                 .put((byte) 0x82)
+                                 .put((byte) 0x01)
+                                 .put((byte) 0xff)
+                                 .put((byte) 0xc1)
+                                 .put((byte) 0x01)
+                                 .put((byte) 0xff)
+                                 .flip();
+
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+        assertTrue(session.getDecoderOutputQueue().poll() instanceof WsBinaryMessage);
+        assertTrue(session.getDecoderOutputQueue().poll() instanceof WsTextMessage);
+        assertTrue(session.getDecoderOutputQueue().isEmpty());
+    }
+
+    @Test
+    public void shouldReuseOnlyReleasedMessages() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        WsFrameDecoder decoder = new WsFrameDecoder(allocator, 0, false, true);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(6))
+                                 .put((byte) 0x82)
+                                 .put((byte) 0x01)
+                                 .put((byte) 0x01)
+                                 .put((byte) 0x82)
+                                 .put((byte) 0x01)
+                                 .put((byte) 0x02)
+                                 .flip();
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+        WsMessage first = (WsMessage) session.getDecoderOutputQueue().poll();
+        WsMessage second = (WsMessage) session.getDecoderOutputQueue().poll();
+        assertNotSame(first, second);
+        assertEquals(new WsBinaryMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { 0x01 }))), first);
+        assertEquals(new WsBinaryMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { 0x02 }))), second);
+        IoBufferEx secondBytes = second.getBytes();
+        // first is still queued, or kept by its consumer, when the message received event returns
+        second.release();
+        decoder.recycleMessages();
+
+        in = allocator.wrap(allocator.allocate(3))
+                      .put((byte) 0x02)
+                      .put((byte) 0x01)
+                      .put((byte) 0x03)
+                      .flip();
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+        WsMessage third = (WsMessage) session.getDecoderOutputQueue().poll();
+        assertSame(second, third);
+        assertEquals(new WsBinaryMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { 0x03 })), false), third);
+        assertEquals(new WsBinaryMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { 0x01 }))), first);
+        assertEquals(ByteBuffer.wrap(new byte[] { 0x02 }), secondBytes.buf());
+
+        // released only after the event that delivered it returned, so never reused
+        first.release();
+        decoder.recycleMessages();
+
+        in = allocator.wrap(allocator.allocate(6))
+                      .put((byte) 0x80)
+                      .put((byte) 0x01)
+                      .put((byte) 0x05)
+                      .put((byte) 0x82)
+                      .put((byte) 0x01)
+                      .put((byte) 0x04)
+                      .flip();
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+        assertTrue(session.getDecoderOutputQueue().poll() instanceof WsContinuationMessage);
+        WsMessage fourth = (WsMessage) session.getDecoderOutputQueue().poll();
+        assertNotSame(first, fourth);
+        assertNotSame(third, fourth);
+        assertEquals(new WsBinaryMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { 0x04 }))), fourth);
+        assertEquals(new WsBinaryMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { 0x01 }))), first);
+    }
 /*
  * Use the below utility to decode a ws frame.
     public static String decodeABinaryFrame(byte[] hexBytes) throws Exception {
@@ -70,6 +70,26 @@ public class WsFrameEncoderTest {
                      out);
     }
 
+    @Test
+    public void shouldEncodeRsv1() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolEncoder encoder = new WsFrameEncoder(allocator, false);
+
+        WsMessage in = new WsTextMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { 0x00 })));
+        in.setRsv(0x40);
+
+        encoder.encode(session, in, session.getEncoderOutput());
+
+        IoBufferEx out = (IoBufferEx) session.getEncoderOutputQueue().poll();
+        assertEquals(allocator.wrap(allocator.allocate(3))
+                              .put((byte)0xc1)
+                              .put((byte)0x01)
+                              .put((byte)0x00)
+                              .flip(),
+                     out);
+    }
+
     @Test
     public void shouldEncodeUnexpectedConditionClose()
         throws Exception {
@@ -222,6 +242,79 @@ public class WsFrameEncoderTest {
         assertSame(buf.array(), out.array());
     }
 
+    @Test
+    public void testEncodeMaskedBinaryFrameZeroCopy() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolEncoder encoder = new WsFrameEncoder(allocator, true);
+
+        WsBufferAllocator wsAllocator = new WsBufferAllocator(allocator);
+        IoBufferEx buf = wsAllocator.wrap(wsAllocator.allocate(200, FLAG_ZERO_COPY)).fillAndReset((byte)0x97, 200);
+        WsMessage in = new WsBinaryMessage(buf);
+
+        encoder.encode(session, in, session.getEncoderOutput());
+
+        IoBufferEx out = (IoBufferEx) session.getEncoderOutputQueue().poll();
+        assertEquals(208, out.remaining());
+        assertEquals((byte) 0x82, out.get(out.position()));
+        assertEquals((byte) 0xFE, out.get(out.position() + 1));
+        assertEquals((byte) 0x00, out.get(out.position() + 2));
+        assertEquals((byte) 0xC8, out.get(out.position() + 3));
+        int mask = out.getInt(out.position() + 4);
+        ByteBuffer payload = out.buf().duplicate();
+        payload.position(payload.position() + 8);
+        WsFrameDecoder.unmask(payload, mask);
+        assertEquals(allocator.wrap(allocator.allocate(200)).fill((byte) 0x97, 200).flip().buf(), payload);
+        assertNotSame(buf.array(), out.array());
+        assertEquals(allocator.wrap(allocator.allocate(200)).fill((byte) 0x97, 200).flip(), buf);
+    }
+
+    @Test
+    public void testEncodeMaskedBinaryFrameZeroCopyTwice() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolEncoder encoder = new WsFrameEncoder(allocator, true);
+
+        WsBufferAllocator wsAllocator = new WsBufferAllocator(allocator);
+        IoBufferEx buf = wsAllocator.wrap(wsAllocator.allocate(200, FLAG_ZERO_COPY)).fillAndReset((byte)0x97, 200);
+        WsMessage in = new WsBinaryMessage(buf);
+
+        // as when a write is retried, or the same buffer is written again
+        encoder.encode(session, in, session.getEncoderOutput());
+        encoder.encode(session, in, session.getEncoderOutput());
+
+        for (int i = 0; i < 2; i++) {
+            IoBufferEx out = (IoBufferEx) session.getEncoderOutputQueue().poll();
+            assertEquals(208, out.remaining());
+            int mask = out.getInt(out.position() + 4);
+            ByteBuffer payload = out.buf().duplicate();
+            payload.position(payload.position() + 8);
+            WsFrameDecoder.unmask(payload, mask);
+            assertEquals(allocator.wrap(allocator.allocate(200)).fill((byte) 0x97, 200).flip().buf(), payload);
+        }
+        assertEquals(allocator.wrap(allocator.allocate(200)).fill((byte) 0x97, 200).flip(), buf);
+    }
+
+    @Test
+    public void testEncodeMaskedBinaryFrameSharedZeroCopy() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolEncoder encoder = new WsFrameEncoder(allocator, true);
+
+        WsBufferAllocator wsAllocator = new WsBufferAllocator(allocator);
+        IoBufferEx buf = wsAllocator.wrap(wsAllocator.allocate(200, FLAG_ZERO_COPY), FLAG_SHARED).fillAndReset((byte)0x97, 200);
+        WsMessage in = new WsBinaryMessage(buf);
+
+        encoder.encode(session, in, session.getEncoderOutput());
+
+        IoBufferEx out = (IoBufferEx) session.getEncoderOutputQueue().poll();
+        assertEquals(208, out.remaining());
+        assertNotSame(buf.array(), out.array());
+        ByteBuffer payload = buf.buf().duplicate();
+        payload.position(payload.limit() - 200);
+        assertEquals(allocator.wrap(allocator.allocate(200)).fill((byte) 0x97, 200).flip().buf(), payload);
+    }
+
     @Test
     public void testEncodeZeroLengthTextFrame() throws Exception {
         ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
@@ -914,7 +914,7 @@ public class WsebSession extends AbstractWsBridgeSession<WsebSession, WsBuffer>
 
                                 if (wsBuffer.isAutoCache()) {
                                     // buffer is cached on parent, continue with derived caching
-                                    newWsebMessage.initCache();
+                                    newWsebMessage.initCache(wsBuffer.isAutoCacheShared());
                                 }
                                 boolean wasUpdated = wsBuffer.setMessage(newWsebMessage);
                                 wsebMessage = wasUpdated ? newWsebMessage : wsBuffer.getMessage();
@@ -39,6 +39,7 @@ class WsebTransportSessionIdleTracker implements IoSessionIdleTracker {
             WsebTransportSessionIdleTracker.class, "tracked");
 
     private final Logger logger;
+    // created from the acceptor's or connector's per-thread tracker on an I/O thread, so it uses that worker's wheel
     private final IoSessionIdleTracker idleTracker = new DefaultIoSessionIdleTracker();
 
     public WsebTransportSessionIdleTracker(Logger logger) {
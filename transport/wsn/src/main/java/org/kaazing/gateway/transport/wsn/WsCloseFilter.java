@@ -35,6 +35,7 @@ import org.apache.mina.filter.codec.ProtocolDecoderException;
 import org.kaazing.gateway.transport.ws.WsCloseMessage;
 import org.kaazing.gateway.transport.ws.WsFilterAdapter;
 import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.util.WSInvalidUTF8Exception;
 import org.kaazing.gateway.transport.ws.util.WSMessageTooLongException;
 import org.kaazing.gateway.util.Utf8Util;
 import org.kaazing.gateway.util.Utils;
@@ -333,6 +334,9 @@ public class WsCloseFilter
                 if (cause instanceof WSMessageTooLongException) {
                     closeMessage = WsCloseMessage.MESSAGE_TOO_LONG_ERROR;
                     session.suspendRead();
+                } else if (cause instanceof WSInvalidUTF8Exception) {
+                    // RFC 6455 section 8.1, text that is not valid UTF-8 fails the connection with 1007
+                    closeMessage = WsCloseMessage.BAD_DATA_ERROR;
                 } else if(cause instanceof ProtocolDecoderException) {
                     closeMessage = WsCloseMessage.PROTOCOL_ERROR;
                 } else {
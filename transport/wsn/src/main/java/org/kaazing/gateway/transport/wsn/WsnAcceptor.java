@@ -35,6 +35,7 @@ import static org.kaazing.gateway.transport.ws.util.WsUtils.HEADER_WEBSOCKET_EXT
 import static org.kaazing.gateway.transport.ws.util.WsUtils.HEADER_X_WEBSOCKET_EXTENSIONS;
 import static org.kaazing.gateway.transport.ws.util.WsUtils.negotiateWebSocketProtocol;
 import static org.kaazing.gateway.transport.wsn.WsnSession.SESSION_KEY;
+import static org.kaazing.gateway.util.InternalSystemProperty.WS_REUSE_MESSAGES;
 import static org.kaazing.gateway.util.ws.WebSocketWireProtocol.HYBI_13;
 import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_NONE;
 
@@ -611,6 +612,7 @@ public class WsnAcceptor extends AbstractBridgeAcceptor<WsnSession, WsnBindings.
                     wsContBuffer.setKind(WsBuffer.Kind.CONTINUATION);
                     wsContBuffer.setFin(wsCont.isFin());
                     filterChain.fireMessageReceived(wsContBuffer);
+                    wsCont.release();
                     break;
                 case TEXT:
                     WsTextMessage wsText = (WsTextMessage) wsMessage;
@@ -619,6 +621,7 @@ public class WsnAcceptor extends AbstractBridgeAcceptor<WsnSession, WsnBindings.
                     wsTextBuffer.setKind(WsBuffer.Kind.TEXT);
                     wsTextBuffer.setFin(wsText.isFin());
                     filterChain.fireMessageReceived(wsTextBuffer);
+                    wsText.release();
                     break;
                 case BINARY:
                     WsBinaryMessage wsBinary = (WsBinaryMessage) wsMessage;
@@ -627,6 +630,8 @@ public class WsnAcceptor extends AbstractBridgeAcceptor<WsnSession, WsnBindings.
                     wsBinaryBuffer.setKind(WsBuffer.Kind.BINARY);
                     wsBinaryBuffer.setFin(wsBinary.isFin());
                     filterChain.fireMessageReceived(wsBinaryBuffer);
+                    // only the bytes are passed on, so the message can be reused by the codec
+                    wsBinary.release();
                     break;
                 case PING:
                     // bounce back PONGs in response to client PINGs
@@ -734,7 +739,7 @@ public class WsnAcceptor extends AbstractBridgeAcceptor<WsnSession, WsnBindings.
 
             // TODO: don't create codec filter if not required
             if ( rfc ) {
-                codec = new WsCodecFilter(wsMaxMessageSize, false);
+                codec = new WsCodecFilter(wsMaxMessageSize, false, WS_REUSE_MESSAGES.getBooleanProperty(configuration));
             } else {
                 codec = new WsDraftHixieFrameCodecFilter(wsMaxMessageSize);
             }
@@ -15,12 +15,15 @@
  */
 package org.kaazing.gateway.transport.wsn;
 
+import static org.junit.Assert.assertEquals;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_NONE;
 import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
 
 import java.nio.ByteBuffer;
 import java.util.Properties;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.mina.core.filterchain.IoFilter.NextFilter;
 import org.apache.mina.core.future.IoFutureListener;
@@ -32,12 +35,16 @@ import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
 import org.jmock.lib.concurrent.Synchroniser;
 import org.jmock.lib.legacy.ClassImposteriser;
 import org.junit.Test;
 import org.kaazing.gateway.transport.ws.WsBinaryMessage;
 import org.kaazing.gateway.transport.ws.WsCloseMessage;
 import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.bridge.filter.WsFrameEncodingSupport;
+import org.kaazing.gateway.transport.ws.util.WSInvalidUTF8Exception;
 import org.kaazing.gateway.util.ws.WebSocketWireProtocol;
 import org.slf4j.Logger;
 
@@ -175,4 +182,47 @@ public class WsCloseFilterTest {
         context.assertIsSatisfied();
     }
 
+    @Test
+    public void filterCloseShouldSendBadDataCloseAfterInvalidUTF8() throws Exception {
+        Mockery context = new Mockery() {{
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }};
+        context.setThreadingPolicy(new Synchroniser());
+        final NextFilter nextFilter = context.mock(NextFilter.class);
+        final IoSession session = context.mock(IoSession.class);
+        final WsnSession wsnSession = context.mock(WsnSession.class);
+        final Logger logger = context.mock(Logger.class);
+        final ScheduledExecutorService scheduler = context.mock(ScheduledExecutorService.class);
+        final AtomicReference<Object> written = new AtomicReference<>();
+
+        context.checking(new Expectations() {
+            {
+                allowing(logger).isTraceEnabled(); will(returnValue(false));
+                allowing(session).isConnected(); will(returnValue(true));
+                oneOf(session).getAttribute(WsnSession.SESSION_KEY); will(returnValue(wsnSession));
+                oneOf(wsnSession).getCloseException(); will(returnValue(new WSInvalidUTF8Exception("Invalid UTF-8")));
+                oneOf(scheduler).schedule(with(any(WsCloseFilter.class)), with(any(Long.class)), with(TimeUnit.MILLISECONDS));
+                oneOf(nextFilter).filterWrite(with(session), with(any(WriteRequest.class)));
+                will(new CustomAction("capture written message") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        written.set(((WriteRequest) invocation.getParameter(1)).getMessage());
+                        return null;
+                    }
+                });
+            }
+        });
+
+        Properties configuration = new Properties();
+        WsCloseFilter filter = new WsCloseFilter(WebSocketWireProtocol.RFC_6455, configuration, logger, scheduler);
+        filter.filterClose(nextFilter, session);
+        context.assertIsSatisfied();
+
+        // CLOSE frame with status 1007 (invalid frame payload data)
+        byte[] expected = {(byte) 0x88, (byte) 0x02, (byte) 0x03, (byte) 0xef};
+        WsMessage close = (WsMessage) written.get();
+        assertEquals(BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(expected)),
+                     WsFrameEncodingSupport.doEncode(BUFFER_ALLOCATOR, FLAG_NONE, close));
+    }
+
 }
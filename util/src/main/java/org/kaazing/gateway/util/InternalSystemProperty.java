@@ -104,6 +104,27 @@ public enum InternalSystemProperty {
     BROADCAST_SERVICE_DISCONNECT_CLIENTS_ON_RECONNECT(
             "org.kaazing.gateway.server.service.broadcast.DISCONNECT_CLIENTS_ON_RECONNECT"),
 
+    // Files up to this many bytes are served by the directory service from an in-memory cache
+    DIRECTORY_SERVICE_CACHE_MAXIMUM_FILE_SIZE
+            ("org.kaazing.gateway.server.service.directory.CACHE_MAXIMUM_FILE_SIZE", "65536"),
+
+    // Upper bound in bytes for the directory service in-memory file cache (0 disables caching)
+    DIRECTORY_SERVICE_CACHE_MAXIMUM_SIZE
+            ("org.kaazing.gateway.server.service.directory.CACHE_MAXIMUM_SIZE", "16777216"),
+
+    // Files that are not cached are streamed by the directory service from memory mapped regions in chunks of this size
+    DIRECTORY_SERVICE_CHUNK_SIZE
+            ("org.kaazing.gateway.server.service.directory.CHUNK_SIZE", "65536"),
+
+    // Number of request paths whose resolved file and response headers are cached by each directory service,
+    // invalidated by watching the directory for changes (0 disables caching)
+    DIRECTORY_SERVICE_RESOLVED_CACHE_SIZE
+            ("org.kaazing.gateway.server.service.directory.RESOLVED_CACHE_SIZE", "1024"),
+
+    // true to keep gzipped copies of small text files, sent to clients accepting gzip content encoding
+    DIRECTORY_SERVICE_GZIP_ENABLED
+            ("org.kaazing.gateway.server.service.directory.GZIP_ENABLED", "false"),
+
     // management
     MANAGEMENT_SESSION_THRESHOLD
             ("org.kaazing.gateway.management.SESSION_THRESHOLD", "500"),
@@ -139,7 +160,98 @@ public enum InternalSystemProperty {
     // Note, the idle usage is using the mina netty idle timeout which may be set
     // by higher layers. Logic for this is in NioIdleFilter
     TCP_IDLE_TIMEOUT("org.kaazing.gateway.server.transport.tcp.IDLE_TIMEOUT", Integer.toString(0)),
-    UDP_IDLE_TIMEOUT("org.kaazing.gateway.server.transport.udp.IDLE_TIMEOUT", "60");
+    UDP_IDLE_TIMEOUT("org.kaazing.gateway.server.transport.udp.IDLE_TIMEOUT", "60"),
+
+    // Number of UDP boss threads servicing each bound port. More than one boss requires SO_REUSEPORT (JDK 9+),
+    // otherwise a single socket is bound
+    UDP_BOSS_COUNT("org.kaazing.gateway.server.transport.udp.BOSS_COUNT", "1"),
+
+    // Deflate level (0-9) used for gzipped http responses (wseb and sse downstreams)
+    HTTP_GZIP_COMPRESSION_LEVEL("org.kaazing.gateway.server.transport.http.GZIP_COMPRESSION_LEVEL", "6"),
+
+    // Gzipped http content smaller than this many bytes is sent uncompressed in stored blocks
+    HTTP_GZIP_MINIMUM_SIZE("org.kaazing.gateway.server.transport.http.GZIP_MINIMUM_SIZE", "256"),
+
+    // Deflate level (0-9) used for WebSocket messages when permessage-deflate is negotiated
+    WS_DEFLATE_COMPRESSION_LEVEL("org.kaazing.gateway.server.transport.ws.DEFLATE_COMPRESSION_LEVEL", "6"),
+
+    // WebSocket messages smaller than this many bytes are sent uncompressed when permessage-deflate is negotiated
+    WS_DEFLATE_MINIMUM_SIZE("org.kaazing.gateway.server.transport.ws.DEFLATE_MINIMUM_SIZE", "64"),
+
+    // true to keep compression context between messages (better ratio, but each connection holds its own zlib state),
+    // false to negotiate no context takeover in both directions and share zlib state per IO thread
+    WS_DEFLATE_CONTEXT_TAKEOVER("org.kaazing.gateway.server.transport.ws.DEFLATE_CONTEXT_TAKEOVER", "false"),
+
+    // Upper bound (8-15) for the client_max_window_bits permessage-deflate parameter when offered by a client
+    WS_DEFLATE_CLIENT_MAX_WINDOW_BITS("org.kaazing.gateway.server.transport.ws.DEFLATE_CLIENT_MAX_WINDOW_BITS", "15"),
+
+    // true to reuse decoded WebSocket data message objects for later frames of the same connection, once the wsn
+    // handler has released them with WsMessage.release()
+    WS_REUSE_MESSAGES("org.kaazing.gateway.server.transport.ws.REUSE_MESSAGES", "false"),
+
+    // Maximum number of TLS sessions cached for resumption by each ssl acceptor, 0 disables resumption
+    SSL_SESSION_CACHE_SIZE("org.kaazing.gateway.server.transport.ssl.SESSION_CACHE_SIZE", "10240"),
+
+    // Lifetime in seconds of a cached TLS session, after which clients must perform a full handshake
+    SSL_SESSION_TIMEOUT("org.kaazing.gateway.server.transport.ssl.SESSION_TIMEOUT", "3600"),
+
+    // Number of threads running TLS handshake computations for each ssl acceptor and connector,
+    // 0 runs them on the IO worker thread owning the connection
+    SSL_HANDSHAKE_THREADS("org.kaazing.gateway.server.transport.ssl.HANDSHAKE_THREADS",
+            Integer.toString(Runtime.getRuntime().availableProcessors())),
+
+    // Handshake computations queued beyond this limit run on the IO worker thread owning the connection
+    SSL_HANDSHAKE_QUEUE_SIZE("org.kaazing.gateway.server.transport.ssl.HANDSHAKE_QUEUE_SIZE", "1024"),
+
+    // Maximum number of successful logins cached per realm by the http acceptor, 0 (the default) disables the login cache
+    HTTP_LOGIN_CACHE_SIZE("org.kaazing.gateway.server.transport.http.LOGIN_CACHE_SIZE", "0"),
+
+    // Lifetime in seconds of a cached login, further bounded by the session timeout of its login result
+    HTTP_LOGIN_CACHE_TTL("org.kaazing.gateway.server.transport.http.LOGIN_CACHE_TTL", "60"),
+
+    // Number of threads running the login modules of each realm, 0 runs logins on the shared background scheduler
+    HTTP_LOGIN_THREADS("org.kaazing.gateway.server.transport.http.LOGIN_THREADS", "8"),
+
+    // Logins queued per realm beyond this limit are refused with 503 Service Unavailable
+    HTTP_LOGIN_QUEUE_SIZE("org.kaazing.gateway.server.transport.http.LOGIN_QUEUE_SIZE", "256"),
+
+    // Logins waiting longer than this many seconds for a login thread are refused with 503 Service Unavailable,
+    // 0 waits indefinitely
+    HTTP_LOGIN_QUEUE_TIMEOUT("org.kaazing.gateway.server.transport.http.LOGIN_QUEUE_TIMEOUT", "10"),
+
+    // true to run login modules on virtual threads (JDK 21+), for login modules blocking on remote calls
+    HTTP_LOGIN_VIRTUAL_THREADS("org.kaazing.gateway.server.transport.http.LOGIN_VIRTUAL_THREADS", "false"),
+
+    // Maximum number of connecting, active and pooled upstream connections per origin opened by the http connector,
+    // 0 for no limit
+    HTTP_CONNECT_POOL_MAX_CONNECTIONS("org.kaazing.gateway.server.transport.http.CONNECT_POOL_MAX_CONNECTIONS", "0"),
+
+    // Connects waiting longer than this many seconds for an upstream connection fail, 0 fails them without waiting
+    HTTP_CONNECT_POOL_ACQUIRE_TIMEOUT("org.kaazing.gateway.server.transport.http.CONNECT_POOL_ACQUIRE_TIMEOUT", "30"),
+
+    // true to reuse upstream connections pooled by other IO threads, handing the connect off to the owning IO thread
+    HTTP_CONNECT_POOL_BORROW("org.kaazing.gateway.server.transport.http.CONNECT_POOL_BORROW", "false"),
+
+    // Number of idle upstream connections kept open per origin once it has been connected to, 0 for none
+    HTTP_CONNECT_POOL_MIN_IDLE("org.kaazing.gateway.server.transport.http.CONNECT_POOL_MIN_IDLE", "0"),
+
+    // true to reuse the most recently pooled upstream connection first, false to reuse the least recently pooled
+    HTTP_CONNECT_POOL_LIFO("org.kaazing.gateway.server.transport.http.CONNECT_POOL_LIFO", "true"),
+
+    // Number of events retained to replay to an SSE client reconnecting with a Last-Event-ID, 0 disables event ids
+    // and replay. Only reconnects to the session location sent in-band on create are replayed to: a reconnect to
+    // the create location, as made by a standard EventSource, starts a new session and replays nothing
+    SSE_REPLAY_EVENTS("org.kaazing.gateway.server.transport.sse.REPLAY_EVENTS", "0"),
+
+    // Maximum number of event data bytes retained for replay, per SSE session and per SSE binding
+    SSE_REPLAY_BYTES("org.kaazing.gateway.server.transport.sse.REPLAY_BYTES", "1048576"),
+
+    // Maximum age in seconds of an event retained for replay
+    SSE_REPLAY_AGE("org.kaazing.gateway.server.transport.sse.REPLAY_AGE", "60"),
+
+    // true to retain events written to several SSE sessions, such as broadcast messages, once per SSE binding
+    // rather than once per session
+    SSE_REPLAY_SHARED("org.kaazing.gateway.server.transport.sse.REPLAY_SHARED", "true");
 
     private final String name;
     private final String defaultValue;